@@ -469,6 +469,23 @@ public class JavaHelper
         }
     }
 
+    public static double silentParseDouble( final String input, final double defaultValue )
+    {
+        if ( input == null )
+        {
+            return defaultValue;
+        }
+
+        try
+        {
+            return Double.parseDouble( input );
+        }
+        catch ( final NumberFormatException e )
+        {
+            return defaultValue;
+        }
+    }
+
     public static boolean doubleContainsLongValue( final Double input )
     {
         return input.equals( Math.floor( input ) )
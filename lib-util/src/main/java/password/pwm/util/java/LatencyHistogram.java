@@ -0,0 +1,178 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.java;
+
+import lombok.Value;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Lock free histogram of operation latencies, suitable for recording from many threads on hot paths.</p>
+ *
+ * <p>Samples are recorded in microseconds into logarithmic buckets, four per power of two, so reported percentiles are
+ * the upper bound of the containing bucket and over-state the true value by at most 25%.  Samples are retained
+ * for the life of the instance.</p>
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = ( MAX_EXPONENT + 1 ) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray( BUCKET_COUNT );
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator( Math::max, 0 );
+
+    public void record( final Duration duration )
+    {
+        final long micros = Math.max( 0, duration.toNanos() / 1000 );
+        buckets.incrementAndGet( bucketIndex( micros ) );
+        count.increment();
+        totalMicros.add( micros );
+        maxMicros.accumulate( micros );
+    }
+
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    /**
+     * Returns the latency at or below which the requested fraction of samples fall.
+     *
+     * @param percentile a value between 0 and 1, for example 0.95
+     * @return the latency, or {@link Duration#ZERO} if no samples have been recorded
+     */
+    public Duration percentile( final double percentile )
+    {
+        final long totalCount = getCount();
+        if ( totalCount == 0 )
+        {
+            return Duration.ZERO;
+        }
+
+        final long rank = Math.max( 1, ( long ) Math.ceil( percentile * totalCount ) );
+        long seen = 0;
+        for ( int i = 0; i < BUCKET_COUNT; i++ )
+        {
+            seen += buckets.get( i );
+            if ( seen >= rank )
+            {
+                return Duration.ofNanos( Math.min( bucketUpperBound( i ), maxMicros.get() ) * 1000 );
+            }
+        }
+
+        return Duration.ofNanos( maxMicros.get() * 1000 );
+    }
+
+    public Duration mean()
+    {
+        final long totalCount = getCount();
+        return totalCount == 0
+                ? Duration.ZERO
+                : Duration.ofNanos( totalMicros.sum() / totalCount * 1000 );
+    }
+
+    public Duration max()
+    {
+        return Duration.ofNanos( maxMicros.get() * 1000 );
+    }
+
+    public Summary summary()
+    {
+        return new Summary(
+                getCount(),
+                toMillis( mean() ),
+                toMillis( percentile( 0.50 ) ),
+                toMillis( percentile( 0.95 ) ),
+                toMillis( percentile( 0.99 ) ),
+                toMillis( max() ) );
+    }
+
+    public Map<String, String> debugStats()
+    {
+        final Summary summary = summary();
+        final Map<String, String> debugStats = new LinkedHashMap<>();
+        debugStats.put( "count", Long.toString( summary.getCount() ) );
+        debugStats.put( "meanMs", formatMillis( summary.getMeanMs() ) );
+        debugStats.put( "p50Ms", formatMillis( summary.getP50Ms() ) );
+        debugStats.put( "p95Ms", formatMillis( summary.getP95Ms() ) );
+        debugStats.put( "p99Ms", formatMillis( summary.getP99Ms() ) );
+        debugStats.put( "maxMs", formatMillis( summary.getMaxMs() ) );
+        return debugStats;
+    }
+
+    static int bucketIndex( final long micros )
+    {
+        if ( micros < SUB_BUCKETS )
+        {
+            return ( int ) micros;
+        }
+
+        final int exponent = Math.min( MAX_EXPONENT, 63 - Long.numberOfLeadingZeros( micros ) );
+        final int subBucket = ( int ) ( ( micros >>> ( exponent - SUB_BUCKET_BITS ) ) & ( SUB_BUCKETS - 1 ) );
+        return exponent * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound( final int index )
+    {
+        if ( index < SUB_BUCKETS )
+        {
+            return index;
+        }
+
+        final int exponent = index / SUB_BUCKETS;
+        final int subBucket = index % SUB_BUCKETS;
+        return ( ( long ) ( SUB_BUCKETS + subBucket + 1 ) << ( exponent - SUB_BUCKET_BITS ) ) - 1;
+    }
+
+    private static double toMillis( final Duration duration )
+    {
+        return duration.toNanos() / 1_000_000d;
+    }
+
+    private static String formatMillis( final double millis )
+    {
+        return String.format( "%.3f", millis );
+    }
+
+    /**
+     * Point in time summary of a {@link LatencyHistogram}, with latencies in milliseconds.
+     */
+    @Value
+    public static class Summary implements Serializable
+    {
+        private final long count;
+        private final double meanMs;
+        private final double p50Ms;
+        private final double p95Ms;
+        private final double p99Ms;
+        private final double maxMs;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.java;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void testPercentiles()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for ( int i = 1; i <= 100; i++ )
+        {
+            histogram.record( Duration.ofMillis( i ) );
+        }
+
+        Assert.assertEquals( 100, histogram.getCount() );
+        assertWithinBucket( Duration.ofMillis( 50 ), histogram.percentile( 0.50 ) );
+        assertWithinBucket( Duration.ofMillis( 95 ), histogram.percentile( 0.95 ) );
+        assertWithinBucket( Duration.ofMillis( 99 ), histogram.percentile( 0.99 ) );
+        Assert.assertEquals( Duration.ofMillis( 100 ), histogram.max() );
+        Assert.assertEquals( Duration.ofMillis( 100 ), histogram.percentile( 1 ) );
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals( Duration.ZERO, histogram.percentile( 0.99 ) );
+        Assert.assertEquals( Duration.ZERO, histogram.mean() );
+    }
+
+    @Test
+    public void testBucketBounds()
+    {
+        int previousIndex = 0;
+        for ( long micros = 0; micros < 100_000; micros++ )
+        {
+            final int index = LatencyHistogram.bucketIndex( micros );
+            Assert.assertTrue( index >= previousIndex );
+            Assert.assertTrue( micros <= LatencyHistogram.bucketUpperBound( index ) );
+            if ( index != previousIndex )
+            {
+                Assert.assertTrue( micros > LatencyHistogram.bucketUpperBound( previousIndex ) );
+            }
+            previousIndex = index;
+        }
+    }
+
+    private static void assertWithinBucket( final Duration expected, final Duration actual )
+    {
+        Assert.assertTrue( actual.compareTo( expected ) >= 0 );
+        Assert.assertTrue( actual.toNanos() <= expected.toNanos() * 1.25 );
+    }
+}
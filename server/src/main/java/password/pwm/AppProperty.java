@@ -35,6 +35,7 @@ public enum AppProperty
     APPLICATION_FILELOCK_WAIT_SECONDS               ( "application.fileLock.waitSeconds" ),
     APPLICATION_READ_APP_LOCK_MAX_WAIT_MS           ( "application.readAppLock.maxWaitMs" ),
     APPLICATION_RESTART_MAX_REQUEST_WAIT_MS         ( "application.restart.maxRequestWaitMs" ),
+    APPLICATION_SERVICE_STARTUP_THREADS             ( "application.serviceStartup.threads" ),
     APPLICATION_WORDLIST_RETRY_SECONDS              ( "application.wordlistRetryImportSeconds" ),
     AUDIT_EVENTS_EMAILFROM                          ( "audit.events.emailFrom" ),
     AUDIT_EVENTS_EMAILSUBJECT                       ( "audit.events.emailSubject" ),
@@ -51,7 +52,14 @@ public enum AppProperty
     BACKUP_CONFIG_COUNT                             ( "backup.config.count" ),
     BACKUP_LOCALDB_COUNT                            ( "backup.localdb.count" ),
     CACHE_ENABLE                                    ( "cache.enable" ),
+    /** Maximum number of in-memory cache entries, used unless {@link #CACHE_MEMORY_MAX_BYTES} is set. */
     CACHE_MEMORY_MAX_ITEMS                          ( "cache.memory.maxItems" ),
+
+    /** Estimated heap bytes for in-memory cache entries, when greater than zero this replaces {@link #CACHE_MEMORY_MAX_ITEMS}. */
+    CACHE_MEMORY_MAX_BYTES                          ( "cache.memory.maxBytes" ),
+
+    /** Time a cache read waits for another caller's load of the same key before running its own loader. */
+    CACHE_MEMORY_LOAD_WAIT_TIMEOUT_MS               ( "cache.memory.loadWaitTimeoutMs" ),
     CACHE_PWRULECHECK_LIFETIME_MS                   ( "cache.pwRuleCheckLifetimeMS" ),
     CACHE_FORM_UNIQUE_VALUE_LIFETIME_MS             ( "cache.uniqueFormValueLifetimeMS" ),
     CLIENT_ACTIVITY_MAX_EPS_RATE                    ( "client.ajax.activityMaxEpsRate" ),
@@ -90,8 +98,14 @@ public enum AppProperty
     DB_CONNECTIONS_MAX                              ( "db.connections.max" ),
     DB_CONNECTIONS_TIMEOUT_MS                       ( "db.connections.timeoutMs" ),
     DB_CONNECTIONS_WATCHDOG_FREQUENCY_SECONDS       ( "db.connections.watchdogFrequencySeconds" ),
+    DB_CONNECTIONS_CHECKOUT_TIMEOUT_MS              ( "db.connections.checkoutTimeoutMs" ),
+    DB_CONNECTIONS_VALIDATE_IDLE_SECONDS            ( "db.connections.validateIdleSeconds" ),
     DB_INIT_HALT_ON_INDEX_CREATE_ERROR              ( "db.init.haltOnIndexCreateError" ),
     DB_SCHEMA_KEY_LENGTH                            ( "db.schema.keyLength" ),
+    DB_VENDOR                                       ( "db.vendor" ),
+    DB_STATEMENT_CACHE_SIZE                         ( "db.statementCache.size" ),
+    DB_BATCH_MAX_SIZE                               ( "db.batch.maxSize" ),
+    DB_REPLICA_URL                                  ( "db.replica.url" ),
     DOWNLOAD_FILENAME_STATISTICS_CSV                ( "download.filename.statistics.csv" ),
     DOWNLOAD_FILENAME_SESSIONS_CSV                  ( "download.filename.sessions.csv" ),
     DOWNLOAD_FILENAME_USER_REPORT_SUMMARY_CSV       ( "download.filename.reportSummary.csv" ),
@@ -101,10 +115,18 @@ public enum AppProperty
     DOWNLOAD_FILENAME_USER_DEBUG_JSON               ( "download.filename.userDebug.json" ),
     FORGOTTEN_PASSWORD_TOKEN_AUTO_SELECT_DEST       ( "forgottenPassword.token.autoSelectSingleDestination" ),
     FORM_EMAIL_REGEX                                ( "form.email.regexTest" ),
+    HTTP_RESOURCES_MAX_CACHE_TOTAL_BYTES            ( "http.resources.maxCacheTotalBytes" ),
+
+    /**
+     * Replaced by {@link #HTTP_RESOURCES_MAX_CACHE_TOTAL_BYTES}.
+     * @deprecated only read as a fallback when overridden and the total byte limit is not.
+     */
+    @Deprecated
     HTTP_RESOURCES_MAX_CACHE_ITEMS                  ( "http.resources.maxCacheItems" ),
     HTTP_RESOURCES_MAX_CACHE_BYTES                  ( "http.resources.maxCacheBytes" ),
     HTTP_RESOURCES_EXPIRATION_SECONDS               ( "http.resources.expirationSeconds" ),
     HTTP_RESOURCES_ENABLE_GZIP                      ( "http.resources.gzip.enable" ),
+    HTTP_RESOURCES_ENABLE_PRECOMPRESS               ( "http.resources.precompress.enable" ),
     HTTP_RESOURCES_PATH_NONCE_LENGTH                ( "http.resources.pathNonce.length" ),
     HTTP_RESOURCES_ENABLE_PATH_NONCE                ( "http.resources.pathNonceEnable" ),
     HTTP_RESOURCES_NONCE_PATH_PREFIX                ( "http.resources.pathNoncePrefix" ),
@@ -179,6 +201,9 @@ public enum AppProperty
     LOCALDB_LOGWRITER_BUFFER_SIZE                   ( "localdb.logWriter.bufferSize" ),
     LOCALDB_LOGWRITER_MAX_BUFFER_WAIT_MS            ( "localdb.logWriter.maxBufferWaitMs" ),
     LOCALDB_LOGWRITER_MAX_TRIM_SIZE                 ( "localdb.logWriter.maxTrimSize" ),
+    LOCALDB_LOGWRITER_INDEX_BUCKET_MS               ( "localdb.logWriter.index.bucketMs" ),
+    LOCALDB_LOGWRITER_INDEX_MAX_BUCKET_EVENTS       ( "localdb.logWriter.index.maxBucketEvents" ),
+    LOCALDB_LOGWRITER_INDEX_MAX_BUCKET_USERNAMES    ( "localdb.logWriter.index.maxBucketUsernames" ),
     LOCALDB_RELOAD_WHEN_APP_RESTARTED               ( "localdb.reloadWhenAppRestarted" ),
     MACRO_RANDOM_CHAR_MAX_LENGTH                    ( "macro.randomChar.maxLength" ),
     MACRO_LDAP_ATTR_CHAR_MAX_LENGTH                 ( "macro.ldapAttr.maxLength" ),
@@ -189,6 +214,16 @@ public enum AppProperty
 
     /** How often to cleanup the intruder table. */
     INTRUDER_CLEANUP_FREQUENCY_MS                   ( "intruder.cleanupFrequencyMS" ),
+
+    /** Width of the time buckets used to index intruder records for expiration. */
+    INTRUDER_EXPIRY_INDEX_BUCKET_MS                 ( "intruder.expiryIndex.bucketMS" ),
+
+    /** How often modified in-memory intruder records are written to the intruder table. */
+    INTRUDER_HOT_SET_FLUSH_FREQUENCY_MS             ( "intruder.hotSet.flushFrequencyMS" ),
+
+    /** Maximum time an unmodified in-memory intruder record is used before being re-read from the intruder table. */
+    INTRUDER_HOT_SET_MAX_AGE_MS                     ( "intruder.hotSet.maxAgeMS" ),
+    INTRUDER_HOT_SET_MAX_ITEMS                      ( "intruder.hotSet.maxItems" ),
     INTRUDER_MIN_DELAY_PENALTY_MS                   ( "intruder.minimumDelayPenaltyMS" ),
     INTRUDER_MAX_DELAY_PENALTY_MS                   ( "intruder.maximumDelayPenaltyMS" ),
     INTRUDER_DELAY_PER_COUNT_MS                     ( "intruder.delayPerCountMS" ),
@@ -220,6 +255,13 @@ public enum AppProperty
     LDAP_CACHE_CANONICAL_SECONDS                    ( "ldap.cache.canonical.seconds" ),
     LDAP_CACHE_USER_GUID_ENABLE                     ( "ldap.cache.userGuid.enable" ),
     LDAP_CACHE_USER_GUID_SECONDS                    ( "ldap.cache.userGuid.seconds" ),
+
+    /** Enable caching of user permission evaluation results. */
+    LDAP_CACHE_PERMISSION_ENABLE                    ( "ldap.cache.permission.enable" ),
+
+    /** Time a user permission evaluation result is cached; group membership changes may not be seen for this long. */
+    LDAP_CACHE_PERMISSION_SECONDS                   ( "ldap.cache.permission.seconds" ),
+
     LDAP_CHAI_SETTINGS                              ( "ldap.chaiSettings" ),
     LDAP_PROXY_CONNECTION_PER_PROFILE               ( "ldap.proxy.connectionsPerProfile" ),
     LDAP_PROXY_MAX_CONNECTIONS                      ( "ldap.proxy.maxConnections" ),
@@ -290,11 +332,15 @@ public enum AppProperty
     PASSWORD_STRENGTH_THRESHOLD_GOOD                ( "password.strength.threshold.good" ),
     PASSWORD_STRENGTH_THRESHOLD_WEAK                ( "password.strength.threshold.weak" ),
     PASSWORD_STRENGTH_THRESHOLD_VERY_WEAK           ( "password.strength.threshold.veryWeak" ),
+    PASSWORD_STRENGTH_CACHE_MAX_ENTRIES             ( "password.strength.cache.maxEntries" ),
+    PASSWORD_STRENGTH_DICTIONARY_MAX_WORDS          ( "password.strength.dictionary.maxWords" ),
     PASSWORD_RULE_WORDLIST_FAIL_WHEN_CLOSED         ( "password.rule.wordlist.failWhenClosed" ),
     PHOTO_CLIENT_CACHE_SECONDS                      ( "photo.clientCacheTimeSeconds" ),
     PHOTO_INTERNAL_HTTP_PROXY_ENABLE                ( "photo.internalHttpProxy.enable" ),
     PWNOTIFY_BATCH_COUNT                            ( "pwNotify.batch.count" ),
     PWNOTIFY_BATCH_DELAY_TIME_MULTIPLIER            ( "pwNotify.batch.delayTimeMultiplier" ),
+    PWNOTIFY_CLUSTER_SHARDING_ENABLE                ( "pwNotify.clusterSharding.enable" ),
+    PWNOTIFY_LDAP_EXPIRATION_FILTER_ENABLE          ( "pwNotify.ldapExpirationFilter.enable" ),
     PWNOTIFY_MAX_LDAP_SEARCH_SIZE                   ( "pwNotify.maxLdapSearchSize" ),
     PWNOTIFY_MAX_SKIP_RERUN_WINDOW_SECONDS          ( "pwNotify.maxSkipRerunWindowSeconds" ),
     PEOPLESEARCH_EXPORT_CSV_MAX_DEPTH               ( "peoplesearch.export.csv.maxDepth" ),
@@ -310,10 +356,13 @@ public enum AppProperty
     QUEUE_EMAIL_RETRY_TIMEOUT_MS                    ( "queue.email.retryTimeoutMs" ),
     QUEUE_EMAIL_MAX_COUNT                           ( "queue.email.maxCount" ),
     QUEUE_EMAIL_MAX_THREADS                         ( "queue.email.maxThreads" ),
+    QUEUE_EMAIL_WORKER_THREADS                      ( "queue.email.workerThreads" ),
+    QUEUE_EMAIL_BATCH_SIZE                          ( "queue.email.batchSize" ),
     QUEUE_EMAIL_MAX_ITEMS_PER_CONNECTION            ( "queue.email.maxItemsPerConnection" ),
     QUEUE_EMAIL_MAX_SECONDS_PER_CONNECTION          ( "queue.email.maxSecondsPerConnection" ),
     QUEUE_SMS_RETRY_TIMEOUT_MS                      ( "queue.sms.retryTimeoutMs" ),
     QUEUE_SMS_MAX_COUNT                             ( "queue.sms.maxCount" ),
+    QUEUE_SMS_WORKER_THREADS                        ( "queue.sms.workerThreads" ),
     QUEUE_SYSLOG_RETRY_TIMEOUT_MS                   ( "queue.syslog.retryTimeoutMs" ),
     QUEUE_SYSLOG_MAX_AGE_MS                         ( "queue.syslog.maxAgeMs" ),
     QUEUE_SYSLOG_MAX_COUNT                          ( "queue.syslog.maxCount" ),
@@ -322,6 +371,11 @@ public enum AppProperty
     RECAPTCHA_VALIDATE_URL                          ( "recaptcha.validateUrl" ),
     REPORTING_LDAP_SEARCH_TIMEOUT_MS                ( "reporting.ldap.searchTimeoutMs" ),
     REPORTING_LDAP_SEARCH_THREADS                   ( "reporting.ldap.searchThreads" ),
+    REPORTING_LDAP_PREFETCH_ATTRIBUTES              ( "reporting.ldap.prefetchAttributes" ),
+    REPORTING_INCREMENTAL_ENABLE                    ( "reporting.incremental.enable" ),
+    REPORTING_INCREMENTAL_CHANGE_ATTRIBUTE          ( "reporting.incremental.changeAttribute" ),
+    REPORTING_INCREMENTAL_CHANGE_MARGIN_SECONDS     ( "reporting.incremental.changeMarginSeconds" ),
+    REPORTING_INCREMENTAL_FULL_REFRESH_SECONDS      ( "reporting.incremental.fullRefreshSeconds" ),
     REPORTING_MAX_REPORT_AGE_SECONDS                ( "reporting.maxReportAgeSeconds" ),
     SECURITY_STRIP_INLINE_JAVASCRIPT                ( "security.html.stripInlineJavascript" ),
     SECURITY_HTTP_FORCE_REQUEST_SEQUENCING          ( "security.http.forceRequestSequencing" ),
@@ -342,6 +396,10 @@ public enum AppProperty
     SECURITY_SHAREDHISTORY_HASH_NAME                ( "security.sharedHistory.hashName" ),
     SECURITY_SHAREDHISTORY_CASE_INSENSITIVE         ( "security.sharedHistory.caseInsensitive" ),
     SECURITY_SHAREDHISTORY_SALT_LENGTH              ( "security.sharedHistory.saltLength" ),
+    SECURITY_SHAREDHISTORY_PARTITION_COUNT          ( "security.sharedHistory.partitionCount" ),
+    SECURITY_SHAREDHISTORY_WRITE_INTERVAL_MS        ( "security.sharedHistory.writeIntervalMs" ),
+    SECURITY_SHAREDHISTORY_WRITE_BATCH_SIZE         ( "security.sharedHistory.writeBatchSize" ),
+    SECURITY_SHAREDHISTORY_MAX_PENDING_WORDS        ( "security.sharedHistory.maxPendingWords" ),
     SECURITY_CERTIFICATES_ALLOW_SELF_SIGNED         ( "security.certs.allowSelfSigned" ),
     SECURITY_CERTIFICATES_VALIDATE_TIMESTAMPS       ( "security.certs.validateTimestamps" ),
     SECURITY_CONFIG_MIN_SECURITY_KEY_LENGTH         ( "security.config.minSecurityKeyLength" ),
@@ -379,8 +437,13 @@ public enum AppProperty
     WORDLIST_CHAR_LENGTH_MAX                        ( "wordlist.maxCharLength" ),
     WORDLIST_CHAR_LENGTH_MIN                        ( "wordlist.minCharLength" ),
     WORDLIST_BUCKET_CHECK_WARNING_TIMEOUT_MS        ( "wordlist.bucketCheckLogWarningTimeoutMs" ),
+    WORDLIST_BUCKET_TYPE                            ( "wordlist.bucket.type" ),
     WORDLIST_WARMUP_COUNT                           ( "wordlist.warmup.count" ),
+    WORDLIST_FILTER_ENABLE                          ( "wordlist.filter.enable" ),
+    WORDLIST_FILTER_FALSE_POSITIVE_RATE             ( "wordlist.filter.falsePositiveRate" ),
+    WORDLIST_FILTER_MAX_BYTES                       ( "wordlist.filter.maxBytes" ),
     WORDLIST_IMPORT_AUTO_IMPORT_RECHECK_SECONDS     ( "wordlist.import.autoImportRecheckSeconds" ),
+    WORDLIST_IMPORT_BATCH_LINES                     ( "wordlist.import.batchLines" ),
     WORDLIST_IMPORT_DURATION_GOAL_MS                ( "wordlist.import.durationGoalMS" ),
     WORDLIST_IMPORT_MIN_FREE_SPACE                  ( "wordlist.import.minFreeSpace" ),
     WORDLIST_IMPORT_MIN_TRANSACTIONS                ( "wordlist.import.minTransactions" ),
@@ -389,6 +452,7 @@ public enum AppProperty
     WORDLIST_IMPORT_LINE_COMMENTS                   ( "wordlist.import.lineComments" ),
     WORDLIST_IMPORT_PAUSE_DURATION_MS               ( "wordlist.import.pauseDurationMs" ),
     WORDLIST_IMPORT_PAUSE_FREQUENCY_MS              ( "wordlist.import.pauseFrequencyMs" ),
+    WORDLIST_IMPORT_THREADS                         ( "wordlist.import.threads" ),
     WORDLIST_INSPECTOR_FREQUENCY_SECONDS            ( "wordlist.inspector.frequencySeconds" ),
     WORDLIST_TEST_MODE                              ( "wordlist.testMode" ),
     WORDLIST_BUCKET_CHECK_TIME_WARNING_MS           ( "wordlist.bucket.checkTimeWarningMs" ),
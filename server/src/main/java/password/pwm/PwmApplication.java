@@ -888,6 +888,19 @@ public class PwmApplication
         return Collections.unmodifiableList( pwmServices );
     }
 
+    public Optional<TimeDuration> getServiceStartupDuration( final DomainID domainID, final PwmService pwmService )
+    {
+        if ( domainID.isSystem() )
+        {
+            return pwmServiceManager.getStartupDuration( pwmService );
+        }
+
+        final PwmDomain pwmDomain = domains().get( domainID );
+        return pwmDomain == null
+                ? Optional.empty()
+                : pwmDomain.getServiceStartupDuration( pwmService );
+    }
+
     public Map<DomainID, List<PwmService>> getAppAndDomainPwmServices( )
     {
         final Map<DomainID, List<PwmService>> pwmServices = new LinkedHashMap<>();
@@ -52,12 +52,14 @@ import password.pwm.util.DailySummaryJob;
 import password.pwm.util.PwmScheduler;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.password.PasswordStrengthEngine;
 import password.pwm.svc.cr.CrService;
 import password.pwm.svc.otp.OtpService;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -97,6 +99,13 @@ public class PwmDomain
             pwmApplication.getPwmScheduler().scheduleDailyZuluZeroStartJob( new DailySummaryJob( this ), executorService, TimeDuration.ZERO );
         }
 
+        if ( pwmApplication.getApplicationMode() == PwmApplicationMode.RUNNING && !pwmApplication.getPwmEnvironment().isInternalRuntimeInstance() )
+        {
+            pwmApplication.getPwmScheduler().immediateExecuteRunnableInNewThread(
+                    () -> PasswordStrengthEngine.loadWordlistDictionaries( this ),
+                    "strength meter dictionary loader for domain " + domainID.stringValue() );
+        }
+
         LOGGER.trace( () -> "completed initializing domain " + domainID.stringValue(), () -> TimeDuration.fromCurrent( startTime ) );
     }
 
@@ -191,6 +200,11 @@ public class PwmDomain
         return pwmServiceManager.getRunningServices();
     }
 
+    public Optional<TimeDuration> getServiceStartupDuration( final PwmService pwmService )
+    {
+        return pwmServiceManager.getStartupDuration( pwmService );
+    }
+
     public UserSearchEngine getUserSearchEngine()
     {
         return ( UserSearchEngine ) pwmServiceManager.getService( PwmServiceEnum.UserSearchEngine );
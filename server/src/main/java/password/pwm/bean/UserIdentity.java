@@ -156,7 +156,7 @@ public class UserIdentity implements Serializable, Comparable<UserIdentity>
             final String jsonValue = JsonFactory.get().serialize( this );
             final String localValue = CRYPO_HEADER + pwmApplication.getSecureService().encryptToString( jsonValue );
             this.obfuscatedValue = localValue;
-            cacheService.put( cacheKey, CachePolicy.makePolicyWithExpiration( TimeDuration.DAY ), localValue );
+            cacheService.put( cacheKey, CachePolicy.makePolicyWithExpiration( TimeDuration.DAY ).withImmutablePayload(), localValue );
             return localValue;
         }
         catch ( final Exception e )
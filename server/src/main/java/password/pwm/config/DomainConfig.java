@@ -56,7 +56,9 @@ import password.pwm.i18n.PwmLocaleBundle;
 import password.pwm.util.PasswordData;
 import password.pwm.util.java.CollectionUtil;
 import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.LazySupplier;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.password.PasswordStrengthEngine;
 import password.pwm.util.secure.PwmHashAlgorithm;
 import password.pwm.util.secure.PwmSecurityKey;
 
@@ -71,6 +73,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -89,6 +92,7 @@ public class DomainConfig implements SettingReader
     private final Map<String, LdapProfile> ldapProfiles;
     private final StoredSettingReader settingReader;
     private final PwmSecurityKey domainSecurityKey;
+    private final Supplier<PasswordStrengthEngine> passwordStrengthEngine = new LazySupplier<>( () -> new PasswordStrengthEngine( this ) );
 
     public DomainConfig( final AppConfig appConfig, final DomainID domainID )
     {
@@ -123,6 +127,11 @@ public class DomainConfig implements SettingReader
         return appConfig;
     }
 
+    public PasswordStrengthEngine getPasswordStrengthEngine()
+    {
+        return passwordStrengthEngine.get();
+    }
+
     public boolean isAdministrativeDomain()
     {
         final String adminDomainStr = getAppConfig().readSettingAsString( PwmSetting.DOMAIN_SYSTEM_ADMIN );
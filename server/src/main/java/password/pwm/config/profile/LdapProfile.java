@@ -175,7 +175,7 @@ public class LdapProfile extends AbstractProfile implements Profile
                 if ( enableCanonicalCache )
                 {
                     final long cacheSeconds = Long.parseLong( pwmDomain.getConfig().readAppProperty( AppProperty.LDAP_CACHE_CANONICAL_SECONDS ) );
-                    final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.of( cacheSeconds, TimeDuration.Unit.SECONDS ) );
+                    final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.of( cacheSeconds, TimeDuration.Unit.SECONDS ) ).withImmutablePayload();
                     pwmDomain.getCacheService().put( cacheKey, cachePolicy, canonicalValue );
                 }
 
@@ -246,7 +246,7 @@ public class PwmPasswordPolicy implements Profile, Serializable
 
     public PasswordRuleReaderHelper getRuleHelper( )
     {
-        return new PasswordRuleReaderHelper( this );
+        return PasswordRuleReaderHelper.forPolicy( this );
     }
 
     public String getValue( final PwmPasswordRule rule )
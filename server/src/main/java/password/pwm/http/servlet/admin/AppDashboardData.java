@@ -36,7 +36,9 @@ import password.pwm.http.bean.DisplayElement;
 import password.pwm.i18n.Admin;
 import password.pwm.i18n.Display;
 import password.pwm.ldap.LdapConnectionService;
+import password.pwm.ldap.LdapOperationMetrics;
 import password.pwm.svc.PwmService;
+import password.pwm.svc.db.DatabaseConnectionPool;
 import password.pwm.svc.node.NodeInfo;
 import password.pwm.svc.node.NodeService;
 import password.pwm.svc.sessiontrack.SessionTrackService;
@@ -114,6 +116,7 @@ public class AppDashboardData implements Serializable
         private Collection<DataStorageMethod> storageMethod;
         private List<HealthRecord> health;
         private Map<String, String> debugData;
+        private String startupDuration;
 
         @Override
         public int compareTo( final ServiceData otherServiceData )
@@ -157,6 +160,8 @@ public class AppDashboardData implements Serializable
     private String nodeSummary;
     private DataStorageMethod nodeStorageMethod;
     private long ldapConnectionCount;
+    private List<LdapOperationMetrics.LatencyRecord> ldapLatency;
+    private List<DatabaseConnectionPool.PoolSummary> databasePools;
     private int sessionCount;
     private int requestsInProgress;
 
@@ -208,6 +213,11 @@ public class AppDashboardData implements Serializable
         }
 
         builder.ldapConnectionCount( LdapConnectionService.totalLdapConnectionCount( pwmDomain.getPwmApplication() ) );
+        builder.ldapLatency( pwmDomain.getLdapConnectionService().getOperationMetrics().latencyRecords() );
+        if ( pwmDomain.getPwmApplication().getDatabaseService() != null )
+        {
+            builder.databasePools( pwmDomain.getPwmApplication().getDatabaseService().getPoolSummaries() );
+        }
         builder.sessionCount( pwmDomain.getSessionTrackService().sessionCount() );
         builder.requestsInProgress( pwmDomain.getPwmApplication().getActiveServletRequests().get() );
 
@@ -301,6 +311,9 @@ public class AppDashboardData implements Serializable
                                 : serviceInfo.getDebugProperties();
 
                 final String guid = pwmApplication.getSecureService().hash( domainID + pwmService.getClass().getSimpleName() );
+                final String startupDuration = pwmApplication.getServiceStartupDuration( domainID, pwmService )
+                        .map( TimeDuration::asCompactString )
+                        .orElse( null );
 
                 returnData.add( new ServiceData(
                         guid,
@@ -309,7 +322,8 @@ public class AppDashboardData implements Serializable
                         pwmService.status(),
                         storageMethods,
                         pwmService.healthCheck(),
-                        debugData
+                        debugData,
+                        startupDuration
                 ) );
             }
         }
@@ -21,12 +21,21 @@
 package password.pwm.http.servlet.resource;
 
 import lombok.Value;
+import password.pwm.http.HttpHeader;
+import password.pwm.util.java.CrcChecksumOutputStream;
 import password.pwm.util.java.ImmutableByteArray;
+import password.pwm.util.java.JavaHelper;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
 
 @Value
 final class CacheEntry implements Serializable
@@ -39,4 +48,41 @@ final class CacheEntry implements Serializable
         this.entity = Objects.requireNonNull( entity );
         this.headerStrings = headerStrings == null ? Collections.emptyMap() : Map.copyOf( headerStrings );
     }
+
+    /**
+     * Read (and optionally gzip) a file resource into a cache entry.  The entry carries a strong ETag derived from the
+     * file content, distinct for the compressed and uncompressed representations.
+     */
+    static CacheEntry fromFileResource( final FileResource file, final boolean gzip )
+            throws IOException
+    {
+        final Map<String, String> headers = new HashMap<>();
+        final ByteArrayOutputStream tempOutputStream = new ByteArrayOutputStream();
+        final long checksum;
+
+        try ( InputStream input = file.getInputStream() )
+        {
+            final OutputStream encodingStream = gzip ? new GZIPOutputStream( tempOutputStream ) : tempOutputStream;
+            try ( CrcChecksumOutputStream checksumStream = CrcChecksumOutputStream.newChecksumOutputStream( encodingStream ) )
+            {
+                JavaHelper.copy( input, checksumStream );
+                checksum = checksumStream.checksum();
+            }
+        }
+
+        if ( gzip )
+        {
+            headers.put( HttpHeader.ContentEncoding.getHttpName(), "gzip" );
+        }
+
+        final ImmutableByteArray entity = ImmutableByteArray.of( tempOutputStream.toByteArray() );
+        headers.put( HttpHeader.ContentLength.getHttpName(), String.valueOf( entity.size() ) );
+        headers.put( HttpHeader.ETag.getHttpName(), "\"" + Long.toString( checksum, 36 ) + ( gzip ? "-gzip" : "" ) + "\"" );
+        return new CacheEntry( entity, headers );
+    }
+
+    String getETag()
+    {
+        return headerStrings.get( HttpHeader.ETag.getHttpName() );
+    }
 }
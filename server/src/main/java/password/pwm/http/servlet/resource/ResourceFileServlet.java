@@ -29,11 +29,11 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.http.HttpHeader;
 import password.pwm.http.HttpMethod;
 import password.pwm.http.PwmRequest;
-import password.pwm.util.java.ImmutableByteArray;
 import password.pwm.http.servlet.PwmServlet;
 import password.pwm.svc.stats.Statistic;
 import password.pwm.svc.stats.StatisticsClient;
 import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
@@ -43,12 +43,10 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.time.Instant;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
@@ -130,37 +128,38 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
 
         final HttpServletResponse response = pwmRequest.getPwmResponse().getHttpServletResponse();
 
-        if ( respondWithNotModified( pwmRequest, resourceConfiguration ) )
-        {
-            return;
-        }
-
         // Initialize response.
         addExpirationHeaders( resourceConfiguration, response );
-        response.setHeader(  HttpHeader.ETag.getHttpName(), resourceConfiguration.getNonceValue() );
         response.setContentType( contentType );
 
         try
         {
-            boolean fromCache = false;
+            ResponseOutcome responseOutcome;
             String debugText;
             try
             {
-                fromCache = handleCacheableResponse( resourceFileRequest, response, resourceService.getCacheMap() );
-                debugText = makeDebugText( fromCache, acceptsGzip, false );
+                responseOutcome = handleCacheableResponse( resourceFileRequest, pwmRequest, resourceService.getCacheMap() );
+                debugText = makeDebugText( responseOutcome == ResponseOutcome.fromCache, acceptsGzip, false );
             }
             catch ( final UncacheableResourceException e )
             {
-                handleUncachedResponse( response, file, acceptsGzip );
-                debugText = makeDebugText( fromCache, acceptsGzip, true );
+                responseOutcome = handleUncachedResponse( pwmRequest, file, acceptsGzip );
+                debugText = makeDebugText( false, acceptsGzip, true );
             }
 
-            pwmRequest.debugHttpRequestToLog( debugText, () -> TimeDuration.fromCurrent( pwmRequest.getRequestStartTime() ) );
-
             StatisticsClient.incrementStat( pwmDomain, Statistic.HTTP_RESOURCE_REQUESTS );
-            resourceService.getAverageStats().update( ResourceServletService.AverageStat.cacheHitRatio, fromCache ? 1 : 0 );
             resourceService.getAverageStats().update( ResourceServletService.AverageStat.avgResponseTimeMS, TimeDuration.fromCurrent( startTime ).asDuration() );
             resourceService.getCountingStats().increment( ResourceServletService.CountingStat.requestsServed );
+
+            if ( responseOutcome == ResponseOutcome.notModified )
+            {
+                resourceService.getCountingStats().increment( ResourceServletService.CountingStat.requestsNotModified );
+                return;
+            }
+
+            pwmRequest.debugHttpRequestToLog( debugText, () -> TimeDuration.fromCurrent( pwmRequest.getRequestStartTime() ) );
+
+            resourceService.getAverageStats().update( ResourceServletService.AverageStat.cacheHitRatio, responseOutcome == ResponseOutcome.fromCache ? 1 : 0 );
             resourceService.getCountingStats().increment( ResourceServletService.CountingStat.bytesServed, file.length() );
         }
         catch ( final Exception e )
@@ -263,9 +262,16 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
         }
     }
 
-    private boolean handleCacheableResponse(
+    private enum ResponseOutcome
+    {
+        fromCache,
+        notCached,
+        notModified,
+    }
+
+    private ResponseOutcome handleCacheableResponse(
             final ResourceFileRequest resourceFileRequest,
-            final HttpServletResponse response,
+            final PwmRequest pwmRequest,
             final Cache<CacheKey, CacheEntry> responseCache
     )
             throws UncacheableResourceException, IOException, PwmUnrecoverableException
@@ -277,43 +283,24 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
             throw new UncacheableResourceException( "file to large to cache" );
         }
 
-        boolean fromCache = false;
         final CacheKey cacheKey = CacheKey.createCacheKey( file, resourceFileRequest.allowsCompression() );
         CacheEntry cacheEntry = responseCache.getIfPresent( cacheKey );
+        final boolean fromCache = cacheEntry != null;
         if ( cacheEntry == null )
         {
-            final Map<String, String> headers = new HashMap<>();
-            final ByteArrayOutputStream tempOutputStream = new ByteArrayOutputStream();
-
-            try ( InputStream input = file.getInputStream() )
-            {
-                if ( resourceFileRequest.allowsCompression() )
-                {
-                    try ( GZIPOutputStream gzipOutputStream = new GZIPOutputStream( tempOutputStream ) )
-                    {
-                        headers.put( HttpHeader.ContentEncoding.getHttpName(), "gzip" );
-                        JavaHelper.copy( input, gzipOutputStream );
-                    }
-                }
-                else
-                {
-                    JavaHelper.copy( input, tempOutputStream );
-                }
-            }
-
-            final ImmutableByteArray entity = ImmutableByteArray.of( tempOutputStream.toByteArray() );
-            headers.put( HttpHeader.ContentLength.getHttpName(), String.valueOf( entity.size() ) );
-            cacheEntry = new CacheEntry( entity, headers );
+            cacheEntry = CacheEntry.fromFileResource( file, resourceFileRequest.allowsCompression() );
+            responseCache.put( cacheKey, cacheEntry );
         }
-        else
+
+        if ( respondWithNotModified( pwmRequest, cacheEntry.getETag() ) )
         {
-            fromCache = true;
+            return ResponseOutcome.notModified;
         }
 
-        responseCache.put( cacheKey, cacheEntry );
-        for ( final String key : cacheEntry.getHeaderStrings().keySet() )
+        final HttpServletResponse response = pwmRequest.getPwmResponse().getHttpServletResponse();
+        for ( final Map.Entry<String, String> entry : cacheEntry.getHeaderStrings().entrySet() )
         {
-            response.setHeader( key, cacheEntry.getHeaderStrings().get( key ) );
+            response.setHeader( entry.getKey(), entry.getValue() );
         }
 
         try ( OutputStream responseOutputStream = response.getOutputStream() )
@@ -321,16 +308,28 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
             JavaHelper.copy( cacheEntry.getEntity().newByteArrayInputStream(), responseOutputStream );
         }
 
-        return fromCache;
+        return fromCache ? ResponseOutcome.fromCache : ResponseOutcome.notCached;
     }
 
-    private static void handleUncachedResponse(
-            final HttpServletResponse response,
+    private static ResponseOutcome handleUncachedResponse(
+            final PwmRequest pwmRequest,
             final FileResource file,
             final boolean acceptsGzip
     )
             throws IOException
     {
+        // content is not read ahead of time for large files, so the validator is based on the file metadata only.
+        final String eTag = "W/\"" + Long.toString( file.lastModified().toEpochMilli(), 36 )
+                + "-" + Long.toString( file.length(), 36 ) + ( acceptsGzip ? "-gzip" : "" ) + "\"";
+
+        if ( respondWithNotModified( pwmRequest, eTag ) )
+        {
+            return ResponseOutcome.notModified;
+        }
+
+        final HttpServletResponse response = pwmRequest.getPwmResponse().getHttpServletResponse();
+        response.setHeader( HttpHeader.ETag.getHttpName(), eTag );
+
         try (
                 OutputStream output = new BufferedOutputStream( response.getOutputStream() );
                 InputStream input = new BufferedInputStream( file.getInputStream() )
@@ -353,6 +352,7 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
             }
         }
 
+        return ResponseOutcome.notCached;
     }
 
     private void addExpirationHeaders( final ResourceServletConfiguration resourceServletConfiguration, final HttpServletResponse httpResponse )
@@ -362,16 +362,14 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
         httpResponse.setHeader( "Vary", "Accept-Encoding" );
     }
 
-    private boolean respondWithNotModified( final PwmRequest pwmRequest, final ResourceServletConfiguration resourceConfiguration )
+    private static boolean respondWithNotModified( final PwmRequest pwmRequest, final String eTagValue )
     {
-        final String eTagValue = resourceConfiguration.getNonceValue();
-        final HttpServletResponse response = pwmRequest.getPwmResponse().getHttpServletResponse();
-
         final String ifNoneMatchValue = pwmRequest.readHeaderValueAsString( HttpHeader.If_None_Match );
-        if ( ifNoneMatchValue != null && ifNoneMatchValue.equals( eTagValue ) )
+        if ( eTagValue != null && eTagMatches( ifNoneMatchValue, eTagValue ) )
         {
             // reply back with etag.
-            response.reset();
+            final HttpServletResponse response = pwmRequest.getPwmResponse().getHttpServletResponse();
+            response.setHeader( HttpHeader.ETag.getHttpName(), eTagValue );
             response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
             try
             {
@@ -386,4 +384,31 @@ public class ResourceFileServlet extends HttpServlet implements PwmServlet
 
         return false;
     }
+
+    /**
+     * Weak comparison of an If-None-Match header value, which may hold a list of entity tags, against an ETag.
+     */
+    static boolean eTagMatches( final String ifNoneMatchValue, final String eTagValue )
+    {
+        if ( StringUtil.isEmpty( ifNoneMatchValue ) )
+        {
+            return false;
+        }
+
+        final String opaqueTag = stripWeakPrefix( eTagValue );
+        for ( final String candidate : ifNoneMatchValue.split( "," ) )
+        {
+            final String trimmedCandidate = candidate.trim();
+            if ( "*".equals( trimmedCandidate ) || stripWeakPrefix( trimmedCandidate ).equals( opaqueTag ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeakPrefix( final String eTagValue )
+    {
+        return eTagValue.startsWith( "W/" ) ? eTagValue.substring( 2 ) : eTagValue;
+    }
 }
@@ -26,6 +26,7 @@ import org.apache.commons.io.IOUtils;
 import password.pwm.AppProperty;
 import password.pwm.PwmDomain;
 import password.pwm.bean.SessionLabel;
+import password.pwm.config.AppConfig;
 import password.pwm.config.DomainConfig;
 import password.pwm.config.PwmSetting;
 import password.pwm.config.value.FileValue;
@@ -56,9 +57,10 @@ class ResourceServletConfiguration
     private static final PwmLogger LOGGER = PwmLogger.forClass( ResourceServletConfiguration.class );
 
     // settings with default values, values are set by app properties.
-    private int maxCacheItems;
+    private long maxCacheTotalBytes;
     private long cacheExpireSeconds;
     private boolean enableGzip;
+    private boolean enablePrecompress;
     private boolean enablePathNonce;
     private long maxCacheBytes;
 
@@ -69,9 +71,10 @@ class ResourceServletConfiguration
 
     private ResourceServletConfiguration()
     {
-        maxCacheItems = 100;
+        maxCacheTotalBytes = 1024 * 1024;
         cacheExpireSeconds = 60;
         enableGzip = false;
+        enablePrecompress = false;
         enablePathNonce = false;
         maxCacheBytes = 1024;
 
@@ -85,9 +88,10 @@ class ResourceServletConfiguration
     {
         LOGGER.trace( sessionLabel, () -> "initializing" );
         final DomainConfig domainConfig = pwmDomain.getConfig();
-        maxCacheItems = Integer.parseInt( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_MAX_CACHE_ITEMS ) );
+        maxCacheTotalBytes = readMaxCacheTotalBytes( sessionLabel, domainConfig.getAppConfig() );
         cacheExpireSeconds = Long.parseLong( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_EXPIRATION_SECONDS ) );
         enableGzip = Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_ENABLE_GZIP ) );
+        enablePrecompress = Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_ENABLE_PRECOMPRESS ) );
         enablePathNonce = Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_ENABLE_PATH_NONCE ) );
         maxCacheBytes = Long.parseLong( domainConfig.readAppProperty( AppProperty.HTTP_RESOURCES_MAX_CACHE_BYTES ) );
 
@@ -100,6 +104,38 @@ class ResourceServletConfiguration
         customFileBundle = makeCustomFileBundle( sessionLabel, domainConfig );
     }
 
+    /**
+     * Reads the resource cache byte limit.  The cache used to be bounded by item count; a configuration that
+     * still overrides {@link AppProperty#HTTP_RESOURCES_MAX_CACHE_ITEMS} without the newer total byte limit
+     * has its item count converted using the per-item byte limit, which is the most the old cache could hold.
+     */
+    @SuppressWarnings( "deprecation" )
+    static long readMaxCacheTotalBytes( final SessionLabel sessionLabel, final AppConfig appConfig )
+    {
+        final Map<AppProperty, String> overrides = appConfig.readAllNonDefaultAppProperties();
+        final long maxCacheTotalBytes = Long.parseLong( appConfig.readAppProperty( AppProperty.HTTP_RESOURCES_MAX_CACHE_TOTAL_BYTES ) );
+
+        if ( !overrides.containsKey( AppProperty.HTTP_RESOURCES_MAX_CACHE_ITEMS ) )
+        {
+            return maxCacheTotalBytes;
+        }
+
+        if ( overrides.containsKey( AppProperty.HTTP_RESOURCES_MAX_CACHE_TOTAL_BYTES ) )
+        {
+            LOGGER.warn( sessionLabel, () -> "app property " + AppProperty.HTTP_RESOURCES_MAX_CACHE_ITEMS.getKey()
+                    + " is deprecated and ignored because " + AppProperty.HTTP_RESOURCES_MAX_CACHE_TOTAL_BYTES.getKey() + " is set" );
+            return maxCacheTotalBytes;
+        }
+
+        final long maxCacheItems = Long.parseLong( appConfig.readAppProperty( AppProperty.HTTP_RESOURCES_MAX_CACHE_ITEMS ) );
+        final long maxCacheBytes = Long.parseLong( appConfig.readAppProperty( AppProperty.HTTP_RESOURCES_MAX_CACHE_BYTES ) );
+        final long convertedTotalBytes = maxCacheItems * maxCacheBytes;
+        LOGGER.warn( sessionLabel, () -> "app property " + AppProperty.HTTP_RESOURCES_MAX_CACHE_ITEMS.getKey()
+                + " is deprecated, using " + AppProperty.HTTP_RESOURCES_MAX_CACHE_TOTAL_BYTES.getKey() + "=" + convertedTotalBytes
+                + " derived from it; set " + AppProperty.HTTP_RESOURCES_MAX_CACHE_TOTAL_BYTES.getKey() + " instead" );
+        return convertedTotalBytes;
+    }
+
     private Map<String, FileResource> makeCustomFileBundle(
             final SessionLabel sessionLabel,
             final DomainConfig domainConfig )
@@ -33,6 +33,7 @@ import password.pwm.health.HealthRecord;
 import password.pwm.http.PwmRequest;
 import password.pwm.svc.AbstractPwmService;
 import password.pwm.svc.PwmService;
+import password.pwm.util.PwmScheduler;
 import password.pwm.util.java.CrcChecksumOutputStream;
 import password.pwm.util.java.FileSystemUtility;
 import password.pwm.util.java.JavaHelper;
@@ -46,7 +47,10 @@ import javax.servlet.ServletContext;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -57,6 +61,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -64,6 +69,8 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( ResourceServletService.class );
 
+    private static final List<String> PRECOMPRESS_FILE_SUFFIXES = List.of( ".js", ".css", ".html", ".htm", ".txt" );
+
     private ResourceServletConfiguration resourceServletConfiguration;
     private Cache<CacheKey, CacheEntry> cache;
     private String resourceNonce = "";
@@ -83,7 +90,9 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
     {
         requestsServed,
         requestsNotFound,
+        requestsNotModified,
         bytesServed,
+        precompressedFiles,
     }
 
     public String getResourceNonce( )
@@ -108,16 +117,9 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
 
     public long bytesInCache( )
     {
-        final Map<CacheKey, CacheEntry> cacheCopy = new HashMap<>( cache.asMap() );
-        long cacheByteCount = 0;
-        for ( final CacheEntry cacheEntry : cacheCopy.values() )
-        {
-            if ( cacheEntry != null && cacheEntry.getEntity() != null )
-            {
-                cacheByteCount += cacheEntry.getEntity().size();
-            }
-        }
-        return cacheByteCount;
+        return cache.policy().eviction()
+                .flatMap( eviction -> eviction.weightedSize().stream().boxed().findFirst() )
+                .orElse( 0L );
     }
 
     public int itemsInCache( )
@@ -149,7 +151,8 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
             this.resourceServletConfiguration = ResourceServletConfiguration.fromConfig( getSessionLabel(), pwmDomain );
 
             cache = Caffeine.newBuilder()
-                    .maximumSize( resourceServletConfiguration.getMaxCacheItems() )
+                    .maximumWeight( resourceServletConfiguration.getMaxCacheTotalBytes() )
+                    .weigher( ( CacheKey key, CacheEntry value ) -> value.getEntity().size() )
                     .build();
 
             setStatus( STATUS.OPEN );
@@ -172,6 +175,15 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
             return STATUS.CLOSED;
         }
 
+        if ( resourceServletConfiguration.isEnableGzip()
+                && resourceServletConfiguration.isEnablePrecompress()
+                && !pwmApplication.getPwmEnvironment().isInternalRuntimeInstance() )
+        {
+            pwmApplication.getPwmScheduler().immediateExecuteRunnableInNewThread(
+                    this::precompressResources,
+                    PwmScheduler.makeThreadName( pwmApplication, this.getClass() ) + " precompress" );
+        }
+
         return STATUS.OPEN;
     }
 
@@ -296,38 +308,94 @@ public class ResourceServletService extends AbstractPwmService implements PwmSer
     }
 
     private static void checksumResourceFilePath( final PwmDomain pwmDomain, final CrcChecksumOutputStream checksumStream )
+    {
+        try
+        {
+            final Optional<File> resourcePath = locateResourceFilePath( pwmDomain );
+            if ( resourcePath.isPresent() )
+            {
+                final Iterator<FileSystemUtility.FileSummaryInformation> iter =
+                        FileSystemUtility.readFileInformation( Collections.singletonList( resourcePath.get() ) );
+                {
+                    while ( iter.hasNext()  )
+                    {
+                        final FileSystemUtility.FileSummaryInformation fileSummaryInformation = iter.next();
+                        checksumStream.write( JavaHelper.longToBytes( fileSummaryInformation.getChecksum() ) );
+                    }
+
+                }
+            }
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.error( () -> "unable to generate resource path nonce: " + e.getMessage() );
+        }
+    }
+
+    private static Optional<File> locateResourceFilePath( final PwmDomain pwmDomain )
     {
         if ( pwmDomain.getPwmApplication().getPwmEnvironment().getContextManager() != null )
         {
-            try
+            final Optional<File> webInfPath = pwmDomain.getPwmApplication().getPwmEnvironment().getContextManager().locateWebInfFilePath();
+            if ( webInfPath.isPresent() && webInfPath.get().exists() )
             {
-                final Optional<File> webInfPath = pwmDomain.getPwmApplication().getPwmEnvironment().getContextManager().locateWebInfFilePath();
-                if ( webInfPath.isPresent() && webInfPath.get().exists() )
+                final File basePath = webInfPath.get().getParentFile();
+                if ( basePath != null && basePath.exists() )
                 {
-                    final File basePath = webInfPath.get().getParentFile();
-                    if ( basePath != null && basePath.exists() )
+                    final File resourcePath = new File( basePath.getAbsolutePath() + File.separator + "public" + File.separator + "resources" );
+                    if ( resourcePath.exists() )
                     {
-                        final File resourcePath = new File( basePath.getAbsolutePath() + File.separator + "public" + File.separator + "resources" );
-                        if ( resourcePath.exists() )
-                        {
-                            final Iterator<FileSystemUtility.FileSummaryInformation> iter =
-                                    FileSystemUtility.readFileInformation( Collections.singletonList( resourcePath ) );
-                            {
-                                while ( iter.hasNext()  )
-                                {
-                                    final FileSystemUtility.FileSummaryInformation fileSummaryInformation = iter.next();
-                                    checksumStream.write( JavaHelper.longToBytes( fileSummaryInformation.getChecksum() ) );
-                                }
-
-                            }
-                        }
+                        return Optional.of( resourcePath );
                     }
                 }
             }
-            catch ( final Exception e )
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Populate the cache with gzip encoded entries of the compressible files in the web application resource
+     * directory, so that first requests are not delayed by compression.  Stops once the cache is full.
+     */
+    private void precompressResources()
+    {
+        final Optional<File> resourcePath = locateResourceFilePath( pwmDomain );
+        if ( resourcePath.isEmpty() )
+        {
+            return;
+        }
+
+        final Instant startTime = Instant.now();
+        final long maxFileBytes = resourceServletConfiguration.getMaxCacheBytes();
+        final long maxTotalBytes = resourceServletConfiguration.getMaxCacheTotalBytes();
+
+        try ( Stream<Path> paths = Files.walk( resourcePath.get().toPath() ) )
+        {
+            final Iterator<Path> pathIterator = paths
+                    .filter( Files::isRegularFile )
+                    .filter( path -> PRECOMPRESS_FILE_SUFFIXES.stream().anyMatch( suffix -> path.getFileName().toString().endsWith( suffix ) ) )
+                    .iterator();
+
+            while ( status() == STATUS.OPEN && pathIterator.hasNext() && bytesInCache() < maxTotalBytes )
             {
-                LOGGER.error( () -> "unable to generate resource path nonce: " + e.getMessage() );
+                final FileResource fileResource = new RealFileResource( pathIterator.next().toFile() );
+                if ( fileResource.length() <= maxFileBytes )
+                {
+                    final CacheKey cacheKey = CacheKey.createCacheKey( fileResource, true );
+                    if ( cache.getIfPresent( cacheKey ) == null )
+                    {
+                        cache.put( cacheKey, CacheEntry.fromFileResource( fileResource, true ) );
+                        countingStats.increment( CountingStat.precompressedFiles );
+                    }
+                }
             }
         }
+        catch ( final IOException | UncheckedIOException e )
+        {
+            LOGGER.debug( getSessionLabel(), () -> "error precompressing resource files: " + e.getMessage() );
+        }
+
+        LOGGER.debug( getSessionLabel(), () -> "precompressed " + countingStats.get( CountingStat.precompressedFiles ) + " resource files, "
+                + bytesInCache() + " bytes in cache", () -> TimeDuration.fromCurrent( startTime ) );
     }
 }
@@ -28,14 +28,20 @@ import password.pwm.http.PwmRequest;
 import password.pwm.http.PwmRequestAttribute;
 import password.pwm.http.bean.PwmSessionBean;
 import password.pwm.svc.secure.DomainSecureService;
+import password.pwm.util.java.StatisticAverageBundle;
+import password.pwm.util.java.StatisticCounterBundle;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
+import password.pwm.util.json.JsonFactory;
 import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.secure.PwmSecurityKey;
 
 import java.io.Serializable;
+import java.time.Instant;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 class CryptoCookieBeanImpl implements SessionBeanProvider
@@ -45,6 +51,22 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
 
     private static final PwmCookiePath COOKIE_PATH = PwmCookiePath.PwmServlet;
 
+    private final StatisticCounterBundle<CountingStat> countingStats = new StatisticCounterBundle<>( CountingStat.class );
+    private final StatisticAverageBundle<AverageStat> averageStats = new StatisticAverageBundle<>( AverageStat.class );
+
+    enum CountingStat
+    {
+        beansWritten,
+        beansUnchanged,
+        beansRemoved,
+    }
+
+    enum AverageStat
+    {
+        avgBeansWrittenPerRequest,
+        avgSaveTimeMS,
+    }
+
     @Override
     public <E extends PwmSessionBean> E getSessionBean( final PwmRequest pwmRequest, final Class<E> theClass )
             throws PwmUnrecoverableException
@@ -65,10 +87,12 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
             final PwmSecurityKey key = keyForSession( pwmRequest );
             if ( rawValue.isPresent() )
             {
-                final E cookieBean = pwmRequest.getPwmDomain().getSecureService().decryptObject( rawValue.get(), key, theClass );
+                final String jsonValue = pwmRequest.getPwmDomain().getSecureService().decryptStringValue( rawValue.get(), key );
+                final E cookieBean = JsonFactory.get().deserialize( jsonValue, theClass );
                 if ( validateCookie( pwmRequest, cookieName, cookieBean ) )
                 {
                     sessionBeans.put( theClass, cookieBean );
+                    getRequestSnapshots( pwmRequest ).put( sessionGuid, theClass, jsonValue );
                     return cookieBean;
                 }
             }
@@ -134,11 +158,16 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
         {
             return;
         }
+        final Instant startTime = Instant.now();
+        int beansWritten = 0;
         try
         {
             final Map<Class<? extends PwmSessionBean>, PwmSessionBean> beansInRequest = getRequestBeanMap( pwmRequest );
             if ( beansInRequest != null )
             {
+                final BeanSnapshots snapshots = getRequestSnapshots( pwmRequest );
+                final String sessionGuid = pwmRequest.getPwmSession().getLoginInfoBean().getGuid();
+                PwmSecurityKey key = null;
                 for ( final Map.Entry<Class<? extends PwmSessionBean>, PwmSessionBean> entry : beansInRequest.entrySet() )
                 {
                     final Class<? extends PwmSessionBean> theClass = entry.getKey();
@@ -147,12 +176,30 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
                     if ( bean == null )
                     {
                         pwmRequest.getPwmResponse().removeCookie( cookieName, COOKIE_PATH );
+                        snapshots.remove( theClass );
+                        countingStats.increment( CountingStat.beansRemoved );
                     }
                     else
                     {
-                        final PwmSecurityKey key = keyForSession( pwmRequest );
-                        final String encryptedValue = pwmRequest.getPwmDomain().getSecureService().encryptObjectToString( entry.getValue(), key );
-                        pwmRequest.getPwmResponse().writeCookie( cookieName, encryptedValue, -1, COOKIE_PATH );
+                        // beans are compared in their serialized form to the value last read from or written to the cookie,
+                        // unchanged beans do not need to be encrypted and re-sent.
+                        final String jsonValue = JsonFactory.get().serialize( bean );
+                        if ( snapshots.isUnchanged( sessionGuid, theClass, jsonValue ) )
+                        {
+                            countingStats.increment( CountingStat.beansUnchanged );
+                        }
+                        else
+                        {
+                            if ( key == null )
+                            {
+                                key = keyForSession( pwmRequest );
+                            }
+                            final String encryptedValue = pwmRequest.getPwmDomain().getSecureService().encryptToString( jsonValue, key );
+                            pwmRequest.getPwmResponse().writeCookie( cookieName, encryptedValue, -1, COOKIE_PATH );
+                            snapshots.put( sessionGuid, theClass, jsonValue );
+                            countingStats.increment( CountingStat.beansWritten );
+                            beansWritten++;
+                        }
                     }
                 }
             }
@@ -161,6 +208,9 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
         {
             LOGGER.error( pwmRequest, () -> "error writing cookie bean to response: " + e.getMessage(), e );
         }
+
+        averageStats.update( AverageStat.avgBeansWrittenPerRequest, beansWritten );
+        averageStats.update( AverageStat.avgSaveTimeMS, TimeDuration.fromCurrent( startTime ).asDuration() );
     }
 
     @Override
@@ -182,6 +232,53 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
         return ( Map<Class<? extends PwmSessionBean>, PwmSessionBean> ) sessionBeans;
     }
 
+    private static BeanSnapshots getRequestSnapshots( final PwmRequest pwmRequest )
+    {
+        Serializable snapshots = pwmRequest.getAttribute( PwmRequestAttribute.CookieBeanSnapshots );
+        if ( snapshots == null )
+        {
+            snapshots = new BeanSnapshots();
+            pwmRequest.setAttribute( PwmRequestAttribute.CookieBeanSnapshots, snapshots );
+        }
+        return ( BeanSnapshots ) snapshots;
+    }
+
+    /**
+     * Serialized form of the beans last read from or written to the cookies.  Cookie values are encrypted with a key
+     * derived from the login guid, so the snapshots are only valid while the guid is unchanged.
+     */
+    static class BeanSnapshots implements Serializable
+    {
+        private final Map<Class<? extends PwmSessionBean>, String> snapshots = new HashMap<>();
+        private String sessionGuid;
+
+        boolean isUnchanged( final String sessionGuid, final Class<? extends PwmSessionBean> theClass, final String jsonValue )
+        {
+            checkGuid( sessionGuid );
+            return jsonValue.equals( snapshots.get( theClass ) );
+        }
+
+        void put( final String sessionGuid, final Class<? extends PwmSessionBean> theClass, final String jsonValue )
+        {
+            checkGuid( sessionGuid );
+            snapshots.put( theClass, jsonValue );
+        }
+
+        void remove( final Class<? extends PwmSessionBean> theClass )
+        {
+            snapshots.remove( theClass );
+        }
+
+        private void checkGuid( final String sessionGuid )
+        {
+            if ( !Objects.equals( this.sessionGuid, sessionGuid ) )
+            {
+                snapshots.clear();
+                this.sessionGuid = sessionGuid;
+            }
+        }
+    }
+
     private static String nameForClass( final PwmRequest pwmRequest, final Class<? extends PwmSessionBean> theClass )
             throws PwmUnrecoverableException
     {
@@ -195,6 +292,15 @@ class CryptoCookieBeanImpl implements SessionBeanProvider
         return null;
     }
 
+    @Override
+    public Map<String, String> debugStats()
+    {
+        final Map<String, String> debugStats = new HashMap<>();
+        debugStats.putAll( countingStats.debugStats() );
+        debugStats.putAll( averageStats.debugStats() );
+        return Collections.unmodifiableMap( debugStats );
+    }
+
     private PwmSecurityKey keyForSession( final PwmRequest pwmRequest )
             throws PwmUnrecoverableException
     {
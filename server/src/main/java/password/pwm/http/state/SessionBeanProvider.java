@@ -24,6 +24,9 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.http.PwmRequest;
 import password.pwm.http.bean.PwmSessionBean;
 
+import java.util.Collections;
+import java.util.Map;
+
 interface SessionBeanProvider
 {
     <E extends PwmSessionBean> E getSessionBean( PwmRequest pwmRequest, Class<E> userBeanClass ) throws PwmUnrecoverableException;
@@ -33,4 +36,9 @@ interface SessionBeanProvider
     void saveSessionBeans( PwmRequest pwmRequest );
 
     String getSessionStateInfo( PwmRequest pwmRequest ) throws PwmUnrecoverableException;
+
+    default Map<String, String> debugStats()
+    {
+        return Collections.emptyMap();
+    }
 }
@@ -129,7 +129,9 @@ public class SessionStateService extends AbstractPwmService implements PwmServic
     @Override
     public ServiceInfoBean serviceInfo( )
     {
-        return null;
+        return ServiceInfoBean.builder()
+                .debugProperties( sessionBeanProvider.debugStats() )
+                .build();
     }
 
     public <E extends PwmSessionBean> E getBean( final PwmRequest pwmRequest, final Class<E> theClass ) throws PwmUnrecoverableException
@@ -90,6 +90,7 @@ public class LdapConnectionService extends AbstractPwmService implements PwmServ
     private boolean useThreadLocal;
 
     private final StatisticCounterBundle<StatKey> stats = new StatisticCounterBundle<>( StatKey.class );
+    private final LdapOperationMetrics operationMetrics = new LdapOperationMetrics();
 
     public static long totalLdapConnectionCount( final PwmApplication pwmApplication )
     {
@@ -205,6 +206,7 @@ public class LdapConnectionService extends AbstractPwmService implements PwmServ
         final Map<String, String> debugProperties = new LinkedHashMap<>();
         debugProperties.putAll( chaiProviderFactory.getGlobalStatistics() );
         debugProperties.putAll( connectionDebugInfo() );
+        debugProperties.putAll( operationMetrics.debugStats() );
         return ServiceInfoBean.builder()
                 .storageMethod(  DataStorageMethod.LDAP )
                 .debugProperties( debugProperties )
@@ -296,13 +298,15 @@ public class LdapConnectionService extends AbstractPwmService implements PwmServ
 
         try
         {
-            final ChaiProvider chaiProvider = LdapOperationsHelper.openProxyChaiProvider(
+            final Instant startTime = Instant.now();
+            final ChaiProvider chaiProvider = operationMetrics.wrapProvider( LdapOperationsHelper.openProxyChaiProvider(
                     pwmDomain,
                     sessionLabel,
                     ldapProfile,
                     pwmDomain.getConfig(),
                     pwmDomain.getStatisticsManager()
-            );
+            ), ldapProfile.getIdentifier() );
+            operationMetrics.record( ldapProfile.getIdentifier(), LdapOperationMetrics.OperationType.bind, TimeDuration.fromCurrent( startTime ).asDuration() );
             LOGGER.trace( sessionLabel, () -> "created new system proxy chaiProvider id=" + chaiProvider.toString()
                     + " for ldap profile '" + ldapProfile.getIdentifier() + "'"
                     + " thread=" + Thread.currentThread().getName() );
@@ -374,6 +378,11 @@ public class LdapConnectionService extends AbstractPwmService implements PwmServ
         return count;
     }
 
+    public LdapOperationMetrics getOperationMetrics( )
+    {
+        return operationMetrics;
+    }
+
     public ChaiProviderFactory getChaiProviderFactory( )
     {
         if ( status() != STATUS.OPEN )
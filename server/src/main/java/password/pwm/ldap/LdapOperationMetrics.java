@@ -0,0 +1,204 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.ldap;
+
+import com.novell.ldapchai.ChaiEntryFactory;
+import com.novell.ldapchai.provider.ChaiProvider;
+import lombok.Value;
+import org.apache.commons.lang3.ClassUtils;
+import password.pwm.util.java.LatencyHistogram;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency histograms of ldap operations, per ldap profile and per {@link OperationType}.  Operations are recorded by
+ * wrapping {@link ChaiProvider} instances with {@link #wrapProvider(ChaiProvider, String)}.
+ */
+public class LdapOperationMetrics
+{
+    private static final Set<String> PASSWORD_ATTRIBUTES = Set.of( "userpassword", "unicodepwd" );
+
+    private final Map<String, Map<OperationType, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+
+    public enum OperationType
+    {
+        bind,
+        search,
+        read,
+        modify,
+        passwordSet,
+    }
+
+    public void record( final String ldapProfileID, final OperationType operationType, final Duration duration )
+    {
+        histograms.computeIfAbsent( ldapProfileID, k -> makeHistogramMap() ).get( operationType ).record( duration );
+    }
+
+    /**
+     * @return latency summaries ordered by ldap profile and operation type, omitting operation types with no samples
+     */
+    public List<LatencyRecord> latencyRecords()
+    {
+        final List<LatencyRecord> returnList = new ArrayList<>();
+        for ( final Map.Entry<String, Map<OperationType, LatencyHistogram>> profileEntry : new TreeMap<>( histograms ).entrySet() )
+        {
+            for ( final Map.Entry<OperationType, LatencyHistogram> entry : profileEntry.getValue().entrySet() )
+            {
+                if ( entry.getValue().getCount() > 0 )
+                {
+                    returnList.add( new LatencyRecord( profileEntry.getKey(), entry.getKey(), entry.getValue().summary() ) );
+                }
+            }
+        }
+        return Collections.unmodifiableList( returnList );
+    }
+
+    @Value
+    public static class LatencyRecord implements Serializable
+    {
+        private final String ldapProfile;
+        private final OperationType operation;
+        private final LatencyHistogram.Summary latency;
+    }
+
+    public Map<String, String> debugStats()
+    {
+        final Map<String, String> returnMap = new TreeMap<>();
+        for ( final Map.Entry<String, Map<OperationType, LatencyHistogram>> profileEntry : histograms.entrySet() )
+        {
+            for ( final Map.Entry<OperationType, LatencyHistogram> entry : profileEntry.getValue().entrySet() )
+            {
+                if ( entry.getValue().getCount() > 0 )
+                {
+                    final String prefix = "latency." + profileEntry.getKey() + "." + entry.getKey() + ".";
+                    entry.getValue().debugStats().forEach( ( key, value ) -> returnMap.put( prefix + key, value ) );
+                }
+            }
+        }
+        return Collections.unmodifiableMap( returnMap );
+    }
+
+    public ChaiProvider wrapProvider( final ChaiProvider chaiProvider, final String ldapProfileID )
+    {
+        if ( Proxy.isProxyClass( chaiProvider.getClass() ) && Proxy.getInvocationHandler( chaiProvider ) instanceof MetricsWrapper )
+        {
+            return chaiProvider;
+        }
+
+        return ( ChaiProvider ) Proxy.newProxyInstance(
+                chaiProvider.getClass().getClassLoader(),
+                ClassUtils.getAllInterfaces( chaiProvider.getClass() ).toArray( new Class<?>[0] ),
+                new MetricsWrapper( chaiProvider, ldapProfileID ) );
+    }
+
+    private static Map<OperationType, LatencyHistogram> makeHistogramMap()
+    {
+        final Map<OperationType, LatencyHistogram> map = new EnumMap<>( OperationType.class );
+        for ( final OperationType operationType : OperationType.values() )
+        {
+            map.put( operationType, new LatencyHistogram() );
+        }
+        return Collections.unmodifiableMap( map );
+    }
+
+    static OperationType classify( final Method method, final Object[] args )
+    {
+        if ( method.getAnnotation( ChaiProvider.SearchOperation.class ) != null )
+        {
+            return OperationType.search;
+        }
+
+        if ( method.getAnnotation( ChaiProvider.ModifyOperation.class ) != null )
+        {
+            // password writes are either extended operations (nmas) or modifications of the password attribute
+            if ( "extendedOperation".equals( method.getName() ) )
+            {
+                return OperationType.passwordSet;
+            }
+
+            if ( args != null && args.length > 1 && args[1] instanceof String
+                    && PASSWORD_ATTRIBUTES.contains( ( ( String ) args[1] ).toLowerCase( Locale.ROOT ) ) )
+            {
+                return OperationType.passwordSet;
+            }
+
+            return OperationType.modify;
+        }
+
+        return OperationType.read;
+    }
+
+    private class MetricsWrapper implements InvocationHandler
+    {
+        private final ChaiProvider realProvider;
+        private final String ldapProfileID;
+
+        MetricsWrapper( final ChaiProvider realProvider, final String ldapProfileID )
+        {
+            this.realProvider = realProvider;
+            this.ldapProfileID = ldapProfileID;
+        }
+
+        @Override
+        public Object invoke( final Object proxy, final Method method, final Object[] args )
+                throws Throwable
+        {
+            // entries must be bound to the wrapper so operations made through them are recorded
+            if ( "getEntryFactory".equals( method.getName() ) )
+            {
+                return ChaiEntryFactory.newChaiFactory( ( ChaiProvider ) proxy );
+            }
+
+            final boolean isLdap = method.getAnnotation( ChaiProvider.LdapOperation.class ) != null;
+            final long startTime = isLdap ? System.nanoTime() : 0;
+
+            try
+            {
+                return method.invoke( realProvider, args );
+            }
+            catch ( final InvocationTargetException e )
+            {
+                throw e.getCause();
+            }
+            finally
+            {
+                if ( isLdap )
+                {
+                    record( ldapProfileID, classify( method, args ), Duration.ofNanos( System.nanoTime() - startTime ) );
+                }
+            }
+        }
+    }
+}
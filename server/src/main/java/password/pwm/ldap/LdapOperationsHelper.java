@@ -252,7 +252,7 @@ public class LdapOperationsHelper
         if ( enableCache )
         {
             final long cacheSeconds = Long.parseLong( pwmDomain.getConfig().readAppProperty( AppProperty.LDAP_CACHE_USER_GUID_SECONDS ) );
-            final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.of( cacheSeconds, TimeDuration.Unit.SECONDS ) );
+            final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.of( cacheSeconds, TimeDuration.Unit.SECONDS ) ).withImmutablePayload();
             final String cacheValue = existingValue == null
                     ? NULL_CACHE_GUID
                     : existingValue;
@@ -609,6 +609,8 @@ public class LdapOperationsHelper
     )
             throws ChaiUnavailableException, PwmUnrecoverableException
     {
+        final Instant startTime = Instant.now();
+        final LdapOperationMetrics operationMetrics = pwmDomain.getLdapConnectionService().getOperationMetrics();
         final ChaiProvider chaiProvider = createChaiProvider(
                 pwmDomain.getLdapConnectionService().getChaiProviderFactory(),
                 sessionLabel,
@@ -617,10 +619,11 @@ public class LdapOperationsHelper
                 userDN,
                 userPassword
         );
+        operationMetrics.record( ldapProfile.getIdentifier(), LdapOperationMetrics.OperationType.bind, TimeDuration.fromCurrent( startTime ).asDuration() );
 
         pwmDomain.getStatisticsManager().updateEps( EpsStatistic.LDAP_BINDS, 1 );
 
-        return chaiProvider;
+        return operationMetrics.wrapProvider( chaiProvider, ldapProfile.getIdentifier() );
     }
 
     public static ChaiProvider createChaiProvider(
@@ -0,0 +1,155 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.ldap;
+
+import com.novell.ldapchai.ChaiEntryFactory;
+import com.novell.ldapchai.provider.ChaiProvider;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Wraps a {@link ChaiProvider} so that string attribute reads of a single entry are answered from values already
+ * returned by a bulk search.  Reads of other entries, of attributes that were not part of the search, and all other
+ * operations are passed to the wrapped provider.  An attribute that was part of the search but has no values is
+ * answered as empty without contacting the directory.
+ */
+class PrefetchedAttributeProvider
+{
+    private PrefetchedAttributeProvider()
+    {
+    }
+
+    static ChaiProvider create(
+            final ChaiProvider chaiProvider,
+            final String entryDN,
+            final Map<String, List<String>> prefetchedValues
+    )
+    {
+        final Class<?>[] classList = new Class[]
+                {
+                        ChaiProvider.class,
+                };
+
+        return ( ChaiProvider ) Proxy.newProxyInstance(
+                ChaiProvider.class.getClassLoader(),
+                classList,
+                new ProxyInstance( chaiProvider, entryDN, prefetchedValues ) );
+    }
+
+    private static class ProxyInstance implements InvocationHandler
+    {
+        private final ChaiProvider chaiProvider;
+        private final String entryDN;
+        private final Map<String, List<String>> prefetchedValues = new TreeMap<>( String.CASE_INSENSITIVE_ORDER );
+
+        private volatile ChaiEntryFactory entryFactory;
+
+        ProxyInstance( final ChaiProvider chaiProvider, final String entryDN, final Map<String, List<String>> prefetchedValues )
+        {
+            this.chaiProvider = chaiProvider;
+            this.entryDN = entryDN;
+            this.prefetchedValues.putAll( prefetchedValues );
+        }
+
+        @Override
+        public Object invoke( final Object proxy, final Method method, final Object[] args ) throws Throwable
+        {
+            switch ( method.getName() )
+            {
+                case "getEntryFactory":
+                    // entries must be bound to this proxy rather than the wrapped provider for their reads to be intercepted
+                    if ( entryFactory == null )
+                    {
+                        entryFactory = ChaiEntryFactory.newChaiFactory( ( ChaiProvider ) proxy );
+                    }
+                    return entryFactory;
+
+                case "readStringAttribute":
+                    if ( isPrefetched( args ) )
+                    {
+                        final List<String> values = prefetchedValues.get( ( String ) args[1] );
+                        return values.isEmpty() ? null : values.get( 0 );
+                    }
+                    break;
+
+                case "readStringAttributes":
+                    if ( isPrefetched( args ) )
+                    {
+                        final Map<String, String> returnMap = new LinkedHashMap<>();
+                        for ( final String attribute : ( Set<String> ) args[1] )
+                        {
+                            final List<String> values = prefetchedValues.get( attribute );
+                            if ( !values.isEmpty() )
+                            {
+                                returnMap.put( attribute, values.get( 0 ) );
+                            }
+                        }
+                        return Collections.unmodifiableMap( returnMap );
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+
+            // make sure exceptions are handled transparently
+            try
+            {
+                return method.invoke( chaiProvider, args );
+            }
+            catch ( final InvocationTargetException e )
+            {
+                throw e.getTargetException();
+            }
+        }
+
+        private boolean isPrefetched( final Object[] args )
+        {
+            if ( args == null || args.length != 2 || !( args[0] instanceof String ) || !entryDN.equalsIgnoreCase( ( String ) args[0] ) )
+            {
+                return false;
+            }
+
+            if ( args[1] instanceof String )
+            {
+                return prefetchedValues.containsKey( args[1] );
+            }
+
+            if ( args[1] instanceof Set )
+            {
+                final Set<?> attributes = ( Set<?> ) args[1];
+                return !attributes.isEmpty() && attributes.stream().allMatch( attribute -> attribute instanceof String
+                        && prefetchedValues.containsKey( attribute ) );
+            }
+
+            return false;
+        }
+    }
+}
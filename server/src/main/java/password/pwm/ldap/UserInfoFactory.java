@@ -23,16 +23,23 @@ package password.pwm.ldap;
 import com.novell.ldapchai.exception.ChaiUnavailableException;
 import com.novell.ldapchai.provider.ChaiProvider;
 import password.pwm.PwmApplication;
+import password.pwm.PwmConstants;
 import password.pwm.PwmDomain;
 import password.pwm.bean.SessionLabel;
 import password.pwm.bean.UserIdentity;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.profile.LdapProfile;
 import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.http.PwmRequestContext;
 import password.pwm.util.PasswordData;
+import password.pwm.util.i18n.LocaleHelper;
+import password.pwm.util.java.StringUtil;
 
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 public class UserInfoFactory
 {
@@ -76,6 +83,55 @@ public class UserInfoFactory
         return newUserInfo( pwmApplication, sessionLabel, ldapLocale, userIdentity, provider, null );
     }
 
+    /**
+     * Create a user info for an offline user whose attribute values have already been read by a bulk search, so that
+     * reads of those attributes do not require additional directory operations.
+     *
+     * @param prefetchedValues values keyed by attribute name, an empty list indicating the attribute was read but has no
+     *                         value.  Only single valued attributes should be prefetched.
+     */
+    public static UserInfo newUserInfoUsingProxyForOfflineUser(
+            final PwmApplication pwmApplication,
+            final SessionLabel sessionLabel,
+            final UserIdentity userIdentity,
+            final Map<String, List<String>> prefetchedValues
+    )
+            throws PwmUnrecoverableException
+    {
+        final PwmDomain pwmDomain = pwmApplication.domains().get( userIdentity.getDomainID() );
+        final Locale ldapLocale = readPrefetchedLanguage( sessionLabel, pwmDomain, userIdentity, prefetchedValues );
+        final ChaiProvider provider = pwmDomain.getProxyChaiProvider( sessionLabel, userIdentity.getLdapProfileID() );
+        try
+        {
+            return UserInfoReader.create( userIdentity, null, sessionLabel, ldapLocale, pwmApplication, provider, prefetchedValues );
+        }
+        catch ( final ChaiUnavailableException e )
+        {
+            throw new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_DIRECTORY_UNAVAILABLE, e.getMessage() ) );
+        }
+    }
+
+    private static Locale readPrefetchedLanguage(
+            final SessionLabel sessionLabel,
+            final PwmDomain pwmDomain,
+            final UserIdentity userIdentity,
+            final Map<String, List<String>> prefetchedValues
+    )
+            throws PwmUnrecoverableException
+    {
+        final LdapProfile ldapProfile = userIdentity.getLdapProfile( pwmDomain.getPwmApplication().getConfig() );
+        final String languageAttr = ldapProfile.readSettingAsString( PwmSetting.LDAP_ATTRIBUTE_LANGUAGE );
+        if ( StringUtil.isEmpty( languageAttr ) || !prefetchedValues.containsKey( languageAttr ) )
+        {
+            return LdapOperationsHelper.readLdapStoredLanguage( sessionLabel, pwmDomain, userIdentity );
+        }
+
+        final List<String> values = prefetchedValues.get( languageAttr );
+        return values.isEmpty() || StringUtil.isEmpty( values.get( 0 ) )
+                ? PwmConstants.DEFAULT_LOCALE
+                : LocaleHelper.parseLocaleString( values.get( 0 ) );
+    }
+
     public static UserInfo newUserInfoUsingProxy(
             final PwmRequestContext pwmRequestContext,
             final UserIdentity userIdentity
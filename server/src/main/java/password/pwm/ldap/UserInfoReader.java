@@ -20,6 +20,7 @@
 
 package password.pwm.ldap;
 
+import com.novell.ldapchai.ChaiEntryFactory;
 import com.novell.ldapchai.ChaiUser;
 import com.novell.ldapchai.exception.ChaiException;
 import com.novell.ldapchai.exception.ChaiOperationException;
@@ -89,6 +90,7 @@ public class UserInfoReader implements UserInfo
     private final ChaiUser chaiUser;
     private final SessionLabel sessionLabel;
     private final PwmDomain pwmDomain;
+    private final boolean prefetched;
 
     /**
      * A reference to this object, but with memorized (cached) method implementations.  In most cases references to 'this'
@@ -102,7 +104,8 @@ public class UserInfoReader implements UserInfo
             final SessionLabel sessionLabel,
             final Locale locale,
             final PwmApplication pwmApplication,
-            final ChaiProvider chaiProvider
+            final ChaiProvider chaiProvider,
+            final Map<String, List<String>> prefetchedValues
     )
             throws ChaiUnavailableException
     {
@@ -111,9 +114,19 @@ public class UserInfoReader implements UserInfo
         this.pwmDomain = pwmApplication.domains().get( userIdentity.getDomainID() );
         this.locale = locale;
         this.sessionLabel = sessionLabel;
+        this.prefetched = prefetchedValues != null;
 
-        final ChaiProvider cachingProvider = CachingProxyWrapper.create( ChaiProvider.class, chaiProvider );
-        this.chaiUser = cachingProvider.getEntryFactory().newChaiUser( userIdentity.getUserDN() );
+        if ( prefetchedValues == null )
+        {
+            final ChaiProvider cachingProvider = CachingProxyWrapper.create( ChaiProvider.class, chaiProvider );
+            this.chaiUser = cachingProvider.getEntryFactory().newChaiUser( userIdentity.getUserDN() );
+        }
+        else
+        {
+            final ChaiProvider prefetchedProvider = PrefetchedAttributeProvider.create( chaiProvider, userIdentity.getUserDN(), prefetchedValues );
+            this.chaiUser = ChaiEntryFactory.newChaiFactory( prefetchedProvider ).newChaiUser( userIdentity.getUserDN() );
+            cacheMap.putAll( prefetchedValues );
+        }
     }
 
     static UserInfo create(
@@ -125,11 +138,31 @@ public class UserInfoReader implements UserInfo
             final ChaiProvider chaiProvider
     )
             throws ChaiUnavailableException, PwmUnrecoverableException
+    {
+        return create( userIdentity, currentPassword, sessionLabel, locale, pwmApplication, chaiProvider, null );
+    }
+
+    /**
+     * Create a user info instance, optionally seeded with attribute values already read by a bulk search.
+     *
+     * @param prefetchedValues values keyed by attribute name, an empty list indicating the attribute was read but has no
+     *                         value.  Only single valued attributes should be prefetched.  May be null.
+     */
+    static UserInfo create(
+            final UserIdentity userIdentity,
+            final PasswordData currentPassword,
+            final SessionLabel sessionLabel,
+            final Locale locale,
+            final PwmApplication pwmApplication,
+            final ChaiProvider chaiProvider,
+            final Map<String, List<String>> prefetchedValues
+    )
+            throws ChaiUnavailableException, PwmUnrecoverableException
     {
         final PwmDomain pwmDomain = pwmApplication.domains().get( userIdentity.getDomainID() );
         LdapOperationsHelper.addConfiguredUserObjectClass( sessionLabel, userIdentity, pwmDomain );
 
-        final UserInfoReader userInfo = new UserInfoReader( userIdentity, currentPassword, sessionLabel, locale, pwmApplication, chaiProvider );
+        final UserInfoReader userInfo = new UserInfoReader( userIdentity, currentPassword, sessionLabel, locale, pwmApplication, chaiProvider, prefetchedValues );
         final UserInfo selfCachedReference = CachingProxyWrapper.create( UserInfo.class, userInfo );
         userInfo.selfCachedReference = selfCachedReference;
         return selfCachedReference;
@@ -535,7 +568,9 @@ public class UserInfoReader implements UserInfo
     {
         try
         {
-            return PasswordUtility.determinePwdLastModified( pwmDomain, sessionLabel, userIdentity );
+            return prefetched
+                    ? PasswordUtility.determinePwdLastModified( pwmDomain, sessionLabel, chaiUser, userIdentity )
+                    : PasswordUtility.determinePwdLastModified( pwmDomain, sessionLabel, userIdentity );
         }
         catch ( final ChaiUnavailableException e )
         {
@@ -594,6 +629,16 @@ public class UserInfoReader implements UserInfo
     @Override
     public String getUserGuid( ) throws PwmUnrecoverableException
     {
+        if ( prefetched )
+        {
+            final LdapProfile ldapProfile = getUserIdentity().getLdapProfile( pwmDomain.getConfig().getAppConfig() );
+            final String guidAttribute = ldapProfile.readSettingAsString( PwmSetting.LDAP_GUID_ATTRIBUTE );
+            final List<String> guidValues = cacheMap.get( guidAttribute );
+            if ( guidValues != null && !guidValues.isEmpty() && StringUtil.notEmpty( guidValues.get( 0 ) ) )
+            {
+                return guidValues.get( 0 );
+            }
+        }
         return LdapOperationsHelper.readLdapGuidValue( pwmDomain, sessionLabel, userIdentity, false );
     }
 
@@ -20,9 +20,6 @@
 
 package password.pwm.ldap.permission;
 
-import password.pwm.PwmDomain;
-import password.pwm.bean.SessionLabel;
-import password.pwm.bean.UserIdentity;
 import password.pwm.config.value.data.UserPermission;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.ldap.search.SearchConfiguration;
@@ -31,9 +28,7 @@ class AllPermissionTypeHelper implements PermissionTypeHelper
 {
     @Override
     public boolean testMatch(
-            final PwmDomain pwmDomain,
-            final SessionLabel pwmSession,
-            final UserIdentity userIdentity,
+            final PermissionTestContext context,
             final UserPermission userPermission
     )
             throws PwmUnrecoverableException
@@ -41,13 +41,14 @@ class LdapGroupTypeHelper implements PermissionTypeHelper
 
     @Override
     public boolean testMatch(
-            final PwmDomain pwmDomain,
-            final SessionLabel sessionLabel,
-            final UserIdentity userIdentity,
+            final PermissionTestContext context,
             final UserPermission userPermission
     )
             throws PwmUnrecoverableException
     {
+        final PwmDomain pwmDomain = context.getPwmDomain();
+        final SessionLabel sessionLabel = context.getSessionLabel();
+        final UserIdentity userIdentity = context.getUserIdentity();
         final Instant startTime = Instant.now();
         final String groupDN = userPermission.getLdapBase();
 
@@ -68,7 +69,7 @@ class LdapGroupTypeHelper implements PermissionTypeHelper
             final LdapProfile ldapProfile = userIdentity.getLdapProfile( pwmDomain.getPwmApplication().getConfig() );
             final String filterString = "(" + ldapProfile.readSettingAsString( PwmSetting.LDAP_USER_GROUP_ATTRIBUTE ) + "=" + groupDN + ")";
             LOGGER.trace( sessionLabel, () -> "checking ldap to see if " + userIdentity + " matches group '" + groupDN + "' using filter '" + filterString + "'" );
-            result = LdapQueryHelper.selfUserSearch( pwmDomain, sessionLabel, userIdentity, filterString );
+            result = context.selfUserSearch( filterString );
 
         }
 
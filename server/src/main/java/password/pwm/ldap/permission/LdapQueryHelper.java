@@ -44,13 +44,14 @@ class LdapQueryHelper implements PermissionTypeHelper
 
     @Override
     public boolean testMatch(
-            final PwmDomain pwmDomain,
-            final SessionLabel sessionLabel,
-            final UserIdentity userIdentity,
+            final PermissionTestContext context,
             final UserPermission userPermission
     )
             throws PwmUnrecoverableException
     {
+        final PwmDomain pwmDomain = context.getPwmDomain();
+        final SessionLabel sessionLabel = context.getSessionLabel();
+        final UserIdentity userIdentity = context.getUserIdentity();
         if ( userPermission.getLdapBase() != null && !userPermission.getLdapBase().trim().isEmpty() )
         {
             final String canonicalBaseDN = pwmDomain.getConfig().getLdapProfiles().get( userIdentity.getLdapProfileID() )
@@ -83,7 +84,7 @@ class LdapQueryHelper implements PermissionTypeHelper
         }
 
         LOGGER.trace( sessionLabel, () -> "checking ldap to see if " + userIdentity + " matches '" + filterString + "'" );
-        return selfUserSearch( pwmDomain, sessionLabel, userIdentity, filterString );
+        return context.selfUserSearch( filterString );
     }
 
     static boolean selfUserSearch(
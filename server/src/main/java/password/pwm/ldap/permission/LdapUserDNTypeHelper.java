@@ -40,13 +40,14 @@ class LdapUserDNTypeHelper implements PermissionTypeHelper
 
     @Override
     public boolean testMatch(
-            final PwmDomain pwmDomain,
-            final SessionLabel sessionLabel,
-            final UserIdentity userIdentity,
+            final PermissionTestContext context,
             final UserPermission userPermission
     )
             throws PwmUnrecoverableException
     {
+        final PwmDomain pwmDomain = context.getPwmDomain();
+        final SessionLabel sessionLabel = context.getSessionLabel();
+        final UserIdentity userIdentity = context.getUserIdentity();
         final String groupDN = userPermission.getLdapQuery();
 
         if ( userIdentity == null )
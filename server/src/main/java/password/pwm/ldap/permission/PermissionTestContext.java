@@ -0,0 +1,74 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.ldap.permission;
+
+import lombok.Getter;
+import password.pwm.PwmDomain;
+import password.pwm.bean.SessionLabel;
+import password.pwm.bean.UserIdentity;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * State of a single pass testing a user against a list of permissions.  Ldap filter checks against the user entry
+ * are remembered by filter for the life of the pass, so permissions that repeat a group or query only cause one
+ * directory search.
+ */
+class PermissionTestContext
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( PermissionTestContext.class );
+
+    @Getter
+    private final PwmDomain pwmDomain;
+
+    @Getter
+    private final SessionLabel sessionLabel;
+
+    @Getter
+    private final UserIdentity userIdentity;
+
+    private final Map<String, Boolean> selfSearchResults = new HashMap<>();
+
+    PermissionTestContext( final PwmDomain pwmDomain, final SessionLabel sessionLabel, final UserIdentity userIdentity )
+    {
+        this.pwmDomain = pwmDomain;
+        this.sessionLabel = sessionLabel;
+        this.userIdentity = userIdentity;
+    }
+
+    boolean selfUserSearch( final String searchFilter )
+            throws PwmUnrecoverableException
+    {
+        final Boolean previousResult = selfSearchResults.get( searchFilter );
+        if ( previousResult != null )
+        {
+            LOGGER.trace( sessionLabel, () -> "using previous result for check of " + userIdentity + " using " + searchFilter );
+            return previousResult;
+        }
+
+        final boolean result = LdapQueryHelper.selfUserSearch( pwmDomain, sessionLabel, userIdentity, searchFilter );
+        selfSearchResults.put( searchFilter, result );
+        return result;
+    }
+}
@@ -20,9 +20,6 @@
 
 package password.pwm.ldap.permission;
 
-import password.pwm.PwmDomain;
-import password.pwm.bean.SessionLabel;
-import password.pwm.bean.UserIdentity;
 import password.pwm.config.value.data.UserPermission;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.ldap.search.SearchConfiguration;
@@ -31,10 +28,13 @@ import java.io.Serializable;
 
 interface PermissionTypeHelper extends Serializable
 {
+    /**
+     * Test if a user matches a permission.
+     *
+     * @param context the user being tested and the state of the current evaluation pass
+     */
     boolean testMatch(
-            PwmDomain pwmDomain,
-            SessionLabel pwmSession,
-            UserIdentity userIdentity,
+            PermissionTestContext context,
             UserPermission userPermission
     )
             throws PwmUnrecoverableException;
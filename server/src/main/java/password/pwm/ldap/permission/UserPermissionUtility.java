@@ -20,6 +20,7 @@
 
 package password.pwm.ldap.permission;
 
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmConstants;
 import password.pwm.PwmDomain;
@@ -33,18 +34,28 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.http.PwmRequestContext;
 import password.pwm.ldap.search.SearchConfiguration;
 import password.pwm.ldap.search.UserSearchEngine;
+import password.pwm.svc.cache.CacheKey;
+import password.pwm.svc.cache.CachePolicy;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
+import password.pwm.util.json.JsonFactory;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.secure.PwmHashAlgorithm;
+import password.pwm.util.secure.SecureEngine;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class UserPermissionUtility
@@ -81,9 +92,47 @@ public class UserPermissionUtility
         final List<UserPermission> sortedList = new ArrayList<>( userPermissions );
         Collections.sort( sortedList );
 
+        if ( userIdentity == null || sortedList.isEmpty() || !permissionCacheEnabled( pwmDomain ) )
+        {
+            return testUserPermissions( pwmDomain, sessionLabel, userIdentity, sortedList );
+        }
+
+        final CacheKey cacheKey = CacheKey.newKey(
+                UserPermissionUtility.class,
+                userIdentity,
+                "permissions-" + SecureEngine.hash( JsonFactory.get().serializeCollection( sortedList ), PwmHashAlgorithm.SHA256 ) );
+        final long cacheSeconds = Long.parseLong( pwmDomain.getConfig().readAppProperty( AppProperty.LDAP_CACHE_PERMISSION_SECONDS ) );
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.of( cacheSeconds, TimeDuration.Unit.SECONDS ) ).withImmutablePayload();
+
+        return pwmDomain.getCacheService().get(
+                cacheKey,
+                cachePolicy,
+                Boolean.class,
+                () -> testUserPermissions( pwmDomain, sessionLabel, userIdentity, sortedList ) );
+    }
+
+    private static boolean permissionCacheEnabled( final PwmDomain pwmDomain )
+    {
+        return Boolean.parseBoolean( pwmDomain.getConfig().readAppProperty( AppProperty.LDAP_CACHE_PERMISSION_ENABLE ) );
+    }
+
+    /**
+     * Evaluate a sorted permission list as a single pass, so ldap filter checks against the user entry that are repeated
+     * by several permissions are only sent to the directory once.
+     */
+    private static boolean testUserPermissions(
+            final PwmDomain pwmDomain,
+            final SessionLabel sessionLabel,
+            final UserIdentity userIdentity,
+            final List<UserPermission> sortedList
+    )
+            throws PwmUnrecoverableException
+    {
+        final PermissionTestContext context = new PermissionTestContext( pwmDomain, sessionLabel, userIdentity );
+
         for ( final UserPermission userPermission : sortedList )
         {
-            if ( testUserPermission( pwmDomain, sessionLabel, userIdentity, userPermission ) )
+            if ( testUserPermission( context, userPermission ) )
             {
                 return true;
             }
@@ -103,13 +152,13 @@ public class UserPermissionUtility
     }
 
     private static boolean testUserPermission(
-            final PwmDomain pwmDomain,
-            final SessionLabel sessionLabel,
-            final UserIdentity userIdentity,
+            final PermissionTestContext context,
             final UserPermission userPermission
     )
             throws PwmUnrecoverableException
     {
+        final SessionLabel sessionLabel = context.getSessionLabel();
+        final UserIdentity userIdentity = context.getUserIdentity();
         if ( userPermission == null || userIdentity == null )
         {
             return false;
@@ -122,7 +171,7 @@ public class UserPermissionUtility
 
         final PermissionTypeHelper permissionTypeHelper = userPermission.getType().getPermissionTypeTester();
         final Instant startTime = Instant.now();
-        final boolean match = permissionTypeHelper.testMatch( pwmDomain, sessionLabel, userIdentity, userPermission );
+        final boolean match = permissionTypeHelper.testMatch( context, userPermission );
         LOGGER.debug( sessionLabel, () -> "user " + userIdentity.toDisplayString() + " is "
                         + ( match ? "" : "not " )
                         + "a match for permission '" + userPermission + "'",
@@ -147,35 +196,15 @@ public class UserPermissionUtility
         final List<UserPermission> sortedPermissions = new ArrayList<>( userPermissions );
         Collections.sort( sortedPermissions );
 
-        final UserSearchEngine userSearchEngine = pwmDomain.getUserSearchEngine();
         final List<UserIdentity> resultSet = new ArrayList<>();
 
         for ( final UserPermission userPermission : sortedPermissions )
         {
             if ( ( maxResultSize ) - resultSet.size() > 0 )
             {
-                final PermissionTypeHelper permissionTypeHelper = userPermission.getType().getPermissionTypeTester();
-                final SearchConfiguration searchConfiguration = permissionTypeHelper.searchConfigurationFromPermission( userPermission )
-                        .toBuilder()
-                        .searchTimeout( maxSearchTime )
-                        .build();
-
-                try
-                {
-                    final Map<UserIdentity, Map<String, String>> results = userSearchEngine.performMultiUserSearch(
-                            searchConfiguration,
-                            ( maxResultSize ) - resultSet.size(),
-                            Collections.emptyList(),
-                            sessionLabel
-                    );
-
-                    resultSet.addAll( results.keySet() );
-                }
-                catch ( final PwmUnrecoverableException e )
-                {
-                    LOGGER.error( () -> "error reading matching users: " + e.getMessage() );
-                    throw new PwmOperationalException( e.getErrorInformation() );
-                }
+                final Map<UserIdentity, Map<String, String>> results = searchPermission(
+                        pwmDomain, userPermission, sessionLabel, ( maxResultSize ) - resultSet.size(), maxSearchTime, Collections.emptyList(), null );
+                resultSet.addAll( results.keySet() );
             }
         }
 
@@ -186,6 +215,102 @@ public class UserPermissionUtility
                 .iterator();
     }
 
+    /**
+     * Discover matching users along with attribute values read by the same search.  Each permission is resolved with a
+     * single search and its results are handed to the consumer before the next permission is searched, so the full result
+     * set is never held in memory.  Users matching more than one permission are only supplied once.
+     *
+     * @param returnAttributes attributes to read for each matching user
+     * @param profileFilterClauses optional filter clauses, keyed by ldap profile ID, that further restrict each permission search
+     * @param resultConsumer receives the new matches of each permission, sorted by user identity
+     */
+    @SuppressWarnings( "checkstyle:ParameterNumber" )
+    public static void discoverMatchingUsers(
+            final PwmDomain pwmDomain,
+            final List<UserPermission> userPermissions,
+            final SessionLabel sessionLabel,
+            final int maxResultSize,
+            final TimeDuration maxSearchTime,
+            final Collection<String> returnAttributes,
+            final Map<String, String> profileFilterClauses,
+            final Consumer<Map<UserIdentity, Map<String, String>>> resultConsumer
+    )
+            throws PwmUnrecoverableException, PwmOperationalException
+    {
+        if ( userPermissions == null )
+        {
+            return;
+        }
+
+        final List<UserPermission> sortedPermissions = new ArrayList<>( userPermissions );
+        Collections.sort( sortedPermissions );
+
+        final Set<UserIdentity> discoveredUsers = new HashSet<>();
+        int resultCount = 0;
+
+        for ( final UserPermission userPermission : sortedPermissions )
+        {
+            if ( ( maxResultSize ) - resultCount > 0 )
+            {
+                final Map<UserIdentity, Map<String, String>> results = searchPermission(
+                        pwmDomain, userPermission, sessionLabel, ( maxResultSize ) - resultCount, maxSearchTime, returnAttributes, profileFilterClauses );
+
+                final List<UserIdentity> strippedResults = stripUserMatchesOutsideUserContexts(
+                        sessionLabel, pwmDomain.getPwmApplication(), new ArrayList<>( results.keySet() ) );
+
+                final Map<UserIdentity, Map<String, String>> newResults = new TreeMap<>();
+                for ( final UserIdentity userIdentity : strippedResults )
+                {
+                    if ( discoveredUsers.add( userIdentity ) )
+                    {
+                        newResults.put( userIdentity, results.get( userIdentity ) );
+                    }
+                }
+
+                resultCount += newResults.size();
+                if ( !newResults.isEmpty() )
+                {
+                    resultConsumer.accept( Collections.unmodifiableMap( newResults ) );
+                }
+            }
+        }
+    }
+
+    private static Map<UserIdentity, Map<String, String>> searchPermission(
+            final PwmDomain pwmDomain,
+            final UserPermission userPermission,
+            final SessionLabel sessionLabel,
+            final int maxResultSize,
+            final TimeDuration maxSearchTime,
+            final Collection<String> returnAttributes,
+            final Map<String, String> profileFilterClauses
+    )
+            throws PwmUnrecoverableException, PwmOperationalException
+    {
+        final UserSearchEngine userSearchEngine = pwmDomain.getUserSearchEngine();
+        final PermissionTypeHelper permissionTypeHelper = userPermission.getType().getPermissionTypeTester();
+        final SearchConfiguration searchConfiguration = permissionTypeHelper.searchConfigurationFromPermission( userPermission )
+                .toBuilder()
+                .searchTimeout( maxSearchTime )
+                .profileFilterClauses( profileFilterClauses )
+                .build();
+
+        try
+        {
+            return userSearchEngine.performMultiUserSearch(
+                    searchConfiguration,
+                    maxResultSize,
+                    returnAttributes,
+                    sessionLabel
+            );
+        }
+        catch ( final PwmUnrecoverableException e )
+        {
+            LOGGER.error( () -> "error reading matching users: " + e.getMessage() );
+            throw new PwmOperationalException( e.getErrorInformation() );
+        }
+    }
+
     static Optional<String> profileIdForPermission( final UserPermission userPermission )
     {
         if ( userPermission.getLdapProfileID() != null
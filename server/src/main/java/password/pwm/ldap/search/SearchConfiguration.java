@@ -45,6 +45,11 @@ public class SearchConfiguration implements Serializable
     private transient ChaiProvider chaiProvider;
     private TimeDuration searchTimeout;
 
+    /**
+     * Filter clauses, keyed by ldap profile ID, that are combined with the search filter of that profile.
+     */
+    private Map<String, String> profileFilterClauses;
+
     @Builder.Default
     private boolean ignoreOperationalErrors = false;
 
@@ -414,7 +414,8 @@ public class UserSearchEngine extends AbstractPwmService implements PwmService
                 ? searchConfiguration.getFilter()
                 : ldapProfile.readSettingAsString( PwmSetting.LDAP_USERNAME_SEARCH_FILTER );
 
-        final String searchFilter = makeSearchFilter( ldapProfile, searchConfiguration, inputSearchFilter );
+        final String searchFilter = addProfileFilterClause( ldapProfile, searchConfiguration,
+                makeSearchFilter( ldapProfile, searchConfiguration, inputSearchFilter ) );
 
         final List<String> searchContexts;
         if ( searchConfiguration.getContexts() != null
@@ -516,6 +517,22 @@ public class UserSearchEngine extends AbstractPwmService implements PwmService
     }
 
 
+    private static String addProfileFilterClause( final LdapProfile ldapProfile, final SearchConfiguration searchConfiguration, final String searchFilter )
+    {
+        if ( searchConfiguration.getProfileFilterClauses() == null )
+        {
+            return searchFilter;
+        }
+
+        final String filterClause = searchConfiguration.getProfileFilterClauses().get( ldapProfile.getIdentifier() );
+        if ( StringUtil.isEmpty( filterClause ) )
+        {
+            return searchFilter;
+        }
+
+        return "(&" + searchFilter + filterClause + ")";
+    }
+
     private void validateSpecifiedContext( final SessionLabel sessionLabel, final LdapProfile profile, final String context )
             throws PwmOperationalException, PwmUnrecoverableException
     {
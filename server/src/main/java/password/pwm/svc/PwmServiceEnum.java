@@ -36,6 +36,7 @@ import password.pwm.util.java.CollectionUtil;
 import password.pwm.svc.sms.SmsQueueService;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -44,41 +45,67 @@ public enum PwmServiceEnum
 {
     LocalDBService( password.pwm.util.localdb.LocalDBService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
     SystemSecureService( password.pwm.svc.secure.SystemSecureService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
-    HttpClientService( password.pwm.svc.httpclient.HttpClientService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
-    DatabaseService( password.pwm.svc.db.DatabaseService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
-    SharedHistoryManager( SharedHistoryService.class, PwmSettingScope.SYSTEM ),
-    AuditService( password.pwm.svc.event.AuditService.class, PwmSettingScope.SYSTEM ),
-    StatisticsService( StatisticsService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
-    WordlistService( WordlistService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
-    SeedlistService( SeedlistService.class, PwmSettingScope.SYSTEM ),
-    IntruderSystemService( IntruderSystemService.class, PwmSettingScope.SYSTEM ),
-    EmailService( EmailService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
-    SmsQueueManager( SmsQueueService.class, PwmSettingScope.SYSTEM ),
-    UrlShortenerService( password.pwm.svc.shorturl.UrlShortenerService.class, PwmSettingScope.SYSTEM ),
+    HttpClientService( password.pwm.svc.httpclient.HttpClientService.class, PwmSettingScope.SYSTEM,
+            List.of( SystemSecureService ), Flag.StartDuringRuntimeInstance ),
+    DatabaseService( password.pwm.svc.db.DatabaseService.class, PwmSettingScope.SYSTEM,
+            List.of( SystemSecureService ), Flag.StartDuringRuntimeInstance ),
+    SharedHistoryManager( SharedHistoryService.class, PwmSettingScope.SYSTEM,
+            List.of( LocalDBService ) ),
+    AuditService( password.pwm.svc.event.AuditService.class, PwmSettingScope.SYSTEM,
+            List.of( LocalDBService ) ),
+    StatisticsService( StatisticsService.class, PwmSettingScope.SYSTEM,
+            List.of( LocalDBService ), Flag.StartDuringRuntimeInstance ),
+    WordlistService( WordlistService.class, PwmSettingScope.SYSTEM,
+            List.of( LocalDBService, SystemSecureService, HttpClientService ), Flag.StartDuringRuntimeInstance ),
+    SeedlistService( SeedlistService.class, PwmSettingScope.SYSTEM,
+            List.of( LocalDBService, SystemSecureService, HttpClientService ) ),
+    IntruderSystemService( IntruderSystemService.class, PwmSettingScope.SYSTEM,
+            List.of( LocalDBService, SystemSecureService, DatabaseService, StatisticsService ) ),
+    EmailService( EmailService.class, PwmSettingScope.SYSTEM,
+            List.of( LocalDBService, StatisticsService ), Flag.StartDuringRuntimeInstance ),
+    SmsQueueManager( SmsQueueService.class, PwmSettingScope.SYSTEM,
+            List.of( LocalDBService, SystemSecureService, HttpClientService, StatisticsService ) ),
+    UrlShortenerService( password.pwm.svc.shorturl.UrlShortenerService.class, PwmSettingScope.SYSTEM,
+            List.of( HttpClientService ) ),
     CacheService( password.pwm.svc.cache.CacheService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
-    HealthMonitor( HealthService.class, PwmSettingScope.SYSTEM ),
-    ReportService( password.pwm.svc.report.ReportService.class, PwmSettingScope.SYSTEM, Flag.StartDuringRuntimeInstance ),
-    SessionTrackService( password.pwm.svc.sessiontrack.SessionTrackService.class, PwmSettingScope.SYSTEM ),
-    SessionStateSvc( password.pwm.http.state.SessionStateService.class, PwmSettingScope.SYSTEM ),
-    TelemetryService( password.pwm.svc.telemetry.TelemetryService.class, PwmSettingScope.SYSTEM ),
-    NodeService( NodeService.class, PwmSettingScope.SYSTEM ),
+    HealthMonitor( HealthService.class, PwmSettingScope.SYSTEM,
+            List.of( LocalDBService, HttpClientService, DatabaseService ) ),
+    ReportService( password.pwm.svc.report.ReportService.class, PwmSettingScope.SYSTEM,
+            List.of( LocalDBService ), Flag.StartDuringRuntimeInstance ),
+    SessionTrackService( password.pwm.svc.sessiontrack.SessionTrackService.class, PwmSettingScope.SYSTEM,
+            List.of( SystemSecureService ) ),
+    SessionStateSvc( password.pwm.http.state.SessionStateService.class, PwmSettingScope.SYSTEM,
+            List.of( SystemSecureService, StatisticsService ) ),
+    TelemetryService( password.pwm.svc.telemetry.TelemetryService.class, PwmSettingScope.SYSTEM,
+            List.of( LocalDBService, SystemSecureService, HttpClientService, StatisticsService ) ),
+    NodeService( NodeService.class, PwmSettingScope.SYSTEM,
+            List.of( SystemSecureService, DatabaseService ) ),
 
     DomainSecureService( password.pwm.svc.secure.DomainSecureService.class, PwmSettingScope.DOMAIN, Flag.StartDuringRuntimeInstance ),
     LdapConnectionService( password.pwm.ldap.LdapConnectionService.class, PwmSettingScope.DOMAIN, Flag.StartDuringRuntimeInstance ),
-    CrService( password.pwm.svc.cr.CrService.class, PwmSettingScope.DOMAIN, Flag.StartDuringRuntimeInstance ),
-    OtpService( password.pwm.svc.otp.OtpService.class, PwmSettingScope.DOMAIN ),
-    IntruderDomainService( IntruderDomainService.class, PwmSettingScope.DOMAIN ),
-    UserSearchEngine( password.pwm.ldap.search.UserSearchEngine.class, PwmSettingScope.DOMAIN, Flag.StartDuringRuntimeInstance ),
-    TokenService( password.pwm.svc.token.TokenService.class, PwmSettingScope.DOMAIN, Flag.StartDuringRuntimeInstance ),
-    UserHistoryService( password.pwm.svc.userhistory.UserHistoryService.class, PwmSettingScope.DOMAIN, Flag.StartDuringRuntimeInstance ),
-    PeopleSearchService( password.pwm.http.servlet.peoplesearch.PeopleSearchService.class, PwmSettingScope.DOMAIN ),
-    PwExpiryNotifyService( PwNotifyService.class, PwmSettingScope.DOMAIN ),
+    CrService( password.pwm.svc.cr.CrService.class, PwmSettingScope.DOMAIN,
+            List.of( LdapConnectionService ), Flag.StartDuringRuntimeInstance ),
+    OtpService( password.pwm.svc.otp.OtpService.class, PwmSettingScope.DOMAIN,
+            List.of( DomainSecureService, LdapConnectionService ) ),
+    IntruderDomainService( IntruderDomainService.class, PwmSettingScope.DOMAIN,
+            List.of( DomainSecureService ) ),
+    UserSearchEngine( password.pwm.ldap.search.UserSearchEngine.class, PwmSettingScope.DOMAIN,
+            List.of( LdapConnectionService ), Flag.StartDuringRuntimeInstance ),
+    TokenService( password.pwm.svc.token.TokenService.class, PwmSettingScope.DOMAIN,
+            List.of( DomainSecureService, LdapConnectionService, IntruderDomainService, UserSearchEngine ), Flag.StartDuringRuntimeInstance ),
+    UserHistoryService( password.pwm.svc.userhistory.UserHistoryService.class, PwmSettingScope.DOMAIN,
+            List.of( LdapConnectionService ), Flag.StartDuringRuntimeInstance ),
+    PeopleSearchService( password.pwm.http.servlet.peoplesearch.PeopleSearchService.class, PwmSettingScope.DOMAIN,
+            List.of( DomainSecureService, LdapConnectionService, UserSearchEngine ) ),
+    PwExpiryNotifyService( PwNotifyService.class, PwmSettingScope.DOMAIN,
+            List.of( LdapConnectionService, UserSearchEngine ) ),
     ResourceServletService( password.pwm.http.servlet.resource.ResourceServletService.class, PwmSettingScope.DOMAIN ),;
 
 
     private final Class<? extends PwmService> clazz;
     private final PwmSettingScope pwmSettingScope;
     private final Set<Flag> flags;
+    private final List<PwmServiceEnum> dependencies;
 
     private enum Flag
     {
@@ -86,9 +113,23 @@ public enum PwmServiceEnum
     }
 
     PwmServiceEnum( final Class<? extends PwmService> clazz, final PwmSettingScope pwmSettingScope, final Flag... flags )
+    {
+        this( clazz, pwmSettingScope, Collections.emptyList(), flags );
+    }
+
+    /**
+     * Dependencies can only name services declared earlier, so declaration order is always a valid startup order.
+     */
+    PwmServiceEnum(
+            final Class<? extends PwmService> clazz,
+            final PwmSettingScope pwmSettingScope,
+            final List<PwmServiceEnum> dependencies,
+            final Flag... flags
+    )
     {
         this.clazz = clazz;
         this.pwmSettingScope = pwmSettingScope;
+        this.dependencies = List.copyOf( dependencies );
         this.flags = CollectionUtil.enumSetFromArray( flags );
     }
 
@@ -104,6 +145,14 @@ public enum PwmServiceEnum
                 .collect( Collectors.toUnmodifiableList() );
     }
 
+    /**
+     * Services that must complete initialization before this service is initialized.
+     */
+    public List<PwmServiceEnum> getDependencies()
+    {
+        return dependencies;
+    }
+
     public Class<? extends PwmService> getPwmServiceClass( )
     {
         return clazz;
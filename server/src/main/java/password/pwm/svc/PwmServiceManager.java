@@ -20,6 +20,7 @@
 
 package password.pwm.svc;
 
+import password.pwm.AppProperty;
 import password.pwm.PwmApplication;
 import password.pwm.PwmEnvironment;
 import password.pwm.bean.DomainID;
@@ -28,6 +29,7 @@ import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmException;
 import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.PwmScheduler;
 import password.pwm.util.java.StatisticCounterBundle;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
@@ -35,10 +37,17 @@ import password.pwm.util.logging.PwmLogger;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 public class PwmServiceManager
 {
@@ -47,6 +56,7 @@ public class PwmServiceManager
     private final DomainID domainID;
     private final PwmApplication pwmApplication;
     private final Map<PwmServiceEnum, PwmService> runningServices = new ConcurrentHashMap<>();
+    private final Map<PwmServiceEnum, TimeDuration> startupDurations = new ConcurrentHashMap<>();
     private final List<PwmServiceEnum> availableServices;
     private final SessionLabel sessionLabel;
 
@@ -89,36 +99,39 @@ public class PwmServiceManager
         final StatisticCounterBundle<InitializationStats> statCounter = new StatisticCounterBundle<>( InitializationStats.class );
         LOGGER.trace( sessionLabel, () -> "beginning service " + logVerb + " process" );
 
-        for ( final PwmServiceEnum serviceClassEnum : availableServices )
+        final List<PwmServiceEnum> servicesToStart = new ArrayList<>();
+        final List<PwmServiceEnum> reverseServiceList = new ArrayList<>( availableServices );
+        Collections.reverse( reverseServiceList );
+        for ( final PwmServiceEnum serviceClassEnum : reverseServiceList )
         {
-            boolean serviceShouldBeRunning = true;
-            if ( internalRuntimeInstance && !serviceClassEnum.isInternalRuntime() )
+            final boolean serviceShouldBeRunning = !internalRuntimeInstance || serviceClassEnum.isInternalRuntime();
+
+            if ( runningServices.containsKey( serviceClassEnum ) )
             {
-                serviceShouldBeRunning = false;
+                shutDownService( serviceClassEnum, runningServices.get( serviceClassEnum ) );
+                statCounter.increment( serviceShouldBeRunning ? InitializationStats.restarts : InitializationStats.stops );
+            }
+            else if ( serviceShouldBeRunning )
+            {
+                statCounter.increment( InitializationStats.starts );
             }
 
             if ( serviceShouldBeRunning )
             {
-                if ( runningServices.containsKey( serviceClassEnum ) )
-                {
-                    shutDownService( serviceClassEnum, runningServices.get( serviceClassEnum ) );
-                    statCounter.increment( InitializationStats.restarts );
-                }
-                else
-                {
-                    statCounter.increment( InitializationStats.starts );
-                }
-
-                final PwmService newServiceInstance = initService( serviceClassEnum );
-                runningServices.put( serviceClassEnum, newServiceInstance );
+                servicesToStart.add( 0, serviceClassEnum );
             }
-            else
+        }
+
+        final int threads = figureStartupThreads( servicesToStart.size() );
+        if ( threads > 1 )
+        {
+            initServicesConcurrently( servicesToStart, threads );
+        }
+        else
+        {
+            for ( final PwmServiceEnum serviceClassEnum : servicesToStart )
             {
-                if ( runningServices.containsKey( serviceClassEnum ) )
-                {
-                    shutDownService( serviceClassEnum, runningServices.get( serviceClassEnum ) );
-                    statCounter.increment( InitializationStats.stops );
-                }
+                runningServices.put( serviceClassEnum, initService( serviceClassEnum ) );
             }
         }
 
@@ -127,6 +140,89 @@ public class PwmServiceManager
         LOGGER.trace( sessionLabel, () -> logVerb + "ed services, " + statCounter.debugStats(), () -> TimeDuration.fromCurrent( startTime ) );
     }
 
+    private int figureStartupThreads( final int serviceCount )
+    {
+        try
+        {
+            final int configuredThreads = Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.APPLICATION_SERVICE_STARTUP_THREADS ) );
+            return Math.min( serviceCount, configuredThreads );
+        }
+        catch ( final NumberFormatException e )
+        {
+            LOGGER.warn( sessionLabel, () -> "invalid value for app property " + AppProperty.APPLICATION_SERVICE_STARTUP_THREADS.getKey()
+                    + ", services will be started sequentially: " + e.getMessage() );
+        }
+        return 1;
+    }
+
+    /**
+     * Start each service on a bounded executor as soon as all of its dependencies have started.  Dependencies
+     * that are not managed by this instance, such as system services required by domain services, are already
+     * running before this method is called.
+     */
+    private void initServicesConcurrently( final List<PwmServiceEnum> servicesToStart, final int threads )
+            throws PwmUnrecoverableException
+    {
+        final ThreadFactory threadFactory = PwmScheduler.makePwmThreadFactory(
+                PwmScheduler.makeThreadName( pwmApplication, this.getClass() ) + "-" + domainID.stringValue() + "-", true );
+        final ExecutorService executorService = Executors.newFixedThreadPool( threads, threadFactory );
+
+        try
+        {
+            final Map<PwmServiceEnum, CompletableFuture<Void>> serviceFutures = new EnumMap<>( PwmServiceEnum.class );
+            for ( final PwmServiceEnum serviceClassEnum : servicesToStart )
+            {
+                final CompletableFuture<?>[] dependencyFutures = serviceClassEnum.getDependencies().stream()
+                        .map( serviceFutures::get )
+                        .filter( Objects::nonNull )
+                        .toArray( CompletableFuture<?>[]::new );
+
+                final CompletableFuture<Void> serviceFuture = CompletableFuture.allOf( dependencyFutures ).thenRunAsync( () ->
+                {
+                    try
+                    {
+                        runningServices.put( serviceClassEnum, initService( serviceClassEnum ) );
+                    }
+                    catch ( final PwmUnrecoverableException e )
+                    {
+                        throw new CompletionException( e );
+                    }
+                }, executorService );
+
+                serviceFutures.put( serviceClassEnum, serviceFuture );
+            }
+
+            // wait for every service, even after a failure, so no service is left initializing in the background
+            PwmUnrecoverableException firstError = null;
+            for ( final Map.Entry<PwmServiceEnum, CompletableFuture<Void>> entry : serviceFutures.entrySet() )
+            {
+                try
+                {
+                    entry.getValue().join();
+                }
+                catch ( final CompletionException e )
+                {
+                    if ( firstError == null )
+                    {
+                        final String errorMsg = "unexpected error starting service " + entry.getKey().serviceName( domainID ) + ", error: " + e.getMessage();
+                        firstError = e.getCause() instanceof PwmUnrecoverableException
+                                ? ( PwmUnrecoverableException ) e.getCause()
+                                : new PwmUnrecoverableException( new ErrorInformation( PwmError.ERROR_STARTUP_ERROR, errorMsg ) );
+                    }
+                }
+            }
+
+            if ( firstError != null )
+            {
+                throw firstError;
+            }
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+    }
+
     private PwmService initService( final PwmServiceEnum pwmServiceEnum )
             throws PwmUnrecoverableException
     {
@@ -151,6 +247,7 @@ public class PwmServiceManager
             LOGGER.trace( sessionLabel, () -> "initializing service " + serviceName );
             newServiceInstance.init( pwmApplication, domainID );
             final TimeDuration startupDuration = TimeDuration.fromCurrent( startTime );
+            startupDurations.put( pwmServiceEnum, startupDuration );
             LOGGER.debug( sessionLabel, () -> "completed initialization of service " + serviceName + " in " + startupDuration.asCompactString()
                     + ", status=" + newServiceInstance.status() );
         }
@@ -219,4 +316,17 @@ public class PwmServiceManager
     {
         return List.copyOf( this.runningServices.values() );
     }
+
+    /**
+     * Time spent initializing each running service during the most recent start, excluding time spent waiting
+     * for dependencies.
+     */
+    public Optional<TimeDuration> getStartupDuration( final PwmService pwmService )
+    {
+        return runningServices.entrySet().stream()
+                .filter( entry -> entry.getValue() == pwmService )
+                .map( entry -> startupDurations.get( entry.getKey() ) )
+                .filter( Objects::nonNull )
+                .findFirst();
+    }
 }
@@ -34,4 +34,5 @@ class CacheDebugItem implements Serializable
     private final String valueID;
     private final String age;
     private final int chars;
+    private final int weight;
 }
@@ -28,6 +28,7 @@ import java.time.Instant;
 public class CachePolicy implements Serializable
 {
     private Instant expiration;
+    private boolean immutablePayload;
 
     CachePolicy( )
     {
@@ -38,6 +39,25 @@ public class CachePolicy implements Serializable
         return expiration;
     }
 
+    public boolean isImmutablePayload( )
+    {
+        return immutablePayload;
+    }
+
+    /**
+     * Payloads are normally stored as JSON so each read returns a private copy.  Payloads stored with this policy
+     * must be immutable, they are stored and returned as-is without the JSON round trip.
+     *
+     * @return a copy of this policy for immutable payloads
+     */
+    public CachePolicy withImmutablePayload( )
+    {
+        final CachePolicy policy = new CachePolicy();
+        policy.expiration = this.expiration;
+        policy.immutablePayload = true;
+        return policy;
+    }
+
     public static CachePolicy makePolicyWithExpirationMS( final long expirationMs )
     {
         final CachePolicy policy = new CachePolicy();
@@ -35,7 +35,6 @@ import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.Serializable;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -72,7 +71,10 @@ public class CacheService extends AbstractPwmService implements PwmService
         }
 
         final int maxMemItems = Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.CACHE_MEMORY_MAX_ITEMS ) );
-        memoryCacheStore = new MemoryCacheStore( maxMemItems );
+        final long maxMemBytes = Long.parseLong( pwmApplication.getConfig().readAppProperty( AppProperty.CACHE_MEMORY_MAX_BYTES ) );
+        final TimeDuration loadWaitTimeout = TimeDuration.of(
+                Long.parseLong( pwmApplication.getConfig().readAppProperty( AppProperty.CACHE_MEMORY_LOAD_WAIT_TIMEOUT_MS ) ), TimeDuration.Unit.MILLISECONDS );
+        memoryCacheStore = new MemoryCacheStore( maxMemItems, maxMemBytes, loadWaitTimeout );
         this.traceDebugOutputter = ConditionalTaskExecutor.forPeriodicTask(
                 this::outputTraceInfo,
                 TimeDuration.MINUTE.asDuration() );
@@ -105,6 +107,7 @@ public class CacheService extends AbstractPwmService implements PwmService
         debugInfo.put( "byteCount", String.valueOf( memoryCacheStore.byteCount() ) );
         debugInfo.putAll( JsonFactory.get().deserializeStringMap( JsonFactory.get().serializeMap( memoryCacheStore.getCacheStoreInfo().debugStats() ) ) );
         debugInfo.putAll( JsonFactory.get().deserializeStringMap( JsonFactory.get().serializeMap( memoryCacheStore.storedClassHistogram( "histogram." ) ) ) );
+        debugInfo.putAll( JsonFactory.get().deserializeStringMap( JsonFactory.get().serializeMap( memoryCacheStore.storedClassWeight( "weight." ) ) ) );
         return ServiceInfoBean.builder().debugProperties( debugInfo ).build();
     }
 
@@ -114,6 +117,8 @@ public class CacheService extends AbstractPwmService implements PwmService
         debugInfo.put( "memory-statistics", JsonFactory.get().serializeMap( memoryCacheStore.getCacheStoreInfo().debugStats() ) );
         debugInfo.put( "memory-items", new ArrayList<Serializable>( memoryCacheStore.getCacheDebugItems() ) );
         debugInfo.put( "memory-histogram", new HashMap<>( memoryCacheStore.storedClassHistogram( "" ) ) );
+        debugInfo.put( "memory-weight", new HashMap<>( memoryCacheStore.storedClassWeight( "" ) ) );
+        debugInfo.put( "memory-bytes", memoryCacheStore.byteCount() );
         return Collections.unmodifiableMap( debugInfo );
     }
 
@@ -129,8 +134,7 @@ public class CacheService extends AbstractPwmService implements PwmService
         Objects.requireNonNull( cachePolicy );
         Objects.requireNonNull( payload );
 
-        final Instant expirationDate = cachePolicy.getExpiration();
-        memoryCacheStore.store( cacheKey, expirationDate, payload );
+        memoryCacheStore.store( cacheKey, cachePolicy, payload );
 
         traceDebugOutputter.conditionallyExecuteTask();
     }
@@ -171,8 +175,7 @@ public class CacheService extends AbstractPwmService implements PwmService
 
         traceDebugOutputter.conditionallyExecuteTask();
 
-        final Instant expirationDate = cachePolicy.getExpiration();
-        return memoryCacheStore.readAndStore( cacheKey, expirationDate, classOfT, cacheLoader );
+        return memoryCacheStore.readAndStore( cacheKey, cachePolicy, classOfT, cacheLoader );
     }
 
     private void outputTraceInfo( )
@@ -185,6 +188,8 @@ public class CacheService extends AbstractPwmService implements PwmService
             traceOutput.append( JsonFactory.get().serializeMap( info.debugStats() ) );
             traceOutput.append( ", histogram=" );
             traceOutput.append( JsonFactory.get().serializeMap( memoryCacheStore.storedClassHistogram( "" ) ) );
+            traceOutput.append( ", weight=" );
+            traceOutput.append( JsonFactory.get().serializeMap( memoryCacheStore.storedClassWeight( "" ) ) );
         }
         LOGGER.trace( () -> traceOutput );
     }
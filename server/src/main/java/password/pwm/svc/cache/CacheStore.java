@@ -24,14 +24,17 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.java.StatisticCounterBundle;
 
 import java.io.Serializable;
-import java.time.Instant;
 import java.util.List;
 
 public interface CacheStore
 {
-    void store( CacheKey cacheKey, Instant expirationDate, Serializable data ) throws PwmUnrecoverableException;
+    void store( CacheKey cacheKey, CachePolicy cachePolicy, Serializable data ) throws PwmUnrecoverableException;
 
-    <T extends Serializable> T readAndStore( CacheKey cacheKey, Instant expirationDate, Class<T> classOfT, CacheLoader<T> cacheLoader )
+    /**
+     * Read a value, using the {@code cacheLoader} to load and store the value if it is not present.  Concurrent calls
+     * for the same key share a single invocation of the loader.
+     */
+    <T extends Serializable> T readAndStore( CacheKey cacheKey, CachePolicy cachePolicy, Class<T> classOfT, CacheLoader<T> cacheLoader )
             throws PwmUnrecoverableException;
 
     <T extends Serializable> T read( CacheKey cacheKey, Class<T> classOfT ) throws PwmUnrecoverableException;
@@ -50,5 +53,7 @@ public interface CacheStore
         readCount,
         hitCount,
         missCount,
+        sharedLoadCount,
+        sharedLoadTimeoutCount,
     }
 }
@@ -22,11 +22,13 @@ package password.pwm.svc.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import lombok.Value;
 import password.pwm.bean.UserIdentity;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.json.JsonFactory;
 import password.pwm.util.java.StatisticCounterBundle;
+import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.io.Serializable;
@@ -36,32 +38,58 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 class MemoryCacheStore implements CacheStore
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( MemoryCacheStore.class );
+
+    // rough heap estimates, payload and key characters are weighed separately
+    private static final int ENTRY_OVERHEAD_WEIGHT = 256;
+    private static final int BOXED_VALUE_WEIGHT = 16;
+
     private final Cache<CacheKey, CacheValueWrapper> memoryStore;
+    private final Map<CacheKey, PendingLoad> pendingLoads = new ConcurrentHashMap<>();
     private final StatisticCounterBundle<DebugKey> cacheStoreInfo = new StatisticCounterBundle<>( DebugKey.class );
+    private final TimeDuration loadWaitTimeout;
 
-    MemoryCacheStore( final int maxItems )
+    MemoryCacheStore( final int maxItems, final long maxBytes, final TimeDuration loadWaitTimeout )
     {
-        memoryStore = Caffeine.newBuilder()
-                .maximumSize( maxItems )
-                .build();
+        this.loadWaitTimeout = loadWaitTimeout;
+
+        final Caffeine<CacheKey, CacheValueWrapper> builder = Caffeine.newBuilder()
+                .expireAfter( new PolicyExpiry() );
+
+        // caffeine allows only one bound, the byte budget is used only when it is configured
+        if ( maxBytes > 0 )
+        {
+            builder.maximumWeight( maxBytes );
+            builder.weigher( ( CacheKey key, CacheValueWrapper value ) -> value.getWeight() );
+        }
+        else
+        {
+            builder.maximumSize( maxItems );
+        }
+
+        memoryStore = builder.build();
     }
 
     @Override
-    public void store( final CacheKey cacheKey, final Instant expirationDate, final Serializable data )
+    public void store( final CacheKey cacheKey, final CachePolicy cachePolicy, final Serializable data )
             throws PwmUnrecoverableException
     {
         cacheStoreInfo.increment( DebugKey.storeCount );
-        final String jsonData = JsonFactory.get().serialize( data );
-        memoryStore.put( cacheKey, new CacheValueWrapper( cacheKey, expirationDate, jsonData ) );
+        memoryStore.put( cacheKey, CacheValueWrapper.create( cacheKey, cachePolicy, data ) );
     }
 
     @Override
-    public <T extends Serializable> T readAndStore( final CacheKey cacheKey, final Instant expirationDate, final Class<T> classOfT, final CacheLoader<T> cacheLoader )
+    public <T extends Serializable> T readAndStore( final CacheKey cacheKey, final CachePolicy cachePolicy, final Class<T> classOfT, final CacheLoader<T> cacheLoader )
             throws PwmUnrecoverableException
     {
         cacheStoreInfo.increment( DebugKey.readCount );
@@ -74,13 +102,125 @@ class MemoryCacheStore implements CacheStore
             }
         }
 
+        // only one caller per key runs the loader, any concurrent callers wait for and share its result
+        final PendingLoad newLoad = new PendingLoad( Thread.currentThread(), new CompletableFuture<>() );
+        final PendingLoad existingLoad = pendingLoads.putIfAbsent( cacheKey, newLoad );
+        if ( existingLoad != null )
+        {
+            // a loader reading its own key would otherwise wait on itself forever
+            if ( existingLoad.getOwner() == Thread.currentThread() )
+            {
+                LOGGER.trace( () -> "re-entrant cache load for key " + cacheKey + ", loading without sharing" );
+                return loadAndStore( cacheKey, cachePolicy, cacheLoader );
+            }
+
+            cacheStoreInfo.increment( DebugKey.sharedLoadCount );
+            final Optional<CacheValueWrapper> sharedWrapper = waitForLoad( existingLoad.getFuture(), cacheKey );
+            if ( sharedWrapper.isPresent() )
+            {
+                if ( sharedWrapper.get() == CacheValueWrapper.NULL_LOAD )
+                {
+                    return null;
+                }
+
+                final T sharedValue = sharedWrapper.get().extractPayload( classOfT );
+                if ( sharedValue != null )
+                {
+                    return sharedValue;
+                }
+            }
+
+            // the shared load did not finish in time, or its result can't be read as the requested class, so run this
+            // caller's own loader
+            return loadAndStore( cacheKey, cachePolicy, cacheLoader );
+        }
+
+        final CompletableFuture<CacheValueWrapper> newFuture = newLoad.getFuture();
+        try
+        {
+            // a load for this key may have completed since the initial read
+            final CacheValueWrapper currentWrapper = memoryStore.getIfPresent( cacheKey );
+            final T currentValue = extractValue( classOfT, currentWrapper, cacheKey );
+            if ( currentValue != null )
+            {
+                newFuture.complete( currentWrapper );
+                return currentValue;
+            }
+
+            final T data = cacheLoader.read();
+            cacheStoreInfo.increment( DebugKey.missCount );
+            if ( data == null )
+            {
+                // null results are not cached, but are shared with callers already waiting for this load
+                newFuture.complete( CacheValueWrapper.NULL_LOAD );
+                return null;
+            }
+
+            final CacheValueWrapper valueWrapper = CacheValueWrapper.create( cacheKey, cachePolicy, data );
+            memoryStore.put( cacheKey, valueWrapper );
+            newFuture.complete( valueWrapper );
+            return data;
+        }
+        catch ( final PwmUnrecoverableException | RuntimeException e )
+        {
+            newFuture.completeExceptionally( e );
+            throw e;
+        }
+        finally
+        {
+            pendingLoads.remove( cacheKey, newLoad );
+        }
+    }
+
+    private <T extends Serializable> T loadAndStore( final CacheKey cacheKey, final CachePolicy cachePolicy, final CacheLoader<T> cacheLoader )
+            throws PwmUnrecoverableException
+    {
         final T data = cacheLoader.read();
-        final String jsonIfiedData = JsonFactory.get().serialize( data );
         cacheStoreInfo.increment( DebugKey.missCount );
-        memoryStore.put( cacheKey, new CacheValueWrapper( cacheKey, expirationDate, jsonIfiedData ) );
+        if ( data != null )
+        {
+            memoryStore.put( cacheKey, CacheValueWrapper.create( cacheKey, cachePolicy, data ) );
+        }
         return data;
     }
 
+    /**
+     * Wait for another caller's load of the key, for at most the load wait timeout so a stalled loader does not hold up
+     * every reader of the key.
+     * @return the loaded value, or empty if the load did not complete in time
+     */
+    private Optional<CacheValueWrapper> waitForLoad( final CompletableFuture<CacheValueWrapper> pendingLoad, final CacheKey cacheKey )
+            throws PwmUnrecoverableException
+    {
+        try
+        {
+            return Optional.of( pendingLoad.get( loadWaitTimeout.asMillis(), TimeUnit.MILLISECONDS ) );
+        }
+        catch ( final TimeoutException e )
+        {
+            cacheStoreInfo.increment( DebugKey.sharedLoadTimeoutCount );
+            LOGGER.debug( () -> "timed out after " + loadWaitTimeout.asCompactString() + " waiting for shared cache load of key " + cacheKey + ", loading directly" );
+            return Optional.empty();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+        catch ( final ExecutionException e )
+        {
+            if ( e.getCause() instanceof PwmUnrecoverableException )
+            {
+                throw ( PwmUnrecoverableException ) e.getCause();
+            }
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw ( RuntimeException ) e.getCause();
+            }
+            throw new IllegalStateException( e.getCause() );
+        }
+    }
+
     private <T extends Serializable> T extractValue( final Class<T> classOfT, final CacheValueWrapper valueWrapper, final CacheKey cacheKey )
     {
         if ( valueWrapper != null )
@@ -89,9 +229,12 @@ class MemoryCacheStore implements CacheStore
             {
                 if ( valueWrapper.getExpirationDate().isAfter( Instant.now() ) )
                 {
-                    cacheStoreInfo.increment( DebugKey.hitCount );
-                    final String jsonValue  = valueWrapper.getPayload();
-                    return JsonFactory.get().deserialize( jsonValue, classOfT );
+                    final T value = valueWrapper.extractPayload( classOfT );
+                    if ( value != null )
+                    {
+                        cacheStoreInfo.increment( DebugKey.hitCount );
+                        return value;
+                    }
                 }
             }
         }
@@ -137,7 +280,8 @@ class MemoryCacheStore implements CacheStore
             final CacheValueWrapper cacheValueWrapper = entry.getValue();
             final Instant storeDate = cacheValueWrapper.getExpirationDate();
             final String age = Duration.between( storeDate, Instant.now() ).toString();
-            final int chars = cacheValueWrapper.getPayload().length();
+            final int chars = cacheValueWrapper.payloadChars();
+            final int weight = cacheValueWrapper.getWeight();
             final String keyClass = cacheKey.getSrcClass() == null ? "null" : cacheKey.getSrcClass().getName();
             final String keyUserID = cacheKey.getUserIdentity() == null ? "null" : cacheKey.getUserIdentity().toDisplayString();
             final String keyValue = cacheKey.getValueID() == null ? "null" : cacheKey.getValueID();
@@ -148,6 +292,7 @@ class MemoryCacheStore implements CacheStore
                     .valueID( keyValue )
                     .age( age )
                     .chars( chars )
+                    .weight( weight )
                     .build();
 
             items.add( cacheDebugItem );
@@ -155,15 +300,82 @@ class MemoryCacheStore implements CacheStore
         return Collections.unmodifiableList( items );
     }
 
+    @Value
+    private static class PendingLoad
+    {
+        private final Thread owner;
+        private final CompletableFuture<CacheValueWrapper> future;
+    }
+
     @Value
     private static class CacheValueWrapper implements Serializable
     {
+        // completes a shared load whose loader returned null, never stored
+        static final CacheValueWrapper NULL_LOAD = new CacheValueWrapper( null, null, null, null, 0 );
+
         private final CacheKey cacheKey;
         private final Instant expirationDate;
 
         // serialize to json even though stored in memory, this prevents object-reuse because we don't know
         // if the object is immutable.  Thus an effective clone is made for each store/read.
         private final String payload;
+
+        // set instead of payload when the cache policy declares the value immutable
+        private final Serializable immutablePayload;
+
+        // estimated heap bytes used by the entry
+        private final int weight;
+
+        static CacheValueWrapper create( final CacheKey cacheKey, final CachePolicy cachePolicy, final Serializable data )
+        {
+            if ( cachePolicy.isImmutablePayload() && data != null )
+            {
+                return new CacheValueWrapper( cacheKey, cachePolicy.getExpiration(), null, data, keyWeight( cacheKey ) + immutablePayloadWeight( data ) );
+            }
+
+            final String jsonPayload = JsonFactory.get().serialize( data );
+            final int payloadBytes = jsonPayload.length() * Character.BYTES;
+            return new CacheValueWrapper( cacheKey, cachePolicy.getExpiration(), jsonPayload, null, keyWeight( cacheKey ) + payloadBytes );
+        }
+
+        /**
+         * Immutable payloads are not serialized to be stored, so their size is estimated from the value itself.  Other
+         * than strings and boxed values they are weighed by their json form, which is serialized only for this once.
+         */
+        private static int immutablePayloadWeight( final Serializable data )
+        {
+            if ( data instanceof String )
+            {
+                return ( ( String ) data ).length() * Character.BYTES;
+            }
+            if ( data instanceof Boolean || data instanceof Number || data instanceof Character || data instanceof Enum )
+            {
+                return BOXED_VALUE_WEIGHT;
+            }
+            return JsonFactory.get().serialize( data ).length() * Character.BYTES;
+        }
+
+        private static int keyWeight( final CacheKey cacheKey )
+        {
+            final UserIdentity userIdentity = cacheKey.getUserIdentity();
+            int chars = cacheKey.getValueID() == null ? 0 : cacheKey.getValueID().length();
+            chars += userIdentity == null ? 0 : userIdentity.toDelimitedKey().length();
+            return ENTRY_OVERHEAD_WEIGHT + chars * Character.BYTES;
+        }
+
+        <T extends Serializable> T extractPayload( final Class<T> classOfT )
+        {
+            if ( immutablePayload != null )
+            {
+                return classOfT.isInstance( immutablePayload ) ? classOfT.cast( immutablePayload ) : null;
+            }
+            return JsonFactory.get().deserialize( payload, classOfT );
+        }
+
+        int payloadChars()
+        {
+            return payload == null ? 0 : payload.length();
+        }
     }
 
     Map<String, Integer> storedClassHistogram( final String prefix )
@@ -180,20 +392,83 @@ class MemoryCacheStore implements CacheStore
         return output;
     }
 
+    Map<String, Long> storedClassWeight( final String prefix )
+    {
+        final Map<String, Long> output = new TreeMap<>(  );
+        for ( final Map.Entry<CacheKey, CacheValueWrapper> entry : memoryStore.asMap().entrySet() )
+        {
+            final CacheKey cacheKey = entry.getKey();
+            final String className = cacheKey.getSrcClass() == null ? "n/a" : cacheKey.getSrcClass().getSimpleName();
+            output.merge( prefix + className, ( long ) entry.getValue().getWeight(), Long::sum );
+        }
+        return output;
+    }
+
+    /**
+     * Perform any pending expiration and eviction now rather than during later cache activity.
+     */
+    void cleanUp()
+    {
+        memoryStore.cleanUp();
+    }
+
     @Override
     public long byteCount()
     {
         long byteCount = 0;
-        for ( final Map.Entry<CacheKey, CacheValueWrapper> entry : memoryStore.asMap().entrySet() )
+        for ( final CacheValueWrapper cacheValueWrapper : memoryStore.asMap().values() )
         {
-            final CacheKey cacheKey = entry.getKey();
-            final UserIdentity userIdentity = cacheKey.getUserIdentity();
-            byteCount += userIdentity == null ? 0 : cacheKey.getUserIdentity().toDelimitedKey().length();
-            final String valueID = cacheKey.getValueID();
-            byteCount += valueID == null ? 0 : cacheKey.getValueID().length();
-            final CacheValueWrapper cacheValueWrapper = entry.getValue();
-            byteCount += cacheValueWrapper.payload.length();
+            byteCount += cacheValueWrapper.getWeight();
         }
         return byteCount;
     }
+
+    /**
+     * Expires each entry at the expiration of the {@link CachePolicy} it was stored with, so expired entries are
+     * removed instead of occupying space until they are evicted by size.
+     */
+    private static class PolicyExpiry implements Expiry<CacheKey, CacheValueWrapper>
+    {
+        @Override
+        public long expireAfterCreate( final CacheKey key, final CacheValueWrapper value, final long currentTime )
+        {
+            return nanosUntilExpiration( value );
+        }
+
+        @Override
+        public long expireAfterUpdate( final CacheKey key, final CacheValueWrapper value, final long currentTime, final long currentDuration )
+        {
+            return nanosUntilExpiration( value );
+        }
+
+        @Override
+        public long expireAfterRead( final CacheKey key, final CacheValueWrapper value, final long currentTime, final long currentDuration )
+        {
+            return currentDuration;
+        }
+
+        private static long nanosUntilExpiration( final CacheValueWrapper value )
+        {
+            final Instant expirationDate = value.getExpirationDate();
+            if ( expirationDate == null )
+            {
+                return Long.MAX_VALUE;
+            }
+
+            final Duration remaining = Duration.between( Instant.now(), expirationDate );
+            if ( remaining.isNegative() )
+            {
+                return 0;
+            }
+
+            try
+            {
+                return remaining.toNanos();
+            }
+            catch ( final ArithmeticException e )
+            {
+                return Long.MAX_VALUE;
+            }
+        }
+    }
 }
@@ -31,6 +31,7 @@ import password.pwm.util.java.ImmutableByteArray;
 import password.pwm.util.PasswordData;
 import password.pwm.util.java.CollectionUtil;
 import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -53,6 +54,12 @@ public class DBConfiguration implements Serializable
     private final int connectionTimeout;
     private final int keyColumnLength;
     private final boolean failOnIndexCreation;
+    private final DatabaseVendor vendor;
+    private final int statementCacheSize;
+    private final int maxBatchSize;
+    private final String replicaConnectionString;
+    private final TimeDuration checkoutTimeout;
+    private final TimeDuration validateIdleAge;
 
     public ImmutableByteArray getJdbcDriver( )
     {
@@ -96,6 +103,17 @@ public class DBConfiguration implements Serializable
 
         final boolean haltOnIndexCreateError = Boolean.parseBoolean( config.readAppProperty( AppProperty.DB_INIT_HALT_ON_INDEX_CREATE_ERROR ) );
 
+        final DatabaseVendor vendor = DatabaseVendor.forConfiguration(
+                config.readAppProperty( AppProperty.DB_VENDOR ),
+                config.readSettingAsString( PwmSetting.DATABASE_URL ) );
+        final int statementCacheSize = Math.max( 1, Integer.parseInt( config.readAppProperty( AppProperty.DB_STATEMENT_CACHE_SIZE ) ) );
+        final int maxBatchSize = Math.max( 1, Integer.parseInt( config.readAppProperty( AppProperty.DB_BATCH_MAX_SIZE ) ) );
+
+        final TimeDuration checkoutTimeout = TimeDuration.of(
+                Long.parseLong( config.readAppProperty( AppProperty.DB_CONNECTIONS_CHECKOUT_TIMEOUT_MS ) ), TimeDuration.Unit.MILLISECONDS );
+        final TimeDuration validateIdleAge = TimeDuration.of(
+                Long.parseLong( config.readAppProperty( AppProperty.DB_CONNECTIONS_VALIDATE_IDLE_SECONDS ) ), TimeDuration.Unit.SECONDS );
+
         return new DBConfiguration(
                 config.readSettingAsString( PwmSetting.DATABASE_CLASS ),
                 config.readSettingAsString( PwmSetting.DATABASE_URL ),
@@ -108,7 +126,13 @@ public class DBConfiguration implements Serializable
                 maxConnections,
                 connectionTimeout,
                 keyColumnLength,
-                haltOnIndexCreateError
+                haltOnIndexCreateError,
+                vendor,
+                statementCacheSize,
+                maxBatchSize,
+                config.readAppProperty( AppProperty.DB_REPLICA_URL ),
+                checkoutTimeout,
+                validateIdleAge
         );
     }
 }
@@ -46,6 +46,12 @@ public interface DatabaseAccessor
     }
 
 
+    /**
+     * Write a value, replacing any existing value for the key.
+     *
+     * @return true if the key was not previously present.  Databases written with a native upsert statement do not
+     *     report this, and always return true.
+     */
     @DbOperation
     @DbModifyOperation
     boolean put(
@@ -55,6 +61,17 @@ public interface DatabaseAccessor
     )
             throws DatabaseException;
 
+    /**
+     * Write several values in a single transaction, using jdbc statement batches.
+     */
+    @DbOperation
+    @DbModifyOperation
+    void putAll(
+            DatabaseTable table,
+            Map<String, String> keyValueMap
+    )
+            throws DatabaseException;
+
     @DbOperation
     @DbModifyOperation
     boolean putIfAbsent(
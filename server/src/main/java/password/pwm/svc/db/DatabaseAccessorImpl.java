@@ -31,7 +31,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -64,6 +67,9 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
     private final ReentrantLock lock = new ReentrantLock();
 
+    // prepared statements of this accessor's connection by sql text, least recently used first; guarded by lock
+    private final Map<String, PreparedStatement> statementCache = new LinkedHashMap<>( 16, 0.75f, true );
+
     DatabaseAccessorImpl(
             final DatabaseService databaseService,
             final DBConfiguration dbConfiguration,
@@ -85,6 +91,7 @@ class DatabaseAccessorImpl implements DatabaseAccessor
             throws DatabaseException
     {
         DatabaseUtil.rollbackTransaction( connection );
+        closeStatementCache();
         final DatabaseException databaseException = DatabaseUtil.convertSqlException( debugInfo, e );
         databaseService.setLastError( databaseException.getErrorInformation() );
         throw databaseException;
@@ -104,6 +111,13 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
         return execute( debugInfo, ( ) ->
         {
+            final Optional<String> upsertSql = dbConfiguration.getVendor().upsertSql( table );
+            if ( upsertSql.isPresent() )
+            {
+                executeUpdate( upsertSql.get(), debugInfo, key, value );
+                return true;
+            }
+
             boolean exists = false;
             try
             {
@@ -116,25 +130,76 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
             if ( exists )
             {
-                final String sqlText = "UPDATE " + table.toString()
-                        + " SET " + DatabaseService.VALUE_COLUMN + "=? WHERE "
-                        + DatabaseService.KEY_COLUMN + "=?";
-
                 // note the value/key are reversed for this statement
-                executeUpdate( sqlText, debugInfo, value, key );
+                executeUpdate( updateSql( table ), debugInfo, value, key );
             }
             else
             {
-                final String sqlText = "INSERT INTO " + table.toString()
-                        + "(" + DatabaseService.KEY_COLUMN + ", "
-                        + DatabaseService.VALUE_COLUMN + ") VALUES(?,?)";
-                executeUpdate( sqlText, debugInfo, key, value );
+                executeUpdate( insertSql( table ), debugInfo, key, value );
             }
 
             return !exists;
         } );
     }
 
+    @Override
+    public void putAll(
+            final DatabaseTable table,
+            final Map<String, String> keyValueMap
+    )
+            throws DatabaseException
+    {
+        preCheck();
+
+        if ( keyValueMap.isEmpty() )
+        {
+            return;
+        }
+
+        final DatabaseUtil.DebugInfo debugInfo = DatabaseUtil.DebugInfo.create( "putAll", table, null, keyValueMap.size() + " values" );
+
+        execute( debugInfo, ( ) ->
+        {
+            final List<String[]> upsertParams = new ArrayList<>();
+            final List<String[]> updateParams = new ArrayList<>();
+            final List<String[]> insertParams = new ArrayList<>();
+
+            final Optional<String> upsertSql = dbConfiguration.getVendor().upsertSql( table );
+            try
+            {
+                for ( final Map.Entry<String, String> entry : keyValueMap.entrySet() )
+                {
+                    if ( upsertSql.isPresent() )
+                    {
+                        upsertParams.add( new String[] {entry.getKey(), entry.getValue()} );
+                    }
+                    else if ( containsImpl( table, entry.getKey() ) )
+                    {
+                        // note the value/key are reversed for this statement
+                        updateParams.add( new String[] {entry.getValue(), entry.getKey()} );
+                    }
+                    else
+                    {
+                        insertParams.add( new String[] {entry.getKey(), entry.getValue()} );
+                    }
+                }
+
+                if ( upsertSql.isPresent() )
+                {
+                    executeBatch( upsertSql.get(), upsertParams );
+                }
+                executeBatch( updateSql( table ), updateParams );
+                executeBatch( insertSql( table ), insertParams );
+            }
+            catch ( final SQLException e )
+            {
+                processSqlException( debugInfo, e );
+            }
+
+            return null;
+        } );
+    }
+
     @Override
     public boolean putIfAbsent(
             final DatabaseTable table,
@@ -149,6 +214,12 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
         return execute( debugInfo, ( ) ->
         {
+            final Optional<String> insertIfAbsentSql = dbConfiguration.getVendor().insertIfAbsentSql( table );
+            if ( insertIfAbsentSql.isPresent() )
+            {
+                return executeUpdate( insertIfAbsentSql.get(), debugInfo, key, value ) > 0;
+            }
+
             boolean valueExists = false;
             try
             {
@@ -161,8 +232,7 @@ class DatabaseAccessorImpl implements DatabaseAccessor
 
             if ( !valueExists )
             {
-                final String insertSql = "INSERT INTO " + table.name() + "(" + DatabaseService.KEY_COLUMN + ", " + DatabaseService.VALUE_COLUMN + ") VALUES(?,?)";
-                DatabaseAccessorImpl.this.executeUpdate( insertSql, debugInfo, key, value );
+                DatabaseAccessorImpl.this.executeUpdate( insertSql( table ), debugInfo, key, value );
             }
 
             return !valueExists;
@@ -211,8 +281,9 @@ class DatabaseAccessorImpl implements DatabaseAccessor
         {
             final String sqlStatement = "SELECT * FROM " + table.name() + " WHERE " + DatabaseService.KEY_COLUMN + " = ?";
 
-            try ( PreparedStatement statement = connection.prepareStatement( sqlStatement ) )
+            try
             {
+                final PreparedStatement statement = prepareStatement( sqlStatement );
                 statement.setString( 1, key );
                 statement.setMaxRows( 1 );
 
@@ -281,8 +352,9 @@ class DatabaseAccessorImpl implements DatabaseAccessor
         {
             final String sqlStatement = "SELECT COUNT(" + DatabaseService.KEY_COLUMN + ") FROM " + table.name();
 
-            try ( PreparedStatement statement = connection.prepareStatement( sqlStatement ) )
+            try
             {
+                final PreparedStatement statement = prepareStatement( sqlStatement );
                 try ( ResultSet resultSet = statement.executeQuery() )
                 {
                     if ( resultSet.next() )
@@ -316,9 +388,10 @@ class DatabaseAccessorImpl implements DatabaseAccessor
                 return false;
             }
 
-            final int connectionTimeout = dbConfiguration.getConnectionTimeout();
+            // the configured timeout is in milliseconds, isValid() expects seconds
+            final int connectionTimeoutSeconds = Math.max( 1, dbConfiguration.getConnectionTimeout() / 1000 );
 
-            if ( !connection.isValid( connectionTimeout ) )
+            if ( !connection.isValid( connectionTimeoutSeconds ) )
             {
                 return false;
             }
@@ -559,6 +632,8 @@ class DatabaseAccessorImpl implements DatabaseAccessor
                 LOGGER.warn( () -> "error while closing connection: " + e.getMessage() );
             }
 
+            closeStatementCache();
+
             try
             {
                 connection.close();
@@ -582,38 +657,132 @@ class DatabaseAccessorImpl implements DatabaseAccessor
         final String sqlStatement = "SELECT COUNT(" + DatabaseService.KEY_COLUMN + ") FROM " + table.name()
                 + " WHERE " + DatabaseService.KEY_COLUMN + " = ?";
 
-        try ( PreparedStatement selectStatement = connection.prepareStatement( sqlStatement ) )
-        {
-            selectStatement.setString( 1, key );
-            selectStatement.setMaxRows( 1 );
+        final PreparedStatement selectStatement = prepareStatement( sqlStatement );
+        selectStatement.setString( 1, key );
+        selectStatement.setMaxRows( 1 );
 
-            try ( ResultSet resultSet = selectStatement.executeQuery() )
+        try ( ResultSet resultSet = selectStatement.executeQuery() )
+        {
+            if ( resultSet.next() )
             {
-                if ( resultSet.next() )
-                {
-                    return resultSet.getInt( 1 ) > 0;
-                }
+                return resultSet.getInt( 1 ) > 0;
             }
         }
 
         return false;
     }
 
-    private void executeUpdate( final String sqlStatement, final DatabaseUtil.DebugInfo debugInfo, final String... params )
+    private int executeUpdate( final String sqlStatement, final DatabaseUtil.DebugInfo debugInfo, final String... params )
             throws DatabaseException
     {
-        try ( PreparedStatement statement = connection.prepareStatement( sqlStatement ) )
+        try
         {
+            final PreparedStatement statement = prepareStatement( sqlStatement );
             for ( int i = 0; i < params.length; i++ )
             {
                 statement.setString( i + 1, params[ i ] );
             }
-            statement.executeUpdate();
+            return statement.executeUpdate();
         }
         catch ( final SQLException e )
         {
             processSqlException( debugInfo, e );
         }
+        return 0;
+    }
+
+    private void executeBatch( final String sqlStatement, final List<String[]> paramsList )
+            throws SQLException
+    {
+        if ( paramsList.isEmpty() )
+        {
+            return;
+        }
+
+        final PreparedStatement statement = prepareStatement( sqlStatement );
+        int batchSize = 0;
+        for ( final String[] params : paramsList )
+        {
+            for ( int i = 0; i < params.length; i++ )
+            {
+                statement.setString( i + 1, params[ i ] );
+            }
+            statement.addBatch();
+            batchSize++;
+
+            if ( batchSize >= dbConfiguration.getMaxBatchSize() )
+            {
+                statement.executeBatch();
+                batchSize = 0;
+            }
+        }
+
+        if ( batchSize > 0 )
+        {
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Return a prepared statement for the sql text from the statement cache, preparing it on the connection if it is not
+     * cached.  Statements are owned by the cache and must not be closed by the caller.  Must be called while holding the
+     * accessor lock.
+     */
+    private PreparedStatement prepareStatement( final String sqlStatement )
+            throws SQLException
+    {
+        final PreparedStatement cachedStatement = statementCache.get( sqlStatement );
+        if ( cachedStatement != null )
+        {
+            return cachedStatement;
+        }
+
+        final PreparedStatement statement = connection.prepareStatement( sqlStatement );
+        statementCache.put( sqlStatement, statement );
+
+        if ( statementCache.size() > dbConfiguration.getStatementCacheSize() )
+        {
+            final Map.Entry<String, PreparedStatement> eldest = statementCache.entrySet().iterator().next();
+            statementCache.remove( eldest.getKey() );
+            closeStatement( eldest.getValue() );
+        }
+
+        return statement;
+    }
+
+    private void closeStatementCache( )
+    {
+        for ( final PreparedStatement statement : statementCache.values() )
+        {
+            closeStatement( statement );
+        }
+        statementCache.clear();
+    }
+
+    private static void closeStatement( final PreparedStatement statement )
+    {
+        try
+        {
+            statement.close();
+        }
+        catch ( final SQLException e )
+        {
+            LOGGER.debug( () -> "error closing cached statement: " + e.getMessage() );
+        }
+    }
+
+    private static String updateSql( final DatabaseTable table )
+    {
+        return "UPDATE " + table.name()
+                + " SET " + DatabaseService.VALUE_COLUMN + "=? WHERE "
+                + DatabaseService.KEY_COLUMN + "=?";
+    }
+
+    private static String insertSql( final DatabaseTable table )
+    {
+        return "INSERT INTO " + table.name()
+                + "(" + DatabaseService.KEY_COLUMN + ", "
+                + DatabaseService.VALUE_COLUMN + ") VALUES(?,?)";
     }
 
     private void preCheck( )
@@ -0,0 +1,356 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.db;
+
+import lombok.Value;
+import password.pwm.error.ErrorInformation;
+import password.pwm.error.PwmError;
+import password.pwm.util.java.LatencyHistogram;
+import password.pwm.util.java.StatisticCounterBundle;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Pool of database connections that are checked out for the duration of an operation and then returned.  At most
+ * {@code maxConnections} connections are checked out at once; a checkout waits up to the configured timeout for a
+ * connection to be returned.  Connections are opened as needed, so a connection that fails validation is closed and
+ * replaced by the next checkout.</p>
+ *
+ * <p>A thread that checks out a connection while it already holds one from this pool, for example while reading an
+ * iterator, is given the connection it already holds.</p>
+ */
+public class DatabaseConnectionPool
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( DatabaseConnectionPool.class );
+
+    private final String poolName;
+    private final int maxConnections;
+    private final TimeDuration checkoutTimeout;
+    private final TimeDuration validateIdleAge;
+    private final ConnectionOpener connectionOpener;
+
+    private final Semaphore checkoutPermits;
+
+    // most recently returned connections are at the head
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> allConnections = ConcurrentHashMap.newKeySet();
+    private final Map<Thread, Lease> threadLeases = new ConcurrentHashMap<>();
+
+    private final StatisticCounterBundle<DebugKey> stats = new StatisticCounterBundle<>( DebugKey.class );
+    private final LatencyHistogram waitHistogram = new LatencyHistogram();
+    private final LatencyHistogram checkoutHistogram = new LatencyHistogram();
+
+    private volatile boolean closed;
+
+    enum DebugKey
+    {
+        checkouts,
+        checkoutTimeouts,
+        connectionsOpened,
+        connectionsReplaced,
+    }
+
+    interface ConnectionOpener
+    {
+        DatabaseAccessorImpl open() throws DatabaseException;
+    }
+
+    DatabaseConnectionPool(
+            final String poolName,
+            final int maxConnections,
+            final TimeDuration checkoutTimeout,
+            final TimeDuration validateIdleAge,
+            final ConnectionOpener connectionOpener
+    )
+    {
+        this.poolName = poolName;
+        this.maxConnections = Math.max( 1, maxConnections );
+        this.checkoutTimeout = checkoutTimeout;
+        this.validateIdleAge = validateIdleAge;
+        this.connectionOpener = connectionOpener;
+        this.checkoutPermits = new Semaphore( this.maxConnections, true );
+    }
+
+    private static class PooledConnection
+    {
+        private final DatabaseAccessorImpl accessor;
+        private volatile Instant idleSince = Instant.now();
+
+        PooledConnection( final DatabaseAccessorImpl accessor )
+        {
+            this.accessor = accessor;
+        }
+    }
+
+    static class Lease
+    {
+        private final PooledConnection connection;
+        private final Thread owner;
+        private final Instant checkoutTime = Instant.now();
+        private int depth = 1;
+
+        Lease( final PooledConnection connection, final Thread owner )
+        {
+            this.connection = connection;
+            this.owner = owner;
+        }
+
+        DatabaseAccessorImpl getAccessor()
+        {
+            return connection.accessor;
+        }
+    }
+
+    /**
+     * Open connections until the pool holds {@code count} connections, so that connection problems are found at startup.
+     */
+    void prefill( final int count )
+            throws DatabaseException
+    {
+        while ( allConnections.size() < Math.min( count, maxConnections ) )
+        {
+            idleConnections.offerLast( openConnection() );
+        }
+    }
+
+    Lease checkout()
+            throws DatabaseException
+    {
+        if ( closed )
+        {
+            throw new DatabaseException( new ErrorInformation( PwmError.ERROR_DB_UNAVAILABLE, poolName + " database connection pool is closed" ) );
+        }
+
+        final Lease existingLease = threadLeases.get( Thread.currentThread() );
+        if ( existingLease != null )
+        {
+            synchronized ( existingLease )
+            {
+                existingLease.depth++;
+            }
+            return existingLease;
+        }
+
+        final Instant startWait = Instant.now();
+        try
+        {
+            if ( !checkoutPermits.tryAcquire( checkoutTimeout.asMillis(), TimeUnit.MILLISECONDS ) )
+            {
+                stats.increment( DebugKey.checkoutTimeouts );
+                throw new DatabaseException( new ErrorInformation( PwmError.ERROR_DB_UNAVAILABLE, "timed out after "
+                        + checkoutTimeout.asCompactString() + " waiting for a " + poolName + " database connection" ) );
+            }
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException( new ErrorInformation( PwmError.ERROR_DB_UNAVAILABLE, "interrupted waiting for a " + poolName + " database connection" ) );
+        }
+
+        try
+        {
+            final PooledConnection connection = nextConnection();
+            waitHistogram.record( Duration.between( startWait, Instant.now() ) );
+            stats.increment( DebugKey.checkouts );
+
+            final Lease lease = new Lease( connection, Thread.currentThread() );
+            threadLeases.put( lease.owner, lease );
+            return lease;
+        }
+        catch ( final DatabaseException | RuntimeException e )
+        {
+            checkoutPermits.release();
+            throw e;
+        }
+    }
+
+    void release( final Lease lease )
+    {
+        synchronized ( lease )
+        {
+            lease.depth--;
+            if ( lease.depth > 0 )
+            {
+                return;
+            }
+        }
+
+        threadLeases.remove( lease.owner, lease );
+        checkoutHistogram.record( Duration.between( lease.checkoutTime, Instant.now() ) );
+
+        final PooledConnection connection = lease.connection;
+        if ( closed )
+        {
+            closeConnection( connection );
+        }
+        else
+        {
+            connection.idleSince = Instant.now();
+            idleConnections.offerFirst( connection );
+        }
+        checkoutPermits.release();
+    }
+
+    /**
+     * Validate connections that have been idle longer than the idle validation age, closing any that are no longer
+     * valid.  Connections are only examined while a checkout permit is available, so validation never delays a checkout
+     * beyond the time of a single validation.
+     */
+    void validateIdleConnections( )
+    {
+        final List<PooledConnection> examined = new ArrayList<>();
+        while ( !closed && checkoutPermits.tryAcquire() )
+        {
+            try
+            {
+                final PooledConnection connection = idleConnections.pollLast();
+                if ( connection == null )
+                {
+                    return;
+                }
+
+                if ( examined.contains( connection ) || !isIdleTooLong( connection ) )
+                {
+                    idleConnections.offerLast( connection );
+                    return;
+                }
+
+                examined.add( connection );
+                if ( connection.accessor.isValid() )
+                {
+                    connection.idleSince = Instant.now();
+                    idleConnections.offerLast( connection );
+                }
+                else
+                {
+                    LOGGER.debug( () -> "closing invalid idle " + poolName + " database connection" );
+                    stats.increment( DebugKey.connectionsReplaced );
+                    closeConnection( connection );
+                }
+            }
+            finally
+            {
+                checkoutPermits.release();
+            }
+        }
+    }
+
+    void close( )
+    {
+        closed = true;
+        for ( final PooledConnection connection : new ArrayList<>( allConnections ) )
+        {
+            closeConnection( connection );
+        }
+        idleConnections.clear();
+    }
+
+    PoolSummary summary()
+    {
+        final int total = allConnections.size();
+        final int idle = idleConnections.size();
+        return new PoolSummary(
+                poolName,
+                maxConnections,
+                total - idle,
+                idle,
+                stats.get( DebugKey.checkoutTimeouts ),
+                waitHistogram.summary(),
+                checkoutHistogram.summary() );
+    }
+
+    Map<String, String> debugStats()
+    {
+        final Map<String, String> returnMap = new LinkedHashMap<>();
+        final PoolSummary summary = summary();
+        returnMap.put( poolName + ".active", Integer.toString( summary.getActive() ) );
+        returnMap.put( poolName + ".idle", Integer.toString( summary.getIdle() ) );
+        stats.debugStats().forEach( ( key, value ) -> returnMap.put( poolName + "." + key, value ) );
+        waitHistogram.debugStats().forEach( ( key, value ) -> returnMap.put( poolName + ".wait." + key, value ) );
+        checkoutHistogram.debugStats().forEach( ( key, value ) -> returnMap.put( poolName + ".checkout." + key, value ) );
+        return returnMap;
+    }
+
+    private PooledConnection nextConnection( )
+            throws DatabaseException
+    {
+        PooledConnection connection = idleConnections.pollFirst();
+        while ( connection != null )
+        {
+            if ( !isIdleTooLong( connection ) || connection.accessor.isValid() )
+            {
+                return connection;
+            }
+
+            LOGGER.debug( () -> "replacing invalid " + poolName + " database connection" );
+            stats.increment( DebugKey.connectionsReplaced );
+            closeConnection( connection );
+            connection = idleConnections.pollFirst();
+        }
+
+        return openConnection();
+    }
+
+    private boolean isIdleTooLong( final PooledConnection connection )
+    {
+        return TimeDuration.fromCurrent( connection.idleSince ).isLongerThan( validateIdleAge );
+    }
+
+    private PooledConnection openConnection( )
+            throws DatabaseException
+    {
+        final PooledConnection connection = new PooledConnection( connectionOpener.open() );
+        allConnections.add( connection );
+        stats.increment( DebugKey.connectionsOpened );
+        return connection;
+    }
+
+    private void closeConnection( final PooledConnection connection )
+    {
+        allConnections.remove( connection );
+        connection.accessor.close();
+    }
+
+    @Value
+    public static class PoolSummary implements Serializable
+    {
+        private final String pool;
+        private final int maxConnections;
+        private final int active;
+        private final int idle;
+        private final long checkoutTimeouts;
+        private final LatencyHistogram.Summary waitTime;
+        private final LatencyHistogram.Summary checkoutTime;
+    }
+}
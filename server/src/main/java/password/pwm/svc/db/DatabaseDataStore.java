@@ -80,6 +80,12 @@ public class DatabaseDataStore implements DataStore
         return databaseService.getAccessor().put( table, key, value );
     }
 
+    @Override
+    public void putAll( final Map<String, String> keyValueMap ) throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        databaseService.getAccessor().putAll( table, keyValueMap );
+    }
+
     @Override
     public boolean putIfAbsent( final String key, final String value ) throws PwmDataStoreException, PwmUnrecoverableException
     {
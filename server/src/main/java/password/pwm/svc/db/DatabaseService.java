@@ -36,7 +36,6 @@ import password.pwm.svc.PwmService;
 import password.pwm.svc.stats.EpsStatistic;
 import password.pwm.svc.stats.StatisticsClient;
 import password.pwm.util.PwmScheduler;
-import password.pwm.util.java.AtomicLoopIntIncrementer;
 import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.PwmTimeUtil;
 import password.pwm.util.java.StringUtil;
@@ -57,7 +56,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 
 
@@ -77,8 +75,9 @@ public class DatabaseService extends AbstractPwmService implements PwmService
 
     private ErrorInformation lastError;
 
-    private AtomicLoopIntIncrementer slotIncrementer;
-    private final Map<Integer, DatabaseAccessorImpl> accessors = new ConcurrentHashMap<>();
+    private volatile DatabaseConnectionPool primaryPool;
+    private volatile DatabaseConnectionPool replicaPool;
+    private volatile DatabaseAccessor pooledAccessor;
 
     private ExecutorService executorService;
 
@@ -139,13 +138,11 @@ public class DatabaseService extends AbstractPwmService implements PwmService
         try
         {
             LOGGER.debug( () -> "opening connection to database " + this.dbConfiguration.getConnectionString() );
-            slotIncrementer = AtomicLoopIntIncrementer.builder().ceiling( dbConfiguration.getMaxConnections() ).build();
-
             {
                 // make initial connection and establish schema
-                clearCurrentAccessors();
+                closePools();
 
-                final Connection connection = openConnection( dbConfiguration );
+                final Connection connection = openConnection( dbConfiguration.getConnectionString() );
                 updateDebugProperties( connection );
                 LOGGER.debug( () -> "established initial connection to " + dbConfiguration.getConnectionString() + ", properties: "
                         + JsonFactory.get().serializeMap( this.debugInfo ) );
@@ -158,16 +155,18 @@ public class DatabaseService extends AbstractPwmService implements PwmService
                 connection.close();
             }
 
-            accessors.clear();
             {
-                // set up connection pool
-                final boolean traceLogging = getPwmApplication().getConfig().readSettingAsBoolean( PwmSetting.DATABASE_DEBUG_TRACE );
-                for ( int i = 0; i < dbConfiguration.getMaxConnections(); i++ )
-                {
-                    final Connection connection = openConnection( dbConfiguration );
-                    final DatabaseAccessorImpl accessor = new DatabaseAccessorImpl( this, this.dbConfiguration, connection, traceLogging );
-                    accessors.put( i, accessor );
-                }
+                // set up connection pools
+                final DatabaseConnectionPool newPrimaryPool = makePool( "primary", dbConfiguration.getConnectionString() );
+                newPrimaryPool.prefill( dbConfiguration.getMaxConnections() );
+
+                final DatabaseConnectionPool newReplicaPool = StringUtil.isEmpty( dbConfiguration.getReplicaConnectionString() )
+                        ? null
+                        : makePool( "replica", dbConfiguration.getReplicaConnectionString() );
+
+                primaryPool = newPrimaryPool;
+                replicaPool = newReplicaPool;
+                pooledAccessor = new PooledDatabaseAccessor( newPrimaryPool, newReplicaPool );
             }
 
             LOGGER.debug( () -> "successfully connected to remote database (" + TimeDuration.compactFromCurrent( startTime ) + ")" );
@@ -196,7 +195,7 @@ public class DatabaseService extends AbstractPwmService implements PwmService
             executorService.shutdown();
         }
 
-        clearCurrentAccessors();
+        closePools();
 
         try
         {
@@ -214,13 +213,52 @@ public class DatabaseService extends AbstractPwmService implements PwmService
         }
     }
 
-    private void clearCurrentAccessors( )
+    private DatabaseConnectionPool makePool( final String poolName, final String connectionURL )
+    {
+        final boolean traceLogging = getPwmApplication().getConfig().readSettingAsBoolean( PwmSetting.DATABASE_DEBUG_TRACE );
+        return new DatabaseConnectionPool(
+                poolName,
+                dbConfiguration.getMaxConnections(),
+                dbConfiguration.getCheckoutTimeout(),
+                dbConfiguration.getValidateIdleAge(),
+                () -> new DatabaseAccessorImpl( this, dbConfiguration, openConnection( connectionURL ), traceLogging ) );
+    }
+
+    private void closePools( )
+    {
+        pooledAccessor = null;
+        for ( final DatabaseConnectionPool pool : getPools() )
+        {
+            pool.close();
+        }
+        primaryPool = null;
+        replicaPool = null;
+    }
+
+    private List<DatabaseConnectionPool> getPools( )
     {
-        for ( final DatabaseAccessorImpl accessor : accessors.values() )
+        final List<DatabaseConnectionPool> pools = new ArrayList<>();
+        final DatabaseConnectionPool currentPrimaryPool = primaryPool;
+        final DatabaseConnectionPool currentReplicaPool = replicaPool;
+        if ( currentPrimaryPool != null )
+        {
+            pools.add( currentPrimaryPool );
+        }
+        if ( currentReplicaPool != null )
         {
-            accessor.close();
+            pools.add( currentReplicaPool );
         }
-        accessors.clear();
+        return pools;
+    }
+
+    public List<DatabaseConnectionPool.PoolSummary> getPoolSummaries( )
+    {
+        final List<DatabaseConnectionPool.PoolSummary> returnList = new ArrayList<>();
+        for ( final DatabaseConnectionPool pool : getPools() )
+        {
+            returnList.add( pool.summary() );
+        }
+        return Collections.unmodifiableList( returnList );
     }
 
     @Override
@@ -323,6 +361,10 @@ public class DatabaseService extends AbstractPwmService implements PwmService
             final DatabaseAboutProperty databaseAboutProperty = entry.getKey();
             debugProperties.put( databaseAboutProperty.name(), entry.getValue() );
         }
+        for ( final DatabaseConnectionPool pool : getPools() )
+        {
+            debugProperties.putAll( pool.debugStats() );
+        }
 
         if ( status() == STATUS.OPEN )
         {
@@ -348,17 +390,23 @@ public class DatabaseService extends AbstractPwmService implements PwmService
             throw new PwmUnrecoverableException( makeUninitializedError() );
         }
 
-        return accessors.get( slotIncrementer.next() );
+        final DatabaseAccessor currentAccessor = pooledAccessor;
+        if ( currentAccessor == null )
+        {
+            throw new PwmUnrecoverableException( makeUninitializedError() );
+        }
+        return currentAccessor;
     }
 
-    private Connection openConnection( final DBConfiguration dbConfiguration )
+    private Connection openConnection( final String connectionURL )
             throws DatabaseException
     {
-        final String connectionURL = dbConfiguration.getConnectionString();
-
-        final JDBCDriverLoader.DriverWrapper wrapper = JDBCDriverLoader.loadDriver( getPwmApplication(), dbConfiguration );
-        driver = wrapper.getDriver();
-        jdbcDriverLoader = wrapper.getDriverLoader();
+        if ( driver == null )
+        {
+            final JDBCDriverLoader.DriverWrapper wrapper = JDBCDriverLoader.loadDriver( getPwmApplication(), dbConfiguration );
+            driver = wrapper.getDriver();
+            jdbcDriverLoader = wrapper.getDriverLoader();
+        }
 
         try
         {
@@ -439,6 +487,10 @@ public class DatabaseService extends AbstractPwmService implements PwmService
         this.lastError = lastError;
     }
 
+    /**
+     * Retries initialization until it succeeds, then validates idle pooled connections.  Connections in use are not
+     * examined; a connection that has been idle too long is also validated when it is next checked out.
+     */
     private class ConnectionMonitor implements Runnable
     {
         @Override
@@ -446,21 +498,10 @@ public class DatabaseService extends AbstractPwmService implements PwmService
         {
             if ( initialized )
             {
-                boolean valid = true;
-                for ( final DatabaseAccessorImpl databaseAccessor : accessors.values() )
+                for ( final DatabaseConnectionPool pool : getPools() )
                 {
-                    if ( !databaseAccessor.isValid() )
-                    {
-                        valid = false;
-                        break;
-                    }
+                    pool.validateIdleConnections();
                 }
-                if ( !valid )
-                {
-                    LOGGER.warn( () -> "database connection lost; will retry connect periodically" );
-                    initialized = false;
-                }
-
             }
 
             if ( !initialized )
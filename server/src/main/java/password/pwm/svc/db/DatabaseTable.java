@@ -26,6 +26,7 @@ public enum DatabaseTable
     PWM_RESPONSES,
     USER_AUDIT,
     INTRUDER,
+    INTRUDER_EXPIRY,
     TOKENS,
     OTP,
     PW_NOTIFY,
@@ -0,0 +1,160 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.db;
+
+import password.pwm.util.java.StringUtil;
+
+import java.util.Optional;
+
+/**
+ * Database dialects with a native single statement upsert.  Each statement takes the key and then the value as its
+ * parameters.  Databases that are not recognized use {@link #GENERIC}, which has no native statements and falls back
+ * to a select followed by an update or insert.
+ */
+public enum DatabaseVendor
+{
+    POSTGRESQL( "jdbc:postgresql:" )
+            {
+                @Override
+                Optional<String> upsertSql( final DatabaseTable table )
+                {
+                    return Optional.of( "INSERT INTO " + table.name() + " (" + KEY + ", " + VALUE + ") VALUES (?, ?)"
+                            + " ON CONFLICT (" + KEY + ") DO UPDATE SET " + VALUE + " = EXCLUDED." + VALUE );
+                }
+
+                @Override
+                Optional<String> insertIfAbsentSql( final DatabaseTable table )
+                {
+                    return Optional.of( "INSERT INTO " + table.name() + " (" + KEY + ", " + VALUE + ") VALUES (?, ?)"
+                            + " ON CONFLICT (" + KEY + ") DO NOTHING" );
+                }
+            },
+    MYSQL( "jdbc:mysql:", "jdbc:mariadb:" )
+            {
+                @Override
+                Optional<String> upsertSql( final DatabaseTable table )
+                {
+                    return Optional.of( "INSERT INTO " + table.name() + " (" + KEY + ", " + VALUE + ") VALUES (?, ?)"
+                            + " ON DUPLICATE KEY UPDATE " + VALUE + " = VALUES(" + VALUE + ")" );
+                }
+
+                // INSERT IGNORE would also hide unrelated errors, and with the found rows connection option a no-op
+                // ON DUPLICATE KEY UPDATE reports an existing row as changed, so putIfAbsent uses the generic statements.
+            },
+    // MERGE binds the value as a SELECT column, which is limited to 4000 bytes (ORA-01461), so the generic statements
+    // are used.
+    ORACLE( "jdbc:oracle:" ),
+    MSSQL( "jdbc:sqlserver:", "jdbc:jtds:sqlserver:" )
+            {
+                @Override
+                Optional<String> upsertSql( final DatabaseTable table )
+                {
+                    return Optional.of( mergeSql( table, "SELECT ? AS " + KEY + ", ? AS " + VALUE, true ) + ";" );
+                }
+
+                @Override
+                Optional<String> insertIfAbsentSql( final DatabaseTable table )
+                {
+                    return Optional.of( mergeSql( table, "SELECT ? AS " + KEY + ", ? AS " + VALUE, false ) + ";" );
+                }
+            },
+    H2( "jdbc:h2:" )
+            {
+                @Override
+                Optional<String> upsertSql( final DatabaseTable table )
+                {
+                    return Optional.of( "MERGE INTO " + table.name() + " (" + KEY + ", " + VALUE + ") KEY (" + KEY + ") VALUES (?, ?)" );
+                }
+            },
+    GENERIC;
+
+    private static final String KEY = DatabaseService.KEY_COLUMN;
+    private static final String VALUE = DatabaseService.VALUE_COLUMN;
+
+    private final String[] urlPrefixes;
+
+    DatabaseVendor( final String... urlPrefixes )
+    {
+        this.urlPrefixes = urlPrefixes;
+    }
+
+    /**
+     * @return a statement that inserts the row or replaces the value of an existing row.
+     */
+    Optional<String> upsertSql( final DatabaseTable table )
+    {
+        return Optional.empty();
+    }
+
+    /**
+     * @return a statement that inserts the row if the key is not present, with an update count of zero otherwise.
+     */
+    Optional<String> insertIfAbsentSql( final DatabaseTable table )
+    {
+        return Optional.empty();
+    }
+
+    /**
+     * SQL Server MERGE is not atomic on its own, two concurrent merges of a new key can both take the insert branch and
+     * fail on the primary key, so the target is read with HOLDLOCK to hold a key range lock for the statement.
+     */
+    private static String mergeSql( final DatabaseTable table, final String sourceSelect, final boolean updateExisting )
+    {
+        return "MERGE INTO " + table.name() + " WITH (HOLDLOCK) t USING (" + sourceSelect + ") s ON (t." + KEY + " = s." + KEY + ")"
+                + ( updateExisting ? " WHEN MATCHED THEN UPDATE SET t." + VALUE + " = s." + VALUE : "" )
+                + " WHEN NOT MATCHED THEN INSERT (" + KEY + ", " + VALUE + ") VALUES (s." + KEY + ", s." + VALUE + ")";
+    }
+
+    /**
+     * Select the vendor for a configuration.  An explicitly configured vendor name is used if valid, otherwise the vendor
+     * is recognized from the jdbc connection url.
+     */
+    static DatabaseVendor forConfiguration( final String configuredVendor, final String connectionString )
+    {
+        if ( StringUtil.notEmpty( configuredVendor ) )
+        {
+            for ( final DatabaseVendor vendor : values() )
+            {
+                if ( vendor.name().equalsIgnoreCase( configuredVendor.trim() ) )
+                {
+                    return vendor;
+                }
+            }
+        }
+
+        if ( connectionString != null )
+        {
+            final String lowerUrl = connectionString.trim().toLowerCase();
+            for ( final DatabaseVendor vendor : values() )
+            {
+                for ( final String prefix : vendor.urlPrefixes )
+                {
+                    if ( lowerUrl.startsWith( prefix ) )
+                    {
+                        return vendor;
+                    }
+                }
+            }
+        }
+
+        return GENERIC;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.db;
+
+import password.pwm.util.java.ClosableIterator;
+import password.pwm.util.logging.PwmLogger;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link DatabaseAccessor} that checks out a connection from a {@link DatabaseConnectionPool} for each operation.  Read
+ * operations use the replica pool when one is configured, falling back to the primary pool if no replica connection
+ * can be checked out.  Iterators keep their connection checked out until they are closed or exhausted.
+ */
+class PooledDatabaseAccessor implements DatabaseAccessor
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( PooledDatabaseAccessor.class );
+
+    private final DatabaseConnectionPool primaryPool;
+    private final DatabaseConnectionPool replicaPool;
+
+    PooledDatabaseAccessor( final DatabaseConnectionPool primaryPool, final DatabaseConnectionPool replicaPool )
+    {
+        this.primaryPool = primaryPool;
+        this.replicaPool = replicaPool;
+    }
+
+    private interface AccessorFunction<T>
+    {
+        T apply( DatabaseAccessorImpl accessor ) throws DatabaseException;
+    }
+
+    private <T> T withAccessor( final boolean readOperation, final AccessorFunction<T> function )
+            throws DatabaseException
+    {
+        final DatabaseConnectionPool pool = readOperation ? readPool() : primaryPool;
+        final DatabaseConnectionPool.Lease lease = checkout( pool );
+        try
+        {
+            return function.apply( lease.getAccessor() );
+        }
+        finally
+        {
+            pool.release( lease );
+        }
+    }
+
+    private DatabaseConnectionPool readPool( )
+    {
+        return replicaPool == null ? primaryPool : replicaPool;
+    }
+
+    private DatabaseConnectionPool.Lease checkout( final DatabaseConnectionPool pool )
+            throws DatabaseException
+    {
+        if ( pool != primaryPool )
+        {
+            try
+            {
+                return pool.checkout();
+            }
+            catch ( final DatabaseException e )
+            {
+                LOGGER.debug( () -> "unable to check out replica database connection, using primary: " + e.getMessage() );
+            }
+        }
+        return primaryPool.checkout();
+    }
+
+    @Override
+    public boolean put( final DatabaseTable table, final String key, final String value )
+            throws DatabaseException
+    {
+        return withAccessor( false, accessor -> accessor.put( table, key, value ) );
+    }
+
+    @Override
+    public void putAll( final DatabaseTable table, final Map<String, String> keyValueMap )
+            throws DatabaseException
+    {
+        withAccessor( false, accessor ->
+        {
+            accessor.putAll( table, keyValueMap );
+            return null;
+        } );
+    }
+
+    @Override
+    public boolean putIfAbsent( final DatabaseTable table, final String key, final String value )
+            throws DatabaseException
+    {
+        return withAccessor( false, accessor -> accessor.putIfAbsent( table, key, value ) );
+    }
+
+    @Override
+    public boolean contains( final DatabaseTable table, final String key )
+            throws DatabaseException
+    {
+        return withAccessor( true, accessor -> accessor.contains( table, key ) );
+    }
+
+    @Override
+    public Optional<String> get( final DatabaseTable table, final String key )
+            throws DatabaseException
+    {
+        return withAccessor( true, accessor -> accessor.get( table, key ) );
+    }
+
+    @Override
+    public ClosableIterator<Map.Entry<String, String>> iterator( final DatabaseTable table )
+            throws DatabaseException
+    {
+        final DatabaseConnectionPool pool = readPool();
+        final DatabaseConnectionPool.Lease lease = checkout( pool );
+        try
+        {
+            return new LeasedIterator( lease.getAccessor().iterator( table ), pool, lease );
+        }
+        catch ( final DatabaseException | RuntimeException e )
+        {
+            pool.release( lease );
+            throw e;
+        }
+    }
+
+    @Override
+    public void remove( final DatabaseTable table, final String key )
+            throws DatabaseException
+    {
+        withAccessor( false, accessor ->
+        {
+            accessor.remove( table, key );
+            return null;
+        } );
+    }
+
+    @Override
+    public int size( final DatabaseTable table )
+            throws DatabaseException
+    {
+        return withAccessor( true, accessor -> accessor.size( table ) );
+    }
+
+    @Override
+    public boolean isConnected( )
+    {
+        try
+        {
+            return withAccessor( false, DatabaseAccessorImpl::isConnected );
+        }
+        catch ( final DatabaseException e )
+        {
+            LOGGER.debug( () -> "error while checking database connection: " + e.getMessage() );
+        }
+        return false;
+    }
+
+    private static class LeasedIterator implements ClosableIterator<Map.Entry<String, String>>
+    {
+        private final ClosableIterator<Map.Entry<String, String>> innerIterator;
+        private final DatabaseConnectionPool pool;
+        private final DatabaseConnectionPool.Lease lease;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        LeasedIterator(
+                final ClosableIterator<Map.Entry<String, String>> innerIterator,
+                final DatabaseConnectionPool pool,
+                final DatabaseConnectionPool.Lease lease
+        )
+        {
+            this.innerIterator = innerIterator;
+            this.pool = pool;
+            this.lease = lease;
+        }
+
+        @Override
+        public boolean hasNext( )
+        {
+            final boolean hasNext = innerIterator.hasNext();
+            if ( !hasNext )
+            {
+                release();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Map.Entry<String, String> next( )
+        {
+            return innerIterator.next();
+        }
+
+        @Override
+        public void close( )
+        {
+            innerIterator.close();
+            release();
+        }
+
+        private void release( )
+        {
+            if ( released.compareAndSet( false, true ) )
+            {
+                pool.release( lease );
+            }
+        }
+    }
+}
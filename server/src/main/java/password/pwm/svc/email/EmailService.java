@@ -126,6 +126,8 @@ public class EmailService extends AbstractPwmService implements PwmService
                 .retryDiscardAge( emailServiceSettings.getQueueDiscardAge() )
                 .retryInterval( emailServiceSettings.getQueueRetryTimeout() )
                 .preThreads( emailServiceSettings.getMaxThreads() )
+                .workerThreads( emailServiceSettings.getWorkerThreads() )
+                .batchSize( emailServiceSettings.getBatchSize() )
                 .build();
         final LocalDBStoredQueue localDBStoredQueue = LocalDBStoredQueue.createLocalDBStoredQueue(
                 this.getPwmApplication(), this.getPwmApplication().getLocalDB(), LocalDB.DB.EMAIL_QUEUE );
@@ -231,12 +233,24 @@ public class EmailService extends AbstractPwmService implements PwmService
                 : workQueueProcessor.eldestItem();
     }
 
-    private class EmailItemProcessor implements WorkQueueProcessor.ItemProcessor<EmailItemBean>
+    private class EmailItemProcessor implements WorkQueueProcessor.BatchItemProcessor<EmailItemBean>
     {
         @Override
         public WorkQueueProcessor.ProcessResult process( final EmailItemBean workItem )
         {
-            return sendItem( workItem );
+            return sendItems( Collections.singletonList( workItem ) ).get( 0 );
+        }
+
+        @Override
+        public List<WorkQueueProcessor.ProcessResult> processBatch( final List<EmailItemBean> workItems )
+        {
+            return sendItems( workItems );
+        }
+
+        @Override
+        public String orderingKey( final EmailItemBean workItem )
+        {
+            return workItem.getTo();
         }
 
         @Override
@@ -468,41 +482,77 @@ public class EmailService extends AbstractPwmService implements PwmService
         }
     }
 
-    private WorkQueueProcessor.ProcessResult sendItem( final EmailItemBean emailItemBean )
+    /**
+     * Send items in order over a single pooled connection.  Sending stops at the first item that should be retried.
+     */
+    private List<WorkQueueProcessor.ProcessResult> sendItems( final List<EmailItemBean> emailItemBeans )
     {
+        final List<WorkQueueProcessor.ProcessResult> results = new ArrayList<>( emailItemBeans.size() );
+        EmailConnection emailConnection = null;
+
         try
         {
-            executeEmailSend( emailItemBean );
-            return WorkQueueProcessor.ProcessResult.SUCCESS;
-        }
-        catch ( final MessagingException | PwmException e )
-        {
-            if ( EmailServerUtil.examineSendFailure( e, emailServiceSettings.getRetryableStatusResponses() ) )
+            for ( final EmailItemBean emailItemBean : emailItemBeans )
             {
-                LOGGER.error( () -> "error sending email (" + e.getMessage() + ") " + emailItemBean.toDebugString() + ", will retry" );
-                StatisticsClient.incrementStat( getPwmApplication(), Statistic.EMAIL_SEND_FAILURES );
-                return WorkQueueProcessor.ProcessResult.RETRY;
+                try
+                {
+                    if ( emailConnection == null )
+                    {
+                        emailConnection = connectionPool.getConnection();
+                    }
+                    executeEmailSend( emailItemBean, emailConnection );
+                    results.add( WorkQueueProcessor.ProcessResult.SUCCESS );
+                }
+                catch ( final MessagingException | PwmException e )
+                {
+                    if ( e instanceof PwmException )
+                    {
+                        final ErrorInformation errorInformation = ( ( PwmException ) e ).getErrorInformation();
+                        lastSendError.set( errorInformation );
+                        LOGGER.error( errorInformation );
+                    }
+
+                    if ( emailConnection != null )
+                    {
+                        // the connection state is unknown after a failure, so the pool validates it before it is used again
+                        connectionPool.returnEmailConnection( emailConnection );
+                        emailConnection = null;
+                    }
+
+                    if ( EmailServerUtil.examineSendFailure( e, emailServiceSettings.getRetryableStatusResponses() ) )
+                    {
+                        LOGGER.error( () -> "error sending email (" + e.getMessage() + ") " + emailItemBean.toDebugString() + ", will retry" );
+                        StatisticsClient.incrementStat( getPwmApplication(), Statistic.EMAIL_SEND_FAILURES );
+                        results.add( WorkQueueProcessor.ProcessResult.RETRY );
+                        break;
+                    }
+
+                    LOGGER.error( () -> "error sending email (" + e.getMessage() + ") " + emailItemBean.toDebugString() + ", permanent failure, discarding message" );
+                    StatisticsClient.incrementStat( getPwmApplication(), Statistic.EMAIL_SEND_DISCARDS );
+                    results.add( WorkQueueProcessor.ProcessResult.FAILED );
+                }
             }
-            else
+        }
+        finally
+        {
+            if ( emailConnection != null )
             {
-                LOGGER.error( () -> "error sending email (" + e.getMessage() + ") " + emailItemBean.toDebugString() + ", permanent failure, discarding message" );
-                StatisticsClient.incrementStat( getPwmApplication(), Statistic.EMAIL_SEND_DISCARDS );
-                return WorkQueueProcessor.ProcessResult.FAILED;
+                connectionPool.returnEmailConnection( emailConnection );
             }
         }
+
+        statsLogger.conditionallyExecuteTask();
+        return results;
     }
 
 
-    private void executeEmailSend( final EmailItemBean emailItemBean )
-            throws PwmUnrecoverableException, MessagingException
+    private void executeEmailSend( final EmailItemBean emailItemBean, final EmailConnection emailConnection )
+            throws MessagingException
     {
         final Instant startTime = Instant.now();
-        EmailConnection emailConnection = null;
 
         try
         {
-            emailConnection = connectionPool.getConnection();
-
             final List<Message> messages = EmailServerUtil.convertEmailItemToMessages(
                     emailItemBean,
                     this.getPwmApplication().getConfig(),
@@ -524,44 +574,23 @@ public class EmailService extends AbstractPwmService implements PwmService
             LOGGER.debug( () -> "sent email: " + emailItemBean.toDebugString(), () -> sendTime );
             StatisticsClient.incrementStat( getPwmApplication(), Statistic.EMAIL_SEND_SUCCESSES );
         }
-        catch ( final MessagingException | PwmException e )
+        catch ( final MessagingException e )
         {
-            final ErrorInformation errorInformation;
-            if ( e instanceof PwmException )
-            {
-                errorInformation = ( ( PwmException ) e ).getErrorInformation();
-            }
-            else
-            {
-                final String errorMsg = "error sending email: " + e.getMessage();
-                errorInformation = new ErrorInformation(
-                        PwmError.ERROR_EMAIL_SEND_FAILURE,
-                        errorMsg,
-                        new String[] {
-                                emailItemBean.toDebugString(),
-                                JavaHelper.readHostileExceptionMessage( e ),
-                                }
-                );
-            }
-
-            if ( emailConnection != null )
-            {
-                lastSendError.set( errorInformation );
-                emailConnection.getEmailServer().getConnectionStats().increment( EmailServer.ServerStat.sendFailures );
+            final String errorMsg = "error sending email: " + e.getMessage();
+            final ErrorInformation errorInformation = new ErrorInformation(
+                    PwmError.ERROR_EMAIL_SEND_FAILURE,
+                    errorMsg,
+                    new String[] {
+                            emailItemBean.toDebugString(),
+                            JavaHelper.readHostileExceptionMessage( e ),
+                            }
+            );
 
-            }
+            lastSendError.set( errorInformation );
+            emailConnection.getEmailServer().getConnectionStats().increment( EmailServer.ServerStat.sendFailures );
             LOGGER.error( errorInformation );
             throw e;
         }
-        finally
-        {
-            if ( emailConnection != null )
-            {
-                connectionPool.returnEmailConnection( emailConnection );
-            }
-        }
-
-        statsLogger.conditionallyExecuteTask();
     }
 
 
@@ -36,9 +36,11 @@ import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 class IntruderDataStore implements IntruderRecordStore
@@ -49,13 +51,20 @@ class IntruderDataStore implements IntruderRecordStore
     private final Supplier<PwmService.STATUS> serviceStatus;
     private final StatisticCounterBundle<DebugKeys> stats = new StatisticCounterBundle<>( DebugKeys.class );
     private final PwmService intruderService;
+    private final IntruderExpiryIndex expiryIndex;
 
     private Instant eldestRecord;
 
-    IntruderDataStore( final PwmService intruderService, final DataStore dataStore, final Supplier<PwmService.STATUS> serviceStatus )
+    IntruderDataStore(
+            final PwmService intruderService,
+            final DataStore dataStore,
+            final IntruderExpiryIndex expiryIndex,
+            final Supplier<PwmService.STATUS> serviceStatus
+    )
     {
         this.intruderService = intruderService;
         this.dataStore = dataStore;
+        this.expiryIndex = expiryIndex;
         this.serviceStatus = serviceStatus;
     }
 
@@ -120,6 +129,8 @@ class IntruderDataStore implements IntruderRecordStore
         try
         {
             dataStore.put( key, jsonRecord );
+            expiryIndex.add( key, record.getTimeStamp() );
+            expiryIndex.flush();
         }
         catch ( final PwmDataStoreException e )
         {
@@ -128,6 +139,70 @@ class IntruderDataStore implements IntruderRecordStore
         stats.increment( DebugKeys.writes );
     }
 
+    /**
+     * Not atomic, callers requiring atomic updates should use {@link IntruderHotSetStore}.
+     */
+    @Override
+    public Optional<IntruderRecord> update( final String key, final Function<Optional<IntruderRecord>, IntruderRecord> updater )
+            throws PwmOperationalException, PwmUnrecoverableException
+    {
+        final Optional<IntruderRecord> existingRecord = read( key );
+        final IntruderRecord updatedRecord = updater.apply( existingRecord );
+        if ( updatedRecord == null )
+        {
+            return existingRecord;
+        }
+
+        write( key, updatedRecord );
+        return Optional.of( updatedRecord );
+    }
+
+    /**
+     * Not atomic, the updated records are written with a single {@link DataStore#putAll(Map)}.
+     */
+    @Override
+    public Map<String, IntruderRecord> updateAll( final Map<String, Function<Optional<IntruderRecord>, IntruderRecord>> updaters )
+            throws PwmOperationalException, PwmUnrecoverableException
+    {
+        final Map<String, IntruderRecord> results = new LinkedHashMap<>();
+        final Map<String, String> jsonRecords = new LinkedHashMap<>();
+        for ( final Map.Entry<String, Function<Optional<IntruderRecord>, IntruderRecord>> entry : updaters.entrySet() )
+        {
+            final Optional<IntruderRecord> existingRecord = read( entry.getKey() );
+            final IntruderRecord updatedRecord = entry.getValue().apply( existingRecord );
+            if ( updatedRecord == null )
+            {
+                existingRecord.ifPresent( record -> results.put( entry.getKey(), record ) );
+            }
+            else
+            {
+                results.put( entry.getKey(), updatedRecord );
+                jsonRecords.put( entry.getKey(), JsonFactory.get().serialize( updatedRecord ) );
+            }
+        }
+
+        if ( jsonRecords.isEmpty() )
+        {
+            return results;
+        }
+
+        try
+        {
+            dataStore.putAll( jsonRecords );
+            for ( final String key : jsonRecords.keySet() )
+            {
+                expiryIndex.add( key, results.get( key ).getTimeStamp() );
+            }
+            expiryIndex.flush();
+        }
+        catch ( final PwmDataStoreException e )
+        {
+            throw new PwmOperationalException( new ErrorInformation( PwmError.ERROR_LOCALDB_UNAVAILABLE, "error writing to LocalDB: " + e.getMessage() ) );
+        }
+        stats.increment( DebugKeys.writes, jsonRecords.size() );
+        return results;
+    }
+
     @Override
     public ClosableIterator<IntruderRecord> iterator()
             throws PwmOperationalException, PwmUnrecoverableException
@@ -146,6 +221,7 @@ class IntruderDataStore implements IntruderRecordStore
     {
         private final ClosableIterator<Map.Entry<String, String>> dbIterator;
         private String currentKey;
+        private String returnedKey;
         private IntruderRecord currentRecord;
 
         private RecordIterator( final ClosableIterator<Map.Entry<String, String>> dbIterator )
@@ -166,6 +242,7 @@ class IntruderDataStore implements IntruderRecordStore
             if ( currentRecord != null )
             {
                 final IntruderRecord returnRecord = currentRecord;
+                returnedKey = currentKey;
                 doNext();
                 return returnRecord;
             }
@@ -201,7 +278,7 @@ class IntruderDataStore implements IntruderRecordStore
         {
             try
             {
-                dataStore.remove( currentKey );
+                dataStore.remove( returnedKey );
             }
             catch ( final PwmDataStoreException | PwmUnrecoverableException e )
             {
@@ -209,6 +286,11 @@ class IntruderDataStore implements IntruderRecordStore
             }
         }
 
+        private String currentKey()
+        {
+            return returnedKey;
+        }
+
         @Override
         public void close( )
         {
@@ -218,23 +300,100 @@ class IntruderDataStore implements IntruderRecordStore
 
 
     @Override
-    public void cleanup( final TimeDuration maxRecordAge )
+    public long cleanup( final TimeDuration maxRecordAge )
+    {
+        stats.increment( DebugKeys.cleanupCycles );
+        final Instant startTime = Instant.now();
+        final Instant expiredBefore = Instant.now().minus( maxRecordAge.asDuration() );
+
+        try
+        {
+            if ( !expiryIndex.isInitialized() )
+            {
+                return scanCleanup( maxRecordAge, expiredBefore );
+            }
+
+            return indexedCleanup( maxRecordAge, expiredBefore, startTime );
+        }
+        catch ( final PwmException e )
+        {
+            LOGGER.error( intruderService.getSessionLabel(), () -> "unable to perform intruder table cleanup: " + e.getMessage() );
+        }
+        return 0;
+    }
+
+    /**
+     * Remove the records listed in each expired bucket of the expiry index.  Only records listed in expired buckets are read,
+     * and a listed record is kept if it has been written since it was indexed.
+     */
+    private long indexedCleanup( final TimeDuration maxRecordAge, final Instant expiredBefore, final Instant startTime )
+            throws PwmException
+    {
+        final CleanupCounts counts = new CleanupCounts();
+
+        for ( final long bucket : expiryIndex.expiredBuckets( expiredBefore ) )
+        {
+            if ( serviceStatus.get() != PwmService.STATUS.OPEN )
+            {
+                break;
+            }
+
+            expiryIndex.cleanBucket( bucket, recordKeys ->
+            {
+                for ( final String recordKey : recordKeys )
+                {
+                    stats.increment( DebugKeys.cleanupExamines );
+                    counts.recordsExamined++;
+
+                    final Optional<IntruderRecord> record = read( recordKey );
+                    if ( record.isPresent() && TimeDuration.fromCurrent( record.get().getTimeStamp() ).isLongerThan( maxRecordAge ) )
+                    {
+                        dataStore.remove( recordKey );
+                        stats.increment( DebugKeys.cleanupRemoves );
+                        counts.recordsRemoved++;
+                    }
+                }
+            } );
+
+            stats.increment( DebugKeys.cleanupBuckets );
+            counts.bucketsExamined++;
+        }
+
+        LOGGER.trace( intruderService.getSessionLabel(), () -> "completed indexed cleanup of intruder table, bucketsExamined="
+                + counts.bucketsExamined + ", recordsExamined=" + counts.recordsExamined + ", recordsRemoved=" + counts.recordsRemoved,
+                () -> TimeDuration.fromCurrent( startTime ) );
+
+        return counts.recordsRemoved;
+    }
+
+    private static class CleanupCounts
+    {
+        private int bucketsExamined;
+        private int recordsExamined;
+        private int recordsRemoved;
+    }
+
+    /**
+     * Examine every record in the intruder table, used when the expiry index has not yet been established.  Remaining records
+     * are added to the index so subsequent cleanups can use {@link #indexedCleanup(TimeDuration, Instant, Instant)}.
+     */
+    private long scanCleanup( final TimeDuration maxRecordAge, final Instant expiredBefore )
+            throws PwmException
     {
         if ( eldestRecord != null && TimeDuration.fromCurrent( eldestRecord ).isShorterThan( maxRecordAge ) )
         {
             LOGGER.trace( intruderService.getSessionLabel(), () -> "skipping table cleanup: eldest record is younger than max age" );
-            return;
+            return 0;
         }
 
         eldestRecord = Instant.now();
 
-        stats.increment( DebugKeys.cleanupCycles );
         final Instant startTime = Instant.now();
 
         int recordsExamined = 0;
         int recordsRemoved = 0;
 
-        try ( ClosableIterator<IntruderRecord> iterator = this.iterator( ) )
+        try ( RecordIterator iterator = new RecordIterator( dataStore.iterator( ) ) )
         {
             while ( this.serviceStatus.get() == PwmService.STATUS.OPEN && iterator.hasNext() )
             {
@@ -248,23 +407,32 @@ class IntruderDataStore implements IntruderRecordStore
                     stats.increment( DebugKeys.cleanupRemoves );
                     recordsRemoved++;
                 }
+                else
+                {
+                    expiryIndex.add( iterator.currentKey(), record.getTimeStamp() );
+                }
+
                 if ( eldestRecord.compareTo( record.getTimeStamp() ) > 0 )
                 {
                     eldestRecord = record.getTimeStamp();
                 }
             }
         }
-        catch ( final PwmException e )
+
+        expiryIndex.flush();
+        if ( this.serviceStatus.get() == PwmService.STATUS.OPEN )
         {
-            LOGGER.error( intruderService.getSessionLabel(), () -> "unable to perform intruder table cleanup: " + e.getMessage() );
+            expiryIndex.markCleanedThrough( expiredBefore );
         }
 
         {
             final int finalRemoved = recordsRemoved;
             final int finalExamined = recordsExamined;
-            LOGGER.trace( intruderService.getSessionLabel(), () -> "completed cleanup of intruder table in "
+            LOGGER.trace( intruderService.getSessionLabel(), () -> "completed full scan cleanup of intruder table in "
                     + TimeDuration.compactFromCurrent( startTime ) + ", recordsExamined="
                     + finalExamined + ", recordsRemoved=" + finalRemoved );
         }
+
+        return recordsRemoved;
     }
 }
@@ -170,6 +170,20 @@ public class IntruderDomainService extends AbstractPwmService implements PwmServ
         return dataStore;
     }
 
+    static DataStore initExpiryIndexDataStore(
+            final PwmApplication pwmApplication,
+            final DataStore recordDataStore
+    )
+            throws PwmUnrecoverableException
+    {
+        if ( recordDataStore instanceof DatabaseDataStore )
+        {
+            return new DatabaseDataStore( pwmApplication.getDatabaseService(), DatabaseTable.INTRUDER_EXPIRY );
+        }
+
+        return new LocalDBDataStore( pwmApplication.getLocalDB(), LocalDB.DB.INTRUDER_EXPIRY );
+    }
+
     private void initializeRecordManagers() throws PwmUnrecoverableException
     {
         this.recordManagers.clear();
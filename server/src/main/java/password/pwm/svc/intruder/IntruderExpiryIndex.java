@@ -0,0 +1,402 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.intruder;
+
+import password.pwm.error.PwmDataStoreException;
+import password.pwm.error.PwmException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.DataStore;
+import password.pwm.util.java.ClosableIterator;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.json.JsonFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>Secondary index of intruder record keys grouped into fixed width time buckets by record timestamp.  Each bucket is
+ * stored as one or more pages of record keys in a dedicated {@link DataStore}, so expired records can be located by
+ * reading only the buckets that have aged out instead of scanning and parsing the entire intruder table.</p>
+ *
+ * <p>A record key is added to a bucket each time the record is written, so a record may be listed in several buckets;
+ * stale entries in older buckets are resolved by checking the record timestamp during cleanup.</p>
+ *
+ * <p>Added keys are held in memory until {@link #flush()}, which appends them to their buckets as new pages in a single
+ * store write, so writers batching several records only pay for one index write and existing pages are never rewritten.
+ * Adds only take the shared side of a read/write lock, so concurrent writers do not block each other.</p>
+ *
+ * <p>The index store may be shared by several nodes, so page keys include the ID of the node that wrote them and the
+ * cleaned through position is re-read from the store before each cleanup.  A node with a stale position may still append
+ * pages to a bucket that has already been cleaned; such pages are picked up by the next bucket cleaned.</p>
+ */
+class IntruderExpiryIndex
+{
+    private static final String KEY_CLEANED_THROUGH = "cleanedThroughBucket";
+    private static final String KEY_BUCKET_PREFIX = "bucket-";
+    private static final int MAX_KEYS_PER_PAGE = 200;
+    private static final int OPEN_BUCKET_LIMIT = 4;
+
+    private final DataStore indexStore;
+    private final long bucketWidthMs;
+    private final String nodeID;
+
+    // adds hold the read lock, index store reads and writes hold the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Set<String>> pendingKeys = new ConcurrentHashMap<>();
+
+    // guarded by the write lock
+    private final Map<Long, OpenBucket> openBuckets = new HashMap<>();
+
+    private volatile Long cleanedThroughBucket;
+
+    IntruderExpiryIndex( final DataStore indexStore, final TimeDuration bucketWidth, final String nodeID )
+    {
+        this.indexStore = indexStore;
+        this.bucketWidthMs = Math.max( 1, bucketWidth.asMillis() );
+        this.nodeID = nodeID;
+    }
+
+    private static class OpenBucket
+    {
+        private int nextPage;
+        private final Set<String> indexedKeys = new HashSet<>();
+    }
+
+    /**
+     * Add a record key to the bucket of its timestamp.  Keys with timestamps in buckets that have already been cleaned are
+     * added to the first bucket that has not been cleaned.  The key is not stored until the next {@link #flush()}.
+     */
+    void add( final String recordKey, final Instant timestamp )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        lock.readLock().lock();
+        try
+        {
+            final long bucket = Math.max( bucketOf( timestamp ), firstUncleanedBucket() );
+            pendingKeys.computeIfAbsent( bucket, k -> ConcurrentHashMap.newKeySet() ).add( recordKey );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Store the keys added since the last flush, appending them as new pages of their buckets.
+     */
+    void flush()
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        if ( pendingKeys.isEmpty() )
+        {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try
+        {
+            flushImpl();
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the cleaned through position has been established, either by a prior indexed cleanup or by
+     *     {@link #markCleanedThrough(Instant)} after a full scan of the intruder table.
+     */
+    boolean isInitialized()
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        return readCleanedThroughBucket().isPresent();
+    }
+
+    /**
+     * Record that every record with a timestamp before {@code expiredBefore} has been removed, and discard any index pages
+     * for the buckets before that time.
+     */
+    void markCleanedThrough( final Instant expiredBefore )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            flushImpl();
+
+            final long cleanedThrough = bucketOf( expiredBefore ) - 1;
+
+            final List<String> removedPageKeys = new ArrayList<>();
+            try ( ClosableIterator<Map.Entry<String, String>> iterator = indexStore.iterator() )
+            {
+                while ( iterator.hasNext() )
+                {
+                    final String key = iterator.next().getKey();
+                    if ( key.startsWith( KEY_BUCKET_PREFIX ) && bucketOfPageKey( key ) <= cleanedThrough )
+                    {
+                        removedPageKeys.add( key );
+                    }
+                }
+            }
+
+            for ( final String key : removedPageKeys )
+            {
+                indexStore.remove( key );
+            }
+            openBuckets.keySet().removeIf( bucket -> bucket <= cleanedThrough );
+            writeCleanedThroughBucket( cleanedThrough );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return buckets whose entire time span is before {@code expiredBefore} and which have not yet been cleaned, in order.
+     */
+    List<Long> expiredBuckets( final Instant expiredBefore )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        // another node sharing the store may have cleaned buckets since the position was last read
+        final Optional<Long> cleanedThrough = refreshCleanedThroughBucket();
+        if ( cleanedThrough.isEmpty() )
+        {
+            return Collections.emptyList();
+        }
+
+        final List<Long> buckets = new ArrayList<>();
+        for ( long bucket = cleanedThrough.get() + 1; bucket < bucketOf( expiredBefore ); bucket++ )
+        {
+            buckets.add( bucket );
+        }
+        return buckets;
+    }
+
+    /**
+     * Pass the record keys of a bucket to a cleaner, then remove the bucket and advance the cleaned through position past
+     * it.  Pending keys are flushed first, and additions are blocked while the bucket is cleaned so no key can be added to
+     * the bucket after it has been read.  Pages of every node are read, along with any pages appended to earlier buckets
+     * after they were cleaned.
+     */
+    void cleanBucket( final long bucket, final BucketCleaner bucketCleaner )
+            throws PwmException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            flushImpl();
+
+            final Optional<Long> cleanedThrough = refreshCleanedThroughBucket();
+            if ( cleanedThrough.isPresent() && cleanedThrough.get() >= bucket )
+            {
+                openBuckets.remove( bucket );
+                return;
+            }
+
+            final Set<String> keys = new LinkedHashSet<>();
+            final List<String> pageKeys = new ArrayList<>();
+            try ( ClosableIterator<Map.Entry<String, String>> iterator = indexStore.iterator() )
+            {
+                while ( iterator.hasNext() )
+                {
+                    final Map.Entry<String, String> entry = iterator.next();
+                    if ( entry.getKey().startsWith( KEY_BUCKET_PREFIX ) && bucketOfPageKey( entry.getKey() ) <= bucket )
+                    {
+                        pageKeys.add( entry.getKey() );
+                        keys.addAll( JsonFactory.get().deserializeStringList( entry.getValue() ) );
+                    }
+                }
+            }
+
+            bucketCleaner.clean( new ArrayList<>( keys ) );
+
+            for ( final String pageKey : pageKeys )
+            {
+                indexStore.remove( pageKey );
+            }
+            openBuckets.keySet().removeIf( openBucket -> openBucket <= bucket );
+            writeCleanedThroughBucket( bucket );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    interface BucketCleaner
+    {
+        void clean( List<String> recordKeys ) throws PwmException;
+    }
+
+    /**
+     * Must be called while holding the write lock.  Open bucket state is only advanced once the pages are stored, so keys
+     * are flushed again if the store write fails.
+     */
+    private void flushImpl()
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        if ( pendingKeys.isEmpty() )
+        {
+            return;
+        }
+
+        final long firstUncleanedBucket = firstUncleanedBucket();
+        final Map<Long, Set<String>> flushKeys = new HashMap<>();
+        for ( final Map.Entry<Long, Set<String>> entry : pendingKeys.entrySet() )
+        {
+            // keys may have been added to a bucket that was cleaned before this flush
+            final long bucket = Math.max( entry.getKey(), firstUncleanedBucket );
+            flushKeys.computeIfAbsent( bucket, k -> new LinkedHashSet<>() ).addAll( entry.getValue() );
+        }
+
+        final Map<String, String> pages = new LinkedHashMap<>();
+        final Map<OpenBucket, List<String>> indexedKeys = new HashMap<>();
+        for ( final Map.Entry<Long, Set<String>> entry : flushKeys.entrySet() )
+        {
+            final long bucket = entry.getKey();
+            final OpenBucket openBucket = openBucket( bucket );
+            final List<String> newKeys = new ArrayList<>();
+            for ( final String key : entry.getValue() )
+            {
+                if ( !openBucket.indexedKeys.contains( key ) )
+                {
+                    newKeys.add( key );
+                }
+            }
+
+            int page = openBucket.nextPage;
+            for ( int index = 0; index < newKeys.size(); index += MAX_KEYS_PER_PAGE )
+            {
+                final List<String> pageKeys = newKeys.subList( index, Math.min( newKeys.size(), index + MAX_KEYS_PER_PAGE ) );
+                pages.put( pageKey( bucket, page++ ), JsonFactory.get().serializeCollection( pageKeys ) );
+            }
+            indexedKeys.put( openBucket, newKeys );
+        }
+
+        if ( !pages.isEmpty() )
+        {
+            indexStore.putAll( pages );
+        }
+        pendingKeys.clear();
+
+        for ( final Map.Entry<OpenBucket, List<String>> entry : indexedKeys.entrySet() )
+        {
+            final OpenBucket openBucket = entry.getKey();
+            openBucket.nextPage += ( entry.getValue().size() + MAX_KEYS_PER_PAGE - 1 ) / MAX_KEYS_PER_PAGE;
+            openBucket.indexedKeys.addAll( entry.getValue() );
+        }
+    }
+
+    private OpenBucket openBucket( final long bucket )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        final OpenBucket existing = openBuckets.get( bucket );
+        if ( existing != null )
+        {
+            return existing;
+        }
+
+        final OpenBucket openBucket = new OpenBucket();
+        while ( indexStore.contains( pageKey( bucket, openBucket.nextPage ) ) )
+        {
+            openBucket.nextPage++;
+        }
+
+        // records are almost always written with current timestamps, so only the most recent buckets are kept open
+        if ( openBuckets.size() >= OPEN_BUCKET_LIMIT )
+        {
+            openBuckets.remove( Collections.min( openBuckets.keySet() ) );
+        }
+        openBuckets.put( bucket, openBucket );
+        return openBucket;
+    }
+
+    private long firstUncleanedBucket()
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        return readCleanedThroughBucket().map( value -> value + 1 ).orElse( Long.MIN_VALUE );
+    }
+
+    private Optional<Long> readCleanedThroughBucket()
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        final Long cachedBucket = cleanedThroughBucket;
+        if ( cachedBucket != null )
+        {
+            return Optional.of( cachedBucket );
+        }
+
+        return refreshCleanedThroughBucket();
+    }
+
+    private Optional<Long> refreshCleanedThroughBucket()
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        final Optional<String> value = indexStore.get( KEY_CLEANED_THROUGH );
+        if ( value.isEmpty() )
+        {
+            return Optional.empty();
+        }
+
+        final long storedBucket = Long.parseLong( value.get() );
+        cleanedThroughBucket = storedBucket;
+        return Optional.of( storedBucket );
+    }
+
+    private void writeCleanedThroughBucket( final long bucket )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        // never move the position backwards past buckets another node has already cleaned
+        final long storedBucket = refreshCleanedThroughBucket().orElse( Long.MIN_VALUE );
+        final long newBucket = Math.max( bucket, storedBucket );
+        indexStore.put( KEY_CLEANED_THROUGH, Long.toString( newBucket ) );
+        cleanedThroughBucket = newBucket;
+    }
+
+    private long bucketOf( final Instant timestamp )
+    {
+        return timestamp.toEpochMilli() / bucketWidthMs;
+    }
+
+    private static long bucketOfPageKey( final String pageKey )
+    {
+        return Long.parseLong( pageKey.substring( KEY_BUCKET_PREFIX.length(), pageKey.indexOf( '-', KEY_BUCKET_PREFIX.length() ) ) );
+    }
+
+    private String pageKey( final long bucket, final int page )
+    {
+        return KEY_BUCKET_PREFIX + bucket + "-" + nodeID + "-" + page;
+    }
+}
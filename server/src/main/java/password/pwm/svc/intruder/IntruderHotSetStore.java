@@ -0,0 +1,474 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.intruder;
+
+import password.pwm.error.PwmException;
+import password.pwm.error.PwmOperationalException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.svc.PwmService;
+import password.pwm.util.java.ClosableIterator;
+import password.pwm.util.java.StatisticCounterBundle;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.localdb.LocalDBException;
+import password.pwm.util.logging.PwmLogger;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * <p>In-memory table of recently used intruder records in front of a backing {@link IntruderRecordStore}.  Updates are
+ * applied atomically under a lock stripe chosen by the record key, and modified records are written through to the
+ * backing store in batches by {@link #flush()}, which is expected to be called periodically.</p>
+ *
+ * <p>Records loaded from the backing store, including missing records, are trusted for {@code maxAge}, which bounds
+ * how stale a record shared with other instances through a remote database can become.  When a modified record is
+ * flushed, the attempts counted here since the record was last synchronized are added to the stored record, so attempts
+ * counted by other instances are kept.  A record that was cleared or replaced here overwrites the stored record.</p>
+ *
+ * <p>At most {@code maxItems} records are held.  When the table is full and no unmodified record can be released,
+ * changes are written directly to the backing store.</p>
+ */
+class IntruderHotSetStore implements IntruderRecordStore
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( IntruderHotSetStore.class );
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final IntruderRecordStore backingStore;
+    private final PwmService intruderService;
+    private final TimeDuration maxAge;
+    private final int maxItems;
+
+    private final Map<String, HotRecord> hotRecords = new ConcurrentHashMap<>();
+    private final Lock[] locks = new Lock[ LOCK_STRIPES ];
+
+    IntruderHotSetStore(
+            final PwmService intruderService,
+            final IntruderRecordStore backingStore,
+            final TimeDuration maxAge,
+            final int maxItems
+    )
+    {
+        this.intruderService = intruderService;
+        this.backingStore = backingStore;
+        this.maxAge = maxAge;
+        this.maxItems = maxItems;
+
+        for ( int i = 0; i < LOCK_STRIPES; i++ )
+        {
+            locks[ i ] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Guarded by the lock stripe of the key.
+     */
+    private static class HotRecord
+    {
+        private static final long NO_RESET = -1;
+
+        private IntruderRecord record;
+
+        // record as last read from or written to the backing store
+        private IntruderRecord syncedRecord;
+
+        private Instant loadTime;
+        private boolean dirty;
+        private long version;
+        private long resetVersion = NO_RESET;
+
+        HotRecord( final IntruderRecord storedRecord )
+        {
+            this.record = storedRecord;
+            this.syncedRecord = storedRecord == null ? null : storedRecord.copy();
+            this.loadTime = Instant.now();
+        }
+
+        void modify( final IntruderRecord updatedRecord, final boolean replace )
+        {
+            version++;
+            if ( replace || ( record != null && updatedRecord.getAttemptCount() < record.getAttemptCount() ) )
+            {
+                resetVersion = version;
+            }
+            record = updatedRecord.copy();
+            dirty = true;
+        }
+
+        void synced( final IntruderRecord storedRecord )
+        {
+            record = storedRecord.copy();
+            syncedRecord = storedRecord.copy();
+            resetVersion = NO_RESET;
+            dirty = false;
+            loadTime = Instant.now();
+        }
+    }
+
+    /**
+     * State of a modified record captured for a flush.
+     */
+    private static class FlushItem
+    {
+        private final long version;
+        private final IntruderRecord record;
+        private final IntruderRecord syncedRecord;
+        private final boolean reset;
+
+        FlushItem( final HotRecord hotRecord )
+        {
+            this.version = hotRecord.version;
+            this.record = hotRecord.record.copy();
+            this.syncedRecord = hotRecord.syncedRecord == null ? null : hotRecord.syncedRecord.copy();
+            this.reset = hotRecord.resetVersion != HotRecord.NO_RESET;
+        }
+    }
+
+    @Override
+    public StatisticCounterBundle<DebugKeys> getStats()
+    {
+        return backingStore.getStats();
+    }
+
+    @Override
+    public Optional<IntruderRecord> read( final String key )
+            throws PwmUnrecoverableException
+    {
+        final Lock lock = lockForKey( key );
+        lock.lock();
+        try
+        {
+            final HotRecord hotRecord = readHotRecord( key, false );
+            return hotRecord.record == null
+                    ? Optional.empty()
+                    : Optional.of( hotRecord.record.copy() );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void write( final String key, final IntruderRecord record )
+            throws PwmOperationalException, PwmUnrecoverableException
+    {
+        final Lock lock = lockForKey( key );
+        lock.lock();
+        try
+        {
+            HotRecord hotRecord = hotRecords.get( key );
+            if ( hotRecord == null )
+            {
+                if ( !admit() )
+                {
+                    backingStore.write( key, record );
+                    return;
+                }
+                hotRecord = new HotRecord( null );
+                hotRecords.put( key, hotRecord );
+            }
+            hotRecord.modify( record, true );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<IntruderRecord> update( final String key, final Function<Optional<IntruderRecord>, IntruderRecord> updater )
+            throws PwmOperationalException, PwmUnrecoverableException
+    {
+        final Lock lock = lockForKey( key );
+        lock.lock();
+        try
+        {
+            final boolean cached = hotRecords.containsKey( key );
+            if ( !cached && !admit() )
+            {
+                return backingStore.update( key, updater );
+            }
+
+            final HotRecord hotRecord = readHotRecord( key, !cached );
+            final Optional<IntruderRecord> existingRecord = Optional.ofNullable( hotRecord.record ).map( IntruderRecord::copy );
+            final IntruderRecord updatedRecord = updater.apply( existingRecord );
+            if ( updatedRecord == null )
+            {
+                return existingRecord;
+            }
+
+            hotRecord.modify( updatedRecord, false );
+            return Optional.of( updatedRecord );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private HotRecord readHotRecord( final String key, final boolean admitted )
+            throws PwmUnrecoverableException
+    {
+        final HotRecord existing = hotRecords.get( key );
+        if ( existing != null && ( existing.dirty || TimeDuration.fromCurrent( existing.loadTime ).isShorterThan( maxAge ) ) )
+        {
+            return existing;
+        }
+
+        final HotRecord loaded = new HotRecord( backingStore.read( key ).orElse( null ) );
+        if ( existing != null || admitted || admit() )
+        {
+            hotRecords.put( key, loaded );
+        }
+        return loaded;
+    }
+
+    /**
+     * Make room for a new record, releasing an unmodified record if the table is full.  Only stripes that are not
+     * locked by another thread are examined, so this can not deadlock with a concurrent update.
+     *
+     * @return true if a new record may be added.
+     */
+    private boolean admit()
+    {
+        if ( hotRecords.size() < maxItems )
+        {
+            return true;
+        }
+
+        int examined = 0;
+        final Iterator<Map.Entry<String, HotRecord>> iterator = hotRecords.entrySet().iterator();
+        while ( iterator.hasNext() && examined < LOCK_STRIPES )
+        {
+            examined++;
+            final Map.Entry<String, HotRecord> entry = iterator.next();
+            final Lock lock = lockForKey( entry.getKey() );
+            if ( lock.tryLock() )
+            {
+                try
+                {
+                    if ( !entry.getValue().dirty && hotRecords.remove( entry.getKey(), entry.getValue() ) )
+                    {
+                        return true;
+                    }
+                }
+                finally
+                {
+                    lock.unlock();
+                }
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public ClosableIterator<IntruderRecord> iterator( )
+            throws PwmOperationalException, PwmUnrecoverableException
+    {
+        flush();
+        return backingStore.iterator();
+    }
+
+    @Override
+    public long cleanup( final TimeDuration maxRecordAge )
+            throws LocalDBException
+    {
+        flush();
+        final long removedCount = backingStore.cleanup( maxRecordAge );
+
+        // the backing store may have removed expired records that are still held here
+        for ( final Map.Entry<String, HotRecord> entry : hotRecords.entrySet() )
+        {
+            final Lock lock = lockForKey( entry.getKey() );
+            lock.lock();
+            try
+            {
+                final HotRecord hotRecord = entry.getValue();
+                if ( !hotRecord.dirty
+                        && hotRecord.record != null
+                        && TimeDuration.fromCurrent( hotRecord.record.getTimeStamp() ).isLongerThan( maxRecordAge ) )
+                {
+                    hotRecords.remove( entry.getKey(), hotRecord );
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        return removedCount;
+    }
+
+    /**
+     * Write modified records to the backing store and drop unmodified records that are older than the maximum age.  The
+     * modified records are captured under their stripe locks, but written as one batch without holding any lock.
+     */
+    void flush()
+    {
+        final Instant startTime = Instant.now();
+        final Map<String, FlushItem> flushItems = new LinkedHashMap<>();
+        int removedCount = 0;
+
+        for ( final Map.Entry<String, HotRecord> entry : hotRecords.entrySet() )
+        {
+            final String key = entry.getKey();
+            final Lock lock = lockForKey( key );
+            lock.lock();
+            try
+            {
+                final HotRecord hotRecord = entry.getValue();
+                if ( hotRecord.dirty && hotRecord.record != null )
+                {
+                    flushItems.put( key, new FlushItem( hotRecord ) );
+                }
+                else if ( !hotRecord.dirty && !TimeDuration.fromCurrent( hotRecord.loadTime ).isShorterThan( maxAge ) )
+                {
+                    hotRecords.remove( key, hotRecord );
+                    removedCount++;
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        int writeCount = 0;
+        if ( !flushItems.isEmpty() )
+        {
+            final Map<String, Function<Optional<IntruderRecord>, IntruderRecord>> updaters = new LinkedHashMap<>();
+            for ( final Map.Entry<String, FlushItem> entry : flushItems.entrySet() )
+            {
+                final FlushItem flushItem = entry.getValue();
+                updaters.put( entry.getKey(), storedRecord -> merge( storedRecord, flushItem.syncedRecord, flushItem.record, flushItem.reset ) );
+            }
+
+            final Map<String, IntruderRecord> storedRecords;
+            try
+            {
+                storedRecords = backingStore.updateAll( updaters );
+            }
+            catch ( final PwmException e )
+            {
+                LOGGER.warn( intruderService.getSessionLabel(), () -> "unable to write intruder records to storage, will retry: " + e.getMessage() );
+                return;
+            }
+
+            for ( final Map.Entry<String, IntruderRecord> entry : storedRecords.entrySet() )
+            {
+                markFlushed( entry.getKey(), flushItems.get( entry.getKey() ), entry.getValue() );
+                writeCount++;
+            }
+        }
+
+        if ( writeCount > 0 || removedCount > 0 )
+        {
+            final int finalWriteCount = writeCount;
+            final int finalRemovedCount = removedCount;
+            LOGGER.trace( intruderService.getSessionLabel(), () -> "flushed intruder hot set, wrote " + finalWriteCount
+                    + " records, released " + finalRemovedCount + " records, size=" + hotRecords.size(), () -> TimeDuration.fromCurrent( startTime ) );
+        }
+    }
+
+    private void markFlushed( final String key, final FlushItem flushItem, final IntruderRecord storedRecord )
+    {
+        final Lock lock = lockForKey( key );
+        lock.lock();
+        try
+        {
+            final HotRecord hotRecord = hotRecords.get( key );
+            if ( hotRecord == null || flushItem == null || storedRecord == null )
+            {
+                return;
+            }
+
+            if ( hotRecord.version == flushItem.version )
+            {
+                hotRecord.synced( storedRecord );
+                return;
+            }
+
+            // modified while the flush was in progress, keep the newer changes relative to the stored record
+            if ( hotRecord.resetVersion <= flushItem.version )
+            {
+                hotRecord.record = merge( Optional.of( storedRecord ), flushItem.record, hotRecord.record, false );
+                hotRecord.resetVersion = HotRecord.NO_RESET;
+            }
+            hotRecord.syncedRecord = storedRecord.copy();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Combine a stored record with a locally modified record.
+     *
+     * @param storedRecord current record in the backing store
+     * @param syncedRecord record as last synchronized with the backing store, or null if there was none
+     * @param localRecord locally modified record
+     * @param reset true if the local record was cleared or replaced since it was synchronized
+     * @return the record to store
+     */
+    static IntruderRecord merge(
+            final Optional<IntruderRecord> storedRecord,
+            final IntruderRecord syncedRecord,
+            final IntruderRecord localRecord,
+            final boolean reset
+    )
+    {
+        if ( reset || storedRecord.isEmpty() )
+        {
+            return localRecord.copy();
+        }
+
+        final int localAttempts = localRecord.getAttemptCount() - ( syncedRecord == null ? 0 : syncedRecord.getAttemptCount() );
+        final IntruderRecord mergedRecord = storedRecord.get().copy();
+        mergedRecord.setAttemptCount( mergedRecord.getAttemptCount() + Math.max( 0, localAttempts ) );
+        mergedRecord.setAlerted( mergedRecord.isAlerted() || localRecord.isAlerted() );
+        if ( localRecord.getTimeStamp().isAfter( mergedRecord.getTimeStamp() ) )
+        {
+            mergedRecord.setTimeStamp( localRecord.getTimeStamp() );
+        }
+        return mergedRecord;
+    }
+
+    int size()
+    {
+        return hotRecords.size();
+    }
+
+    private Lock lockForKey( final String key )
+    {
+        return locks[ ( key.hashCode() & Integer.MAX_VALUE ) % LOCK_STRIPES ];
+    }
+}
@@ -27,7 +27,10 @@ import password.pwm.util.java.StatisticCounterBundle;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.localdb.LocalDBException;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 interface IntruderRecordStore
 {
@@ -37,15 +40,56 @@ interface IntruderRecordStore
 
     void write( String key, IntruderRecord record ) throws PwmOperationalException, PwmUnrecoverableException;
 
+    /**
+     * Read, modify and write a record as a single operation.  The updater is given the current record, if any, and returns
+     * the record to store, or null to leave the stored record unchanged.
+     *
+     * @param key record key
+     * @param updater function computing the new record from the existing record
+     * @return the stored record after the update
+     * @throws PwmOperationalException if the updated record can not be written
+     * @throws PwmUnrecoverableException if the existing record can not be read
+     */
+    Optional<IntruderRecord> update( String key, Function<Optional<IntruderRecord>, IntruderRecord> updater )
+            throws PwmOperationalException, PwmUnrecoverableException;
+
+    /**
+     * Update a set of records, as if by {@link #update(String, Function)} for each key.  Implementations may write
+     * the updated records as a single batch.
+     *
+     * @param updaters function computing the new record for each key
+     * @return the stored record after the update for each key that has a stored record
+     * @throws PwmOperationalException if the updated records can not be written
+     * @throws PwmUnrecoverableException if the existing records can not be read
+     */
+    default Map<String, IntruderRecord> updateAll( final Map<String, Function<Optional<IntruderRecord>, IntruderRecord>> updaters )
+            throws PwmOperationalException, PwmUnrecoverableException
+    {
+        final Map<String, IntruderRecord> results = new LinkedHashMap<>();
+        for ( final Map.Entry<String, Function<Optional<IntruderRecord>, IntruderRecord>> entry : updaters.entrySet() )
+        {
+            update( entry.getKey(), entry.getValue() ).ifPresent( record -> results.put( entry.getKey(), record ) );
+        }
+        return results;
+    }
+
     ClosableIterator<IntruderRecord> iterator( ) throws PwmOperationalException, PwmUnrecoverableException;
 
-    void cleanup( TimeDuration maxRecordAge ) throws LocalDBException;
+    /**
+     * Remove records older than the maximum record age.
+     *
+     * @param maxRecordAge maximum age of retained records
+     * @return count of records removed
+     * @throws LocalDBException if the store is not available
+     */
+    long cleanup( TimeDuration maxRecordAge ) throws LocalDBException;
 
     enum DebugKeys
     {
         reads,
         writes,
         cleanupCycles,
+        cleanupBuckets,
         cleanupExamines,
         cleanupRemoves,
     }
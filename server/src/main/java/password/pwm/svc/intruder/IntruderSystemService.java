@@ -40,11 +40,13 @@ import password.pwm.util.DataStore;
 import password.pwm.util.PwmScheduler;
 import password.pwm.util.java.ClosableIterator;
 import password.pwm.util.java.CollectionUtil;
+import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
@@ -52,7 +54,7 @@ public class IntruderSystemService extends AbstractPwmService implements PwmServ
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( IntruderSystemService.class );
 
-    private IntruderRecordStore recordStore;
+    private IntruderHotSetStore recordStore;
     private DataStorageMethod dataStorageMethod;
 
     private ExecutorService executorService;
@@ -66,11 +68,21 @@ public class IntruderSystemService extends AbstractPwmService implements PwmServ
             final DataStore dataStore = IntruderDomainService.initDataStore( pwmApplication, getSessionLabel(), storageMethod );
             dataStorageMethod = dataStore.getDataStorageMethod();
 
-            recordStore = new IntruderDataStore( this, dataStore, this::status );
+            final AppConfig config = pwmApplication.getConfig();
+            recordStore = new IntruderHotSetStore(
+                    this,
+                    new IntruderDataStore( this, dataStore, new IntruderExpiryIndex(
+                            IntruderDomainService.initExpiryIndexDataStore( pwmApplication, dataStore ),
+                            TimeDuration.of( Long.parseLong( config.readAppProperty( AppProperty.INTRUDER_EXPIRY_INDEX_BUCKET_MS ) ), TimeDuration.Unit.MILLISECONDS ),
+                            pwmApplication.getInstanceID() ),
+                            this::status ),
+                    TimeDuration.of( Long.parseLong( config.readAppProperty( AppProperty.INTRUDER_HOT_SET_MAX_AGE_MS ) ), TimeDuration.Unit.MILLISECONDS ),
+                    Integer.parseInt( config.readAppProperty( AppProperty.INTRUDER_HOT_SET_MAX_ITEMS ) ) );
 
             executorService = PwmScheduler.makeBackgroundExecutor( pwmApplication, this.getClass() );
 
             scheduleCleaner();
+            scheduleFlusher();
         }
         catch ( final Exception e )
         {
@@ -88,6 +100,17 @@ public class IntruderSystemService extends AbstractPwmService implements PwmServ
     public void close()
     {
         setStatus( STATUS.CLOSED );
+
+        if ( executorService != null )
+        {
+            JavaHelper.closeAndWaitExecutor( executorService, TimeDuration.SECONDS_10 );
+            executorService = null;
+        }
+
+        if ( recordStore != null )
+        {
+            recordStore.flush();
+        }
     }
 
     @Override
@@ -100,7 +123,9 @@ public class IntruderSystemService extends AbstractPwmService implements PwmServ
     public ServiceInfoBean serviceInfo()
     {
         return ServiceInfoBean.builder()
-                .debugProperties( recordStore.getStats().debugStats() )
+                .debugProperties( CollectionUtil.combineMaps( List.of(
+                        recordStore.getStats().debugStats(),
+                        Map.of( "hotSetSize", String.valueOf( recordStore.size() ) ) ) ) )
                 .storageMethod( dataStorageMethod )
                 .build();
     }
@@ -168,7 +193,11 @@ public class IntruderSystemService extends AbstractPwmService implements PwmServ
         {
             try
             {
-                recordStore.cleanup( maxRecordAge );
+                final long removedCount = recordStore.cleanup( maxRecordAge );
+                if ( removedCount > 0 )
+                {
+                    LOGGER.debug( getSessionLabel(), () -> "intruder table cleanup removed " + removedCount + " expired records" );
+                }
             }
             catch ( final Exception e )
             {
@@ -179,6 +208,26 @@ public class IntruderSystemService extends AbstractPwmService implements PwmServ
         getPwmApplication().getPwmScheduler().scheduleFixedRateJob( cleanerJob, executorService, TimeDuration.SECONDS_10, cleanerRunFrequency );
     }
 
+    private void scheduleFlusher()
+    {
+        final TimeDuration flushFrequency = TimeDuration.of( Long.parseLong(
+                getPwmApplication().getConfig().readAppProperty( AppProperty.INTRUDER_HOT_SET_FLUSH_FREQUENCY_MS ) ), TimeDuration.Unit.MILLISECONDS );
+
+        final Runnable flushJob = () ->
+        {
+            try
+            {
+                recordStore.flush();
+            }
+            catch ( final Exception e )
+            {
+                LOGGER.error( getSessionLabel(), () -> "error flushing intruder hot set: " + e.getMessage(), e );
+            }
+        };
+
+        getPwmApplication().getPwmScheduler().scheduleFixedRateJob( flushJob, executorService, flushFrequency, flushFrequency );
+    }
+
     IntruderRecordStore getRecordStore()
     {
         return recordStore;
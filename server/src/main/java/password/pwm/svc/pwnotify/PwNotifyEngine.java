@@ -20,7 +20,12 @@
 
 package password.pwm.svc.pwnotify;
 
+import com.novell.ldapchai.ChaiConstant;
 import com.novell.ldapchai.ChaiUser;
+import com.novell.ldapchai.exception.ChaiUnavailableException;
+import com.novell.ldapchai.impl.edir.entry.EdirEntries;
+import com.novell.ldapchai.provider.ChaiProvider;
+import com.novell.ldapchai.provider.DirectoryVendor;
 import password.pwm.PwmDomain;
 import password.pwm.bean.EmailItemBean;
 import password.pwm.bean.UserIdentity;
@@ -34,6 +39,7 @@ import password.pwm.ldap.UserInfo;
 import password.pwm.ldap.UserInfoFactory;
 import password.pwm.ldap.permission.UserPermissionUtility;
 import password.pwm.svc.PwmService;
+import password.pwm.svc.node.NodeInfo;
 import password.pwm.svc.node.NodeService;
 import password.pwm.svc.stats.Statistic;
 import password.pwm.svc.stats.StatisticsClient;
@@ -52,15 +58,20 @@ import java.io.Writer;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 public class PwNotifyEngine
 {
@@ -68,6 +79,8 @@ public class PwNotifyEngine
 
     private static final int MAX_LOG_SIZE = 1024 * 1024 * 1024;
 
+    private static final String EDIR_EXPIRATION_ATTRIBUTE = ChaiConstant.ATTR_LDAP_PASSWORD_EXPIRE_TIME;
+
     private final PwNotifyService pwNotifyService;
     private final PwNotifySettings settings;
     private final PwmDomain pwmDomain;
@@ -126,11 +139,50 @@ public class PwNotifyEngine
         return false;
     }
 
+    /**
+     * When cluster sharding is enabled every online node processes its own shard of the users, otherwise only the
+     * cluster master runs the job.  Sharding is off by default: only the master records job completion, so a shard
+     * whose node fails or restarts mid-run is not rerun until that node's next scheduled execution.
+     */
     boolean canRunOnThisServer()
+    {
+        if ( settings.isClusterSharding() )
+        {
+            if ( !pwmDomain.getPwmApplication().getPwmEnvironment().isInternalRuntimeInstance() )
+            {
+                final NodeService nodeService = pwmDomain.getPwmApplication().getNodeService();
+                return nodeService != null && nodeService.status() == PwmService.STATUS.OPEN;
+            }
+            return false;
+        }
+
+        return checkIfRunningOnMaster();
+    }
+
+    /**
+     * Only the cluster master records the shared job state, so nodes processing other shards do not overwrite it.
+     */
+    boolean isJobStateOwner()
     {
         return checkIfRunningOnMaster();
     }
 
+    private Optional<PwNotifyShard> figureShard()
+            throws PwmUnrecoverableException
+    {
+        if ( !settings.isClusterSharding() )
+        {
+            return Optional.of( PwNotifyShard.ALL );
+        }
+
+        final List<String> liveInstanceIDs = pwmDomain.getPwmApplication().getNodeService().nodes().stream()
+                .filter( nodeInfo -> nodeInfo.getNodeState() != NodeInfo.NodeState.offline )
+                .map( NodeInfo::getInstanceID )
+                .collect( Collectors.toList() );
+
+        return PwNotifyShard.forInstance( pwmDomain.getPwmApplication().getInstanceID(), liveInstanceIDs );
+    }
+
     void executeJob( )
             throws PwmOperationalException, PwmUnrecoverableException
     {
@@ -156,28 +208,65 @@ public class PwNotifyEngine
                 return;
             }
 
-            log( "starting job, beginning ldap search" );
-            final Iterator<UserIdentity> workQueue = UserPermissionUtility.discoverMatchingUsers(
-                    pwmDomain,
-                    permissionList, pwNotifyService.getSessionLabel(), settings.getMaxLdapSearchSize(),
-                    settings.getSearchTimeout()
-            );
+            final Optional<PwNotifyShard> shard = figureShard();
+            if ( shard.isEmpty() )
+            {
+                log( "this node is not yet listed as an online cluster node, exiting." );
+                return;
+            }
+
+            final Map<String, String> expirationFilterClauses = expirationFilterClauses( startTime );
+            final List<String> returnAttributes = expirationFilterClauses.isEmpty()
+                    ? Collections.emptyList()
+                    : Collections.singletonList( EDIR_EXPIRATION_ATTRIBUTE );
 
-            log( "ldap search complete, examining users..." );
+            log( "starting job for user shard " + shard.get() + ", expiration range filter applied to ldap profiles "
+                    + expirationFilterClauses.keySet() + ", beginning ldap search" );
 
             final ThreadPoolExecutor threadPoolExecutor = createExecutor( pwmDomain );
-            while ( workQueue.hasNext() )
-            {
-                if ( !checkIfRunningOnMaster() || pwNotifyService.status() == PwmService.STATUS.CLOSED )
-                {
-                    final String msg = "job interrupted, server is no longer the cluster master.";
-                    log( msg );
-                    throw PwmUnrecoverableException.newException( PwmError.ERROR_SERVICE_NOT_AVAILABLE, msg );
-                }
+            final AtomicBoolean interrupted = new AtomicBoolean( false );
+            final AtomicInteger candidateCount = new AtomicInteger( 0 );
 
-                threadPoolExecutor.submit( new ProcessJob( workQueue.next() ) );
+            UserPermissionUtility.discoverMatchingUsers(
+                    pwmDomain,
+                    permissionList,
+                    pwNotifyService.getSessionLabel(),
+                    settings.getMaxLdapSearchSize(),
+                    settings.getSearchTimeout(),
+                    returnAttributes,
+                    expirationFilterClauses,
+                    searchResults ->
+                    {
+                        if ( interrupted.get() || !canRunOnThisServer() || pwNotifyService.status() == PwmService.STATUS.CLOSED )
+                        {
+                            interrupted.set( true );
+                            return;
+                        }
+
+                        for ( final Map.Entry<UserIdentity, Map<String, String>> entry : searchResults.entrySet() )
+                        {
+                            final UserIdentity userIdentity = entry.getKey();
+                            candidateCount.incrementAndGet();
+                            if ( shard.get().includes( userIdentity ) )
+                            {
+                                final String prefetchedExpiration = expirationFilterClauses.containsKey( userIdentity.getLdapProfileID() ) && entry.getValue() != null
+                                        ? entry.getValue().get( EDIR_EXPIRATION_ATTRIBUTE )
+                                        : null;
+                                threadPoolExecutor.submit( new ProcessJob( userIdentity, prefetchedExpiration ) );
+                            }
+                        }
+                    } );
+
+            if ( interrupted.get() )
+            {
+                JavaHelper.closeAndWaitExecutor( threadPoolExecutor, TimeDuration.MINUTE );
+                final String msg = "job interrupted, server is no longer eligible to run the job.";
+                log( msg );
+                throw PwmUnrecoverableException.newException( PwmError.ERROR_SERVICE_NOT_AVAILABLE, msg );
             }
 
+            log( "ldap search complete, " + candidateCount + " candidate users found, examining users in shard " + shard.get() + "..." );
+
             JavaHelper.closeAndWaitExecutor( threadPoolExecutor, TimeDuration.DAY );
 
             log( "job complete, " + examinedCount + " users evaluated in " + TimeDuration.fromCurrent( startTime ).asCompactString()
@@ -206,10 +295,12 @@ public class PwNotifyEngine
     private class ProcessJob implements Runnable
     {
         final UserIdentity userIdentity;
+        final String prefetchedExpiration;
 
-        ProcessJob( final UserIdentity userIdentity )
+        ProcessJob( final UserIdentity userIdentity, final String prefetchedExpiration )
         {
             this.userIdentity = userIdentity;
+            this.prefetchedExpiration = prefetchedExpiration;
         }
 
         @Override
@@ -217,7 +308,7 @@ public class PwNotifyEngine
         {
             try
             {
-                processUserIdentity( userIdentity );
+                processUserIdentity( userIdentity, prefetchedExpiration );
                 debugOutputTask.conditionallyExecuteTask();
             }
             catch ( final Exception e )
@@ -228,7 +319,8 @@ public class PwNotifyEngine
     }
 
     private void processUserIdentity(
-            final UserIdentity userIdentity
+            final UserIdentity userIdentity,
+            final String prefetchedExpiration
     )
             throws PwmUnrecoverableException
     {
@@ -238,8 +330,7 @@ public class PwNotifyEngine
         }
 
         examinedCount.incrementAndGet();
-        final ChaiUser theUser = pwmDomain.getProxiedChaiUser( pwNotifyService.getSessionLabel(), userIdentity );
-        final Instant passwordExpirationTime = LdapOperationsHelper.readPasswordExpirationTime( theUser );
+        final Instant passwordExpirationTime = readPasswordExpirationTime( userIdentity, prefetchedExpiration );
 
         if ( passwordExpirationTime == null )
         {
@@ -271,6 +362,101 @@ public class PwNotifyEngine
         sendNoticeEmail( userIdentity );
     }
 
+    private Instant readPasswordExpirationTime(
+            final UserIdentity userIdentity,
+            final String prefetchedExpiration
+    )
+            throws PwmUnrecoverableException
+    {
+        if ( StringUtil.notEmpty( prefetchedExpiration ) )
+        {
+            try
+            {
+                final Instant passwordExpirationTime = EdirEntries.convertZuluToInstant( prefetchedExpiration );
+                return passwordExpirationTime.toEpochMilli() < 0 ? null : passwordExpirationTime;
+            }
+            catch ( final Exception e )
+            {
+                LOGGER.trace( pwNotifyService.getSessionLabel(), () -> "unable to parse prefetched password expiration value '"
+                        + prefetchedExpiration + "' for user '" + userIdentity.toDisplayString() + "', will read from ldap: " + e.getMessage() );
+            }
+        }
+
+        final ChaiUser theUser = pwmDomain.getProxiedChaiUser( pwNotifyService.getSessionLabel(), userIdentity );
+        return LdapOperationsHelper.readPasswordExpirationTime( theUser );
+    }
+
+    /**
+     * Build a range filter clause for each ldap profile whose password expiration attribute can be searched, so only
+     * users with an expiration near one of the notification intervals are returned.  Other profiles are unrestricted.
+     */
+    private Map<String, String> expirationFilterClauses( final Instant jobStartTime )
+    {
+        if ( !settings.isLdapExpirationFilter() || settings.getNotificationIntervals().isEmpty() )
+        {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, String> filterClauses = new TreeMap<>();
+        for ( final String ldapProfileID : pwmDomain.getConfig().getLdapProfiles().keySet() )
+        {
+            try
+            {
+                final ChaiProvider chaiProvider = pwmDomain.getProxyChaiProvider( pwNotifyService.getSessionLabel(), ldapProfileID );
+                if ( chaiProvider.getDirectoryVendor() == DirectoryVendor.EDIRECTORY )
+                {
+                    filterClauses.put( ldapProfileID, expirationWindowFilter( EDIR_EXPIRATION_ATTRIBUTE, settings.getNotificationIntervals(), jobStartTime ) );
+                }
+            }
+            catch ( final PwmUnrecoverableException | ChaiUnavailableException e )
+            {
+                log( "unable to determine directory vendor for ldap profile " + ldapProfileID + ", expiration range filter will not be used: " + e.getMessage() );
+            }
+        }
+        return Collections.unmodifiableMap( filterClauses );
+    }
+
+    /**
+     * A user is notified for an interval once their expiration is less than a day before that interval, relative to
+     * the time the user is examined.  Each window spans from one day before the interval until one day after it, so
+     * users are still found when they are examined well after the job starts; the interval check still applies.
+     */
+    static String expirationWindowFilter(
+            final String expirationAttribute,
+            final List<Integer> notificationIntervals,
+            final Instant jobStartTime
+    )
+    {
+        final List<Instant[]> windows = new ArrayList<>();
+        for ( final int interval : notificationIntervals.stream().sorted().collect( Collectors.toList() ) )
+        {
+            final Instant intervalTime = jobStartTime.plus( interval, ChronoUnit.DAYS );
+            final Instant windowStart = intervalTime.minus( 1, ChronoUnit.DAYS );
+            final Instant windowEnd = intervalTime.plus( 1, ChronoUnit.DAYS );
+
+            final Instant[] lastWindow = windows.isEmpty() ? null : windows.get( windows.size() - 1 );
+            if ( lastWindow != null && !windowStart.isAfter( lastWindow[1] ) )
+            {
+                lastWindow[1] = windowEnd;
+            }
+            else
+            {
+                windows.add( new Instant[] {windowStart, windowEnd} );
+            }
+        }
+
+        final StringBuilder filter = new StringBuilder();
+        for ( final Instant[] window : windows )
+        {
+            filter.append( "(&(" ).append( expirationAttribute ).append( ">=" ).append( EdirEntries.convertInstantToZulu( window[0] ) ).append( ")" );
+            filter.append( "(" ).append( expirationAttribute ).append( "<=" ).append( EdirEntries.convertInstantToZulu( window[1] ) ).append( "))" );
+        }
+
+        return windows.size() > 1
+                ? "(|" + filter + ")"
+                : filter.toString();
+    }
+
     private int figureNextDayInterval(
             final Instant passwordExpirationTime
     )
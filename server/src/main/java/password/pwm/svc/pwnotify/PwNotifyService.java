@@ -180,7 +180,10 @@ public class PwNotifyService extends AbstractPwmService implements PwmService
     private Instant figureNextJobExecutionTime()
             throws PwmUnrecoverableException
     {
-        final PwNotifyStoredJobState pwNotifyStoredJobState = storageService.readStoredJobState();
+        // nodes other than the master only process their own shard and follow the regular schedule
+        final PwNotifyStoredJobState pwNotifyStoredJobState = engine.isJobStateOwner()
+                ? storageService.readStoredJobState()
+                : null;
         if ( pwNotifyStoredJobState != null )
         {
             // never run, or last job not successful.
@@ -310,15 +313,22 @@ public class PwNotifyService extends AbstractPwmService implements PwmService
         {
             setStartupError( null );
             final Instant start = Instant.now();
+            final boolean jobStateOwner = engine.isJobStateOwner();
             try
             {
-                storageService.writeStoredJobState( new PwNotifyStoredJobState( Instant.now(), null, pwmDomain.getPwmApplication().getInstanceID(), null, false ) );
+                if ( jobStateOwner )
+                {
+                    storageService.writeStoredJobState( new PwNotifyStoredJobState( Instant.now(), null, pwmDomain.getPwmApplication().getInstanceID(), null, false ) );
+                }
                 StatisticsClient.incrementStat( pwmDomain, Statistic.PWNOTIFY_JOBS );
                 engine.executeJob();
 
-                final Instant finish = Instant.now();
-                final PwNotifyStoredJobState pwNotifyStoredJobState = new PwNotifyStoredJobState( start, finish, pwmDomain.getPwmApplication().getInstanceID(), null, true );
-                storageService.writeStoredJobState( pwNotifyStoredJobState );
+                if ( jobStateOwner )
+                {
+                    final Instant finish = Instant.now();
+                    final PwNotifyStoredJobState pwNotifyStoredJobState = new PwNotifyStoredJobState( start, finish, pwmDomain.getPwmApplication().getInstanceID(), null, true );
+                    storageService.writeStoredJobState( pwNotifyStoredJobState );
+                }
             }
             catch ( final Exception e )
             {
@@ -338,7 +348,10 @@ public class PwNotifyService extends AbstractPwmService implements PwmService
 
                 try
                 {
-                    storageService.writeStoredJobState( pwNotifyStoredJobState );
+                    if ( jobStateOwner )
+                    {
+                        storageService.writeStoredJobState( pwNotifyStoredJobState );
+                    }
                 }
                 catch ( final Exception e2 )
                 {
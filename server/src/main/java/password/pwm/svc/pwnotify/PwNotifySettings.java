@@ -43,6 +43,8 @@ class PwNotifySettings implements Serializable
     private final TimeDuration searchTimeout;
     private final int batchCount;
     private final BigDecimal batchTimeMultiplier;
+    private final boolean clusterSharding;
+    private final boolean ldapExpirationFilter;
 
     static PwNotifySettings fromConfiguration( final DomainConfig domainConfig )
     {
@@ -61,6 +63,8 @@ class PwNotifySettings implements Serializable
         builder.batchCount( Integer.parseInt( domainConfig.readAppProperty( AppProperty.PWNOTIFY_BATCH_COUNT ) ) );
         builder.maxLdapSearchSize( Integer.parseInt( domainConfig.readAppProperty( AppProperty.PWNOTIFY_MAX_LDAP_SEARCH_SIZE ) ) );
         builder.batchTimeMultiplier( new BigDecimal( domainConfig.readAppProperty( AppProperty.PWNOTIFY_BATCH_DELAY_TIME_MULTIPLIER ) ) );
+        builder.clusterSharding( Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.PWNOTIFY_CLUSTER_SHARDING_ENABLE ) ) );
+        builder.ldapExpirationFilter( Boolean.parseBoolean( domainConfig.readAppProperty( AppProperty.PWNOTIFY_LDAP_EXPIRATION_FILTER_ENABLE ) ) );
         builder.maximumSkipWindow( TimeDuration.of(
                 Long.parseLong( domainConfig.readAppProperty( AppProperty.PWNOTIFY_MAX_SKIP_RERUN_WINDOW_SECONDS ) ), TimeDuration.Unit.SECONDS ) );
 
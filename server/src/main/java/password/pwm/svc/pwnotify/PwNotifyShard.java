@@ -0,0 +1,78 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.pwnotify;
+
+import lombok.Value;
+import password.pwm.bean.UserIdentity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The portion of the notification candidates a single cluster node is responsible for.  Every live node sorts the
+ * same list of instance IDs, so each user is assigned to exactly one node as long as the nodes agree on membership.
+ */
+@Value
+class PwNotifyShard
+{
+    static final PwNotifyShard ALL = new PwNotifyShard( 0, 1 );
+
+    private final int index;
+    private final int count;
+
+    static Optional<PwNotifyShard> forInstance( final String instanceID, final Collection<String> liveInstanceIDs )
+    {
+        if ( liveInstanceIDs == null || liveInstanceIDs.isEmpty() )
+        {
+            return Optional.of( ALL );
+        }
+
+        final List<String> sortedIDs = new ArrayList<>( liveInstanceIDs );
+        Collections.sort( sortedIDs );
+        final int index = sortedIDs.indexOf( instanceID );
+        if ( index < 0 )
+        {
+            return Optional.empty();
+        }
+
+        return Optional.of( new PwNotifyShard( index, sortedIDs.size() ) );
+    }
+
+    boolean includes( final UserIdentity userIdentity )
+    {
+        if ( count <= 1 )
+        {
+            return true;
+        }
+
+        final String shardKey = userIdentity.getLdapProfileID() + "|" + userIdentity.getUserDN().toLowerCase();
+        return Math.floorMod( shardKey.hashCode(), count ) == index;
+    }
+
+    @Override
+    public String toString()
+    {
+        return ( index + 1 ) + " of " + count;
+    }
+}
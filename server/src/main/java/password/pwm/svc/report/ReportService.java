@@ -20,13 +20,17 @@
 
 package password.pwm.svc.report;
 
+import com.novell.ldapchai.impl.edir.entry.EdirEntries;
+import lombok.Value;
 import password.pwm.AppAttribute;
 import password.pwm.PwmApplication;
 import password.pwm.PwmDomain;
 import password.pwm.bean.DomainID;
+import password.pwm.bean.SessionLabel;
 import password.pwm.bean.UserIdentity;
 import password.pwm.config.PwmSetting;
 import password.pwm.config.option.DataStorageMethod;
+import password.pwm.config.profile.LdapProfile;
 import password.pwm.config.value.data.UserPermission;
 import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
@@ -47,6 +51,7 @@ import password.pwm.util.java.BlockingThreadPool;
 import password.pwm.util.java.ClosableIterator;
 import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.MiscUtil;
+import password.pwm.util.java.StringUtil;
 import password.pwm.util.json.JsonFactory;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.localdb.LocalDB;
@@ -54,15 +59,21 @@ import password.pwm.util.localdb.LocalDBException;
 import password.pwm.util.localdb.LocalDBStoredQueue;
 import password.pwm.util.logging.PwmLogger;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -77,6 +88,7 @@ public class ReportService extends AbstractPwmService implements PwmService
     private final AverageTracker avgTracker = new AverageTracker( 100 );
 
     private final AtomicBoolean cancelFlag = new AtomicBoolean( false );
+    private final AtomicBoolean summaryDataCurrent = new AtomicBoolean( false );
     private ReportSummaryData summaryData = ReportSummaryData.newSummaryData( null );
     private ExecutorService executorService;
 
@@ -187,7 +199,7 @@ public class ReportService extends AbstractPwmService implements PwmService
                 )
                 {
                     executorService.execute( new ClearTask() );
-                    executorService.execute( new ReadLDAPTask() );
+                    executorService.execute( new ReadLDAPTask( false ) );
                 }
             }
             break;
@@ -315,6 +327,13 @@ public class ReportService extends AbstractPwmService implements PwmService
 
     private class ReadLDAPTask implements Runnable
     {
+        private final boolean incremental;
+
+        ReadLDAPTask( final boolean incremental )
+        {
+            this.incremental = incremental;
+        }
+
         @Override
         public void run( )
         {
@@ -337,7 +356,7 @@ public class ReportService extends AbstractPwmService implements PwmService
                         {
                             LOGGER.error( getSessionLabel(),
                                     () -> "directory unavailable error during background SearchLDAP, will retry; error: " + e.getMessage() );
-                            getPwmApplication().getPwmScheduler().scheduleJob( new ReadLDAPTask(), executorService, TimeDuration.of( 10, TimeDuration.Unit.MINUTES ) );
+                            getPwmApplication().getPwmScheduler().scheduleJob( new ReadLDAPTask( incremental ), executorService, TimeDuration.of( 10, TimeDuration.Unit.MINUTES ) );
                             errorProcessed = true;
                         }
                     }
@@ -362,26 +381,68 @@ public class ReportService extends AbstractPwmService implements PwmService
             resetJobStatus();
             clearWorkQueue();
 
+            // incremental passes adjust the summary record by record, it is only rebuilt when it is not held in memory
+            // or its day window counters have fallen a day behind the current time
+            if ( incremental && ( !summaryDataCurrent.get() || summaryDataOutdated() ) )
+            {
+                rebuildSummaryData();
+            }
+
+            final Map<String, String> previousChangeMarkers = reportStatus.get().getChangeMarkers() == null
+                    ? Collections.emptyMap()
+                    : reportStatus.get().getChangeMarkers();
+            final Map<String, String> changeMarkers = new TreeMap<>( previousChangeMarkers );
+            final Map<String, Instant> latestChanges = new TreeMap<>();
+
             for ( final PwmDomain pwmDomain : getPwmApplication().domains().values() )
             {
                 final Instant loopStartTime = Instant.now();
-                LOGGER.trace( getSessionLabel(), () -> "beginning ldap search process for domain '" + pwmDomain.getDomainID() + "'" );
+                LOGGER.trace( getSessionLabel(), () -> "beginning " + ( incremental ? "incremental " : "" )
+                        + "ldap search process for domain '" + pwmDomain.getDomainID() + "'" );
 
                 final List<UserPermission> searchFilters = settings.getSearchFilter().get( pwmDomain.getDomainID() );
+                final Set<String> reportAttributes = reportAttributes( pwmDomain );
+                final Map<String, String> profileFilterClauses = incremental
+                        ? changedSinceFilterClauses( pwmDomain, previousChangeMarkers )
+                        : Collections.emptyMap();
 
-                final Iterator<UserIdentity> searchResults = UserPermissionUtility.discoverMatchingUsers(
+                UserPermissionUtility.discoverMatchingUsers(
                         pwmDomain,
                         searchFilters,
                         getSessionLabel(),
                         settings.getMaxSearchSize(),
-                        settings.getSearchTimeout() );
+                        settings.getSearchTimeout(),
+                        reportAttributes,
+                        profileFilterClauses,
+                        searchResults ->
+                        {
+                            if ( !cancelFlag.get() )
+                            {
+                                final List<String> encodedItems = new ArrayList<>( searchResults.size() );
+                                for ( final Map.Entry<UserIdentity, Map<String, String>> entry : searchResults.entrySet() )
+                                {
+                                    final WorkQueueItem workQueueItem = WorkQueueItem.fromSearchResult( entry.getKey(), entry.getValue(), reportAttributes );
+                                    recordLatestChange( latestChanges, entry.getKey(), workQueueItem, startTime );
+                                    encodedItems.add( workQueueItem.encode() );
+                                }
+                                writeUsersToLocalDBQueue( encodedItems.iterator() );
+                            }
+                        } );
 
                 LOGGER.trace(
                         getSessionLabel(),
                         () -> "completed ldap search process with for domain '" + pwmDomain.getDomainID() + "'",
                         () -> TimeDuration.fromCurrent( loopStartTime ) );
+            }
 
-                writeUsersToLocalDBQueue( searchResults );
+            if ( !cancelFlag.get() )
+            {
+                updateChangeMarkers( changeMarkers, latestChanges, settings.getIncrementalChangeMargin() );
+                reportStatus.updateAndGet( reportStatusInfo -> reportStatusInfo.toBuilder()
+                        .changeMarkers( Collections.unmodifiableMap( changeMarkers ) )
+                        .fullRefreshDate( incremental ? reportStatusInfo.getFullRefreshDate() : startTime )
+                        .build() );
+                writeReportStatus();
             }
 
             LOGGER.trace(
@@ -391,7 +452,53 @@ public class ReportService extends AbstractPwmService implements PwmService
 
         }
 
-        private void writeUsersToLocalDBQueue( final Iterator<UserIdentity> identityQueue )
+        /**
+         * Filter clauses restricting each ldap profile search to entries changed since the marker recorded by the
+         * previous read.  Profiles without a marker are searched in full.
+         */
+        private Map<String, String> changedSinceFilterClauses( final PwmDomain pwmDomain, final Map<String, String> previousChangeMarkers )
+        {
+            final Map<String, String> filterClauses = new TreeMap<>();
+            for ( final String ldapProfileID : pwmDomain.getConfig().getLdapProfiles().keySet() )
+            {
+                final String marker = previousChangeMarkers.get( changeMarkerKey( pwmDomain.getDomainID(), ldapProfileID ) );
+                if ( StringUtil.notEmpty( marker ) )
+                {
+                    // inclusive so entries changed within the same second as the marker are not missed
+                    filterClauses.put( ldapProfileID, "(" + settings.getIncrementalChangeAttribute() + ">=" + StringUtil.escapeLdapFilter( marker ) + ")" );
+                }
+            }
+            return Collections.unmodifiableMap( filterClauses );
+        }
+
+        /**
+         * Track the latest change time seen for each ldap profile.  Values that can not be read as generalized time
+         * count as the time the search started, which is never later than the change that was seen.
+         */
+        private void recordLatestChange(
+                final Map<String, Instant> latestChanges,
+                final UserIdentity userIdentity,
+                final WorkQueueItem workQueueItem,
+                final Instant searchStartTime
+        )
+        {
+            if ( !settings.isIncrementalRefresh() )
+            {
+                return;
+            }
+
+            final String value = workQueueItem.attributeValue( settings.getIncrementalChangeAttribute() );
+            if ( StringUtil.isEmpty( value ) )
+            {
+                return;
+            }
+
+            final Instant changeTime = parseChangeTime( value ).orElse( searchStartTime );
+            final String key = changeMarkerKey( userIdentity.getDomainID(), userIdentity.getLdapProfileID() );
+            latestChanges.merge( key, changeTime, ( existing, candidate ) -> candidate.isAfter( existing ) ? candidate : existing );
+        }
+
+        private void writeUsersToLocalDBQueue( final Iterator<String> encodedItems )
         {
             final Instant startTime = Instant.now();
             LOGGER.trace( getSessionLabel(), () -> "transferring search results to work queue" );
@@ -404,14 +511,14 @@ public class ReportService extends AbstractPwmService implements PwmService
                             .build()
             );
 
-            while ( !cancelFlag.get() && identityQueue.hasNext() )
+            while ( !cancelFlag.get() && encodedItems.hasNext() )
             {
                 final Instant loopStart = Instant.now();
                 final List<String> bufferList = new ArrayList<>();
                 final int loopCount = transactionCalculator.getTransactionSize();
-                while ( !cancelFlag.get() && identityQueue.hasNext() && bufferList.size() < loopCount )
+                while ( !cancelFlag.get() && encodedItems.hasNext() && bufferList.size() < loopCount )
                 {
-                    bufferList.add( identityQueue.next().toDelimitedKey() );
+                    bufferList.add( encodedItems.next() );
                 }
                 dnQueue.addAll( bufferList );
                 transactionCalculator.recordLastTransactionDuration( TimeDuration.fromCurrent( loopStart ) );
@@ -495,7 +602,7 @@ public class ReportService extends AbstractPwmService implements PwmService
                 final BlockingThreadPool threadService = new BlockingThreadPool( threadCount, threadName );
                 while ( status() == STATUS.OPEN && !dnQueue.isEmpty() && !cancelFlag.get() )
                 {
-                    final UserIdentity userIdentity = UserIdentity.fromDelimitedKey( getSessionLabel(), dnQueue.poll() );
+                    final WorkQueueItem workQueueItem = WorkQueueItem.decode( dnQueue.poll() );
                     if ( getPwmApplication().getConfig().isDevDebugMode() )
                     {
                         LOGGER.trace( getSessionLabel(), () -> "submit " + Instant.now().toString()
@@ -506,7 +613,7 @@ public class ReportService extends AbstractPwmService implements PwmService
                         LOGGER.traceDevDebug( getSessionLabel(), () -> "start " + Instant.now().toString()
                                 + " size=" + threadService.getQueue().size() );
 
-                        processRecord( userIdentity, pauseBetweenIterations, threadCount );
+                        processRecord( workQueueItem, pauseBetweenIterations, threadCount );
 
                         LOGGER.traceDevDebug( getSessionLabel(), () -> "finish " + Instant.now().toString()
                                 + " size=" + threadService.getQueue().size() );
@@ -541,7 +648,7 @@ public class ReportService extends AbstractPwmService implements PwmService
         }
 
 
-        private void updateCachedRecordFromLdap( final UserIdentity userIdentity )
+        private void updateCachedRecordFromLdap( final WorkQueueItem workQueueItem )
                 throws PwmUnrecoverableException, LocalDBException
         {
             if ( status() != STATUS.OPEN )
@@ -550,17 +657,19 @@ public class ReportService extends AbstractPwmService implements PwmService
             }
 
             final Instant startTime = Instant.now();
+            final UserIdentity userIdentity = workQueueItem.userIdentity( getSessionLabel() );
+            final Optional<UserReportRecord> previousUserReportRecord = userCacheService.readStorageKey( userIdentity );
 
-            final UserInfo userInfo = UserInfoFactory.newUserInfoUsingProxyForOfflineUser(
-                    getPwmApplication(),
-                    getSessionLabel(),
-                    userIdentity
-            );
+            // items queued by earlier versions carry no attribute values and are read entry by entry
+            final UserInfo userInfo = workQueueItem.getAttributes() == null
+                    ? UserInfoFactory.newUserInfoUsingProxyForOfflineUser( getPwmApplication(), getSessionLabel(), userIdentity )
+                    : UserInfoFactory.newUserInfoUsingProxyForOfflineUser( getPwmApplication(), getSessionLabel(), userIdentity, workQueueItem.prefetchedValues() );
 
             final Optional<UserReportRecord> newUserReportRecord = userCacheService.updateUserCache( userInfo );
             if ( newUserReportRecord.isPresent() )
             {
                 userCacheService.store( newUserReportRecord.get() );
+                previousUserReportRecord.ifPresent( summaryData::remove );
                 summaryData.update( newUserReportRecord.get() );
                 processRateMeter.markEvents( 1 );
 
@@ -569,7 +678,7 @@ public class ReportService extends AbstractPwmService implements PwmService
         }
 
         private void processRecord(
-                final UserIdentity userIdentity,
+                final WorkQueueItem workQueueItem,
                 final boolean pauseBetweenIterations,
                 final int threadCount
         )
@@ -577,7 +686,7 @@ public class ReportService extends AbstractPwmService implements PwmService
             try
             {
                 final Instant startUpdateTime = Instant.now();
-                updateCachedRecordFromLdap( userIdentity );
+                updateCachedRecordFromLdap( workQueueItem );
                 reportStatus.updateAndGet( reportStatusInfo -> reportStatusInfo.toBuilder()
                         .count( reportStatusInfo.getCount() + 1 )
                         .build() );
@@ -608,7 +717,7 @@ public class ReportService extends AbstractPwmService implements PwmService
             }
             catch ( final Exception e )
             {
-                String errorMsg = "error while updating report cache for " + userIdentity.toString() + ", cause: ";
+                String errorMsg = "error while updating report cache for " + workQueueItem.getUserKey() + ", cause: ";
                 errorMsg += e instanceof PwmException
                         ? ( ( PwmException ) e ).getErrorInformation().toDebugStr()
                         : e.getMessage();
@@ -643,9 +752,43 @@ public class ReportService extends AbstractPwmService implements PwmService
 
             if ( settings.isDailyJobEnabled() )
             {
-                executorService.execute( new ClearTask() );
-                executorService.execute( new ReadLDAPTask() );
+                if ( isIncrementalRefreshPossible() )
+                {
+                    executorService.execute( new ReadLDAPTask( true ) );
+                }
+                else
+                {
+                    executorService.execute( new ClearTask() );
+                    executorService.execute( new ReadLDAPTask( false ) );
+                }
+            }
+        }
+
+        private boolean isIncrementalRefreshPossible()
+        {
+            if ( !settings.isIncrementalRefresh() )
+            {
+                return false;
+            }
+
+            final ReportStatusInfo localReportStatus = reportStatus.get();
+            if ( !localReportStatus.isReportComplete()
+                    || localReportStatus.getFullRefreshDate() == null
+                    || localReportStatus.getChangeMarkers() == null
+                    || localReportStatus.getChangeMarkers().isEmpty() )
+            {
+                return false;
             }
+
+            // deleted entries and time dependant record values are only corrected by a full refresh
+            if ( TimeDuration.fromCurrent( localReportStatus.getFullRefreshDate() ).isLongerThan( settings.getFullRefreshInterval() ) )
+            {
+                LOGGER.debug( getSessionLabel(), () -> "last full report refresh is older than "
+                        + settings.getFullRefreshInterval().asCompactString() + ", will perform full refresh" );
+                return false;
+            }
+
+            return true;
         }
     }
 
@@ -763,6 +906,7 @@ public class ReportService extends AbstractPwmService implements PwmService
                 userCacheService.clear();
             }
             summaryData = ReportSummaryData.newSummaryData( settings.getTrackDays() );
+            summaryDataCurrent.set( true );
             initReportStatus();
             LOGGER.debug( getSessionLabel(), () -> "finished clearing report " + TimeDuration.compactFromCurrent( startTime ) );
         }
@@ -795,4 +939,188 @@ public class ReportService extends AbstractPwmService implements PwmService
             executorService.execute( new ClearTask() );
         }
     }
+
+    private boolean summaryDataOutdated()
+    {
+        return TimeDuration.fromCurrent( summaryData.getReferenceTime() ).isLongerThan( TimeDuration.DAY );
+    }
+
+    /**
+     * Recalculate the summary from the stored report records.  The summary is only held in memory, so this is required
+     * before an incremental refresh can adjust it, and again once its day window counters fall behind the current time.
+     */
+    private void rebuildSummaryData()
+    {
+        final Instant startTime = Instant.now();
+        final ReportSummaryData newSummaryData = ReportSummaryData.newSummaryData( settings.getTrackDays() );
+        try ( ClosableIterator<UserReportRecord> iterator = iterator() )
+        {
+            while ( iterator.hasNext() )
+            {
+                final UserReportRecord userReportRecord = iterator.next();
+                if ( userReportRecord != null )
+                {
+                    newSummaryData.update( userReportRecord );
+                }
+            }
+        }
+        summaryData = newSummaryData;
+        summaryDataCurrent.set( true );
+        LOGGER.debug( getSessionLabel(), () -> "rebuilt report summary from stored records", () -> TimeDuration.fromCurrent( startTime ) );
+    }
+
+    /**
+     * Set each profile marker to the latest change seen less the safety margin.  Entries written concurrently with
+     * the search, or replicated late with an older timestamp, may not have been returned, so the next pass searches
+     * back across the margin; re-reading entries that were already seen only refreshes their stored records.
+     */
+    static void updateChangeMarkers(
+            final Map<String, String> changeMarkers,
+            final Map<String, Instant> latestChanges,
+            final TimeDuration changeMargin
+    )
+    {
+        for ( final Map.Entry<String, Instant> entry : latestChanges.entrySet() )
+        {
+            final Instant marker = entry.getValue().minus( changeMargin.asDuration() );
+            final Optional<Instant> previousMarker = Optional.ofNullable( changeMarkers.get( entry.getKey() ) ).flatMap( ReportService::parseChangeTime );
+            if ( previousMarker.isEmpty() || marker.isAfter( previousMarker.get() ) )
+            {
+                changeMarkers.put( entry.getKey(), EdirEntries.convertInstantToZulu( marker ) );
+            }
+        }
+    }
+
+    static Optional<Instant> parseChangeTime( final String value )
+    {
+        try
+        {
+            return Optional.ofNullable( EdirEntries.convertZuluToInstant( value ) );
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.trace( () -> "unable to parse change marker value '" + value + "' as generalized time: " + e.getMessage() );
+            return Optional.empty();
+        }
+    }
+
+    private static String changeMarkerKey( final DomainID domainID, final String ldapProfileID )
+    {
+        return domainID.stringValue() + "|" + ldapProfileID;
+    }
+
+    /**
+     * Attributes read by the report search for each user, so that building the report record does not require
+     * reading them again entry by entry.  Only single valued attributes are included.  The values are held in the
+     * LocalDB work queue, so attributes holding secrets, such as stored challenge responses, are not included and are
+     * read per user when needed.
+     */
+    private Set<String> reportAttributes( final PwmDomain pwmDomain )
+    {
+        final Set<String> attributes = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        for ( final LdapProfile ldapProfile : pwmDomain.getConfig().getLdapProfiles().values() )
+        {
+            attributes.add( ldapProfile.getUsernameAttribute() );
+            attributes.add( ldapProfile.readSettingAsString( PwmSetting.EMAIL_USER_MAIL_ATTRIBUTE ) );
+            attributes.add( ldapProfile.readSettingAsString( PwmSetting.LDAP_ATTRIBUTE_LANGUAGE ) );
+            attributes.add( ldapProfile.readSettingAsString( PwmSetting.PASSWORD_LAST_UPDATE_ATTRIBUTE ) );
+
+            final String guidAttribute = ldapProfile.readSettingAsString( PwmSetting.LDAP_GUID_ATTRIBUTE );
+            if ( !"DN".equalsIgnoreCase( guidAttribute ) && !"VENDORGUID".equalsIgnoreCase( guidAttribute ) )
+            {
+                attributes.add( guidAttribute );
+            }
+        }
+        attributes.addAll( settings.getPrefetchAttributes() );
+        if ( settings.isIncrementalRefresh() )
+        {
+            attributes.add( settings.getIncrementalChangeAttribute() );
+        }
+        attributes.removeIf( StringUtil::isEmpty );
+        return Collections.unmodifiableSet( attributes );
+    }
+
+    /**
+     * Report work queue entry.  Attribute values read by the report search are carried with the user key, with an
+     * empty string marking an attribute that was read but has no value.
+     */
+    @Value
+    static class WorkQueueItem implements Serializable
+    {
+        private final String userKey;
+        private final Map<String, String> attributes;
+
+        static WorkQueueItem fromSearchResult(
+                final UserIdentity userIdentity,
+                final Map<String, String> searchValues,
+                final Set<String> searchAttributes
+        )
+        {
+            final Map<String, String> caseInsensitiveValues = new TreeMap<>( String.CASE_INSENSITIVE_ORDER );
+            if ( searchValues != null )
+            {
+                caseInsensitiveValues.putAll( searchValues );
+            }
+
+            final Map<String, String> attributes = new LinkedHashMap<>();
+            for ( final String attribute : searchAttributes )
+            {
+                final String value = caseInsensitiveValues.get( attribute );
+                attributes.put( attribute, value == null ? "" : value );
+            }
+            return new WorkQueueItem( userIdentity.toDelimitedKey(), attributes );
+        }
+
+        static WorkQueueItem decode( final String encodedValue )
+        {
+            // items queued by earlier versions are plain user keys, which may themselves be json encoded
+            if ( encodedValue != null && encodedValue.startsWith( "{" ) )
+            {
+                final WorkQueueItem workQueueItem = JsonFactory.get().deserialize( encodedValue, WorkQueueItem.class );
+                if ( workQueueItem != null && StringUtil.notEmpty( workQueueItem.getUserKey() ) )
+                {
+                    return workQueueItem;
+                }
+            }
+            return new WorkQueueItem( encodedValue, null );
+        }
+
+        String attributeValue( final String attributeName )
+        {
+            if ( attributes != null )
+            {
+                for ( final Map.Entry<String, String> entry : attributes.entrySet() )
+                {
+                    if ( entry.getKey().equalsIgnoreCase( attributeName ) )
+                    {
+                        return entry.getValue();
+                    }
+                }
+            }
+            return null;
+        }
+
+        String encode()
+        {
+            return JsonFactory.get().serialize( this );
+        }
+
+        UserIdentity userIdentity( final SessionLabel sessionLabel )
+                throws PwmUnrecoverableException
+        {
+            return UserIdentity.fromDelimitedKey( sessionLabel, userKey );
+        }
+
+        Map<String, List<String>> prefetchedValues()
+        {
+            final Map<String, List<String>> prefetchedValues = new LinkedHashMap<>();
+            for ( final Map.Entry<String, String> entry : attributes.entrySet() )
+            {
+                prefetchedValues.put( entry.getKey(), StringUtil.isEmpty( entry.getValue() )
+                        ? Collections.emptyList()
+                        : Collections.singletonList( entry.getValue() ) );
+            }
+            return prefetchedValues;
+        }
+    }
 }
@@ -30,6 +30,7 @@ import password.pwm.config.PwmSetting;
 import password.pwm.config.value.data.UserPermission;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.json.JsonFactory;
+import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 import password.pwm.util.secure.PwmHashAlgorithm;
@@ -76,6 +77,20 @@ class ReportSettings implements Serializable
     @Builder.Default
     private JobIntensity reportJobIntensity = JobIntensity.LOW;
 
+    @Builder.Default
+    private List<String> prefetchAttributes = Collections.emptyList();
+
+    private boolean incrementalRefresh;
+
+    @Builder.Default
+    private String incrementalChangeAttribute = "modifyTimestamp";
+
+    @Builder.Default
+    private TimeDuration incrementalChangeMargin = TimeDuration.of( 5, TimeDuration.Unit.MINUTES );
+
+    @Builder.Default
+    private TimeDuration fullRefreshInterval = TimeDuration.of( 7, TimeDuration.Unit.DAYS );
+
     public enum JobIntensity
     {
         LOW,
@@ -114,6 +129,15 @@ class ReportSettings implements Serializable
 
         builder.reportJobIntensity( config.readSettingAsEnum( PwmSetting.REPORTING_JOB_INTENSITY, JobIntensity.class ) );
 
+        builder.prefetchAttributes( StringUtil.splitAndTrim( config.readAppProperty( AppProperty.REPORTING_LDAP_PREFETCH_ATTRIBUTES ), "," ) );
+
+        builder.incrementalRefresh( Boolean.parseBoolean( config.readAppProperty( AppProperty.REPORTING_INCREMENTAL_ENABLE ) ) );
+        builder.incrementalChangeAttribute( config.readAppProperty( AppProperty.REPORTING_INCREMENTAL_CHANGE_ATTRIBUTE ) );
+        builder.incrementalChangeMargin( TimeDuration.of(
+                Long.parseLong( config.readAppProperty( AppProperty.REPORTING_INCREMENTAL_CHANGE_MARGIN_SECONDS ) ), TimeDuration.Unit.SECONDS ) );
+        builder.fullRefreshInterval( TimeDuration.of(
+                Long.parseLong( config.readAppProperty( AppProperty.REPORTING_INCREMENTAL_FULL_REFRESH_SECONDS ) ), TimeDuration.Unit.SECONDS ) );
+
         return builder.build();
     }
 
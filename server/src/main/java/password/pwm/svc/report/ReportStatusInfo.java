@@ -27,6 +27,8 @@ import password.pwm.util.java.TimeDuration;
 
 import java.io.Serializable;
 import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
 
 @Value
 @Builder( toBuilder = true )
@@ -43,6 +45,17 @@ public class ReportStatusInfo implements Serializable
     private ErrorInformation lastError;
     private String settingsHash;
 
+    /**
+     * Time the last complete (non-incremental) read of the directory was started.
+     */
+    private Instant fullRefreshDate;
+
+    /**
+     * Highest change attribute value seen by the last directory read, keyed by domain and ldap profile.
+     */
+    @Builder.Default
+    private Map<String, String> changeMarkers = Collections.emptyMap();
+
     @Builder.Default
     private ReportEngineProcess currentProcess = ReportEngineProcess.None;
 
@@ -45,7 +45,6 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.LongAdder;
-import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 @Value
@@ -79,13 +78,21 @@ public class ReportSummaryData
     private final Map<Integer, LongAdder> loginDays = new ConcurrentHashMap<>();
     private final Map<Integer, LongAdder> pwExpireNotificationDays = new ConcurrentHashMap<>();
 
-    private ReportSummaryData( )
+    /**
+     * Time the day window counters are evaluated against, fixed for the life of the summary so that
+     * {@link #remove(UserReportRecord)} exactly reverses an earlier update.  Summaries adjusted by incremental refreshes
+     * are rebuilt once this falls a day behind so the windows follow the current time.
+     */
+    private final Instant referenceTime;
+
+    private ReportSummaryData( final Instant referenceTime )
     {
+        this.referenceTime = referenceTime;
     }
 
     static ReportSummaryData newSummaryData( final List<Integer> trackedDays )
     {
-        final ReportSummaryData reportSummaryData = new ReportSummaryData();
+        final ReportSummaryData reportSummaryData = new ReportSummaryData( Instant.now() );
 
         if ( trackedDays != null )
         {
@@ -122,14 +129,33 @@ public class ReportSummaryData
 
     void update( final UserReportRecord userReportRecord )
     {
-        totalUsers.increment();
+        apply( userReportRecord, 1 );
+    }
+
+    /**
+     * Reverse a previous {@link #update(UserReportRecord)} of the record, used when a stored record is replaced.
+     * @param userReportRecord a record previously added to this summary.
+     */
+    void remove( final UserReportRecord userReportRecord )
+    {
+        apply( userReportRecord, -1 );
+    }
+
+    private void apply( final UserReportRecord userReportRecord, final long delta )
+    {
+        totalUsers.add( delta );
 
-        Updaters.UPDATERS.forEach( updater -> updater.accept( userReportRecord, this ) );
+        Updaters.UPDATERS.forEach( updater -> updater.accept( userReportRecord, this, delta ) );
+    }
+
+    private interface SummaryUpdater
+    {
+        void accept( UserReportRecord userReportRecord, ReportSummaryData reportSummaryData, long delta );
     }
 
     private static class Updaters
     {
-        private static final List<BiConsumer<UserReportRecord, ReportSummaryData>> UPDATERS = List.of(
+        private static final List<SummaryUpdater> UPDATERS = List.of(
                 new UpdateHasResponses(),
                 new UpdateHasHelpdeskResponses(),
                 new HasResponseSetTime(),
@@ -146,153 +172,153 @@ public class ReportSummaryData
                 new UpdateOtpSecretSetTime()
         );
 
-        private static class UpdateHasResponses implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class UpdateHasResponses implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.isHasResponses() )
                 {
-                    reportSummaryData.hasResponses.increment();
+                    reportSummaryData.hasResponses.add( delta );
                 }
 
             }
         }
 
-        private static class UpdateHasHelpdeskResponses implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class UpdateHasHelpdeskResponses implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.isHasHelpdeskResponses() )
                 {
-                    reportSummaryData.hasHelpdeskResponses.increment();
+                    reportSummaryData.hasHelpdeskResponses.add( delta );
                 }
 
             }
         }
 
-        private static class HasResponseSetTime implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class HasResponseSetTime implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.getResponseSetTime() != null )
                 {
-                    reportSummaryData.hasResponseSetTime.increment();
-                    reportSummaryData.incrementIfWithinTimeWindow( userReportRecord, reportSummaryData.responseSetDays );
+                    reportSummaryData.hasResponseSetTime.add( delta );
+                    reportSummaryData.addIfWithinTimeWindow( userReportRecord, delta, reportSummaryData.responseSetDays );
                 }
             }
         }
 
-        private static class UpdatePasswordExpirationTime implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class UpdatePasswordExpirationTime implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.getPasswordExpirationTime() != null )
                 {
-                    reportSummaryData.hasPasswordExpirationTime.increment();
-                    reportSummaryData.incrementIfWithinTimeWindow( userReportRecord, reportSummaryData.pwExpireDays );
+                    reportSummaryData.hasPasswordExpirationTime.add( delta );
+                    reportSummaryData.addIfWithinTimeWindow( userReportRecord, delta, reportSummaryData.pwExpireDays );
                 }
             }
         }
 
-        private static class UpdateAccountExpirationTime implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class UpdateAccountExpirationTime implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.getAccountExpirationTime() != null )
                 {
-                    reportSummaryData.hasAccountExpirationTime.increment();
-                    reportSummaryData.incrementIfWithinTimeWindow( userReportRecord, reportSummaryData.accountExpireDays );
+                    reportSummaryData.hasAccountExpirationTime.add( delta );
+                    reportSummaryData.addIfWithinTimeWindow( userReportRecord, delta, reportSummaryData.accountExpireDays );
                 }
             }
         }
 
-        private static class UpdateLastLoginTime implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class UpdateLastLoginTime implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.getLastLoginTime() != null )
                 {
-                    reportSummaryData.hasLoginTime.increment();
-                    reportSummaryData.incrementIfWithinTimeWindow( userReportRecord, reportSummaryData.loginDays );
+                    reportSummaryData.hasLoginTime.add( delta );
+                    reportSummaryData.addIfWithinTimeWindow( userReportRecord, delta, reportSummaryData.loginDays );
                 }
             }
         }
 
-        private static class UpdatePwChangeTime implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class UpdatePwChangeTime implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.getPasswordChangeTime() != null )
                 {
-                    reportSummaryData.hasChangePwTime.increment();
-                    reportSummaryData.incrementIfWithinTimeWindow( userReportRecord, reportSummaryData.changePwDays );
+                    reportSummaryData.hasChangePwTime.add( delta );
+                    reportSummaryData.addIfWithinTimeWindow( userReportRecord, delta, reportSummaryData.changePwDays );
                 }
             }
         }
 
-        private static class UpdatePwExpiredNotification implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class UpdatePwExpiredNotification implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.getPasswordExpirationNoticeSendTime() != null )
                 {
-                    reportSummaryData.hasReceivedPwExpireNotification.increment();
-                    reportSummaryData.incrementIfWithinTimeWindow( userReportRecord, reportSummaryData.pwExpireNotificationDays );
+                    reportSummaryData.hasReceivedPwExpireNotification.add( delta );
+                    reportSummaryData.addIfWithinTimeWindow( userReportRecord, delta, reportSummaryData.pwExpireNotificationDays );
                 }
             }
         }
 
-        private static class UpdatePasswordStatus implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class UpdatePasswordStatus implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.getPasswordStatus() != null )
                 {
                     if ( userReportRecord.getPasswordStatus().isExpired() )
                     {
-                        reportSummaryData.pwExpired.increment();
+                        reportSummaryData.pwExpired.add( delta );
                     }
                     if ( userReportRecord.getPasswordStatus().isPreExpired() )
                     {
-                        reportSummaryData.pwPreExpired.increment();
+                        reportSummaryData.pwPreExpired.add( delta );
                     }
                     if ( userReportRecord.getPasswordStatus().isWarnPeriod() )
                     {
-                        reportSummaryData.pwWarnPeriod.increment();
+                        reportSummaryData.pwWarnPeriod.add( delta );
                     }
                 }
             }
         }
 
-        private static class UpdateResponseStorageMethod implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class UpdateResponseStorageMethod implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.getResponseStorageMethod() != null )
                 {
                     final DataStorageMethod method = userReportRecord.getResponseStorageMethod();
                     reportSummaryData.responseStorage
                             .computeIfAbsent( method, dataStorageMethod -> new LongAdder() )
-                            .increment();
+                            .add( delta );
                 }
 
             }
         }
 
-        private static class UpdateLdapProfile implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class UpdateLdapProfile implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.getLdapProfile() != null )
                 {
@@ -301,54 +327,55 @@ public class ReportSummaryData
                     reportSummaryData.ldapProfile
                             .computeIfAbsent( domainID, type -> new ConcurrentHashMap<>() )
                             .computeIfAbsent( userProfile, type -> new LongAdder() )
-                            .increment();
+                            .add( delta );
                 }
             }
         }
 
-        private static class UpdateResponseFormatType implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class UpdateResponseFormatType implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.getResponseFormatType() != null )
                 {
                     final Answer.FormatType type = userReportRecord.getResponseFormatType();
                     reportSummaryData.responseFormatType
                             .computeIfAbsent( type, formatType -> new LongAdder() )
-                            .increment();
+                            .add( delta );
                 }
             }
         }
 
-        private static class UpdateHasOtpSecret implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class UpdateHasOtpSecret implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.isHasOtpSecret() )
                 {
-                    reportSummaryData.hasOtpSecret.increment();
+                    reportSummaryData.hasOtpSecret.add( delta );
                 }
             }
         }
 
-        private static class UpdateOtpSecretSetTime implements BiConsumer<UserReportRecord, ReportSummaryData>
+        private static class UpdateOtpSecretSetTime implements SummaryUpdater
         {
             @Override
-            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData )
+            public void accept( final UserReportRecord userReportRecord, final ReportSummaryData reportSummaryData, final long delta )
             {
                 if ( userReportRecord.getOtpSecretSetTime() != null )
                 {
-                    reportSummaryData.hasOtpSecretSetTime.increment();
-                    reportSummaryData.incrementIfWithinTimeWindow( userReportRecord, reportSummaryData.otpSetDays );
+                    reportSummaryData.hasOtpSecretSetTime.add( delta );
+                    reportSummaryData.addIfWithinTimeWindow( userReportRecord, delta, reportSummaryData.otpSetDays );
                 }
             }
         }
     }
 
-    private void incrementIfWithinTimeWindow(
+    private void addIfWithinTimeWindow(
             final UserReportRecord userReportRecord,
+            final long delta,
             final Map<Integer, LongAdder> map
     )
     {
@@ -362,14 +389,14 @@ public class ReportSummaryData
             if ( eventDate != null )
             {
                 final TimeDuration timeBoundary = TimeDuration.of( timeWindow, TimeDuration.Unit.MILLISECONDS );
-                final TimeDuration eventDifference = TimeDuration.fromCurrent( eventDate );
+                final TimeDuration eventDifference = TimeDuration.between( eventDate, referenceTime );
 
                 if (
-                        ( timeWindow >= 0 && eventDate.isAfter( Instant.now() ) && eventDifference.isShorterThan( timeBoundary ) )
-                                || ( timeWindow < 0 && eventDate.isBefore( Instant.now() ) && eventDifference.isShorterThan( timeBoundary ) )
+                        ( timeWindow >= 0 && eventDate.isAfter( referenceTime ) && eventDifference.isShorterThan( timeBoundary ) )
+                                || ( timeWindow < 0 && eventDate.isBefore( referenceTime ) && eventDifference.isShorterThan( timeBoundary ) )
                 )
                 {
-                    number.increment();
+                    number.add( delta );
                 }
             }
         }
@@ -105,7 +105,7 @@ public class SmsQueueService extends AbstractPwmService implements PwmService
     private SmsSendEngine smsSendEngine;
 
     private WorkQueueProcessor<SmsItemBean> workQueueProcessor;
-    private ErrorInformation lastError;
+    private volatile ErrorInformation lastError;
 
     public SmsQueueService( )
     {
@@ -128,6 +128,7 @@ public class SmsQueueService extends AbstractPwmService implements PwmService
                         Long.parseLong( pwmApplication.getConfig().readAppProperty( AppProperty.QUEUE_SMS_RETRY_TIMEOUT_MS ) ),
                         TimeDuration.Unit.MILLISECONDS )
                 )
+                .workerThreads( Integer.parseInt( pwmApplication.getConfig().readAppProperty( AppProperty.QUEUE_SMS_WORKER_THREADS ) ) )
                 .build();
 
         final LocalDBStoredQueue localDBStoredQueue = LocalDBStoredQueue.createLocalDBStoredQueue( pwmApplication, pwmApplication.getLocalDB(), LocalDB.DB.SMS_QUEUE );
@@ -171,6 +172,12 @@ public class SmsQueueService extends AbstractPwmService implements PwmService
             return WorkQueueProcessor.ProcessResult.SUCCESS;
         }
 
+        @Override
+        public String orderingKey( final SmsItemBean workItem )
+        {
+            return workItem.getTo();
+        }
+
         @Override
         public String convertToDebugString( final SmsItemBean workItem )
         {
@@ -43,15 +43,21 @@ import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BooleanSupplier;
@@ -62,14 +68,17 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
 
     private WordlistConfiguration wordlistConfiguration;
     private WordlistBucket wordlistBucket;
+    private WordlistBucketType bucketType = WordlistBucketType.LOCALDB;
     private ExecutorService executorService;
     private volatile Set<WordType> wordTypesCache = null;
+    private volatile WordlistBloomFilter wordlistBloomFilter;
 
     private volatile ErrorInformation lastError;
     private volatile ErrorInformation autoImportError;
 
     private final AtomicBoolean inhibitBackgroundImportFlag = new AtomicBoolean( false );
     private final ReentrantLock backgroundImportRunning = new ReentrantLock();
+    private final ReentrantLock sourceWordsLock = new ReentrantLock();
     private final WordlistStatistics statistics = new WordlistStatistics();
     private final ConditionalTaskExecutor statsOutput = ConditionalTaskExecutor.forPeriodicTask( this::outputStats,
             TimeDuration.of( 5, TimeDuration.Unit.MINUTES ).asDuration() );
@@ -117,7 +126,7 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
                 return STATUS.CLOSED;
             }
 
-            this.wordlistBucket = new LocalDBWordlistBucket( pwmApplication, wordlistConfiguration, type );
+            this.wordlistBucket = makeWordlistBucket( pwmApplication, type );
         }
 
         inhibitBackgroundImportFlag.set( false );
@@ -134,6 +143,26 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
         return STATUS.OPEN;
     }
 
+    private WordlistBucket makeWordlistBucket( final PwmApplication pwmApplication, final WordlistType type )
+            throws PwmUnrecoverableException
+    {
+        if ( wordlistConfiguration.getBucketType() == WordlistBucketType.MAPPED_FILE )
+        {
+            final File localDBLocation = pwmApplication.getLocalDB().getFileLocation();
+            if ( type == WordlistType.WORDLIST && localDBLocation != null )
+            {
+                final File directory = new File( localDBLocation, wordlistConfiguration.getDb().name() + "-mapped" );
+                bucketType = WordlistBucketType.MAPPED_FILE;
+                return new MappedFileWordlistBucket( pwmApplication, wordlistConfiguration, type, directory );
+            }
+
+            getLogger().warn( getSessionLabel(), () -> "bucket type " + WordlistBucketType.MAPPED_FILE
+                    + " is not available for this wordlist, using " + WordlistBucketType.LOCALDB );
+        }
+
+        return new LocalDBWordlistBucket( pwmApplication, wordlistConfiguration, type );
+    }
+
     protected abstract WordlistType getWordlistType();
 
     protected abstract PwmLogger getLogger();
@@ -191,7 +220,7 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
             throws PwmUnrecoverableException
     {
         final String hashWord = wordType.convertInputFromUser( getPwmApplication(), wordlistConfiguration, word );
-        return realBucketCheck( hashWord, wordType );
+        return realBucketCheck( Collections.singleton( hashWord ), wordType );
     }
 
     private boolean checkRawWords( final String word )
@@ -202,16 +231,8 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
 
         getStatistics().getAverageStats().update( WordlistStatistics.AverageStat.chunksPerWordCheck, testWords.size() );
 
-        for ( final String t : testWords )
-        {
-            // stop checking once found
-            if ( realBucketCheck( t, WordType.RAW ) )
-            {
-                return true;
-            }
-        }
-
-        return false;
+        // all chunks are resolved in a single bucket read
+        return realBucketCheck( testWords, WordType.RAW );
     }
 
     void outputStats()
@@ -231,34 +252,186 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
         }
     }
 
-    private boolean realBucketCheck( final String word, final WordType wordType )
+    private boolean realBucketCheck( final Collection<String> words, final WordType wordType )
             throws PwmUnrecoverableException
     {
+        if ( words.isEmpty() )
+        {
+            return false;
+        }
+
         final Instant startTime = Instant.now();
-        final boolean results = wordlistBucket.containsWord( word );
+        final boolean results = filteredBucketCheck( words );
 
         statsOutput.conditionallyExecuteTask();
 
         getStatistics().getAverageStats().update( WordlistStatistics.AverageStat.chunkCheckTimeMS, TimeDuration.fromCurrent( startTime ).asDuration() );
-        getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.chunkChecks );
         if ( results )
         {
+            // the bucket stops at the first matching key, so only the hit is known to have been checked
             getStatistics().getWordTypeHits().get( wordType ).increment();
+            getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.chunkChecks );
             getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.chunkHits );
         }
         else
         {
-            getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.chunkMisses );
+            getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.chunkChecks, words.size() );
+            getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.chunkMisses, words.size() );
+        }
+
+        return results;
+    }
+
+    private boolean filteredBucketCheck( final Collection<String> words )
+            throws PwmUnrecoverableException
+    {
+        final WordlistBloomFilter filter = this.wordlistBloomFilter;
+        if ( filter == null )
+        {
+            return wordlistBucket.containsAny( words );
         }
 
+        final List<String> candidateWords = new ArrayList<>( words.size() );
+        for ( final String word : words )
+        {
+            if ( filter.mightContain( word ) )
+            {
+                candidateWords.add( word );
+            }
+        }
+
+        getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.filterMisses, words.size() - candidateWords.size() );
+        if ( candidateWords.isEmpty() )
+        {
+            return false;
+        }
+
+        getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.filterHits, candidateWords.size() );
+        final boolean results = wordlistBucket.containsAny( candidateWords );
+        if ( !results )
+        {
+            getStatistics().getCounterStats().increment( WordlistStatistics.CounterStat.filterFalsePositives, candidateWords.size() );
+        }
         return results;
     }
 
+    ThreadFactory makeImportThreadFactory()
+    {
+        return PwmScheduler.makePwmThreadFactory( PwmScheduler.makeThreadName( getPwmApplication(), WordlistImporter.class ) + "-", true );
+    }
+
+    void setWordlistBloomFilter( final WordlistBloomFilter wordlistBloomFilter )
+    {
+        this.wordlistBloomFilter = wordlistBloomFilter;
+    }
+
+    private void loadWordlistBloomFilter()
+    {
+        if ( wordlistBloomFilter != null || !wordlistConfiguration.isFilterEnabled() || getWordlistType() != WordlistType.WORDLIST )
+        {
+            return;
+        }
+
+        final WordlistStatus wordlistStatus = readWordlistStatus();
+        if ( !wordlistStatus.isCompleted() )
+        {
+            return;
+        }
+
+        final Instant startTime = Instant.now();
+        final Optional<WordlistBloomFilter> storedFilter = wordlistBucket.readFilter();
+        if ( storedFilter.isPresent() && storedFilter.get().matchesStatus( wordlistStatus, wordlistConfiguration ) )
+        {
+            wordlistBloomFilter = storedFilter.get();
+            getLogger().debug( getSessionLabel(), () -> "loaded stored wordlist filter: "
+                    + StringUtil.mapToString( wordlistBloomFilter.debugMap() ), () -> TimeDuration.fromCurrent( startTime ) );
+        }
+    }
+
     String randomSeed() throws PwmUnrecoverableException
     {
         return getWordlistBucket().randomSeed();
     }
 
+    /**
+     * Read plain (non-hashed) words from the start of the configured wordlist source, in source order.  The words are
+     * saved by the wordlist bucket, so the source (possibly a remote auto-import url) is only read again when the
+     * imported wordlist or its configuration changes, rather than by each domain at every startup.
+     * @param maxWords maximum number of words to return
+     * @return the words, lowercase unless the wordlist is case-sensitive
+     */
+    @Override
+    public List<String> readSourceWords( final int maxWords )
+            throws IOException, PwmUnrecoverableException
+    {
+        if ( wordlistConfiguration == null || maxWords <= 0 )
+        {
+            return Collections.emptyList();
+        }
+
+        sourceWordsLock.lock();
+        try
+        {
+            final WordlistStatus wordlistStatus = readWordlistStatus();
+            final String stamp = wordlistConfiguration.configHash()
+                    + "|" + ( wordlistStatus == null ? null : wordlistStatus.getStoreDate() )
+                    + "|" + maxWords;
+
+            final Optional<List<String>> savedWords = wordlistBucket.readSourceWords( stamp );
+            if ( savedWords.isPresent() )
+            {
+                return Collections.unmodifiableList( savedWords.get() );
+            }
+
+            final List<String> words = readWordsFromSource( maxWords );
+            try
+            {
+                wordlistBucket.writeSourceWords( stamp, words );
+            }
+            catch ( final PwmUnrecoverableException e )
+            {
+                getLogger().debug( getSessionLabel(), () -> "unable to save wordlist source words: " + e.getMessage() );
+            }
+            return Collections.unmodifiableList( words );
+        }
+        finally
+        {
+            sourceWordsLock.unlock();
+        }
+    }
+
+    private List<String> readWordsFromSource( final int maxWords )
+            throws IOException, PwmUnrecoverableException
+    {
+        final WordlistSource wordlistSource = wordlistConfiguration.isAutoImportUrlConfigured()
+                ? WordlistSource.forAutoImport( getPwmApplication(), wordlistConfiguration )
+                : WordlistSource.forBuiltIn( getPwmApplication(), wordlistConfiguration );
+
+        final List<String> words = new ArrayList<>();
+        try ( WordlistZipReader zipReader = wordlistSource.getZipWordlistReader() )
+        {
+            String line = zipReader.nextLine();
+            while ( line != null && words.size() < maxWords )
+            {
+                final String trimmedLine = line.trim();
+                if ( !trimmedLine.isEmpty()
+                        && !isCommentLine( trimmedLine )
+                        && WordType.determineWordType( trimmedLine ) == WordType.RAW )
+                {
+                    words.add( WordType.RAW.convertInputFromWordlist( wordlistConfiguration, trimmedLine ) );
+                }
+                line = zipReader.nextLine();
+            }
+        }
+
+        return words;
+    }
+
+    private boolean isCommentLine( final String input )
+    {
+        return wordlistConfiguration.getCommentPrefixes().stream().anyMatch( input::startsWith );
+    }
+
     @Override
     public WordlistConfiguration getConfiguration( )
     {
@@ -396,6 +569,7 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
         final Instant startTime = Instant.now();
         getLogger().trace( getSessionLabel(), () -> "clearing stored wordlist" );
         activity = Wordlist.Activity.Clearing;
+        wordlistBloomFilter = null;
         writeWordlistStatus( WordlistStatus.builder().build() );
         getWordlistBucket().clear();
         getLogger().debug( getSessionLabel(), () -> "cleared stored wordlist", () -> TimeDuration.fromCurrent( startTime ) );
@@ -475,6 +649,7 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
             try
             {
                 activity = Wordlist.Activity.ReadingWordlistFile;
+                loadWordlistBloomFilter();
                 final BooleanSupplier cancelFlag = makeProcessCancelSupplier( );
                 final WordlistInspector wordlistInspector = new WordlistInspector( getPwmApplication(), AbstractWordlist.this, cancelFlag );
                 wordlistInspector.run();
@@ -521,18 +696,38 @@ abstract class AbstractWordlist extends AbstractPwmService implements Wordlist,
         {
             return ServiceInfoBean.builder()
                     .storageMethod( DataStorageMethod.LOCALDB )
-                    .debugProperties( getStatistics().asDebugMap() )
+                    .debugProperties( makeDebugProperties() )
                     .build();
         }
 
         return ServiceInfoBean.builder().build();
     }
 
+    private Map<String, String> makeDebugProperties()
+    {
+        final Map<String, String> debugProperties = new LinkedHashMap<>( getStatistics().asDebugMap() );
+        final WordlistBloomFilter filter = this.wordlistBloomFilter;
+        if ( filter != null )
+        {
+            debugProperties.putAll( filter.debugMap() );
+        }
+        return Collections.unmodifiableMap( debugProperties );
+    }
+
     WordlistStatistics getStatistics()
     {
         return statistics;
     }
 
+    /**
+     * Type of the bucket in use, which may differ from the configured type if that type is unavailable.
+     * @return bucket type in use
+     */
+    WordlistBucketType getBucketType()
+    {
+        return bucketType;
+    }
+
     @Override
     public String getImportPercentComplete()
     {
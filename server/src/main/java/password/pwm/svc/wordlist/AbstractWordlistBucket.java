@@ -20,20 +20,38 @@
 
 package password.pwm.svc.wordlist;
 
+import password.pwm.AppAttribute;
 import password.pwm.PwmApplication;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.java.LongIncrementer;
 import password.pwm.util.java.MiscUtil;
 import password.pwm.util.java.StringUtil;
+import password.pwm.util.logging.PwmLogger;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.TreeMap;
 
 public abstract class AbstractWordlistBucket implements WordlistBucket
 {
+    private static final PwmLogger LOGGER = PwmLogger.forClass( AbstractWordlistBucket.class );
+
     protected final PwmApplication pwmApplication;
     protected final WordlistConfiguration wordlistConfiguration;
     protected final WordlistType type;
@@ -144,12 +162,206 @@ public abstract class AbstractWordlistBucket implements WordlistBucket
         return containsKey( word );
     }
 
+    @Override
+    public boolean containsAny( final Collection<String> words ) throws PwmUnrecoverableException
+    {
+        if ( type == WordlistType.SEEDLIST )
+        {
+            throw new IllegalStateException( "unable to containWord check SEEDLIST wordlist" );
+        }
+
+        if ( words.isEmpty() )
+        {
+            return false;
+        }
+
+        return containsAnyKey( words );
+    }
+
+    @Override
+    public WordlistStatus readWordlistStatus()
+    {
+        final AppAttribute appAttribute = wordlistConfiguration.getMetaDataAppAttribute();
+        return pwmApplication.readAppAttribute( appAttribute, WordlistStatus.class )
+                .orElseGet( () -> WordlistStatus.builder().build() );
+    }
+
+    @Override
+    public void writeWordlistStatus( final WordlistStatus wordlistStatus )
+    {
+        final AppAttribute appAttribute = wordlistConfiguration.getMetaDataAppAttribute();
+        pwmApplication.writeAppAttribute( appAttribute, wordlistStatus );
+    }
+
+    @Override
+    public Optional<WordlistBloomFilter> readFilter()
+    {
+        final Optional<File> filterFile = filterFile();
+        if ( filterFile.isEmpty() || !filterFile.get().exists() )
+        {
+            return Optional.empty();
+        }
+
+        try ( InputStream inputStream = new BufferedInputStream( Files.newInputStream( filterFile.get().toPath() ) ) )
+        {
+            return Optional.of( WordlistBloomFilter.readFrom( inputStream ) );
+        }
+        catch ( final IOException e )
+        {
+            LOGGER.debug( () -> "unable to read wordlist filter file " + filterFile.get().getAbsolutePath() + ": " + e.getMessage() );
+        }
+
+        return Optional.empty();
+    }
+
+    @Override
+    public void writeFilter( final WordlistBloomFilter wordlistBloomFilter )
+            throws PwmUnrecoverableException
+    {
+        final Optional<File> filterFile = filterFile();
+        if ( filterFile.isEmpty() )
+        {
+            return;
+        }
+
+        final File tempFile = new File( filterFile.get().getAbsolutePath() + ".new" );
+        try
+        {
+            try ( OutputStream outputStream = new BufferedOutputStream( Files.newOutputStream( tempFile.toPath() ) ) )
+            {
+                wordlistBloomFilter.writeTo( outputStream );
+            }
+            Files.move( tempFile.toPath(), filterFile.get().toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch ( final IOException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, "error writing wordlist filter file: " + e.getMessage() );
+        }
+    }
+
+    @Override
+    public void importComplete()
+            throws PwmUnrecoverableException
+    {
+    }
+
+    @Override
+    public Optional<List<String>> readSourceWords( final String stamp )
+    {
+        final Optional<File> wordsFile = sourceWordsFile();
+        if ( wordsFile.isEmpty() || !wordsFile.get().exists() )
+        {
+            return Optional.empty();
+        }
+
+        try ( BufferedReader reader = Files.newBufferedReader( wordsFile.get().toPath(), StandardCharsets.UTF_8 ) )
+        {
+            if ( !stamp.equals( reader.readLine() ) )
+            {
+                return Optional.empty();
+            }
+
+            final List<String> words = new ArrayList<>();
+            String line = reader.readLine();
+            while ( line != null )
+            {
+                words.add( line );
+                line = reader.readLine();
+            }
+            return Optional.of( words );
+        }
+        catch ( final IOException e )
+        {
+            LOGGER.debug( () -> "unable to read wordlist source words file " + wordsFile.get().getAbsolutePath() + ": " + e.getMessage() );
+        }
+
+        return Optional.empty();
+    }
+
+    @Override
+    public void writeSourceWords( final String stamp, final List<String> words )
+            throws PwmUnrecoverableException
+    {
+        final Optional<File> wordsFile = sourceWordsFile();
+        if ( wordsFile.isEmpty() )
+        {
+            return;
+        }
+
+        final File tempFile = new File( wordsFile.get().getAbsolutePath() + ".new" );
+        try
+        {
+            try ( BufferedWriter writer = Files.newBufferedWriter( tempFile.toPath(), StandardCharsets.UTF_8 ) )
+            {
+                writer.write( stamp );
+                writer.newLine();
+                for ( final String word : words )
+                {
+                    writer.write( word );
+                    writer.newLine();
+                }
+            }
+            Files.move( tempFile.toPath(), wordsFile.get().toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch ( final IOException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, "error writing wordlist source words file: " + e.getMessage() );
+        }
+    }
+
+    void deleteFilter()
+            throws IOException
+    {
+        final Optional<File> filterFile = filterFile();
+        if ( filterFile.isPresent() )
+        {
+            Files.deleteIfExists( filterFile.get().toPath() );
+        }
+
+        final Optional<File> wordsFile = sourceWordsFile();
+        if ( wordsFile.isPresent() )
+        {
+            Files.deleteIfExists( wordsFile.get().toPath() );
+        }
+    }
+
+    /**
+     * Location of the persisted {@link WordlistBloomFilter}, if this bucket type supports persisting one.
+     * @return location of the filter file
+     */
+    Optional<File> filterFile()
+    {
+        return Optional.empty();
+    }
+
+    /**
+     * Location of the plain source words saved for the strength meter dictionary, if this bucket type supports saving them.
+     * @return location of the source words file
+     */
+    Optional<File> sourceWordsFile()
+    {
+        return Optional.empty();
+    }
+
     abstract void putValues( Map<String, String> values )
             throws PwmUnrecoverableException;
 
     abstract boolean containsKey( String key )
             throws PwmUnrecoverableException;
 
+    boolean containsAnyKey( final Collection<String> keys )
+            throws PwmUnrecoverableException
+    {
+        for ( final String key : keys )
+        {
+            if ( containsKey( key ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     abstract String getValue( String key )
             throws PwmUnrecoverableException;
 }
@@ -20,7 +20,6 @@
 
 package password.pwm.svc.wordlist;
 
-import password.pwm.AppAttribute;
 import password.pwm.PwmApplication;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
@@ -28,10 +27,17 @@ import password.pwm.util.java.FileSystemUtility;
 import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.localdb.LocalDBException;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
 
 class LocalDBWordlistBucket extends AbstractWordlistBucket implements WordlistBucket
 {
+    private static final String FILTER_FILE_SUFFIX = "-filter.bin";
+    private static final String SOURCE_WORDS_FILE_SUFFIX = "-words.txt";
+
     private final LocalDB.DB db;
     private final LocalDB localDB;
 
@@ -88,6 +94,20 @@ class LocalDBWordlistBucket extends AbstractWordlistBucket implements WordlistBu
         }
     }
 
+    @Override
+    boolean containsAnyKey( final Collection<String> keys )
+            throws PwmUnrecoverableException
+    {
+        try
+        {
+            return localDB.containsAny( db, keys );
+        }
+        catch ( final LocalDBException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_LOCALDB_UNAVAILABLE, e.getMessage() );
+        }
+    }
+
     @Override
     public long size() throws PwmUnrecoverableException
     {
@@ -108,31 +128,35 @@ class LocalDBWordlistBucket extends AbstractWordlistBucket implements WordlistBu
         try
         {
             localDB.truncate( db );
+            deleteFilter();
         }
-        catch ( final LocalDBException e )
+        catch ( final LocalDBException | IOException e )
         {
             throw PwmUnrecoverableException.newException( PwmError.ERROR_LOCALDB_UNAVAILABLE, e.getMessage() );
         }
     }
 
     @Override
-    public WordlistStatus readWordlistStatus()
+    public long spaceRemaining()
     {
-        final AppAttribute appAttribute = wordlistConfiguration.getMetaDataAppAttribute();
-        return pwmApplication.readAppAttribute( appAttribute, WordlistStatus.class )
-                .orElseGet( () -> WordlistStatus.builder().build() );
+        return FileSystemUtility.diskSpaceRemaining( localDB.getFileLocation() );
     }
 
     @Override
-    public void writeWordlistStatus( final WordlistStatus wordlistStatus )
+    Optional<File> filterFile()
     {
-        final AppAttribute appAttribute = wordlistConfiguration.getMetaDataAppAttribute();
-        pwmApplication.writeAppAttribute( appAttribute, wordlistStatus );
+        final File localDBLocation = localDB.getFileLocation();
+        if ( localDBLocation == null || !localDBLocation.isDirectory() )
+        {
+            return Optional.empty();
+        }
+
+        return Optional.of( new File( localDBLocation, db.name() + FILTER_FILE_SUFFIX ) );
     }
 
     @Override
-    public long spaceRemaining()
+    Optional<File> sourceWordsFile()
     {
-        return FileSystemUtility.diskSpaceRemaining( localDB.getFileLocation() );
+        return filterFile().map( filterFile -> new File( filterFile.getParentFile(), db.name() + SOURCE_WORDS_FILE_SUFFIX ) );
     }
 }
@@ -0,0 +1,648 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import password.pwm.PwmApplication;
+import password.pwm.PwmConstants;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.FileSystemUtility;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Stores each value as a truncated SHA1 hash in a sorted, fixed width file that is searched via a
+ * {@link MappedByteBuffer}, so a lookup costs O(log n) page touches and no database transaction.
+ *
+ * <p>Imported values are written as sorted run files, which are merged (with a bounded fan-in) as they accumulate
+ * and merged into the searched file once the import is complete.  Values are not searchable until then.</p>
+ */
+class MappedFileWordlistBucket extends AbstractWordlistBucket implements WordlistBucket
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( MappedFileWordlistBucket.class );
+
+    private static final String SORTED_FILE_NAME = "values.sorted";
+    private static final String FILTER_FILE_NAME = "values.filter";
+    private static final String SOURCE_WORDS_FILE_NAME = "source.words";
+    private static final String RUN_FILE_PREFIX = "run-";
+    private static final String RUN_FILE_SUFFIX = ".run";
+    private static final String TEMP_FILE_SUFFIX = ".new";
+
+    private static final int ENTRY_BYTES = Long.BYTES;
+    private static final int SEGMENT_ENTRIES = 1 << 27;
+    private static final int MERGE_FAN_IN = 32;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<KeyHasher> KEY_HASHER = ThreadLocal.withInitial( KeyHasher::new );
+
+    private final File directory;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong runCounter = new AtomicLong();
+
+    private volatile SortedValues sortedValues = SortedValues.EMPTY;
+
+    MappedFileWordlistBucket(
+            final PwmApplication pwmApplication,
+            final WordlistConfiguration wordlistConfiguration,
+            final WordlistType type,
+            final File directory
+    )
+            throws PwmUnrecoverableException
+    {
+        super( pwmApplication, wordlistConfiguration, type );
+        this.directory = directory;
+
+        if ( type != WordlistType.WORDLIST )
+        {
+            throw new IllegalStateException( "mapped file wordlist bucket can only store " + WordlistType.WORDLIST + " values" );
+        }
+
+        try
+        {
+            Files.createDirectories( directory.toPath() );
+            runCounter.set( listRunFiles().stream().mapToLong( RunFile::getSequence ).max().orElse( 0 ) );
+            this.sortedValues = SortedValues.open( sortedFile() );
+        }
+        catch ( final IOException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, "error opening mapped wordlist file: " + e.getMessage() );
+        }
+
+        if ( readWordlistStatus().isCompleted() && !listRunFiles().isEmpty() )
+        {
+            LOGGER.debug( () -> "completing merge of wordlist run files interrupted before shutdown" );
+            importComplete();
+        }
+    }
+
+    @Override
+    void putValues( final Map<String, String> values )
+            throws PwmUnrecoverableException
+    {
+        if ( values.isEmpty() )
+        {
+            return;
+        }
+
+        final long[] entries = new long[ values.size() ];
+        int index = 0;
+        for ( final String key : values.keySet() )
+        {
+            entries[ index++ ] = hashKey( key );
+        }
+        Arrays.sort( entries );
+
+        writeLock.lock();
+        try
+        {
+            final RunFile runFile = new RunFile( 0, runCounter.incrementAndGet() );
+            final File tempFile = new File( runFile.file( directory ).getAbsolutePath() + TEMP_FILE_SUFFIX );
+            writeEntries( tempFile, dataOutputStream ->
+            {
+                long lastEntry = 0;
+                for ( int i = 0; i < entries.length; i++ )
+                {
+                    if ( i == 0 || entries[ i ] != lastEntry )
+                    {
+                        dataOutputStream.writeLong( entries[ i ] );
+                        lastEntry = entries[ i ];
+                    }
+                }
+            } );
+            Files.move( tempFile.toPath(), runFile.file( directory ).toPath(), StandardCopyOption.ATOMIC_MOVE );
+
+            compactRuns();
+        }
+        catch ( final IOException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_WORDLIST_IMPORT_ERROR, "error while writing words to wordlist: " + e.getMessage() );
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    boolean containsKey( final String key )
+    {
+        return sortedValues.contains( hashKey( key ) );
+    }
+
+    @Override
+    boolean containsAnyKey( final Collection<String> keys )
+    {
+        final SortedValues currentValues = sortedValues;
+        for ( final String key : keys )
+        {
+            if ( currentValues.contains( hashKey( key ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    String getValue( final String key )
+    {
+        throw new IllegalStateException( "mapped file wordlist bucket does not store values" );
+    }
+
+    /**
+     * Number of unique values in the sorted file.  Values in run files may repeat across runs and are not searchable
+     * until {@link #importComplete()} merges them, so they are not counted.
+     * @return number of searchable values
+     */
+    @Override
+    public long size()
+    {
+        return sortedValues.getEntryCount();
+    }
+
+    @Override
+    public void clear()
+            throws PwmUnrecoverableException
+    {
+        writeLock.lock();
+        try
+        {
+            sortedValues = SortedValues.EMPTY;
+            FileSystemUtility.deleteDirectoryContentsRecursively( directory.toPath() );
+            runCounter.set( 0 );
+        }
+        catch ( final IOException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_INTERNAL, "error clearing mapped wordlist files: " + e.getMessage() );
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void importComplete()
+            throws PwmUnrecoverableException
+    {
+        writeLock.lock();
+        try
+        {
+            final Instant startTime = Instant.now();
+            final List<File> inputFiles = listRunFiles().stream()
+                    .map( runFile -> runFile.file( directory ) )
+                    .collect( Collectors.toList() );
+
+            if ( inputFiles.isEmpty() )
+            {
+                return;
+            }
+
+            if ( sortedFile().exists() )
+            {
+                inputFiles.add( sortedFile() );
+            }
+
+            final File tempFile = new File( sortedFile().getAbsolutePath() + TEMP_FILE_SUFFIX );
+            final long entryCount = mergeFiles( inputFiles, tempFile );
+            Files.move( tempFile.toPath(), sortedFile().toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+            sortedValues = SortedValues.open( sortedFile() );
+
+            for ( final RunFile runFile : listRunFiles() )
+            {
+                Files.deleteIfExists( runFile.file( directory ).toPath() );
+            }
+
+            LOGGER.debug( () -> "merged " + inputFiles.size() + " wordlist run files into sorted file with "
+                    + entryCount + " entries (" + StringUtil.formatDiskSize( sortedFile().length() ) + ")",
+                    () -> TimeDuration.fromCurrent( startTime ) );
+        }
+        catch ( final IOException e )
+        {
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_WORDLIST_IMPORT_ERROR, "error merging wordlist run files: " + e.getMessage() );
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public long spaceRemaining()
+    {
+        return FileSystemUtility.diskSpaceRemaining( directory );
+    }
+
+    @Override
+    Optional<File> filterFile()
+    {
+        return Optional.of( new File( directory, FILTER_FILE_NAME ) );
+    }
+
+    @Override
+    Optional<File> sourceWordsFile()
+    {
+        return Optional.of( new File( directory, SOURCE_WORDS_FILE_NAME ) );
+    }
+
+    private File sortedFile()
+    {
+        return new File( directory, SORTED_FILE_NAME );
+    }
+
+    /**
+     * Merge runs of the same level into a single run of the next level once there are enough of them, so the number
+     * of open files during the final merge stays bounded and each value is only rewritten once per level.
+     */
+    private void compactRuns()
+            throws IOException
+    {
+        boolean compacted;
+        do
+        {
+            compacted = false;
+            final Map<Integer, List<RunFile>> runsByLevel = listRunFiles().stream()
+                    .collect( Collectors.groupingBy( RunFile::getLevel ) );
+
+            for ( final Map.Entry<Integer, List<RunFile>> entry : runsByLevel.entrySet() )
+            {
+                if ( entry.getValue().size() >= MERGE_FAN_IN )
+                {
+                    final List<File> inputFiles = entry.getValue().stream()
+                            .map( runFile -> runFile.file( directory ) )
+                            .collect( Collectors.toList() );
+                    final RunFile outputRun = new RunFile( entry.getKey() + 1, runCounter.incrementAndGet() );
+                    final File tempFile = new File( outputRun.file( directory ).getAbsolutePath() + TEMP_FILE_SUFFIX );
+                    mergeFiles( inputFiles, tempFile );
+                    Files.move( tempFile.toPath(), outputRun.file( directory ).toPath(), StandardCopyOption.ATOMIC_MOVE );
+                    for ( final File inputFile : inputFiles )
+                    {
+                        Files.deleteIfExists( inputFile.toPath() );
+                    }
+                    compacted = true;
+                }
+            }
+        }
+        while ( compacted );
+    }
+
+    private List<RunFile> listRunFiles()
+    {
+        final File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return Collections.emptyList();
+        }
+
+        return Arrays.stream( files )
+                .map( file -> RunFile.parse( file.getName() ) )
+                .flatMap( Optional::stream )
+                .sorted( Comparator.comparingLong( RunFile::getSequence ) )
+                .collect( Collectors.toList() );
+    }
+
+    private static long mergeFiles( final List<File> inputFiles, final File outputFile )
+            throws IOException
+    {
+        final List<RunReader> readers = new ArrayList<>();
+        try
+        {
+            final PriorityQueue<RunReader> queue = new PriorityQueue<>( Comparator.comparingLong( RunReader::getCurrent ) );
+            for ( final File inputFile : inputFiles )
+            {
+                final RunReader runReader = new RunReader( inputFile );
+                readers.add( runReader );
+                if ( runReader.advance() )
+                {
+                    queue.add( runReader );
+                }
+            }
+
+            final AtomicLong entryCount = new AtomicLong();
+            writeEntries( outputFile, dataOutputStream ->
+            {
+                boolean first = true;
+                long lastEntry = 0;
+                while ( !queue.isEmpty() )
+                {
+                    final RunReader runReader = queue.poll();
+                    final long entry = runReader.getCurrent();
+                    if ( first || entry != lastEntry )
+                    {
+                        dataOutputStream.writeLong( entry );
+                        entryCount.incrementAndGet();
+                        lastEntry = entry;
+                        first = false;
+                    }
+
+                    if ( runReader.advance() )
+                    {
+                        queue.add( runReader );
+                    }
+                }
+            } );
+            return entryCount.get();
+        }
+        finally
+        {
+            for ( final RunReader runReader : readers )
+            {
+                runReader.close();
+            }
+        }
+    }
+
+    private static void writeEntries( final File file, final EntryWriter entryWriter )
+            throws IOException
+    {
+        try ( DataOutputStream dataOutputStream = new DataOutputStream( new BufferedOutputStream(
+                Files.newOutputStream( file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING ),
+                IO_BUFFER_SIZE ) ) )
+        {
+            entryWriter.write( dataOutputStream );
+        }
+    }
+
+    static long hashKey( final String key )
+    {
+        return KEY_HASHER.get().hash( key );
+    }
+
+    /**
+     * Per-thread digest and buffers, so hashing a key during import or lookup does not allocate.
+     */
+    private static class KeyHasher
+    {
+        private static final int INITIAL_KEY_BUFFER_SIZE = 256;
+
+        private final MessageDigest messageDigest;
+        private final CharsetEncoder charsetEncoder = PwmConstants.DEFAULT_CHARSET.newEncoder()
+                .onMalformedInput( CodingErrorAction.REPLACE )
+                .onUnmappableCharacter( CodingErrorAction.REPLACE );
+        private final byte[] digestBytes;
+        private ByteBuffer keyBuffer = ByteBuffer.allocate( INITIAL_KEY_BUFFER_SIZE );
+
+        KeyHasher()
+        {
+            try
+            {
+                messageDigest = MessageDigest.getInstance( "SHA1" );
+            }
+            catch ( final NoSuchAlgorithmException e )
+            {
+                throw new IllegalStateException( "SHA1 digest is not available: " + e.getMessage() );
+            }
+            digestBytes = new byte[ messageDigest.getDigestLength() ];
+        }
+
+        long hash( final String key )
+        {
+            final int maxBytes = ( int ) Math.ceil( key.length() * ( double ) charsetEncoder.maxBytesPerChar() );
+            if ( keyBuffer.capacity() < maxBytes )
+            {
+                keyBuffer = ByteBuffer.allocate( maxBytes );
+            }
+
+            keyBuffer.clear();
+            charsetEncoder.reset();
+            charsetEncoder.encode( CharBuffer.wrap( key ), keyBuffer, true );
+            charsetEncoder.flush( keyBuffer );
+            keyBuffer.flip();
+
+            messageDigest.update( keyBuffer );
+            try
+            {
+                messageDigest.digest( digestBytes, 0, digestBytes.length );
+            }
+            catch ( final DigestException e )
+            {
+                throw new IllegalStateException( "unexpected error computing SHA1 digest: " + e.getMessage() );
+            }
+
+            long value = 0;
+            for ( int i = 0; i < ENTRY_BYTES; i++ )
+            {
+                value = ( value << Byte.SIZE ) | ( digestBytes[ i ] & 0xFF );
+            }
+            return value;
+        }
+    }
+
+    private interface EntryWriter
+    {
+        void write( DataOutputStream dataOutputStream ) throws IOException;
+    }
+
+    private static class RunFile
+    {
+        private final int level;
+        private final long sequence;
+
+        RunFile( final int level, final long sequence )
+        {
+            this.level = level;
+            this.sequence = sequence;
+        }
+
+        int getLevel()
+        {
+            return level;
+        }
+
+        long getSequence()
+        {
+            return sequence;
+        }
+
+        File file( final File directory )
+        {
+            return new File( directory, RUN_FILE_PREFIX + level + "-" + sequence + RUN_FILE_SUFFIX );
+        }
+
+        static Optional<RunFile> parse( final String fileName )
+        {
+            if ( !fileName.startsWith( RUN_FILE_PREFIX ) || !fileName.endsWith( RUN_FILE_SUFFIX ) )
+            {
+                return Optional.empty();
+            }
+
+            final String[] parts = fileName.substring( RUN_FILE_PREFIX.length(), fileName.length() - RUN_FILE_SUFFIX.length() ).split( "-" );
+            if ( parts.length != 2 )
+            {
+                return Optional.empty();
+            }
+
+            try
+            {
+                return Optional.of( new RunFile( Integer.parseInt( parts[0] ), Long.parseLong( parts[1] ) ) );
+            }
+            catch ( final NumberFormatException e )
+            {
+                return Optional.empty();
+            }
+        }
+    }
+
+    private static class RunReader implements Closeable
+    {
+        private final DataInputStream dataInputStream;
+        private long current;
+
+        RunReader( final File file )
+                throws IOException
+        {
+            this.dataInputStream = new DataInputStream( new BufferedInputStream( Files.newInputStream( file.toPath() ), IO_BUFFER_SIZE ) );
+        }
+
+        boolean advance()
+                throws IOException
+        {
+            try
+            {
+                current = dataInputStream.readLong();
+                return true;
+            }
+            catch ( final EOFException e )
+            {
+                return false;
+            }
+        }
+
+        long getCurrent()
+        {
+            return current;
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            dataInputStream.close();
+        }
+    }
+
+    private static class SortedValues
+    {
+        static final SortedValues EMPTY = new SortedValues( new MappedByteBuffer[0], 0 );
+
+        private final MappedByteBuffer[] segments;
+        private final long entryCount;
+
+        private SortedValues( final MappedByteBuffer[] segments, final long entryCount )
+        {
+            this.segments = segments;
+            this.entryCount = entryCount;
+        }
+
+        static SortedValues open( final File file )
+                throws IOException
+        {
+            if ( !file.exists() )
+            {
+                return EMPTY;
+            }
+
+            try ( FileChannel fileChannel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+            {
+                final long entryCount = fileChannel.size() / ENTRY_BYTES;
+                final int segmentCount = ( int ) ( ( entryCount + SEGMENT_ENTRIES - 1 ) / SEGMENT_ENTRIES );
+                final MappedByteBuffer[] segments = new MappedByteBuffer[ segmentCount ];
+                for ( int i = 0; i < segmentCount; i++ )
+                {
+                    final long startEntry = ( long ) i * SEGMENT_ENTRIES;
+                    final long segmentEntries = Math.min( SEGMENT_ENTRIES, entryCount - startEntry );
+                    segments[ i ] = fileChannel.map( FileChannel.MapMode.READ_ONLY, startEntry * ENTRY_BYTES, segmentEntries * ENTRY_BYTES );
+                }
+                return new SortedValues( segments, entryCount );
+            }
+        }
+
+        long getEntryCount()
+        {
+            return entryCount;
+        }
+
+        boolean contains( final long value )
+        {
+            long low = 0;
+            long high = entryCount - 1;
+            while ( low <= high )
+            {
+                final long middle = ( low + high ) >>> 1;
+                final long middleValue = read( middle );
+                if ( middleValue < value )
+                {
+                    low = middle + 1;
+                }
+                else if ( middleValue > value )
+                {
+                    high = middle - 1;
+                }
+                else
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long read( final long index )
+        {
+            final MappedByteBuffer segment = segments[ ( int ) ( index / SEGMENT_ENTRIES ) ];
+            return segment.getLong( ( int ) ( index % SEGMENT_ENTRIES ) * ENTRY_BYTES );
+        }
+    }
+}
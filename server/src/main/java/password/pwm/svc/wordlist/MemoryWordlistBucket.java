@@ -24,12 +24,14 @@ import password.pwm.PwmApplication;
 import password.pwm.error.PwmUnrecoverableException;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class MemoryWordlistBucket extends AbstractWordlistBucket
 {
     private final Map<String, String> map = new ConcurrentHashMap<>(  );
     private WordlistStatus wordlistStatus;
+    private WordlistBloomFilter wordlistBloomFilter;
 
     public MemoryWordlistBucket( final PwmApplication pwmApplication, final WordlistConfiguration wordlistConfiguration, final WordlistType type )
     {
@@ -69,6 +71,7 @@ public class MemoryWordlistBucket extends AbstractWordlistBucket
             throws PwmUnrecoverableException
     {
         map.clear();
+        wordlistBloomFilter = null;
     }
 
     @Override
@@ -88,4 +91,16 @@ public class MemoryWordlistBucket extends AbstractWordlistBucket
     {
         return Long.MAX_VALUE;
     }
+
+    @Override
+    public Optional<WordlistBloomFilter> readFilter()
+    {
+        return Optional.ofNullable( wordlistBloomFilter );
+    }
+
+    @Override
+    public void writeFilter( final WordlistBloomFilter wordlistBloomFilter )
+    {
+        this.wordlistBloomFilter = wordlistBloomFilter;
+    }
 }
@@ -0,0 +1,295 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.json.JsonFactory;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/**
+ * <p>Shared history word hashes grouped into fixed width time partitions.  Each stored key is prefixed with the
+ * partition of the time it was written, and the hashes of each partition are also listed in pages of the meta db, so an
+ * expired partition can be removed by reading its pages instead of scanning and parsing every stored word.</p>
+ *
+ * <p>A word written again in a later partition gets a new key in that partition; the older key is removed when its own
+ * partition expires.</p>
+ */
+class SharedHistoryPartitions
+{
+    private static final String KEY_PARTITION_WIDTH = "partitionWidthMs";
+    private static final String KEY_CLEANED_THROUGH = "partitionCleanedThrough";
+    private static final String KEY_PAGE_PREFIX = "partition-";
+    private static final int MAX_HASHES_PER_PAGE = 500;
+
+    private final LocalDB localDB;
+    private final LocalDB.DB metaDB;
+    private final LocalDB.DB wordsDB;
+    private final long partitionWidthMs;
+
+    // guarded by this
+    private final Map<Long, OpenPage> openPages = new HashMap<>();
+    private long cleanedThrough;
+
+    private SharedHistoryPartitions(
+            final LocalDB localDB,
+            final LocalDB.DB metaDB,
+            final LocalDB.DB wordsDB,
+            final long partitionWidthMs,
+            final long cleanedThrough
+    )
+    {
+        this.localDB = localDB;
+        this.metaDB = metaDB;
+        this.wordsDB = wordsDB;
+        this.partitionWidthMs = partitionWidthMs;
+        this.cleanedThrough = cleanedThrough;
+    }
+
+    private static class OpenPage
+    {
+        private int page;
+        private Set<String> hashes;
+    }
+
+    /**
+     * Open the partitions stored in the meta db.  The partition width of existing partitions is kept, so a change of
+     * {@code partitionWidth} takes effect only after the stored words are cleared.
+     */
+    static SharedHistoryPartitions open(
+            final LocalDB localDB,
+            final LocalDB.DB metaDB,
+            final LocalDB.DB wordsDB,
+            final TimeDuration partitionWidth,
+            final Instant now
+    )
+            throws LocalDBException
+    {
+        final Optional<String> storedWidth = localDB.get( metaDB, KEY_PARTITION_WIDTH );
+        final long widthMs = storedWidth.isPresent()
+                ? Long.parseLong( storedWidth.get() )
+                : Math.max( 1, partitionWidth.asMillis() );
+
+        final Optional<String> storedCleanedThrough = localDB.get( metaDB, KEY_CLEANED_THROUGH );
+        final long cleanedThrough = storedCleanedThrough.isPresent()
+                ? Long.parseLong( storedCleanedThrough.get() )
+                : now.toEpochMilli() / widthMs - 1;
+
+        localDB.put( metaDB, KEY_PARTITION_WIDTH, Long.toString( widthMs ) );
+        localDB.put( metaDB, KEY_CLEANED_THROUGH, Long.toString( cleanedThrough ) );
+        return new SharedHistoryPartitions( localDB, metaDB, wordsDB, widthMs, cleanedThrough );
+    }
+
+    /**
+     * Remove all stored words and partition records, including the stored partition width.
+     */
+    static void clear( final LocalDB localDB, final LocalDB.DB metaDB, final LocalDB.DB wordsDB )
+            throws LocalDBException
+    {
+        localDB.truncate( wordsDB );
+
+        final List<String> removeKeys = new ArrayList<>();
+        try ( LocalDB.LocalDBIterator<Map.Entry<String, String>> iterator = localDB.iterator( metaDB ) )
+        {
+            while ( iterator.hasNext() )
+            {
+                final String key = iterator.next().getKey();
+                if ( key.startsWith( KEY_PAGE_PREFIX ) )
+                {
+                    removeKeys.add( key );
+                }
+            }
+        }
+        removeKeys.add( KEY_PARTITION_WIDTH );
+        removeKeys.add( KEY_CLEANED_THROUGH );
+        localDB.removeAll( metaDB, removeKeys );
+    }
+
+    TimeDuration getPartitionWidth()
+    {
+        return TimeDuration.of( partitionWidthMs, TimeDuration.Unit.MILLISECONDS );
+    }
+
+    /**
+     * Test a word hash against every partition overlapping the period from {@code now} minus {@code maxAge} until
+     * {@code now}, using a single lookup.  Because whole partitions are checked, words up to one partition width older
+     * than {@code maxAge} may still be found.
+     */
+    boolean contains( final String hash, final Instant now, final TimeDuration maxAge )
+            throws LocalDBException
+    {
+        final long newestPartition = partitionOf( now );
+        final long oldestPartition = Math.max( partitionOf( now.minus( maxAge.asDuration() ) ), cleanedThrough + 1 );
+
+        final List<String> keys = new ArrayList<>();
+        for ( long partition = newestPartition; partition >= oldestPartition; partition-- )
+        {
+            keys.add( wordKey( partition, hash ) );
+        }
+        return !keys.isEmpty() && localDB.containsAny( wordsDB, keys );
+    }
+
+    /**
+     * Write a batch of word hashes, each to the partition of its timestamp.  Hashes with timestamps in partitions that
+     * have already been removed are written to the oldest remaining partition.
+     *
+     * @return the number of hashes that were not already present in their partition.
+     */
+    synchronized int write( final Map<String, Instant> hashes )
+            throws LocalDBException
+    {
+        final Map<Long, Map<String, String>> partitionedWrites = new LinkedHashMap<>();
+        for ( final Map.Entry<String, Instant> entry : hashes.entrySet() )
+        {
+            final long partition = Math.max( partitionOf( entry.getValue() ), cleanedThrough + 1 );
+            partitionedWrites.computeIfAbsent( partition, k -> new LinkedHashMap<>() )
+                    .put( entry.getKey(), Long.toString( entry.getValue().toEpochMilli() ) );
+        }
+
+        int added = 0;
+        for ( final Map.Entry<Long, Map<String, String>> partitionEntry : partitionedWrites.entrySet() )
+        {
+            final long partition = partitionEntry.getKey();
+            final OpenPage openPage = openPage( partition );
+
+            final Map<String, String> wordWrites = new LinkedHashMap<>();
+            final Map<String, String> pageWrites = new LinkedHashMap<>();
+            for ( final Map.Entry<String, String> entry : partitionEntry.getValue().entrySet() )
+            {
+                final String key = wordKey( partition, entry.getKey() );
+                if ( !localDB.contains( wordsDB, key ) )
+                {
+                    if ( openPage.hashes.size() >= MAX_HASHES_PER_PAGE )
+                    {
+                        pageWrites.put( pageKey( partition, openPage.page ), JsonFactory.get().serializeCollection( openPage.hashes ) );
+                        openPage.page++;
+                        openPage.hashes = new LinkedHashSet<>();
+                    }
+                    openPage.hashes.add( entry.getKey() );
+                    added++;
+                }
+                wordWrites.put( key, entry.getValue() );
+            }
+
+            // the page is written before the words so that no stored word is ever missing from its partition's pages
+            pageWrites.put( pageKey( partition, openPage.page ), JsonFactory.get().serializeCollection( openPage.hashes ) );
+            localDB.putAll( metaDB, pageWrites );
+            localDB.putAll( wordsDB, wordWrites );
+        }
+
+        return added;
+    }
+
+    /**
+     * Remove every partition whose entire time span is before {@code expiredBefore}, oldest first.
+     *
+     * @param continueRemoving checked before each partition is removed
+     * @return the number of word hashes removed.
+     */
+    synchronized long removeExpired( final Instant expiredBefore, final BooleanSupplier continueRemoving )
+            throws LocalDBException
+    {
+        long removed = 0;
+        final long lastExpiredPartition = partitionOf( expiredBefore ) - 1;
+        for ( long partition = cleanedThrough + 1; partition <= lastExpiredPartition && continueRemoving.getAsBoolean(); partition++ )
+        {
+            final List<String> pageKeys = new ArrayList<>();
+            for ( Optional<String> value = localDB.get( metaDB, pageKey( partition, pageKeys.size() ) );
+                  value.isPresent();
+                  value = localDB.get( metaDB, pageKey( partition, pageKeys.size() ) ) )
+            {
+                final List<String> wordKeys = new ArrayList<>();
+                for ( final String hash : JsonFactory.get().deserializeStringList( value.get() ) )
+                {
+                    wordKeys.add( wordKey( partition, hash ) );
+                }
+                localDB.removeAll( wordsDB, wordKeys );
+                removed += wordKeys.size();
+                pageKeys.add( pageKey( partition, pageKeys.size() ) );
+            }
+
+            localDB.removeAll( metaDB, pageKeys );
+            openPages.remove( partition );
+            cleanedThrough = partition;
+            localDB.put( metaDB, KEY_CLEANED_THROUGH, Long.toString( cleanedThrough ) );
+        }
+        return removed;
+    }
+
+    /**
+     * @return start time of the oldest partition that has not been removed.
+     */
+    synchronized Instant oldestPartitionStart()
+    {
+        return Instant.ofEpochMilli( ( cleanedThrough + 1 ) * partitionWidthMs );
+    }
+
+    private OpenPage openPage( final long partition )
+            throws LocalDBException
+    {
+        final OpenPage existing = openPages.get( partition );
+        if ( existing != null )
+        {
+            return existing;
+        }
+
+        final OpenPage openPage = new OpenPage();
+        while ( localDB.contains( metaDB, pageKey( partition, openPage.page + 1 ) ) )
+        {
+            openPage.page++;
+        }
+        openPage.hashes = new LinkedHashSet<>( localDB.get( metaDB, pageKey( partition, openPage.page ) )
+                .map( value -> JsonFactory.get().deserializeStringList( value ) )
+                .orElse( Collections.emptyList() ) );
+
+        // words are almost always written with current timestamps, so only the newest partition is kept open
+        openPages.keySet().removeIf( openPartition -> openPartition < partition );
+        openPages.put( partition, openPage );
+        return openPage;
+    }
+
+    private long partitionOf( final Instant timestamp )
+    {
+        return timestamp.toEpochMilli() / partitionWidthMs;
+    }
+
+    private static String wordKey( final long partition, final String hash )
+    {
+        return partition + ":" + hash;
+    }
+
+    private static String pageKey( final long partition, final int page )
+    {
+        return KEY_PAGE_PREFIX + partition + "-" + page;
+    }
+}
@@ -36,7 +36,9 @@ import password.pwm.health.HealthRecord;
 import password.pwm.svc.AbstractPwmService;
 import password.pwm.svc.PwmService;
 import password.pwm.util.PwmScheduler;
+import password.pwm.util.java.CollectionUtil;
 import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.StatisticCounterBundle;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.localdb.LocalDB;
 import password.pwm.util.localdb.LocalDBException;
@@ -47,10 +49,12 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -64,7 +68,7 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
     private static final String KEY_VERSION = "version";
     private static final String KEY_SALT = "salt";
 
-    private static final String DATA_FORMAT_VERSION = "2";
+    private static final String DATA_FORMAT_VERSION = "3";
 
     // 1 hour
     private static final int MIN_CLEANER_FREQUENCY = 1000 * 60 * 60;
@@ -72,6 +76,8 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
     // 1 day
     private static final int MAX_CLEANER_FREQUENCY = 1000 * 60 * 60 * 24;
 
+    private static final TimeDuration MIN_PARTITION_WIDTH = TimeDuration.MINUTE;
+
     private static final LocalDB.DB META_DB = LocalDB.DB.SHAREDHISTORY_META;
     private static final LocalDB.DB WORDS_DB = LocalDB.DB.SHAREDHISTORY_WORDS;
 
@@ -80,9 +86,24 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
     private LocalDB localDB;
     private String salt;
     private long oldestEntry;
+    private volatile SharedHistoryPartitions partitions;
 
     private Settings settings = Settings.builder().build();
-    private final Lock addWordLock = new ReentrantLock();
+
+    // normalized words and the time they were added, waiting to be hashed and written by the background executor
+    private final Map<String, Instant> pendingWords = new ConcurrentHashMap<>();
+    private final Lock writeLock = new ReentrantLock();
+    private final StatisticCounterBundle<DebugKey> stats = new StatisticCounterBundle<>( DebugKey.class );
+
+    enum DebugKey
+    {
+        wordsQueued,
+        wordsWritten,
+        wordsDiscarded,
+        wordsRemoved,
+        writeBatches,
+        inlineWrites,
+    }
 
     public SharedHistoryService( )
     {
@@ -96,6 +117,7 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
         {
             executorService.shutdown();
         }
+        writePendingWords();
         localDB = null;
     }
 
@@ -113,30 +135,23 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
             return false;
         }
 
-        //final long startTime = System.currentTimeMillis();
+        if ( pendingWords.containsKey( testWord ) )
+        {
+            return true;
+        }
+
         boolean result = false;
 
         try
         {
             final String hashedWord = hashWord( testWord );
-            final Optional<String> storedValue = localDB.get( WORDS_DB, hashedWord );
-            if ( storedValue.isPresent() )
-            {
-                final Instant timeStamp = Instant.ofEpochMilli( Long.parseLong(  storedValue.get() ) );
-                final TimeDuration entryAge = TimeDuration.between( Instant.now(), timeStamp );
-                if ( entryAge.isLongerThan( settings.getMaxAge( ) ) )
-                {
-                    result = true;
-                }
-            }
-
+            result = partitions.contains( hashedWord, Instant.now(), settings.getMaxAge() );
         }
         catch ( final Exception e )
         {
             LOGGER.warn( getSessionLabel(), () -> "error checking global history list: " + e.getMessage() );
         }
 
-        //LOGGER.trace(pwmSession, "successfully checked word, result=" + result + ", duration=" + new TimeDuration(System.currentTimeMillis(), startTime).asCompactString());
         return result;
     }
 
@@ -181,7 +196,7 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
         if ( !result )
         {
             LOGGER.info( getSessionLabel(), () -> "existing db version does not match current db version db=(" + versionInDB + ")  current=(" + currentVersion + "), clearing db" );
-            localDB.truncate( WORDS_DB );
+            SharedHistoryPartitions.clear( localDB, META_DB, WORDS_DB );
             localDB.put( META_DB, KEY_VERSION, currentVersion );
             localDB.remove( META_DB, KEY_OLDEST_ENTRY );
         }
@@ -209,6 +224,8 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
 
         try
         {
+            partitions = SharedHistoryPartitions.open( localDB, META_DB, WORDS_DB, settings.getPartitionWidth(), Instant.now() );
+
             final Optional<String> oldestEntryStr = localDB.get( META_DB, KEY_OLDEST_ENTRY );
             if ( oldestEntryStr.isPresent() )
             {
@@ -218,12 +235,12 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
             else
             {
                 oldestEntry = 0;
-                LOGGER.trace( getSessionLabel(), () -> "no oldestEntry timestamp stored, will rescan" );
-                }
+                LOGGER.trace( getSessionLabel(), () -> "no oldestEntry timestamp stored" );
+            }
         }
         catch ( final LocalDBException e )
         {
-            LOGGER.error( () -> "unexpected error loading oldest-entry meta record, will remain closed: " + e.getMessage(), e );
+            LOGGER.error( () -> "unexpected error loading meta records, will remain closed: " + e.getMessage(), e );
             setStatus( STATUS.CLOSED );
             return;
         }
@@ -233,6 +250,7 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
             final long size = localDB.size( WORDS_DB );
             LOGGER.debug( getSessionLabel(), () -> "open with " + size + " words"
                     + ", maxAgeMs=" + maxAge.asCompactString()
+                    + ", partitionWidth=" + partitions.getPartitionWidth().asCompactString()
                     + ", oldestEntry=" + TimeDuration.fromCurrent( oldestEntry ).asCompactString(),
                     () -> TimeDuration.fromCurrent( startTime ) );
         }
@@ -243,18 +261,18 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
             return;
         }
 
-        setStatus( STATUS.OPEN );
-        //populateFromWordlist();  //only used for debugging!!!
-
         if ( pwmApplication.getApplicationMode() == PwmApplicationMode.RUNNING || pwmApplication.getApplicationMode() == PwmApplicationMode.CONFIGURATION )
         {
-            final long frequencyMs = JavaHelper.rangeCheck( MIN_CLEANER_FREQUENCY, MAX_CLEANER_FREQUENCY, maxAge.asMillis() );
+            final long frequencyMs = JavaHelper.rangeCheck( MIN_CLEANER_FREQUENCY, MAX_CLEANER_FREQUENCY, partitions.getPartitionWidth().asMillis() );
             final TimeDuration frequency = TimeDuration.of( frequencyMs, TimeDuration.Unit.MILLISECONDS );
 
             LOGGER.debug( () -> "scheduling cleaner task to run once every " + frequency.asCompactString() );
             executorService = PwmScheduler.makeBackgroundExecutor( pwmApplication, this.getClass() );
             pwmApplication.getPwmScheduler().scheduleFixedRateJob( new CleanerTask(), executorService, null, frequency );
+            pwmApplication.getPwmScheduler().scheduleFixedRateJob( this::writePendingWords, executorService, null, settings.getWriteInterval() );
         }
+
+        setStatus( STATUS.OPEN );
     }
 
     private String normalizeWord( final String input )
@@ -274,6 +292,10 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
         return word.length() > 0 ? word : null;
     }
 
+    /**
+     * Queue a word to be added to the history.  Words are hashed and written in batches by the background executor, or
+     * by the calling thread if no executor is running or the queue has reached its maximum size.
+     */
     public void addWord(
             final SessionLabel sessionLabel,
             final String word
@@ -291,27 +313,80 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
             return;
         }
 
-        final Instant startTime = Instant.now();
+        pendingWords.put( addWord, Instant.now() );
+        stats.increment( DebugKey.wordsQueued );
+
+        if ( executorService == null || pendingWords.size() >= settings.getMaxPendingWords() )
+        {
+            stats.increment( DebugKey.inlineWrites );
+            writePendingWords();
+        }
+    }
+
+    private void writePendingWords( )
+    {
+        writeLock.lock();
+        try
+        {
+            while ( !pendingWords.isEmpty() && localDB != null && partitions != null )
+            {
+                final Map<String, Instant> batch = new LinkedHashMap<>();
+                for ( final Map.Entry<String, Instant> entry : pendingWords.entrySet() )
+                {
+                    if ( batch.size() >= settings.getWriteBatchSize() )
+                    {
+                        break;
+                    }
+                    batch.put( entry.getKey(), entry.getValue() );
+                }
+
+                if ( !writeBatch( batch ) )
+                {
+                    return;
+                }
+            }
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
 
-        addWordLock.lock();
+    private boolean writeBatch( final Map<String, Instant> batch )
+    {
+        final Instant startTime = Instant.now();
         try
         {
-            final String hashedWord = hashWord( addWord );
+            final Map<String, Instant> hashedWords = new LinkedHashMap<>();
+            for ( final Map.Entry<String, Instant> entry : batch.entrySet() )
+            {
+                hashedWords.put( hashWord( entry.getKey() ), entry.getValue() );
+            }
 
-            final boolean preExisting = localDB.contains( WORDS_DB, hashedWord );
-            localDB.put( WORDS_DB, hashedWord, Long.toString( System.currentTimeMillis() ) );
+            final int added = partitions.write( hashedWords );
+            if ( oldestEntry == 0 )
+            {
+                oldestEntry = Collections.min( batch.values() ).toEpochMilli();
+                localDB.put( META_DB, KEY_OLDEST_ENTRY, Long.toString( oldestEntry ) );
+            }
 
-            LOGGER.trace( () -> ( preExisting ? "updated" : "added" ) + " word"
+            stats.increment( DebugKey.wordsWritten, batch.size() );
+            stats.increment( DebugKey.writeBatches );
+            LOGGER.trace( () -> "wrote " + batch.size() + " words (" + added + " added)"
                     + " (" + TimeDuration.compactFromCurrent( startTime ) + ")"
                     + " (" + this.size() + " total words)" );
+            return true;
         }
         catch ( final Exception e )
         {
-            LOGGER.warn( sessionLabel, () -> "error adding word to global history list: " + e.getMessage() );
+            // the batch is dropped so a failing store can not grow the queue without bound
+            stats.increment( DebugKey.wordsDiscarded, batch.size() );
+            LOGGER.warn( getSessionLabel(), () -> "error adding " + batch.size() + " words to global history list, words will be discarded: " + e.getMessage() );
+            return false;
         }
         finally
         {
-            addWordLock.unlock();
+            batch.forEach( pendingWords::remove );
         }
     }
 
@@ -354,73 +429,28 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
                 throws LocalDBException
         {
 
-            if ( localDB == null || localDB.status() != LocalDB.Status.OPEN )
+            if ( localDB == null || localDB.status() != LocalDB.Status.OPEN || partitions == null )
             {
                 return;
             }
 
-            final long oldestEntryAge = System.currentTimeMillis() - oldestEntry;
-            if ( settings.getMaxAge().isLongerThan( oldestEntryAge ) )
-
-                {
-                LOGGER.debug( getSessionLabel(), () -> "skipping wordDB reduce operation, eldestEntry="
-                        + TimeDuration.asCompactString( oldestEntryAge )
-                        + ", maxAge="
-                        + settings.getMaxAge().asCompactString() );
-                return;
-            }
-
             final Instant startTime = Instant.now();
-            final long initialSize = size();
-            int removeCount = 0;
-            long localOldestEntry = System.currentTimeMillis();
+            final Instant expiredBefore = startTime.minus( settings.getMaxAge().asDuration() );
 
-            LOGGER.debug( getSessionLabel(), () -> "beginning wordDB reduce operation, examining " + initialSize
-                    + " words for entries older than " + settings.getMaxAge().asCompactString() );
-
-
-            try ( LocalDB.LocalDBIterator<Map.Entry<String, String>> keyIterator = localDB.iterator( WORDS_DB ) )
-            {
-                while ( status() == STATUS.OPEN && keyIterator.hasNext() )
-                {
-                    final Map.Entry<String, String> entry = keyIterator.next();
-                    final String key = entry.getKey();
-                    final String value = entry.getValue();
-                    final long timeStamp = Long.parseLong( value );
-                    final long entryAge = System.currentTimeMillis() - timeStamp;
-
-                    if ( settings.getMaxAge().isLongerThan( entryAge ) )
-                    {
-                        localDB.remove( WORDS_DB, key );
-                        removeCount++;
-
-                        if ( removeCount % 1000 == 0 )
-                        {
-                            final int finalRemove = removeCount;
-                            LOGGER.trace( getSessionLabel(), () -> "wordDB reduce operation in progress, removed=" + finalRemove + ", total=" + ( initialSize - finalRemove ) );
-                        }
-                    }
-                    else
-                    {
-                        localOldestEntry = timeStamp < localOldestEntry ? timeStamp : localOldestEntry;
-                    }
-                }
-            }
+            final long removeCount = partitions.removeExpired( expiredBefore, () -> status() == STATUS.OPEN );
+            stats.increment( DebugKey.wordsRemoved, removeCount );
 
             //update the oldest entry
-            if ( status() == STATUS.OPEN )
+            if ( status() == STATUS.OPEN && removeCount > 0 )
             {
-                oldestEntry = localOldestEntry;
+                oldestEntry = Math.max( oldestEntry, partitions.oldestPartitionStart().toEpochMilli() );
                 localDB.put( META_DB, KEY_OLDEST_ENTRY, Long.toString( oldestEntry ) );
             }
 
-            {
-                final int finalRemove = removeCount;
-                LOGGER.debug( getSessionLabel(), () -> "completed wordDB reduce operation" + ", removed=" + finalRemove
-                        + ", totalRemaining=" + size()
-                        + ", oldestEntry=" + TimeDuration.asCompactString( oldestEntry )
-                        + " in ", () -> TimeDuration.fromCurrent( startTime ) );
-            }
+            LOGGER.debug( getSessionLabel(), () -> "completed wordDB reduce operation" + ", removed=" + removeCount
+                    + ", totalRemaining=" + size()
+                    + ", oldestEntry=" + TimeDuration.fromCurrent( oldestEntry ).asCompactString()
+                    + " in ", () -> TimeDuration.fromCurrent( startTime ) );
         }
     }
 
@@ -469,7 +499,8 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
             LOGGER.trace( getSessionLabel(), () -> "clearing wordlist" );
             try
             {
-                localDB.truncate( WORDS_DB );
+                SharedHistoryPartitions.clear( localDB, META_DB, WORDS_DB );
+                localDB.remove( META_DB, KEY_OLDEST_ENTRY );
             }
             catch ( final Exception e )
             {
@@ -494,6 +525,10 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
         private final int hashIterations;
         private final TimeDuration maxAge;
         private final boolean caseInsensitive;
+        private final TimeDuration partitionWidth;
+        private final TimeDuration writeInterval;
+        private final int writeBatchSize;
+        private final int maxPendingWords;
 
         public String getVersion()
         {
@@ -504,13 +539,21 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
         {
             final AppConfig config = pwmApplication.getConfig();
 
+            final TimeDuration maxAge = TimeDuration.of( config.getDomainConfigs().get( DomainID.DOMAIN_ID_DEFAULT )
+                    .readSettingAsLong( PwmSetting.PASSWORD_SHAREDHISTORY_MAX_AGE ), TimeDuration.Unit.SECONDS );
+            final int partitionCount = Math.max( 1, Integer.parseInt( config.readAppProperty( AppProperty.SECURITY_SHAREDHISTORY_PARTITION_COUNT ) ) );
+            final long partitionWidthMs = Math.max( MIN_PARTITION_WIDTH.asMillis(), maxAge.asMillis() / partitionCount );
 
             return Settings.builder()
-                    .maxAge( TimeDuration.of( config.getDomainConfigs().get( DomainID.DOMAIN_ID_DEFAULT )
-                            .readSettingAsLong( PwmSetting.PASSWORD_SHAREDHISTORY_MAX_AGE ), TimeDuration.Unit.SECONDS ) )
+                    .maxAge( maxAge )
                     .caseInsensitive( Boolean.parseBoolean( config.readAppProperty( AppProperty.SECURITY_SHAREDHISTORY_CASE_INSENSITIVE ) ) )
                     .hashName( config.readAppProperty( AppProperty.SECURITY_SHAREDHISTORY_HASH_NAME ) )
                     .hashIterations( Integer.parseInt( config.readAppProperty( AppProperty.SECURITY_SHAREDHISTORY_HASH_ITERATIONS ) ) )
+                    .partitionWidth( TimeDuration.of( partitionWidthMs, TimeDuration.Unit.MILLISECONDS ) )
+                    .writeInterval( TimeDuration.of( Long.parseLong( config.readAppProperty( AppProperty.SECURITY_SHAREDHISTORY_WRITE_INTERVAL_MS ) ),
+                            TimeDuration.Unit.MILLISECONDS ) )
+                    .writeBatchSize( Math.max( 1, Integer.parseInt( config.readAppProperty( AppProperty.SECURITY_SHAREDHISTORY_WRITE_BATCH_SIZE ) ) ) )
+                    .maxPendingWords( Integer.parseInt( config.readAppProperty( AppProperty.SECURITY_SHAREDHISTORY_MAX_PENDING_WORDS ) ) )
                     .build();
         }
     }
@@ -520,7 +563,13 @@ public class SharedHistoryService extends AbstractPwmService implements PwmServi
     {
         if ( status() == STATUS.OPEN )
         {
-            return ServiceInfoBean.builder().storageMethod( DataStorageMethod.LOCALDB ).build();
+            return ServiceInfoBean.builder()
+                    .storageMethod( DataStorageMethod.LOCALDB )
+                    .debugProperties( CollectionUtil.combineMaps( List.of(
+                            stats.debugStats(),
+                            Map.of( "pendingWords", String.valueOf( pendingWords.size() ),
+                                    "partitionWidth", partitions.getPartitionWidth().asCompactString() ) ) ) )
+                    .build();
         }
         else
         {
@@ -26,6 +26,7 @@ import password.pwm.svc.PwmService;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 
 public interface Wordlist extends PwmService
@@ -49,6 +50,9 @@ public interface Wordlist extends PwmService
 
     String getImportPercentComplete();
 
+    List<String> readSourceWords( int maxWords )
+            throws IOException, PwmUnrecoverableException;
+
     enum Activity
     {
         Idle( "Idle" ),
@@ -0,0 +1,230 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import password.pwm.util.java.JavaHelper;
+import password.pwm.util.java.StringUtil;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Memory resident bloom filter of the values stored in a {@link WordlistBucket}.  A negative
+ * {@link #mightContain(String)} result is definitive, so callers can skip the bucket read entirely.  Instances
+ * are populated by a single thread during import and are then only read, so no synchronization is used.
+ */
+class WordlistBloomFilter
+{
+    private static final int FILE_MAGIC = 0x50574246;
+    private static final int FILE_VERSION = 1;
+
+    private static final long SEED_1 = 0x9E3779B97F4A7C15L;
+    private static final long SEED_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private static final int MIN_HASH_FUNCTIONS = 1;
+    private static final int MAX_HASH_FUNCTIONS = 16;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashFunctions;
+    private final String configHash;
+
+    private long valueCount;
+    private long elementCount;
+
+    private WordlistBloomFilter( final long[] bits, final int hashFunctions, final String configHash )
+    {
+        this.bits = bits;
+        this.bitCount = ( long ) bits.length * Long.SIZE;
+        this.hashFunctions = hashFunctions;
+        this.configHash = configHash;
+    }
+
+    static WordlistBloomFilter create(
+            final long expectedElements,
+            final double falsePositiveRate,
+            final long maxBytes,
+            final String configHash
+    )
+    {
+        final double ln2 = Math.log( 2 );
+        final double bitsPerElement = -Math.log( falsePositiveRate ) / ( ln2 * ln2 );
+        final long maxBits = Math.max( Long.SIZE, maxBytes * Byte.SIZE );
+
+        // when the element count is unknown, size for as many elements as the maximum size allows at the requested rate
+        final long elements = expectedElements > 0
+                ? expectedElements
+                : Math.max( 1, ( long ) ( maxBits / bitsPerElement ) );
+        final long optimalBits = ( long ) Math.ceil( elements * bitsPerElement );
+        final long bitsToUse = Math.min( Math.max( Long.SIZE, optimalBits ), maxBits );
+        final int words = ( int ) Math.min( Integer.MAX_VALUE - 8, ( bitsToUse + Long.SIZE - 1 ) / Long.SIZE );
+        final int hashFunctions = JavaHelper.rangeCheck(
+                MIN_HASH_FUNCTIONS,
+                MAX_HASH_FUNCTIONS,
+                ( int ) Math.round( ( ( double ) words * Long.SIZE / elements ) * ln2 ) );
+        return new WordlistBloomFilter( new long[ words ], hashFunctions, configHash );
+    }
+
+    void put( final String value )
+    {
+        final long hash1 = hash( value, SEED_1 );
+        final long hash2 = hash( value, SEED_2 );
+        for ( int i = 0; i < hashFunctions; i++ )
+        {
+            final long bitIndex = Long.remainderUnsigned( hash1 + i * hash2, bitCount );
+            bits[ ( int ) ( bitIndex >>> 6 ) ] |= 1L << bitIndex;
+        }
+        elementCount++;
+    }
+
+    boolean mightContain( final String value )
+    {
+        final long hash1 = hash( value, SEED_1 );
+        final long hash2 = hash( value, SEED_2 );
+        for ( int i = 0; i < hashFunctions; i++ )
+        {
+            final long bitIndex = Long.remainderUnsigned( hash1 + i * hash2, bitCount );
+            if ( ( bits[ ( int ) ( bitIndex >>> 6 ) ] & ( 1L << bitIndex ) ) == 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the filter as matching a bucket holding {@code valueCount} values.
+     * @param valueCount value count of the completed {@link WordlistStatus}
+     */
+    void setValueCount( final long valueCount )
+    {
+        this.valueCount = valueCount;
+    }
+
+    boolean matchesStatus( final WordlistStatus wordlistStatus, final WordlistConfiguration wordlistConfiguration )
+    {
+        return wordlistStatus != null
+                && wordlistStatus.isCompleted()
+                && wordlistStatus.getValueCount() == valueCount
+                && Objects.equals( configHash, wordlistStatus.getConfigHash() )
+                && Objects.equals( configHash, wordlistConfiguration.configHash() );
+    }
+
+    long byteSize()
+    {
+        return ( long ) bits.length * Long.BYTES;
+    }
+
+    double expectedFalsePositiveRate()
+    {
+        return Math.pow( 1 - Math.exp( -( double ) hashFunctions * elementCount / bitCount ), hashFunctions );
+    }
+
+    Map<String, String> debugMap()
+    {
+        final Map<String, String> debugMap = new LinkedHashMap<>();
+        debugMap.put( "FilterSize", StringUtil.formatDiskSize( byteSize() ) );
+        debugMap.put( "FilterHashFunctions", Integer.toString( hashFunctions ) );
+        debugMap.put( "FilterElements", Long.toString( elementCount ) );
+        debugMap.put( "FilterExpectedFalsePositiveRate", String.format( "%.6f", expectedFalsePositiveRate() ) );
+        return debugMap;
+    }
+
+    void writeTo( final OutputStream outputStream )
+            throws IOException
+    {
+        final DataOutputStream dataOutputStream = new DataOutputStream( outputStream );
+        dataOutputStream.writeInt( FILE_MAGIC );
+        dataOutputStream.writeInt( FILE_VERSION );
+        dataOutputStream.writeUTF( configHash == null ? "" : configHash );
+        dataOutputStream.writeLong( valueCount );
+        dataOutputStream.writeLong( elementCount );
+        dataOutputStream.writeInt( hashFunctions );
+        dataOutputStream.writeInt( bits.length );
+        for ( final long word : bits )
+        {
+            dataOutputStream.writeLong( word );
+        }
+        dataOutputStream.flush();
+    }
+
+    static WordlistBloomFilter readFrom( final InputStream inputStream )
+            throws IOException
+    {
+        final DataInputStream dataInputStream = new DataInputStream( inputStream );
+        if ( dataInputStream.readInt() != FILE_MAGIC )
+        {
+            throw new IOException( "wordlist filter data has unknown format" );
+        }
+
+        final int version = dataInputStream.readInt();
+        if ( version != FILE_VERSION )
+        {
+            throw new IOException( "wordlist filter data has unsupported version " + version );
+        }
+
+        final String configHash = dataInputStream.readUTF();
+        final long valueCount = dataInputStream.readLong();
+        final long elementCount = dataInputStream.readLong();
+        final int hashFunctions = dataInputStream.readInt();
+        final int words = dataInputStream.readInt();
+        if ( words <= 0 || hashFunctions < MIN_HASH_FUNCTIONS || hashFunctions > MAX_HASH_FUNCTIONS )
+        {
+            throw new IOException( "wordlist filter data header is invalid" );
+        }
+
+        final long[] bits = new long[ words ];
+        for ( int i = 0; i < words; i++ )
+        {
+            bits[ i ] = dataInputStream.readLong();
+        }
+
+        final WordlistBloomFilter filter = new WordlistBloomFilter( bits, hashFunctions, configHash );
+        filter.valueCount = valueCount;
+        filter.elementCount = elementCount;
+        return filter;
+    }
+
+    private static long hash( final String value, final long seed )
+    {
+        long hash = seed ^ ( value.length() * SEED_1 );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            hash ^= value.charAt( i );
+            hash *= 0xFF51AFD7ED558CCDL;
+            hash = Long.rotateLeft( hash, 31 );
+        }
+
+        // murmur3 finalizer
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
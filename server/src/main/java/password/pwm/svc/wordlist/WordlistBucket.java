@@ -23,12 +23,23 @@ package password.pwm.svc.wordlist;
 import password.pwm.error.PwmUnrecoverableException;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface WordlistBucket
 {
     boolean containsWord( String hashWord )
             throws PwmUnrecoverableException;
 
+    /**
+     * Test a set of values in a single bucket read.
+     * @param hashWords values to test
+     * @return true if any of the values are contained in the bucket
+     * @throws PwmUnrecoverableException if the bucket can not be read
+     */
+    boolean containsAny( Collection<String> hashWords )
+            throws PwmUnrecoverableException;
+
     String randomSeed() throws PwmUnrecoverableException;
 
     void addWords( Collection<String> words, AbstractWordlist abstractWordlist )
@@ -43,4 +54,22 @@ public interface WordlistBucket
     void writeWordlistStatus( WordlistStatus wordlistStatus );
 
     long spaceRemaining();
+
+    Optional<WordlistBloomFilter> readFilter();
+
+    void writeFilter( WordlistBloomFilter wordlistBloomFilter )
+            throws PwmUnrecoverableException;
+
+    void importComplete()
+            throws PwmUnrecoverableException;
+
+    /**
+     * Read plain source words previously saved with {@link #writeSourceWords(String, List)}.
+     * @param stamp value identifying the source and configuration the words must have been read from
+     * @return the saved words, or empty if no words are saved for the stamp
+     */
+    Optional<List<String>> readSourceWords( String stamp );
+
+    void writeSourceWords( String stamp, List<String> words )
+            throws PwmUnrecoverableException;
 }
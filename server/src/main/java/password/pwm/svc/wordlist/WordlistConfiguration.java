@@ -51,6 +51,7 @@ public class WordlistConfiguration implements Serializable
 
     static final int STREAM_BUFFER_SIZE = 1_1024_1024;
     static final PwmHashAlgorithm HASH_ALGORITHM = PwmHashAlgorithm.SHA256;
+    static final double DEFAULT_FILTER_FALSE_POSITIVE_RATE = 0.01;
 
     private final boolean caseSensitive;
     private final int checkSize;
@@ -79,8 +80,20 @@ public class WordlistConfiguration implements Serializable
     private final long importMaxChars;
     private final long importMinFreeSpace;
 
+    // pipeline tuning does not affect the stored values, so it is excluded from the config hash
+    private final transient int importThreads;
+    private final transient int importBatchLines;
+
     private final TimeDuration inspectorFrequency;
 
+    // the bucket type is recorded in the stored wordlist status, so it is excluded from the config hash
+    private final transient WordlistBucketType bucketType;
+
+    // filter settings apply when the next import builds a filter, so they are excluded from the config hash
+    private final transient boolean filterEnabled;
+    private final transient double filterFalsePositiveRate;
+    private final transient long filterMaxBytes;
+
     static WordlistConfiguration fromConfiguration(
             final AppConfig appConfig,
             final WordlistType type
@@ -109,6 +122,10 @@ public class WordlistConfiguration implements Serializable
                         .builtInWordlistLocationProperty( AppProperty.WORDLIST_BUILTIN_PATH )
                         .db( LocalDB.DB.WORDLIST_WORDS )
                         .wordlistFilenameSetting( PwmSetting.WORDLIST_FILENAME )
+                        .bucketType( JavaHelper.readEnumFromString(
+                                WordlistBucketType.class,
+                                WordlistBucketType.LOCALDB,
+                                appConfig.readAppProperty( AppProperty.WORDLIST_BUCKET_TYPE ) ) )
                         .build();
             }
 
@@ -139,9 +156,31 @@ public class WordlistConfiguration implements Serializable
                 .importMinFreeSpace( JavaHelper.silentParseLong( appConfig.readAppProperty( AppProperty.WORDLIST_IMPORT_MIN_FREE_SPACE ), 100_000_000 ) )
                 .importPauseDuration( appConfig.readDurationAppProperty( AppProperty.WORDLIST_IMPORT_PAUSE_DURATION_MS ) )
                 .importPauseFrequency( appConfig.readDurationAppProperty( AppProperty.WORDLIST_IMPORT_PAUSE_FREQUENCY_MS ) )
+                .importThreads( readImportThreads( appConfig ) )
+                .importBatchLines( Math.max( 1, Integer.parseInt( appConfig.readAppProperty( AppProperty.WORDLIST_IMPORT_BATCH_LINES ) ) ) )
+                .filterEnabled( Boolean.parseBoolean( appConfig.readAppProperty( AppProperty.WORDLIST_FILTER_ENABLE ) ) )
+                .filterFalsePositiveRate( readFilterFalsePositiveRate( appConfig ) )
+                .filterMaxBytes( JavaHelper.silentParseLong( appConfig.readAppProperty( AppProperty.WORDLIST_FILTER_MAX_BYTES ), 67_108_864 ) )
                 .build();
     }
 
+    static double readFilterFalsePositiveRate( final AppConfig appConfig )
+    {
+        final double rate = JavaHelper.silentParseDouble(
+                appConfig.readAppProperty( AppProperty.WORDLIST_FILTER_FALSE_POSITIVE_RATE ),
+                DEFAULT_FILTER_FALSE_POSITIVE_RATE );
+        return rate > 0 && rate < 1 ? rate : DEFAULT_FILTER_FALSE_POSITIVE_RATE;
+    }
+
+    private static int readImportThreads( final AppConfig appConfig )
+    {
+        // zero indicates one worker per available processor, leaving a processor for the reader and writer stages
+        final int configuredThreads = Integer.parseInt( appConfig.readAppProperty( AppProperty.WORDLIST_IMPORT_THREADS ) );
+        return configuredThreads > 0
+                ? configuredThreads
+                : Math.max( 1, Runtime.getRuntime().availableProcessors() - 1 );
+    }
+
     private static String readAutoImportUrl(
             final AppConfig appConfig,
             final PwmSetting wordlistFileSetting
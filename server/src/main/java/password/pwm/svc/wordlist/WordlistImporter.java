@@ -20,12 +20,15 @@
 
 package password.pwm.svc.wordlist;
 
+import lombok.Getter;
+import lombok.Value;
 import org.apache.commons.io.IOUtils;
 import password.pwm.error.ErrorInformation;
 import password.pwm.error.PwmError;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.TransactionSizeCalculator;
 import password.pwm.util.java.ConditionalTaskExecutor;
+import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.MiscUtil;
 import password.pwm.util.json.JsonFactory;
 import password.pwm.util.java.Percent;
@@ -35,22 +38,45 @@ import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BooleanSupplier;
 
 /**
+ * <p>Imports a wordlist zip into a {@link WordlistBucket} using a three stage pipeline.  A single reader thread
+ * decompresses lines from the {@link WordlistZipReader} into batches, a pool of worker threads normalizes and chunks
+ * each batch, and the importing thread acts as the writer, consuming the converted batches in their original order
+ * and committing them to the bucket in transactions.</p>
+ *
+ * <p>Because batches are committed in order, the line count of the last committed batch is an exact resume point.
+ * It is checkpointed to the {@link WordlistStatus} after every transaction, so an interrupted import continues at the
+ * first line that was not yet stored.</p>
+ *
  * @author Jason D. Rivard
  */
 class WordlistImporter implements Runnable
 {
+    private static final int QUEUED_BATCHES_PER_THREAD = 4;
+
     private final WordlistZipReader zipFileReader;
     private final WordlistSourceType sourceType;
     private final AbstractWordlist rootWordlist;
@@ -67,9 +93,14 @@ class WordlistImporter implements Runnable
     private ErrorInformation exitError;
     private Instant startTime = Instant.now();
     private long bytesSkipped;
+    private long resumeLines;
+    private long resumeBytes;
+    private long committedLines;
+    private long committedBytes;
     private TimeDuration previousImportDuration;
     private final Map<WordType, LongAdder> seenWordTypes = new EnumMap<>( WordType.class );
     private boolean completed;
+    private WordlistBloomFilter wordlistBloomFilter;
 
     private enum StatKey
     {
@@ -199,6 +230,7 @@ class WordlistImporter implements Runnable
         previousImportDuration = TimeDuration.of( rootWordlist.readWordlistStatus().getImportMs(), TimeDuration.Unit.MILLISECONDS );
 
         final long previousBytesRead = rootWordlist.readWordlistStatus().getBytes();
+        final long previousLinesRead = rootWordlist.readWordlistStatus().getLines();
 
         for ( final Map.Entry<WordType, Long> entry : rootWordlist.readWordlistStatus().getWordTypes().entrySet() )
         {
@@ -207,13 +239,26 @@ class WordlistImporter implements Runnable
             seenWordTypes.put( entry.getKey(), longAdder );
         }
 
-        if ( previousBytesRead == 0 )
+        rootWordlist.setWordlistBloomFilter( null );
+        wordlistBloomFilter = makeBloomFilter();
+
+        if ( previousBytesRead == 0 && previousLinesRead == 0 )
         {
             rootWordlist.clearImpl( Wordlist.Activity.Importing );
         }
-        else if ( previousBytesRead > 0 )
+        else
         {
-            skipForward( previousBytesRead );
+            // status written before line checkpoints were recorded can only be resumed using the byte count
+            resumeLines = previousLinesRead;
+            resumeBytes = previousLinesRead > 0 ? 0 : previousBytesRead;
+            committedLines = previousLinesRead;
+            committedBytes = previousBytesRead;
+
+            getLogger().debug( rootWordlist.getSessionLabel(), () -> "will skip forward "
+                    + ( previousLinesRead > 0
+                    ? MiscUtil.forDefaultLocale().format( previousLinesRead ) + " lines"
+                    : StringUtil.formatDiskSizeforDebug( previousBytesRead ) )
+                    + " in wordlist that has been previously imported" );
         }
     }
 
@@ -222,14 +267,11 @@ class WordlistImporter implements Runnable
     {
         rootWordlist.setActivity( Wordlist.Activity.Importing );
 
-        final ConditionalTaskExecutor metaUpdater = ConditionalTaskExecutor.forPeriodicTask(
-                this::writeCurrentWordlistStatus,
-                TimeDuration.SECONDS_10.asDuration() );
-
         final ConditionalTaskExecutor debugOutputter = ConditionalTaskExecutor.forPeriodicTask(
                 () -> getLogger().debug( rootWordlist.getSessionLabel(), this::makeStatString ),
                 AbstractWordlist.DEBUG_OUTPUT_FREQUENCY.asDuration() );
 
+        ExecutorService executorService = null;
         try
         {
             debugOutputter.conditionallyExecuteTask();
@@ -239,83 +281,323 @@ class WordlistImporter implements Runnable
             startTime = Instant.now();
 
             getLogger().debug( rootWordlist.getSessionLabel(), () -> "beginning import: " + JsonFactory.get().serialize( rootWordlist.readWordlistStatus() ) );
-            Instant lastTxnInstant = Instant.now();
 
-            final long importMaxChars = rootWordlist.getConfiguration().getImportMaxChars();
+            final int workerThreads = rootWordlist.getConfiguration().getImportThreads();
+            final BlockingQueue<Future<ConvertedBatch>> batchQueue = new ArrayBlockingQueue<>( workerThreads * QUEUED_BATCHES_PER_THREAD );
+            executorService = makeExecutorService( workerThreads );
+            final ExecutorService workerExecutor = executorService;
+            executorService.execute( () -> readLines( batchQueue, workerExecutor ) );
+
+            writeBatches( batchQueue, debugOutputter );
+
+            cancelCheck();
+            populationComplete();
+        }
+        finally
+        {
+            if ( executorService != null )
+            {
+                executorService.shutdownNow();
+                JavaHelper.closeAndWaitExecutor( executorService, TimeDuration.SECONDS_10 );
+            }
+            IOUtils.closeQuietly( zipFileReader );
+        }
+    }
+
+    private ExecutorService makeExecutorService( final int workerThreads )
+    {
+        // one additional thread is used by the reader stage
+        final int threads = workerThreads + 1;
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                1,
+                TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(),
+                rootWordlist.makeImportThreadFactory() );
+    }
+
+    /**
+     * Reader stage, reads lines from the zip and submits batches of them to the worker threads.  The pending results
+     * are queued in line order, followed by a final {@link ConvertedBatch#END_OF_INPUT} marker.
+     */
+    private void readLines( final BlockingQueue<Future<ConvertedBatch>> batchQueue, final ExecutorService workerExecutor )
+    {
+        final int batchLines = rootWordlist.getConfiguration().getImportBatchLines();
+
+        try
+        {
+            List<String> lines = new ArrayList<>( batchLines );
+            boolean skipping = false;
 
             String line;
             do
             {
+                final long bytesBeforeLine = zipFileReader.getByteCount();
                 line = zipFileReader.nextLine();
                 if ( line != null )
                 {
-                    addLine( line );
+                    final boolean skipLine = zipFileReader.getLineCount() <= resumeLines || bytesBeforeLine < resumeBytes;
 
-                    debugOutputter.conditionallyExecuteTask();
+                    if ( skipLine != skipping && !lines.isEmpty() )
+                    {
+                        submitBatch( batchQueue, workerExecutor, lines, skipping );
+                        lines = new ArrayList<>( batchLines );
+                    }
+                    skipping = skipLine;
 
-                    if (
-                            bufferedWords.size() > transactionCalculator.getTransactionSize()
-                                    || charsInBuffer > importMaxChars
-                    )
+                    // previously imported values are not stored in the bucket again, but are needed by the filter
+                    if ( !skipLine || wordlistBloomFilter != null )
                     {
-                        flushBuffer();
-                        metaUpdater.conditionallyExecuteTask();
-                        checkWordlistSpaceRemaining();
+                        lines.add( line );
+                    }
 
-                        importStatistics.update( StatKey.msPerTransaction, TimeDuration.fromCurrent( lastTxnInstant ).asMillis() );
-                        pauseTimer.conditionallyExecuteTask();
-                        lastTxnInstant = Instant.now();
+                    if ( lines.size() >= batchLines )
+                    {
+                        submitBatch( batchQueue, workerExecutor, lines, skipping );
+                        lines = new ArrayList<>( batchLines );
                     }
 
-                    cancelCheck();
+                    if ( cancelFlag.getAsBoolean() )
+                    {
+                        batchQueue.put( CompletableFuture.failedFuture( new CancellationException() ) );
+                        return;
+                    }
                 }
             }
             while ( line != null );
 
+            submitBatch( batchQueue, workerExecutor, lines, skipping );
+            batchQueue.put( CompletableFuture.completedFuture( ConvertedBatch.END_OF_INPUT ) );
+        }
+        catch ( final InterruptedException e )
+        {
+            // writer stage has stopped
+            Thread.currentThread().interrupt();
+        }
+        catch ( final PwmUnrecoverableException | RuntimeException e )
+        {
+            try
+            {
+                putFailure( batchQueue, e );
+            }
+            catch ( final InterruptedException e2 )
+            {
+                // writer stage has stopped
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Queue a reader failure for the writer stage.  The queue is bounded, so this blocks until the writer has
+     * taken the batches ahead of it rather than dropping the failure and leaving the writer waiting forever.
+     */
+    static <T> void putFailure( final BlockingQueue<Future<T>> batchQueue, final Exception e )
+            throws InterruptedException
+    {
+        batchQueue.put( CompletableFuture.failedFuture( e ) );
+    }
+
+    private void submitBatch(
+            final BlockingQueue<Future<ConvertedBatch>> batchQueue,
+            final ExecutorService workerExecutor,
+            final List<String> lines,
+            final boolean skipped
+    )
+            throws InterruptedException
+    {
+        final LineBatch lineBatch = new LineBatch( lines, skipped, zipFileReader.getLineCount(), zipFileReader.getByteCount() );
+        batchQueue.put( CompletableFuture.supplyAsync( () -> convertBatch( lineBatch ), workerExecutor ) );
+    }
+
+    /**
+     * Worker stage, normalizes and chunks the lines of a batch.  Runs concurrently, so only batch local state is modified.
+     */
+    private ConvertedBatch convertBatch( final LineBatch lineBatch )
+    {
+        final ConvertedBatch convertedBatch = new ConvertedBatch( lineBatch );
+        for ( final String line : lineBatch.getLines() )
+        {
+            convertedBatch.getWords().addAll( convertLine( line, convertedBatch ) );
+        }
+        return convertedBatch;
+    }
+
+    /**
+     * Writer stage, commits the converted batches in line order and checkpoints the import position after each transaction.
+     */
+    private void writeBatches(
+            final BlockingQueue<Future<ConvertedBatch>> batchQueue,
+            final ConditionalTaskExecutor debugOutputter
+    )
+            throws PwmUnrecoverableException
+    {
+        final long importMaxChars = rootWordlist.getConfiguration().getImportMaxChars();
+        Instant lastTxnInstant = Instant.now();
+        LineBatch bufferedPosition = null;
+
+        ConvertedBatch convertedBatch = nextBatch( batchQueue );
+        while ( convertedBatch != ConvertedBatch.END_OF_INPUT )
+        {
+            addToBloomFilter( convertedBatch.getWords() );
+
+            if ( convertedBatch.getLineBatch().isSkipped() )
+            {
+                bytesSkipped = convertedBatch.getLineBatch().getEndByteCount();
+            }
+            else
+            {
+                addBatch( convertedBatch );
+                bufferedPosition = convertedBatch.getLineBatch();
+
+                if (
+                        bufferedWords.size() > transactionCalculator.getTransactionSize()
+                                || charsInBuffer > importMaxChars
+                )
+                {
+                    flushBuffer();
+                    commitPosition( bufferedPosition );
+                    checkWordlistSpaceRemaining();
+
+                    importStatistics.update( StatKey.msPerTransaction, TimeDuration.fromCurrent( lastTxnInstant ).asMillis() );
+                    pauseTimer.conditionallyExecuteTask();
+                    lastTxnInstant = Instant.now();
+                }
+            }
+
+            debugOutputter.conditionallyExecuteTask();
             cancelCheck();
-            populationComplete();
+
+            convertedBatch = nextBatch( batchQueue );
         }
-        finally
+
+        flushBuffer();
+        if ( bufferedPosition != null )
         {
-            IOUtils.closeQuietly( zipFileReader );
+            commitPosition( bufferedPosition );
         }
     }
 
-    private void addLine( final String input )
+    static <T> T nextBatch( final BlockingQueue<Future<T>> batchQueue )
+            throws PwmUnrecoverableException
+    {
+        try
+        {
+            return batchQueue.take().get();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof PwmUnrecoverableException )
+            {
+                throw ( PwmUnrecoverableException ) cause;
+            }
+            if ( cause instanceof CancellationException )
+            {
+                throw ( CancellationException ) cause;
+            }
+            throw PwmUnrecoverableException.newException( PwmError.ERROR_WORDLIST_IMPORT_ERROR, "error reading wordlist: " + cause.getMessage() );
+        }
+    }
+
+    private void commitPosition( final LineBatch lineBatch )
+    {
+        committedLines = lineBatch.getEndLineCount();
+        committedBytes = lineBatch.getEndByteCount();
+        writeCurrentWordlistStatus();
+    }
+
+    private void addBatch( final ConvertedBatch convertedBatch )
+    {
+        incrementCharBufferCounter( convertedBatch.getWords() );
+        bufferedWords.addAll( convertedBatch.getWords() );
+
+        for ( final Map.Entry<WordType, Long> entry : convertedBatch.getWordTypes().entrySet() )
+        {
+            seenWordTypes.computeIfAbsent( entry.getKey(), t -> new LongAdder() ).add( entry.getValue() );
+        }
+
+        if ( convertedBatch.getRawWords() > 0 )
+        {
+            importStatistics.update( StatKey.averageWordLength, convertedBatch.getRawWordChars() / convertedBatch.getRawWords() );
+            importStatistics.update( StatKey.chunksPerWord, convertedBatch.getRawChunks() / convertedBatch.getRawWords() );
+        }
+    }
+
+    private Collection<String> convertLine( final String input, final ConvertedBatch convertedBatch )
     {
         if ( StringUtil.isEmpty( input ) )
         {
-            return;
+            return Collections.emptySet();
         }
 
         if ( checkIfCommentLine( input ) )
         {
-            return;
+            return Collections.emptySet();
         }
 
         final WordType wordType = WordType.determineWordType( input );
-        seenWordTypes.computeIfAbsent( wordType, t -> new LongAdder() ).increment();
+        convertedBatch.getWordTypes().merge( wordType, 1L, Long::sum );
 
         if ( wordType == WordType.RAW )
         {
-            WordlistUtil.normalizeWordLength( input, rootWordlist.getConfiguration() ).ifPresent( word ->
+            final Optional<String> word = WordlistUtil.normalizeWordLength( input, rootWordlist.getConfiguration() );
+            if ( word.isEmpty() )
             {
-                final String normalizedWord = wordType.convertInputFromWordlist( this.rootWordlist.getConfiguration(), word );
-                final Set<String> words = WordlistUtil.chunkWord( normalizedWord, rootWordlist.getConfiguration().getCheckSize() );
-                importStatistics.update( StatKey.averageWordLength, normalizedWord.length() );
-                importStatistics.update( StatKey.chunksPerWord, words.size() );
-                incrementCharBufferCounter( words );
-                bufferedWords.addAll( words );
-            } );
+                return Collections.emptySet();
+            }
+
+            final String normalizedWord = wordType.convertInputFromWordlist( this.rootWordlist.getConfiguration(), word.get() );
+            final Set<String> words = WordlistUtil.chunkWord( normalizedWord, rootWordlist.getConfiguration().getCheckSize() );
+            convertedBatch.addRawWord( normalizedWord.length(), words.size() );
+            return words;
         }
-        else
+
+        final String normalizedWord = wordType.convertInputFromWordlist( this.rootWordlist.getConfiguration(), input );
+        return Collections.singleton( normalizedWord );
+    }
+
+    private void addToBloomFilter( final Collection<String> words )
+    {
+        if ( wordlistBloomFilter != null )
         {
-            final String normalizedWord = wordType.convertInputFromWordlist( this.rootWordlist.getConfiguration(), input );
-            incrementCharBufferCounter( Collections.singleton( normalizedWord ) );
-            bufferedWords.add( normalizedWord );
+            for ( final String word : words )
+            {
+                wordlistBloomFilter.put( word );
+            }
         }
     }
 
+    private WordlistBloomFilter makeBloomFilter()
+    {
+        final WordlistConfiguration wordlistConfiguration = rootWordlist.getConfiguration();
+        if ( !wordlistConfiguration.isFilterEnabled() || rootWordlist.getWordlistType() != WordlistType.WORDLIST )
+        {
+            return null;
+        }
+
+        // without chunking each line yields at most one value, otherwise the byte count bounds the number of chunks
+        long expectedElements = 0;
+        if ( wordlistSourceInfo != null )
+        {
+            expectedElements = wordlistConfiguration.getCheckSize() == 0
+                    ? wordlistSourceInfo.getLines()
+                    : wordlistSourceInfo.getBytes();
+        }
+
+        return WordlistBloomFilter.create(
+                expectedElements,
+                wordlistConfiguration.getFilterFalsePositiveRate(),
+                wordlistConfiguration.getFilterMaxBytes(),
+                wordlistConfiguration.configHash() );
+    }
+
     private void incrementCharBufferCounter( final Collection<String> words )
     {
         for ( final String word : words )
@@ -342,11 +624,9 @@ class WordlistImporter implements Runnable
     {
         final Instant startTime = Instant.now();
 
-        //add the elements
+        //add the elements, the caller checks for cancellation once their position is committed so they are not imported again
         wordlistBucket.addWords( bufferedWords, rootWordlist );
 
-        cancelCheck();
-
         //mark how long the buffer close took
         final TimeDuration commitTime = TimeDuration.fromCurrent( startTime );
         transactionCalculator.recordLastTransactionDuration( commitTime );
@@ -362,16 +642,29 @@ class WordlistImporter implements Runnable
     private void populationComplete( )
             throws PwmUnrecoverableException
     {
-        flushBuffer();
+        wordlistBucket.importComplete();
         getLogger().info( this::makeStatString );
         final long wordlistSize = wordlistBucket.size();
 
         getLogger().info( rootWordlist.getSessionLabel(), () -> "population complete, added " + wordlistSize
                 + " total words", this::getImportDuration );
 
+        if ( wordlistBloomFilter != null )
+        {
+            wordlistBloomFilter.setValueCount( rootWordlist.readWordlistStatus().getValueCount() );
+            wordlistBucket.writeFilter( wordlistBloomFilter );
+        }
+
         completed = true;
         writeCurrentWordlistStatus();
 
+        if ( wordlistBloomFilter != null )
+        {
+            rootWordlist.setWordlistBloomFilter( wordlistBloomFilter );
+            getLogger().debug( rootWordlist.getSessionLabel(), () -> "wordlist filter populated: "
+                    + StringUtil.mapToString( wordlistBloomFilter.debugMap() ) );
+        }
+
         getLogger().debug( rootWordlist.getSessionLabel(), () -> "final post-population status: " + JsonFactory.get().serialize( rootWordlist.readWordlistStatus() ) );
     }
 
@@ -385,36 +678,6 @@ class WordlistImporter implements Runnable
         return exitError;
     }
 
-    private void skipForward( final long previousBytesRead )
-            throws PwmUnrecoverableException
-    {
-        final Instant startSkipTime = Instant.now();
-
-        if ( previousBytesRead > 0 )
-        {
-            final ConditionalTaskExecutor debugOutputter = ConditionalTaskExecutor.forPeriodicTask(
-                    () -> getLogger().debug( rootWordlist.getSessionLabel(), () -> "continuing skipping forward in wordlist: "
-                            + StringUtil.formatDiskSizeforDebug( zipFileReader.getByteCount() )
-                            + " of " + StringUtil.formatDiskSizeforDebug( previousBytesRead )
-                            + " (" + TimeDuration.compactFromCurrent( startSkipTime ) + ")" ),
-                    AbstractWordlist.DEBUG_OUTPUT_FREQUENCY.asDuration() );
-
-
-            getLogger().debug( rootWordlist.getSessionLabel(), () -> "will skip forward " + StringUtil.formatDiskSizeforDebug( previousBytesRead )
-                    + " in wordlist that has been previously imported" );
-
-            while ( bytesSkipped < previousBytesRead )
-            {
-                zipFileReader.nextLine();
-                bytesSkipped = zipFileReader.getByteCount();
-                debugOutputter.conditionallyExecuteTask();
-                cancelCheck();
-            }
-            getLogger().debug( rootWordlist.getSessionLabel(), () -> "skipped forward " + StringUtil.formatDiskSizeforDebug( previousBytesRead )
-                    + " in stream (" + TimeDuration.fromCurrent( startSkipTime ).asCompactString() + ")" );
-        }
-    }
-
     private String makeStatString()
     {
         return StringUtil.mapToString( makeStatValues() );
@@ -495,12 +758,14 @@ class WordlistImporter implements Runnable
         rootWordlist.writeWordlistStatus( rootWordlist.readWordlistStatus().toBuilder()
                 .remoteInfo( wordlistSourceInfo )
                 .configHash( rootWordlist.getConfiguration().configHash() )
+                .bucketType( rootWordlist.getBucketType() )
                 .storeDate( now )
                 .checkDate( now )
                 .sourceType( sourceType )
                 .completed( completed )
                 .wordTypes( outputWordTypeMap )
-                .bytes( zipFileReader.getByteCount() )
+                .bytes( committedBytes )
+                .lines( committedLines )
                 .importMs( getImportDuration().asMillis() )
                 .build() );
     }
@@ -526,4 +791,38 @@ class WordlistImporter implements Runnable
     {
         return TimeDuration.fromCurrent( startTime ).add( previousImportDuration );
     }
+
+    @Value
+    private static class LineBatch
+    {
+        private final List<String> lines;
+        private final boolean skipped;
+        private final long endLineCount;
+        private final long endByteCount;
+    }
+
+    @Getter
+    private static class ConvertedBatch
+    {
+        static final ConvertedBatch END_OF_INPUT = new ConvertedBatch( new LineBatch( Collections.emptyList(), true, 0, 0 ) );
+
+        private final LineBatch lineBatch;
+        private final List<String> words = new ArrayList<>();
+        private final Map<WordType, Long> wordTypes = new EnumMap<>( WordType.class );
+        private long rawWords;
+        private long rawWordChars;
+        private long rawChunks;
+
+        ConvertedBatch( final LineBatch lineBatch )
+        {
+            this.lineBatch = lineBatch;
+        }
+
+        void addRawWord( final int wordLength, final int chunks )
+        {
+            rawWords++;
+            rawWordChars += wordLength;
+            rawChunks += chunks;
+        }
+    }
 }
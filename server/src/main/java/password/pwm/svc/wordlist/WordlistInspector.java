@@ -189,6 +189,17 @@ class WordlistInspector implements Runnable
             return true;
         }
 
+        // statuses stored before the bucket type was recorded were always stored in localDB
+        final WordlistBucketType storedBucketType = wordlistStatus.getBucketType() == null
+                ? WordlistBucketType.LOCALDB
+                : wordlistStatus.getBucketType();
+        if ( storedBucketType != rootWordlist.getBucketType() )
+        {
+            getLogger().debug( rootWordlist.getSessionLabel(), () -> "stored bucket type '" + storedBucketType
+                    + "' does not match current bucket type '" + rootWordlist.getBucketType() + "', will clear" );
+            return true;
+        }
+
         switch ( wordlistStatus.getSourceType() )
         {
             case AutoImport:
@@ -46,6 +46,9 @@ class WordlistStatistics
         chunkChecks,
         chunkHits,
         chunkMisses,
+        filterHits,
+        filterMisses,
+        filterFalsePositives,
     }
 
     enum AverageStat
@@ -43,9 +43,11 @@ public class WordlistStatus implements Serializable
     private Instant checkDate;
     private WordlistSourceInfo remoteInfo;
     private long bytes;
+    private long lines;
     private long valueCount;
     private long importMs;
     private String configHash;
+    private WordlistBucketType bucketType;
 
     @Builder.Default
     private Map<WordType, Long> wordTypes = new HashMap<>();
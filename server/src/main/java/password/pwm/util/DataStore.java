@@ -52,6 +52,15 @@ public interface DataStore
     boolean put( String key, String value )
             throws PwmDataStoreException, PwmUnrecoverableException;
 
+    default void putAll( final Map<String, String> keyValueMap )
+            throws PwmDataStoreException, PwmUnrecoverableException
+    {
+        for ( final Map.Entry<String, String> entry : keyValueMap.entrySet() )
+        {
+            put( entry.getKey(), entry.getValue() );
+        }
+    }
+
     boolean putIfAbsent( String key, String value )
             throws PwmDataStoreException, PwmUnrecoverableException;
 
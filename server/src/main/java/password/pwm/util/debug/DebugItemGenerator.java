@@ -68,6 +68,7 @@ public class DebugItemGenerator
             RootFileSystemDebugItemGenerator.class,
             StatisticsDataDebugItemGenerator.class,
             StatisticsEpsDataDebugItemGenerator.class,
+            MacroDebugItemGenerator.class,
             BuildManifestDebugItemGenerator.class );
 
     private static final List<Class<? extends DomainItemGenerator>> DOMAIN_ITEM_GENERATORS = List.of(
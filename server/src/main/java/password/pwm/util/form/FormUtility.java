@@ -323,7 +323,7 @@ public class FormUtility
 
         final int resultSearchSizeLimit = 1 + ( excludeDN == null ? 0 : excludeDN.size() );
         final long cacheLifetimeMS = Long.parseLong( pwmDomain.getConfig().readAppProperty( AppProperty.CACHE_FORM_UNIQUE_VALUE_LIFETIME_MS ) );
-        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpirationMS( cacheLifetimeMS );
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpirationMS( cacheLifetimeMS ).withImmutablePayload();
 
         try
         {
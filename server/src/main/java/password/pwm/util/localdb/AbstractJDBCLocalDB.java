@@ -37,9 +37,11 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Instant;
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -54,6 +56,7 @@ public abstract class AbstractJDBCLocalDB implements LocalDBProvider
     private static final String KEY_COLUMN = "id";
     private static final String VALUE_COLUMN = "value";
     private static final int ITERATOR_LIMIT = 100;
+    private static final int IN_CLAUSE_LIMIT = 500;
 
     private static final String WIDTH_KEY = String.valueOf( LocalDB.MAX_KEY_LENGTH );
 
@@ -244,6 +247,61 @@ public abstract class AbstractJDBCLocalDB implements LocalDBProvider
         return get( db, key ).isPresent();
     }
 
+    @Override
+    public boolean containsAny( final LocalDB.DB db, final Collection<String> keys )
+            throws LocalDBException
+    {
+        preCheck( false );
+        final List<String> keyList = new ArrayList<>( keys );
+
+        try
+        {
+            lock.readLock().lock();
+            for ( int offset = 0; offset < keyList.size(); offset += IN_CLAUSE_LIMIT )
+            {
+                final List<String> subList = keyList.subList( offset, Math.min( keyList.size(), offset + IN_CLAUSE_LIMIT ) );
+                if ( containsAnyImpl( db, subList ) )
+                {
+                    return true;
+                }
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        return false;
+    }
+
+    private boolean containsAnyImpl( final LocalDB.DB db, final List<String> keys )
+            throws LocalDBException
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append( "SELECT " + KEY_COLUMN + " FROM " ).append( db.toString() ).append( " WHERE " + KEY_COLUMN + " IN (" );
+        for ( int i = 0; i < keys.size(); i++ )
+        {
+            sb.append( i == 0 ? "?" : ",?" );
+        }
+        sb.append( ')' );
+
+        try ( PreparedStatement statement = dbConnection.prepareStatement( sb.toString() ) )
+        {
+            for ( int i = 0; i < keys.size(); i++ )
+            {
+                statement.setString( i + 1, keys.get( i ) );
+            }
+            statement.setMaxRows( 1 );
+            try ( ResultSet resultSet = statement.executeQuery() )
+            {
+                return resultSet.next();
+            }
+        }
+        catch ( final SQLException ex )
+        {
+            throw new LocalDBException( new ErrorInformation( PwmError.ERROR_LOCALDB_UNAVAILABLE, ex.getMessage() ) );
+        }
+    }
+
     @Override
     public Optional<String> get( final LocalDB.DB db, final String key )
             throws LocalDBException
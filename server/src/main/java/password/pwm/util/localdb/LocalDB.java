@@ -59,6 +59,19 @@ public interface LocalDB
     boolean contains( DB db, String key )
             throws LocalDBException;
 
+    /**
+     * Test if any of the supplied keys are present in a database.  Implementations resolve the entire
+     * key set within a single read operation.
+     *
+     * @param db   database to perform the operation on
+     * @param keys keys to test
+     * @return true if at least one of the keys exists in the database
+     * @throws LocalDBException if there is an error reading from the store
+     */
+    @ReadOperation
+    boolean containsAny( DB db, Collection<String> keys )
+            throws LocalDBException;
+
     @ReadOperation
     Optional<String> get( DB db, String key )
             throws LocalDBException;
@@ -133,6 +146,7 @@ public interface LocalDB
         OTP_SECRET( Flag.Backup ),
         TOKENS( Flag.Backup ),
         INTRUDER( Flag.Backup ),
+        INTRUDER_EXPIRY( Flag.Backup ),
         AUDIT_QUEUE( Flag.Backup ),
         AUDIT_EVENTS( Flag.Backup ),
         USER_CACHE( Flag.Backup ),
@@ -63,6 +63,7 @@ public class LocalDBDataStore implements DataStore
         return localDB.iterator( db );
     }
 
+    @Override
     public void putAll( final Map<String, String> keyValueMap ) throws PwmDataStoreException
     {
         localDB.putAll( db, keyValueMap );
@@ -49,6 +49,10 @@ public interface LocalDBProvider
     boolean contains( LocalDB.DB db, String key )
             throws LocalDBException;
 
+    @LocalDB.ReadOperation
+    boolean containsAny( LocalDB.DB db, Collection<String> keys )
+            throws LocalDBException;
+
     @LocalDB.ReadOperation
     Optional<String> get( LocalDB.DB db, String key )
             throws LocalDBException;
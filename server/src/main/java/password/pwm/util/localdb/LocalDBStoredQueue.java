@@ -20,12 +20,14 @@
 
 package password.pwm.util.localdb;
 
+import lombok.Value;
 import password.pwm.PwmApplication;
 import password.pwm.util.java.CollectionUtil;
 import password.pwm.util.java.ConditionalTaskExecutor;
 import password.pwm.util.java.TimeDuration;
 import password.pwm.util.logging.PwmLogger;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -39,9 +41,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -60,7 +60,17 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
     private static final String KEY_HEAD_POSITION = "_HEAD_POSITION";
     private static final String KEY_TAIL_POSITION = "_TAIL_POSITION";
     private static final String KEY_VERSION = "_KEY_VERSION";
-    private static final String VALUE_VERSION = "7a";
+    private static final String KEY_LEGACY_CLEANUP = "_LEGACY_CLEANUP";
+    private static final String KEY_QUEUE_STATE = "_QUEUE_STATE";
+    private static final String VALUE_VERSION = "8a";
+    private static final String LEGACY_VALUE_VERSION = "7a";
+
+    private static final String BLOCK_KEY_PREFIX = "B";
+    private static final char BLOCK_LENGTH_SEPARATOR = ':';
+    private static final int MAX_BLOCK_VALUES = 100;
+    private static final int MAX_BLOCK_LENGTH = 32 * 1024;
+    private static final int MIGRATION_WRITE_BATCH_SIZE = 10;
+    private static final int LEGACY_REMOVAL_BATCH_SIZE = 1000;
 
     private final InternalQueue internalQueue;
 
@@ -133,14 +143,7 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
     @Override
     public boolean isEmpty( )
     {
-        try
-        {
-            return internalQueue.size() == 0;
-        }
-        catch ( final LocalDBException e )
-        {
-            throw new IllegalStateException( e );
-        }
+        return internalQueue.size() == 0;
     }
 
     @Override
@@ -257,15 +260,8 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
     @Override
     public int size( )
     {
-        try
-        {
-            final long realSize = internalQueue.size();
-            return realSize >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) realSize;
-        }
-        catch ( final LocalDBException e )
-        {
-            throw new IllegalStateException( e );
-        }
+        final long realSize = internalQueue.size();
+        return realSize >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) realSize;
     }
 
     @Override
@@ -468,7 +464,7 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
     }
 
     @Override
-    public Iterator<String> descendingIterator( )
+    public QueueIterator descendingIterator( )
     {
         try
         {
@@ -481,7 +477,7 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
     }
 
     @Override
-    public Iterator<String> iterator( )
+    public QueueIterator iterator( )
     {
         try
         {
@@ -536,28 +532,53 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
         return internalQueue.localDB;
     }
 
-    private static class InnerIterator implements Iterator<String>
+    /**
+     * Queue iterator that can step over values without returning them.
+     */
+    public interface QueueIterator extends Iterator<String>
+    {
+        /**
+         * Advance past values without returning them.  Values are stepped over by index within each block; blocks passed
+         * through are still read because a block's value count is only known from its content.
+         *
+         * @param count maximum number of values to skip
+         * @return number of values skipped, less than {@code count} only if the end of the queue was reached.
+         */
+        long skip( long count );
+    }
+
+    private static class InnerIterator implements QueueIterator
     {
-        private final AtomicReference<Position> position = new AtomicReference<>();
         private final InternalQueue internalQueue;
         private final boolean headFirst;
-
-        private final Position initialPosition;
-        private final AtomicLong itemsRemaining = new AtomicLong();
         private final Lock lock = new ReentrantLock();
 
+        private Position position;
+        private List<String> blockValues = Collections.emptyList();
+        private int blockIndex;
+        private long itemsRemaining;
+
         private InnerIterator( final InternalQueue internalQueue, final boolean headFirst )
                 throws LocalDBException
         {
             this.internalQueue = internalQueue;
             this.headFirst = headFirst;
-            this.initialPosition = internalQueue.size() == 0
-                    ? null
-                    : headFirst
-                            ? internalQueue.headPosition
-                            : internalQueue.tailPosition;
-            position.set( initialPosition );
-            itemsRemaining.set( internalQueue.size() );
+
+            internalQueue.lock.readLock().lock();
+            try
+            {
+                itemsRemaining = internalQueue.size;
+                if ( itemsRemaining > 0 )
+                {
+                    position = headFirst ? internalQueue.headPosition : internalQueue.tailPosition;
+                    loadBlock();
+                    settle();
+                }
+            }
+            finally
+            {
+                internalQueue.lock.readLock().unlock();
+            }
         }
 
         @Override
@@ -566,7 +587,7 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
             lock.lock();
             try
             {
-                return position.get() != null;
+                return position != null;
             }
             finally
             {
@@ -588,34 +609,100 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
             }
         }
 
+        @Override
+        public long skip( final long count )
+        {
+            lock.lock();
+            try
+            {
+                long skipped = 0;
+                while ( position != null && skipped < count )
+                {
+                    final int blockRemaining = headFirst ? blockIndex + 1 : blockValues.size() - blockIndex;
+                    final int step = ( int ) Math.min( Math.min( blockRemaining, count - skipped ), itemsRemaining );
+                    blockIndex += headFirst ? -step : step;
+                    itemsRemaining -= step;
+                    skipped += step;
+
+                    internalQueue.lock.readLock().lock();
+                    try
+                    {
+                        settle();
+                    }
+                    catch ( final LocalDBException e )
+                    {
+                        throw new IllegalStateException( "unexpected localDB error while iterating queue: " + e.getMessage(), e );
+                    }
+                    finally
+                    {
+                        internalQueue.lock.readLock().unlock();
+                    }
+                }
+                return skipped;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
         private String nextImpl()
         {
-            if ( position.get() == null )
+            if ( position == null )
             {
                 throw new NoSuchElementException();
             }
-            itemsRemaining.decrementAndGet();
+
+            final String nextValue = blockValues.get( blockIndex );
+            blockIndex += headFirst ? -1 : 1;
+            itemsRemaining--;
+
+            internalQueue.lock.readLock().lock();
             try
             {
-                final String nextValue = internalQueue.localDB.get( internalQueue.db, position.get().key() ).orElseThrow();
-                if ( headFirst )
-                {
-                    position.updateAndGet( position -> Objects.equals( position, internalQueue.tailPosition ) ? null : position.previous() );
-                }
-                else
-                {
-                    position.updateAndGet( position -> Objects.equals( position, internalQueue.headPosition ) ? null : position.next() );
-                }
-                if ( itemsRemaining.get() <= 0 || Objects.equals( position.get(), initialPosition ) )
-                {
-                    position.set( null );
-                }
-                return nextValue;
+                settle();
             }
             catch ( final LocalDBException e )
             {
                 throw new IllegalStateException( "unexpected localDB error while iterating queue: " + e.getMessage(), e );
             }
+            finally
+            {
+                internalQueue.lock.readLock().unlock();
+            }
+
+            return nextValue;
+        }
+
+        private void loadBlock( )
+                throws LocalDBException
+        {
+            blockValues = internalQueue.readBlock( position );
+            blockIndex = headFirst ? blockValues.size() - 1 : 0;
+        }
+
+        /**
+         * Advance to the next block holding an unread value, or mark the iterator as exhausted.
+         */
+        private void settle( )
+                throws LocalDBException
+        {
+            while ( position != null && ( blockIndex < 0 || blockIndex >= blockValues.size() ) )
+            {
+                final Position lastPosition = headFirst ? internalQueue.tailPosition : internalQueue.headPosition;
+                if ( itemsRemaining <= 0 || position.equals( lastPosition ) )
+                {
+                    position = null;
+                    return;
+                }
+                position = headFirst ? position.previous() : position.next();
+                loadBlock();
+            }
+
+            if ( itemsRemaining <= 0 )
+            {
+                position = null;
+            }
         }
 
         @Override
@@ -718,12 +805,26 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
         }
     }
 
+    /**
+     * Queue values are packed into blocks, each stored as a single LocalDB value, so the head and tail
+     * position keys only change when a block is added or emptied.  Values within a block are ordered from
+     * the tail towards the head.  The head and tail blocks are held in memory.
+     */
     private static class InternalQueue
     {
         private final LocalDB localDB;
         private final LocalDB.DB db;
         private volatile Position headPosition;
         private volatile Position tailPosition;
+        private volatile long size;
+        private List<String> headBlock = new ArrayList<>();
+        private List<String> tailBlock = headBlock;
+
+        // values removed from the ends of the queue are excluded from the stored end blocks by these offsets rather than
+        // by rewriting the blocks.  the head block holds the stored values before headBlockEnd, the tail block the stored
+        // values from tailBlockStart.
+        private int headBlockEnd;
+        private int tailBlockStart;
         private boolean developerDebug = false;
         private static final int DEBUG_MAX_ROWS = 50;
         private static final int DEBUG_MAX_WIDTH = 120;
@@ -766,36 +867,37 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
         private void init( )
                 throws LocalDBException
         {
-            if ( !checkVersion() )
+            final Optional<String> storedVersion = localDB.get( db, KEY_VERSION );
+            if ( storedVersion.isPresent() && Objects.equals( storedVersion.get(), LEGACY_VALUE_VERSION ) )
             {
+                migrateLegacyFormat();
+            }
+            else if ( storedVersion.isEmpty() || !Objects.equals( storedVersion.get(), VALUE_VERSION ) )
+            {
+                LOGGER.warn( () -> "values in db " + db + " use an outdated format, the stored events will be purged!" );
                 clear();
             }
 
-            final Optional<String> headPositionStr = localDB.get( db, KEY_HEAD_POSITION );
-            final Optional<String> tailPositionStr = localDB.get( db, KEY_TAIL_POSITION );
+            removeLegacyValues();
 
-            headPosition = headPositionStr.isPresent() && headPositionStr.get().length() > 0 ? new Position( headPositionStr.get() ) : new Position( "0" );
-            tailPosition = tailPositionStr.isPresent() && tailPositionStr.get().length() > 0 ? new Position( tailPositionStr.get() ) : new Position( "0" );
+            headPosition = readPosition( KEY_HEAD_POSITION );
+            tailPosition = readPosition( KEY_TAIL_POSITION );
+
+            repair();
 
             {
-                final long finalSize = this.size();
+                final long finalSize = this.size;
                 LOGGER.trace( () -> "loaded for db " + db + "; headPosition=" + headPosition + ", tailPosition=" + tailPosition + ", size=" + finalSize );
             }
 
-            repair();
-
             debugOutput( "post init()" );
         }
 
-        private boolean checkVersion( ) throws LocalDBException
+        private Position readPosition( final String key )
+                throws LocalDBException
         {
-            final Optional<String> storedVersion = localDB.get( db, KEY_VERSION );
-            if ( storedVersion.isEmpty() || !Objects.equals( storedVersion.get(), VALUE_VERSION ) )
-            {
-                LOGGER.warn( () -> "values in db " + db + " use an outdated format, the stored events will be purged!" );
-                return false;
-            }
-            return true;
+            final Optional<String> positionStr = localDB.get( db, key );
+            return positionStr.isPresent() && positionStr.get().length() > 0 ? new Position( positionStr.get() ) : new Position( "0" );
         }
 
         public void clear( )
@@ -808,10 +910,16 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
 
                 headPosition = new Position( "0" );
                 tailPosition = new Position( "0" );
+                headBlock = new ArrayList<>();
+                tailBlock = headBlock;
+                headBlockEnd = 0;
+                tailBlockStart = 0;
+                size = 0;
                 final Map<String, String> keyValueMap = new HashMap<>();
                 keyValueMap.put( KEY_HEAD_POSITION, headPosition.toString() );
                 keyValueMap.put( KEY_TAIL_POSITION, tailPosition.toString() );
                 keyValueMap.put( KEY_VERSION, VALUE_VERSION );
+                keyValueMap.put( KEY_QUEUE_STATE, new QueueState( 0, 0, 0 ).toString() );
 
                 localDB.putAll( db, keyValueMap );
                 debugOutput( "post clear()" );
@@ -823,27 +931,36 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
         }
 
         public long size( )
+        {
+            return size;
+        }
+
+        /**
+         * Read a mutable copy of the values of the block at the specified position.
+         */
+        private List<String> readBlock( final Position position )
                 throws LocalDBException
         {
-            lock.readLock().lock();
-            try
+            if ( position.equals( headPosition ) )
             {
-                return internalSize();
+                return new ArrayList<>( headBlock );
             }
-            finally
+
+            if ( position.equals( tailPosition ) )
             {
-                lock.readLock().unlock();
+                return new ArrayList<>( tailBlock );
             }
+
+            return readStoredBlock( position );
         }
 
-        private long internalSize( )
+        private List<String> readStoredBlock( final Position position )
                 throws LocalDBException
         {
-            if ( headPosition.equals( tailPosition ) && localDB.get( db, headPosition.toString() ).isEmpty() )
-            {
-                return 0;
-            }
-            return tailPosition.distanceToHead( headPosition ) + 1;
+            final Optional<String> encodedBlock = localDB.get( db, blockKey( position ) );
+            return encodedBlock.isPresent()
+                    ? decodeBlock( encodedBlock.get() )
+                    : new ArrayList<>();
         }
 
         List<String> removeFirst( final int removalCount, final boolean returnValues ) throws LocalDBException
@@ -881,46 +998,104 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
         private List<String> removeImpl( final int removalCount, final boolean returnValues, final boolean forward )
                 throws LocalDBException
         {
-            if ( removalCount < 1 )
+            if ( removalCount < 1 || size == 0 )
             {
                 return Collections.emptyList();
             }
 
-            final List<String> removalKeys = new ArrayList<>( removalCount );
-            final List<String> removedValues = new ArrayList<>( removalCount );
-            Position loopPosition = forward ? headPosition : tailPosition;
-            int removedPositions = 0;
-            while ( removedPositions < removalCount )
+            final Position startPosition = forward ? headPosition : tailPosition;
+            final Position endPosition = forward ? tailPosition : headPosition;
+            final List<String> removedValues = new ArrayList<>( returnValues ? Math.min( removalCount, 1000 ) : 0 );
+            final List<String> removalKeys = new ArrayList<>();
+
+            Position loopPosition = startPosition;
+            List<String> loopBlock = readBlock( loopPosition );
+            int blockRemovedCount = 0;
+            int removedCount = 0;
+
+            while ( removedCount < removalCount && removedCount < size )
             {
-                removalKeys.add( loopPosition.key() );
-                if ( returnValues )
+                if ( loopBlock.isEmpty() )
                 {
-                    final Optional<String> loopValue = localDB.get( db, loopPosition.key() );
-                    loopValue.ifPresent( removedValues::add );
+                    if ( loopPosition.equals( endPosition ) )
+                    {
+                        break;
+                    }
+                    removalKeys.add( blockKey( loopPosition ) );
+                    loopPosition = forward ? loopPosition.previous() : loopPosition.next();
+                    loopBlock = readBlock( loopPosition );
+                    blockRemovedCount = 0;
+                    continue;
                 }
 
-                if ( forward )
-                {
-                    loopPosition = loopPosition.equals( tailPosition ) ? loopPosition : loopPosition.previous();
-                }
-                else
+                final String value = loopBlock.remove( forward ? loopBlock.size() - 1 : 0 );
+                if ( returnValues )
                 {
-                    loopPosition = loopPosition.equals( headPosition ) ? loopPosition : loopPosition.next();
+                    removedValues.add( value );
                 }
+                blockRemovedCount++;
+                removedCount++;
+            }
 
-                removedPositions++;
+            // move off of an emptied block unless it is the last remaining block
+            while ( loopBlock.isEmpty() && !loopPosition.equals( endPosition ) )
+            {
+                removalKeys.add( blockKey( loopPosition ) );
+                loopPosition = forward ? loopPosition.previous() : loopPosition.next();
+                loopBlock = readBlock( loopPosition );
+                blockRemovedCount = 0;
+            }
+
+            // the remaining block is not rewritten, the removed values are excluded by the block offsets instead
+            int newHeadBlockEnd = headBlockEnd;
+            int newTailBlockStart = tailBlockStart;
+            if ( loopBlock.isEmpty() )
+            {
+                removalKeys.add( blockKey( loopPosition ) );
+                newHeadBlockEnd = 0;
+                newTailBlockStart = 0;
+            }
+            else if ( forward )
+            {
+                newHeadBlockEnd = ( loopPosition.equals( tailPosition ) ? tailBlockStart : 0 ) + loopBlock.size();
+            }
+            else
+            {
+                newTailBlockStart = ( loopPosition.equals( startPosition ) ? tailBlockStart : 0 ) + blockRemovedCount;
+            }
+
+            final Map<String, String> keyValueMap = new HashMap<>();
+            keyValueMap.put( KEY_QUEUE_STATE, new QueueState( size - removedCount, newHeadBlockEnd, newTailBlockStart ).toString() );
+            if ( !loopPosition.equals( startPosition ) )
+            {
+                keyValueMap.put( forward ? KEY_HEAD_POSITION : KEY_TAIL_POSITION, loopPosition.key() );
+            }
+
+            // the position is written before stale blocks are removed so an interruption only leaves unreferenced blocks
+            localDB.putAll( db, keyValueMap );
+            if ( !removalKeys.isEmpty() )
+            {
+                localDB.removeAll( db, removalKeys );
             }
-            localDB.removeAll( db, removalKeys );
-            localDB.put( db, forward ? KEY_HEAD_POSITION : KEY_TAIL_POSITION, loopPosition.key() );
 
             if ( forward )
             {
                 headPosition = loopPosition;
+                headBlock = loopBlock;
             }
             else
             {
                 tailPosition = loopPosition;
+                tailBlock = loopBlock;
+            }
+            if ( headPosition.equals( tailPosition ) )
+            {
+                headBlock = loopBlock;
+                tailBlock = loopBlock;
             }
+            headBlockEnd = newHeadBlockEnd;
+            tailBlockStart = newTailBlockStart;
+            size -= removedCount;
 
             return Collections.unmodifiableList( removedValues );
         }
@@ -948,7 +1123,7 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
             try
             {
                 debugOutput( "pre toArray()" );
-                final int size = Math.toIntExact( internalSize() );
+                final int size = Math.toIntExact( this.size );
                 final String[] stringArray = new String[ size ];
                 final InnerIterator iterator = new InnerIterator( this, true );
                 for ( int i = 0; i < size; i++ )
@@ -987,42 +1162,89 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
                 return;
             }
 
-            if ( internalSize() + values.size() > MAX_SIZE )
+            if ( size + values.size() > MAX_SIZE )
             {
                 throw new IllegalStateException( "queue overflow" );
             }
 
-            final Iterator<String> valueIterator = values.iterator();
+            final Position startPosition = forward ? headPosition : tailPosition;
+            final Position endPosition = forward ? tailPosition : headPosition;
+            final List<String> startBlock = new ArrayList<>( forward ? headBlock : tailBlock );
+            final Map<String, String> keyValueMap = new HashMap<>();
 
-            final Map<String, String> keyValueMap = new HashMap<>( values.size() );
-            Position loopPosition = forward ? headPosition : tailPosition;
+            Position loopPosition = startPosition;
+            List<String> loopBlock = startBlock;
+            int blockLength = encodedLength( loopBlock );
 
-            if ( internalSize() == 0 )
+            for ( final String value : values )
             {
-                keyValueMap.put( loopPosition.toString(), valueIterator.next() );
+                final int valueLength = encodedLength( value );
+                if ( !loopBlock.isEmpty() && ( loopBlock.size() >= MAX_BLOCK_VALUES || blockLength + valueLength > MAX_BLOCK_LENGTH ) )
+                {
+                    keyValueMap.put( blockKey( loopPosition ), encodeBlock( loopBlock ) );
+                    loopPosition = forward ? loopPosition.next() : loopPosition.previous();
+                    if ( loopPosition.equals( endPosition ) )
+                    {
+                        throw new IllegalStateException( "queue overflow" );
+                    }
+                    loopBlock = new ArrayList<>();
+                    blockLength = 0;
+                }
+
+                if ( forward )
+                {
+                    loopBlock.add( value );
+                }
+                else
+                {
+                    loopBlock.add( 0, value );
+                }
+                blockLength += valueLength;
             }
 
-            while ( valueIterator.hasNext() )
+            keyValueMap.put( blockKey( loopPosition ), encodeBlock( loopBlock ) );
+            if ( !loopPosition.equals( startPosition ) )
             {
-                loopPosition = forward ? loopPosition.next() : loopPosition.previous();
-                keyValueMap.put( loopPosition.key(), valueIterator.next() );
+                keyValueMap.put( forward ? KEY_HEAD_POSITION : KEY_TAIL_POSITION, loopPosition.key() );
             }
 
-            keyValueMap.put( forward ? KEY_HEAD_POSITION : KEY_TAIL_POSITION, loopPosition.key() );
+            // written blocks hold exactly the in-memory values, so their offsets are reset
+            final boolean startIsEnd = startPosition.equals( endPosition );
+            final int newTailBlockStart = forward && !startIsEnd ? tailBlockStart : 0;
+            final int newHeadBlockEnd = forward
+                    ? loopBlock.size()
+                    : startIsEnd ? startBlock.size() : headBlockEnd;
+            keyValueMap.put( KEY_QUEUE_STATE, new QueueState( size + values.size(), newHeadBlockEnd, newTailBlockStart ).toString() );
             localDB.putAll( db, keyValueMap );
 
+            if ( startPosition.equals( endPosition ) )
+            {
+                // the start block was also the opposite end block
+                if ( forward )
+                {
+                    tailBlock = startBlock;
+                }
+                else
+                {
+                    headBlock = startBlock;
+                }
+            }
+
             if ( forward )
             {
                 headPosition = loopPosition;
+                headBlock = loopBlock;
             }
             else
             {
                 tailPosition = loopPosition;
+                tailBlock = loopBlock;
             }
+            headBlockEnd = newHeadBlockEnd;
+            tailBlockStart = newTailBlockStart;
+            size += values.size();
         }
 
-
-
         List<String> getFirst( final int count )
                 throws LocalDBException
         {
@@ -1060,24 +1282,25 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
         private List<String> getImpl( final long count, final boolean forward )
                 throws LocalDBException
         {
-            long getCount = count;
-            if ( getCount < 1 )
+            if ( count < 1 || size == 0 )
             {
                 return Collections.emptyList();
             }
 
-            if ( getCount > internalSize() )
+            if ( count == 1 )
             {
-                getCount = internalSize();
+                final List<String> endBlock = forward ? headBlock : tailBlock;
+                if ( !endBlock.isEmpty() )
+                {
+                    return Collections.singletonList( endBlock.get( forward ? endBlock.size() - 1 : 0 ) );
+                }
             }
 
             final List<String> returnList = new ArrayList<>();
-
-            Position nextPosition = forward ? headPosition : tailPosition;
-            while ( returnList.size() < getCount )
+            final InnerIterator iterator = new InnerIterator( this, forward );
+            while ( returnList.size() < count && iterator.hasNext() )
             {
-                returnList.add( localDB.get( db, nextPosition.key() ).orElseThrow() );
-                nextPosition = forward ? nextPosition.previous() : nextPosition.next();
+                returnList.add( iterator.next() );
             }
 
             return Collections.unmodifiableList( returnList );
@@ -1097,7 +1320,7 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
                 {
                     sb.append( input );
                     sb.append( "  tailPosition=" ).append( tailPosition ).append( ", headPosition=" ).append( headPosition ).append( ", db=" ).append( db );
-                    sb.append( ", size=" ).append( internalSize() ).append( '\n' );
+                    sb.append( ", size=" ).append( size ).append( '\n' );
 
                     try ( LocalDB.LocalDBIterator<Map.Entry<String, String>> localDBIterator = localDB.iterator( db ) )
                     {
@@ -1126,83 +1349,295 @@ public class LocalDBStoredQueue implements Queue<String>, Deque<String>
             LOGGER.trace( debugOutput );
         }
 
+        /**
+         * Ensure the head and tail positions reference stored blocks, then load the end blocks.  The queue size is read
+         * from the stored queue state, and the stored values are only counted if the state is missing or the positions
+         * had to be repaired.
+         */
         private void repair( ) throws LocalDBException
         {
-            lock.writeLock().lock();
-            try
-            {
-                int headTrim = 0;
-                int tailTrim = 0;
+            int headTrim = 0;
+            int tailTrim = 0;
 
-                debugOutput( "pre repair()" );
+            debugOutput( "pre repair()" );
 
-                final AtomicInteger examinedRecords = new AtomicInteger( 0 );
-
-                final Runnable checkPointProcess = () ->
-                {
-                    try
-                    {
-                        localDB.put( db, KEY_HEAD_POSITION, headPosition.key() );
-                        localDB.put( db, KEY_TAIL_POSITION, tailPosition.key() );
-                        final long dbSize = size();
-                        LOGGER.debug( () -> "repairing db " + db + ", " + examinedRecords.get() + " records examined"
-                                + ", size=" + dbSize
-                                + ", head=" + headPosition.key() + ", tail=" + tailPosition.key() );
-                    }
-                    catch ( final Exception e )
-                    {
-                        LOGGER.error( () -> "unexpected error during output of debug message during stored queue repair operation: "
-                                + e.getMessage(), e );
-                    }
-                };
+            while ( !headPosition.equals( tailPosition ) && !localDB.contains( db, blockKey( headPosition ) ) )
+            {
+                headPosition = headPosition.previous();
+                headTrim++;
+            }
 
-                final ConditionalTaskExecutor conditionalTaskExecutor = ConditionalTaskExecutor.forPeriodicTask(
-                        checkPointProcess,
-                        TimeDuration.SECONDS_10.asDuration() );
+            while ( !headPosition.equals( tailPosition ) && !localDB.contains( db, blockKey( tailPosition ) ) )
+            {
+                tailPosition = tailPosition.next();
+                tailTrim++;
+            }
 
-                // trim the top.
-                while ( !headPosition.equals( tailPosition ) && localDB.get( db, headPosition.key() ).isPresent() )
+            if ( tailTrim == 0 && headTrim == 0 )
+            {
+                LOGGER.trace( () -> "repair unnecessary for " + db );
+            }
+            else
+            {
+                if ( headTrim > 0 )
                 {
-                    examinedRecords.incrementAndGet();
-                    conditionalTaskExecutor.conditionallyExecuteTask();
-                    headPosition = headPosition.previous();
-                    headTrim++;
+                    final int headTrimFinal = headTrim;
+                    LOGGER.warn( () -> "trimmed " + headTrimFinal + " blocks from head position against database " + db );
                 }
-                localDB.put( db, KEY_HEAD_POSITION, headPosition.key() );
 
-                // trim the bottom.
-                while ( !headPosition.equals( tailPosition ) && localDB.get( db, tailPosition.toString() ).isPresent() )
+                if ( tailTrim > 0 )
                 {
-                    examinedRecords.incrementAndGet();
-                    conditionalTaskExecutor.conditionallyExecuteTask();
-                    tailPosition = tailPosition.next();
-                    tailTrim++;
+                    final int tailTrimFinal = tailTrim;
+                    LOGGER.warn( () -> "trimmed " + tailTrimFinal + " blocks from tail position against database " + db );
                 }
-                localDB.put( db, KEY_TAIL_POSITION, tailPosition.key() );
+            }
 
-                if ( tailTrim == 0 && headTrim == 0 )
-                {
-                    LOGGER.trace( () -> "repair unnecessary for " + db );
-                }
-                else
+            final Optional<QueueState> storedState = QueueState.parse( localDB.get( db, KEY_QUEUE_STATE ).orElse( null ) );
+            final List<String> storedTailBlock = readStoredBlock( tailPosition );
+            final List<String> storedHeadBlock = headPosition.equals( tailPosition ) ? storedTailBlock : readStoredBlock( headPosition );
+
+            headBlockEnd = storedState.isPresent() && headTrim == 0
+                    ? Math.max( 0, Math.min( storedState.get().getHeadBlockEnd(), storedHeadBlock.size() ) )
+                    : storedHeadBlock.size();
+            tailBlockStart = storedState.isPresent() && tailTrim == 0
+                    ? Math.max( 0, Math.min( storedState.get().getTailBlockStart(), storedTailBlock.size() ) )
+                    : 0;
+
+            if ( headPosition.equals( tailPosition ) )
+            {
+                tailBlockStart = Math.min( tailBlockStart, headBlockEnd );
+                tailBlock = new ArrayList<>( storedTailBlock.subList( tailBlockStart, headBlockEnd ) );
+                headBlock = tailBlock;
+            }
+            else
+            {
+                tailBlock = new ArrayList<>( storedTailBlock.subList( tailBlockStart, storedTailBlock.size() ) );
+                headBlock = new ArrayList<>( storedHeadBlock.subList( 0, headBlockEnd ) );
+            }
+
+            if ( storedState.isPresent() && headTrim == 0 && tailTrim == 0 )
+            {
+                size = storedState.get().getSize();
+            }
+            else
+            {
+                long storedValues = tailBlock.size();
+                if ( !headPosition.equals( tailPosition ) )
                 {
-                    if ( headTrim > 0 )
+                    storedValues += headBlock.size();
+                    for ( Position loopPosition = tailPosition.next(); !loopPosition.equals( headPosition ); loopPosition = loopPosition.next() )
                     {
-                        final int headTrimFinal = headTrim;
-                        LOGGER.warn( () -> "trimmed " + headTrimFinal + " from head position against database " + db );
+                        storedValues += readStoredBlock( loopPosition ).size();
                     }
+                }
+                size = storedValues;
 
-                    if ( tailTrim > 0 )
+                final Map<String, String> keyValueMap = new HashMap<>();
+                keyValueMap.put( KEY_HEAD_POSITION, headPosition.key() );
+                keyValueMap.put( KEY_TAIL_POSITION, tailPosition.key() );
+                keyValueMap.put( KEY_QUEUE_STATE, new QueueState( size, headBlockEnd, tailBlockStart ).toString() );
+                localDB.putAll( db, keyValueMap );
+            }
+
+            debugOutput( "post repair()" );
+        }
+
+        /**
+         * Convert values stored using the legacy one-key-per-value format into blocks.  The stored version and positions
+         * are switched in a single write after all blocks are written, so an interrupted migration is restarted on the
+         * next open.  Legacy values are removed afterwards by {@link #removeLegacyValues()}.
+         */
+        private void migrateLegacyFormat( )
+                throws LocalDBException
+        {
+            final Instant startTime = Instant.now();
+            final Position legacyHead = readPosition( KEY_HEAD_POSITION );
+            final Position legacyTail = readPosition( KEY_TAIL_POSITION );
+            final long legacySize = legacyHead.equals( legacyTail ) && localDB.get( db, legacyHead.key() ).isEmpty()
+                    ? 0
+                    : legacyTail.distanceToHead( legacyHead ) + 1;
+
+            LOGGER.info( () -> "migrating " + legacySize + " values in db " + db + " to block storage format" );
+
+            final AtomicLong examinedValues = new AtomicLong();
+            final ConditionalTaskExecutor progressLogger = ConditionalTaskExecutor.forPeriodicTask(
+                    () -> LOGGER.debug( () -> "migrating db " + db + ", " + examinedValues.get() + " of " + legacySize + " values examined" ),
+                    TimeDuration.SECONDS_10.asDuration() );
+
+            final Map<String, String> keyValueMap = new HashMap<>();
+            Position blockPosition = new Position( "0" );
+            List<String> block = new ArrayList<>();
+            int blockLength = 0;
+            Position legacyPosition = legacyTail;
+
+            for ( long i = 0; i < legacySize; i++ )
+            {
+                final Optional<String> value = localDB.get( db, legacyPosition.key() );
+                if ( value.isPresent() )
+                {
+                    final int valueLength = encodedLength( value.get() );
+                    if ( !block.isEmpty() && ( block.size() >= MAX_BLOCK_VALUES || blockLength + valueLength > MAX_BLOCK_LENGTH ) )
                     {
-                        final int tailTrimFinal = tailTrim;
-                        LOGGER.warn( () -> "trimmed " + tailTrimFinal + " from tail position against database " + db );
+                        keyValueMap.put( blockKey( blockPosition ), encodeBlock( block ) );
+                        blockPosition = blockPosition.next();
+                        block = new ArrayList<>();
+                        blockLength = 0;
+
+                        if ( keyValueMap.size() >= MIGRATION_WRITE_BATCH_SIZE )
+                        {
+                            localDB.putAll( db, keyValueMap );
+                            keyValueMap.clear();
+                        }
                     }
+                    block.add( value.get() );
+                    blockLength += valueLength;
                 }
+                legacyPosition = legacyPosition.next();
+                examinedValues.incrementAndGet();
+                progressLogger.conditionallyExecuteTask();
             }
-            finally
+
+            if ( !block.isEmpty() )
             {
-                lock.writeLock().unlock();
+                keyValueMap.put( blockKey( blockPosition ), encodeBlock( block ) );
+            }
+            if ( !keyValueMap.isEmpty() )
+            {
+                localDB.putAll( db, keyValueMap );
+            }
+
+            final Map<String, String> metaValues = new HashMap<>();
+            metaValues.put( KEY_HEAD_POSITION, blockPosition.key() );
+            metaValues.put( KEY_TAIL_POSITION, new Position( "0" ).key() );
+            metaValues.put( KEY_VERSION, VALUE_VERSION );
+            metaValues.put( KEY_LEGACY_CLEANUP, legacyTail.key() + "," + legacySize );
+            localDB.putAll( db, metaValues );
+
+            LOGGER.info( () -> "completed migration of " + legacySize + " values in db " + db + " to block storage format",
+                    () -> TimeDuration.fromCurrent( startTime ) );
+        }
+
+        private void removeLegacyValues( )
+                throws LocalDBException
+        {
+            final Optional<String> cleanupValue = localDB.get( db, KEY_LEGACY_CLEANUP );
+            if ( cleanupValue.isEmpty() )
+            {
+                return;
             }
+
+            final String[] cleanupParams = cleanupValue.get().split( "," );
+            final long legacySize = Long.parseLong( cleanupParams[1] );
+            final List<String> removalKeys = new ArrayList<>();
+            Position legacyPosition = new Position( cleanupParams[0] );
+            for ( long i = 0; i < legacySize; i++ )
+            {
+                removalKeys.add( legacyPosition.key() );
+                legacyPosition = legacyPosition.next();
+                if ( removalKeys.size() >= LEGACY_REMOVAL_BATCH_SIZE )
+                {
+                    localDB.removeAll( db, removalKeys );
+                    removalKeys.clear();
+                }
+            }
+            removalKeys.add( KEY_LEGACY_CLEANUP );
+            localDB.removeAll( db, removalKeys );
+            LOGGER.debug( () -> "removed " + legacySize + " legacy format values from db " + db );
+        }
+    }
+
+    /**
+     * Queue size and end block offsets, stored as a single value so they are updated together with the blocks.
+     */
+    @Value
+    static class QueueState
+    {
+        private final long size;
+        private final int headBlockEnd;
+        private final int tailBlockStart;
+
+        static Optional<QueueState> parse( final String value )
+        {
+            if ( value == null )
+            {
+                return Optional.empty();
+            }
+
+            final String[] parts = value.split( "," );
+            try
+            {
+                if ( parts.length == 3 )
+                {
+                    return Optional.of( new QueueState( Long.parseLong( parts[0] ), Integer.parseInt( parts[1] ), Integer.parseInt( parts[2] ) ) );
+                }
+            }
+            catch ( final NumberFormatException e )
+            {
+                LOGGER.warn( () -> "ignoring unreadable stored queue state '" + value + "': " + e.getMessage() );
+            }
+            return Optional.empty();
+        }
+
+        @Override
+        public String toString()
+        {
+            return size + "," + headBlockEnd + "," + tailBlockStart;
+        }
+    }
+
+    private static String blockKey( final Position position )
+    {
+        return BLOCK_KEY_PREFIX + position.key();
+    }
+
+    private static int encodedLength( final String value )
+    {
+        return value.length() + String.valueOf( value.length() ).length() + 1;
+    }
+
+    private static int encodedLength( final List<String> values )
+    {
+        int length = 0;
+        for ( final String value : values )
+        {
+            length += encodedLength( value );
+        }
+        return length;
+    }
+
+    /**
+     * Blocks are encoded as a sequence of length-prefixed values, for example {@code 3:one3:two}.
+     */
+    static String encodeBlock( final List<String> values )
+    {
+        final StringBuilder sb = new StringBuilder( encodedLength( values ) );
+        for ( final String value : values )
+        {
+            sb.append( value.length() ).append( BLOCK_LENGTH_SEPARATOR ).append( value );
+        }
+        return sb.toString();
+    }
+
+    static List<String> decodeBlock( final String encodedBlock )
+    {
+        final List<String> values = new ArrayList<>();
+        int index = 0;
+        try
+        {
+            while ( index < encodedBlock.length() )
+            {
+                final int separator = encodedBlock.indexOf( BLOCK_LENGTH_SEPARATOR, index );
+                final int length = Integer.parseInt( encodedBlock, index, separator, 10 );
+                final int start = separator + 1;
+                values.add( encodedBlock.substring( start, start + length ) );
+                index = start + length;
+            }
+        }
+        catch ( final NumberFormatException | IndexOutOfBoundsException e )
+        {
+            final int offset = index;
+            LOGGER.warn( () -> "discarding unreadable data in stored queue block at offset " + offset + ": " + e.getMessage() );
         }
+        return values;
     }
 }
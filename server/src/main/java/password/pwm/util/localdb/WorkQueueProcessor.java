@@ -41,12 +41,21 @@ import password.pwm.util.logging.PwmLogger;
 import java.io.Serializable;
 import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -59,12 +68,24 @@ import java.util.function.Supplier;
 
 /**
  * A work item queue manager.   Items submitted to the queue will eventually be worked on by the client side @code {@link ItemProcessor}.
+ *
+ * <p>Queued items are read from the head of the queue by a single dispatcher thread and handed to {@link Settings#getWorkerThreads()}
+ * workers.  Items with the same {@link ItemProcessor#orderingKey(Serializable)} are always handed to the same worker in queue order.
+ * Items completed out of queue order are remembered in memory until they reach the head of the queue, so after an unclean
+ * shutdown they may be processed again.</p>
  */
 public final class WorkQueueProcessor<W extends Serializable>
 {
     private static final TimeDuration SUBMIT_QUEUE_FULL_RETRY_CYCLE_INTERVAL = TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS );
     private static final TimeDuration CLOSE_RETRY_CYCLE_INTERVAL = TimeDuration.of( 5, TimeDuration.Unit.MILLISECONDS );
 
+    /**
+     * Limits how far past the head of the queue items are read, as a multiple of the items processed in one pass.  Items
+     * completed out of order stay in storage until they reach the head, so this also bounds the items remembered as completed,
+     * the items re-read on each pass and the items that may be processed again after an unclean shutdown.
+     */
+    private static final int MAX_WINDOW_MULTIPLIER = 4;
+
     private final Deque<String> queue;
     private final Settings settings;
     private final ItemProcessor<W> itemProcessor;
@@ -72,6 +93,10 @@ public final class WorkQueueProcessor<W extends Serializable>
     private final PwmLogger logger;
 
     private volatile WorkerThread workerThread;
+    private final ExecutorService workerExecutor;
+    private final WorkerStats[] workerStats;
+    private final int workerCount;
+    private final int batchSize;
 
     private final AtomicLoopIntIncrementer idGenerator = new AtomicLoopIntIncrementer();
     private final Lock submitLock = new ReentrantLock();
@@ -119,6 +144,20 @@ public final class WorkQueueProcessor<W extends Serializable>
         }
         logger.trace( () -> "initializing worker thread with settings " + JsonFactory.get().serialize( settings ) );
 
+        this.workerCount = Math.max( 1, settings.getWorkerThreads() );
+        this.batchSize = itemProcessor instanceof BatchItemProcessor
+                ? Math.max( 1, settings.getBatchSize() )
+                : 1;
+        this.workerStats = new WorkerStats[ workerCount ];
+        for ( int i = 0; i < workerCount; i++ )
+        {
+            workerStats[ i ] = new WorkerStats();
+        }
+        this.workerExecutor = workerCount > 1
+                ? Executors.newFixedThreadPool( workerCount, PwmScheduler.makePwmThreadFactory(
+                        PwmScheduler.makeThreadName( pwmApplication, sourceClass ) + "-worker-", true ) )
+                : null;
+
         this.workerThread = new WorkerThread();
         workerThread.setDaemon( true );
         workerThread.setName( PwmScheduler.makeThreadName( pwmApplication, sourceClass ) + "-worker-" );
@@ -165,6 +204,11 @@ public final class WorkQueueProcessor<W extends Serializable>
             settings.getMaxShutdownWaitTime().pause( CLOSE_RETRY_CYCLE_INTERVAL, () -> !localWorkerThread.isRunning() );
         }
 
+        if ( workerExecutor != null )
+        {
+            workerExecutor.shutdownNow();
+        }
+
         final TimeDuration timeDuration = TimeDuration.fromCurrent( startTime );
         final String msg = "shutting down with " + queue.size() + " items remaining in work queue (" + timeDuration.asCompactString() + ")";
         if ( !queue.isEmpty() )
@@ -221,7 +265,7 @@ public final class WorkQueueProcessor<W extends Serializable>
             final ProcessResult processResult = itemProcessor.process( itemWrapper.getWorkItem() );
             if ( processResult == ProcessResult.SUCCESS )
             {
-                logAndStatUpdateForSuccess( itemWrapper, () -> TimeDuration.fromCurrent( processStartTime ) );
+                logAndStatUpdateForSuccess( itemWrapper, () -> TimeDuration.fromCurrent( processStartTime ), null );
             }
             else if ( processResult == ProcessResult.RETRY || processResult == ProcessResult.NOOP )
             {
@@ -328,6 +372,8 @@ public final class WorkQueueProcessor<W extends Serializable>
         private final AtomicBoolean shutdownFlag = new AtomicBoolean( false );
         private final AtomicBoolean notifyWorkFlag = new AtomicBoolean( true );
 
+        private final Set<String> completedItemKeys = new HashSet<>();
+
         private Instant retryWakeupTime;
 
         @Override
@@ -338,7 +384,7 @@ public final class WorkQueueProcessor<W extends Serializable>
             {
                 while ( !shutdownFlag.get() )
                 {
-                    processNextItem();
+                    processNextItems();
                     waitForWork();
                 }
             }
@@ -358,7 +404,7 @@ public final class WorkQueueProcessor<W extends Serializable>
                     final Instant shutdownStartTime = Instant.now();
                     while ( retryWakeupTime == null && !queue.isEmpty() && TimeDuration.fromCurrent( shutdownStartTime ).isLongerThan( settings.getMaxShutdownWaitTime() ) )
                     {
-                        processNextItem();
+                        processNextItems();
                     }
                 }
                 catch ( final Throwable t )
@@ -425,93 +471,345 @@ public final class WorkQueueProcessor<W extends Serializable>
             return running.get();
         }
 
-        void processNextItem( )
+        void processNextItems( )
         {
-            final Instant processStartTime = Instant.now();
-            final String nextStrValue = queue.peekFirst();
-            if ( nextStrValue == null )
+            final List<QueuedItem<W>> window = readWindow();
+            if ( window.isEmpty() )
             {
                 return;
             }
 
-            final ItemWrapper<W> itemWrapper;
+            final List<List<QueuedItem<W>>> partitions = new ArrayList<>( workerCount );
+            for ( int i = 0; i < workerCount; i++ )
+            {
+                partitions.add( new ArrayList<>() );
+            }
+            for ( final QueuedItem<W> queuedItem : window )
+            {
+                if ( !queuedItem.isDone() )
+                {
+                    partitions.get( Math.floorMod( queuedItem.getOrderingKey().hashCode(), workerCount ) ).add( queuedItem );
+                }
+            }
+
+            final boolean retryRequested = workerExecutor == null
+                    ? processPartition( 0, partitions.get( 0 ) )
+                    : processPartitionsConcurrently( partitions );
+
+            if ( retryRequested )
+            {
+                retryWakeupTime = Instant.ofEpochMilli( System.currentTimeMillis() + settings.getRetryInterval().asMillis() );
+            }
+
+            removeCompletedItems( window );
+        }
+
+        /**
+         * Reads items from the head of the queue until enough incomplete items are found to give every worker a full batch,
+         * or until the window limit is reached.  Items already completed in an earlier pass are included so they can be
+         * removed once they reach the head.
+         */
+        private List<QueuedItem<W>> readWindow( )
+        {
+            final int maxIncompleteItems = workerCount * batchSize;
+            final int maxWindowItems = maxIncompleteItems * MAX_WINDOW_MULTIPLIER;
+            final List<QueuedItem<W>> window = new ArrayList<>();
+
+            if ( maxIncompleteItems == 1 && completedItemKeys.isEmpty() )
+            {
+                final String nextStrValue = queue.peekFirst();
+                if ( nextStrValue != null )
+                {
+                    window.add( readQueuedItem( nextStrValue ) );
+                }
+                return window;
+            }
+
+            int incompleteItems = 0;
+            final Iterator<String> iterator = queue.iterator();
+            while ( incompleteItems < maxIncompleteItems && window.size() < maxWindowItems && iterator.hasNext() )
+            {
+                final String nextStrValue = iterator.next();
+                if ( nextStrValue == null )
+                {
+                    break;
+                }
+
+                final QueuedItem<W> queuedItem = readQueuedItem( nextStrValue );
+                window.add( queuedItem );
+                if ( !queuedItem.isDone() )
+                {
+                    incompleteItems++;
+                }
+            }
+            return window;
+        }
+
+        private QueuedItem<W> readQueuedItem( final String strValue )
+        {
+            final QueuedItem<W> queuedItem = new QueuedItem<>( strValue );
             try
             {
-                itemWrapper = JsonFactory.get().deserialize( nextStrValue, ItemWrapper.class );
+                final ItemWrapper<W> itemWrapper = JsonFactory.get().deserialize( strValue, ItemWrapper.class );
+                queuedItem.setItemWrapper( itemWrapper );
+                if ( completedItemKeys.contains( queuedItem.getKey() ) )
+                {
+                    queuedItem.setDone( true );
+                    return queuedItem;
+                }
+
                 if ( TimeDuration.fromCurrent( itemWrapper.getDate() ).isLongerThan( settings.getRetryDiscardAge() ) )
                 {
-                    removeQueueTop();
+                    queuedItem.setDone( true );
                     logger.warn( () -> "discarding queued item due to age, item=" + makeDebugText( itemWrapper ) );
-                    return;
+                    return queuedItem;
                 }
+
+                final W workItem = itemWrapper.getWorkItem();
+                queuedItem.setWorkItem( workItem );
+                final String orderingKey = itemProcessor.orderingKey( workItem );
+                queuedItem.setOrderingKey( orderingKey == null ? itemWrapper.getId() : orderingKey );
             }
             catch ( final Throwable e )
             {
-                removeQueueTop();
-                logger.warn( () -> "discarding stored record due to parsing error: " + e.getMessage() + ", record=" + nextStrValue );
-                return;
+                queuedItem.setDone( true );
+                logger.warn( () -> "discarding stored record due to parsing error: " + e.getMessage() + ", record=" + strValue );
             }
+            return queuedItem;
+        }
 
-            final ProcessResult processResult;
-            try
+        private boolean processPartitionsConcurrently( final List<List<QueuedItem<W>>> partitions )
+        {
+            final List<Future<Boolean>> futures = new ArrayList<>( workerCount );
+            for ( int i = 0; i < workerCount; i++ )
             {
-                workQueueStats.increment( WorkQueueStat.queueProcessItems );
-                processResult = itemProcessor.process( itemWrapper.getWorkItem() );
-                if ( processResult == null )
+                final int workerId = i;
+                final List<QueuedItem<W>> partition = partitions.get( i );
+                if ( !partition.isEmpty() )
                 {
-                    removeQueueTop();
-                    logger.warn( () -> "itemProcessor.process() returned null, removing; item=" + makeDebugText( itemWrapper ) );
+                    futures.add( workerExecutor.submit( () -> processPartition( workerId, partition ) ) );
                 }
-                else
+            }
+
+            boolean retryRequested = false;
+            for ( final Future<Boolean> future : futures )
+            {
+                try
+                {
+                    retryRequested |= future.get();
+                }
+                catch ( final InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    retryRequested = true;
+                }
+                catch ( final ExecutionException e )
+                {
+                    logger.error( () -> "unexpected error processing work item queue: " + JavaHelper.readHostileExceptionMessage( e.getCause() ), e.getCause() );
+                    retryRequested = true;
+                }
+            }
+            return retryRequested;
+        }
+
+        /**
+         * Process a worker's items in queue order.  Processing of the partition stops at the first item that is
+         * neither completed nor discarded, so later items with the same ordering key are not processed out of order.
+         *
+         * @return true if the item processor requested a retry
+         */
+        private boolean processPartition( final int workerId, final List<QueuedItem<W>> partition )
+        {
+            int index = 0;
+            while ( index < partition.size() )
+            {
+                final List<QueuedItem<W>> batch = partition.subList( index, Math.min( partition.size(), index + batchSize ) );
+                final Instant processStartTime = Instant.now();
+                final List<ProcessResult> results;
+                try
+                {
+                    workQueueStats.increment( WorkQueueStat.queueProcessItems, batch.size() );
+                    results = invokeItemProcessor( batch );
+                }
+                catch ( final Throwable e )
+                {
+                    if ( shutdownFlag.get() )
+                    {
+                        return false;
+                    }
+
+                    for ( final QueuedItem<W> queuedItem : batch )
+                    {
+                        queuedItem.setDone( true );
+                    }
+                    logger.error( () -> "unexpected error while processing work queue: " + e.getMessage() );
+                    index += batch.size();
+                    continue;
+                }
+
+                boolean halt = false;
+                boolean retryRequested = false;
+                for ( int i = 0; i < batch.size(); i++ )
                 {
+                    final QueuedItem<W> queuedItem = batch.get( i );
+                    final ItemWrapper<W> itemWrapper = queuedItem.getItemWrapper();
+                    final ProcessResult processResult = i < results.size() ? results.get( i ) : ProcessResult.NOOP;
+                    if ( processResult == null )
+                    {
+                        queuedItem.setDone( true );
+                        logger.warn( () -> "itemProcessor.process() returned null, removing; item=" + makeDebugText( itemWrapper ) );
+                        continue;
+                    }
+
                     switch ( processResult )
                     {
                         case FAILED:
                         {
-                            removeQueueTop();
+                            queuedItem.setDone( true );
                             logger.error( () -> "discarding item after process failure, item=" + makeDebugText( itemWrapper ) );
                         }
                         break;
 
                         case RETRY:
                         {
-                            retryWakeupTime = Instant.ofEpochMilli( System.currentTimeMillis() + settings.getRetryInterval().asMillis() );
+                            halt = true;
+                            retryRequested = true;
                             logger.debug( () -> "will retry item after failure, item=" + makeDebugText( itemWrapper ) );
                         }
                         break;
 
                         case SUCCESS:
                         {
-                            removeQueueTop();
-                            logAndStatUpdateForSuccess( itemWrapper, () -> TimeDuration.fromCurrent( processStartTime ) );
+                            queuedItem.setDone( true );
+                            logAndStatUpdateForSuccess( itemWrapper, () -> TimeDuration.fromCurrent( processStartTime ), workerStats[ workerId ] );
                         }
                         break;
 
                         case NOOP:
+                            halt = true;
                             break;
 
-
                         default:
                             throw new IllegalStateException( "unexpected processResult type " + processResult );
                     }
                 }
+
+                if ( halt )
+                {
+                    return retryRequested;
+                }
+                index += batch.size();
             }
-            catch ( final Throwable e )
+            return false;
+        }
+
+        private List<ProcessResult> invokeItemProcessor( final List<QueuedItem<W>> batch )
+        {
+            if ( batch.size() == 1 )
+            {
+                return Collections.singletonList( itemProcessor.process( batch.get( 0 ).getWorkItem() ) );
+            }
+
+            final List<W> workItems = new ArrayList<>( batch.size() );
+            for ( final QueuedItem<W> queuedItem : batch )
+            {
+                workItems.add( queuedItem.getWorkItem() );
+            }
+            final List<ProcessResult> results = ( ( BatchItemProcessor<W> ) itemProcessor ).processBatch( workItems );
+            return results == null ? Collections.emptyList() : results;
+        }
+
+        /**
+         * Remove completed items from the head of the queue.  Completed items that are still behind an incomplete
+         * item are remembered so they are skipped until they reach the head.
+         */
+        private void removeCompletedItems( final List<QueuedItem<W>> window )
+        {
+            boolean atHead = true;
+            for ( final QueuedItem<W> queuedItem : window )
             {
-                if ( !shutdownFlag.get() )
+                if ( atHead && queuedItem.isDone() )
                 {
-                    removeQueueTop();
-                    logger.error( () -> "unexpected error while processing work queue: " + e.getMessage() );
+                    queue.removeFirst();
+                    completedItemKeys.remove( queuedItem.getKey() );
+                }
+                else
+                {
+                    atHead = false;
+                    if ( queuedItem.isDone() )
+                    {
+                        completedItemKeys.add( queuedItem.getKey() );
+                    }
                 }
             }
+        }
+    }
+
+    private static class QueuedItem<W extends Serializable>
+    {
+        private final String strValue;
+        private ItemWrapper<W> itemWrapper;
+        private W workItem;
+        private String orderingKey;
+        private volatile boolean done;
+
+        QueuedItem( final String strValue )
+        {
+            this.strValue = strValue;
+        }
+
+        String getKey( )
+        {
+            return itemWrapper == null
+                    ? strValue
+                    : itemWrapper.getDate().toEpochMilli() + "-" + itemWrapper.getId();
+        }
+
+        ItemWrapper<W> getItemWrapper( )
+        {
+            return itemWrapper;
+        }
+
+        void setItemWrapper( final ItemWrapper<W> itemWrapper )
+        {
+            this.itemWrapper = itemWrapper;
+        }
+
+        W getWorkItem( )
+        {
+            return workItem;
+        }
 
+        void setWorkItem( final W workItem )
+        {
+            this.workItem = workItem;
         }
 
-        private void removeQueueTop( )
+        String getOrderingKey( )
         {
-            queue.removeFirst();
-            retryWakeupTime = null;
+            return orderingKey;
         }
+
+        void setOrderingKey( final String orderingKey )
+        {
+            this.orderingKey = orderingKey;
+        }
+
+        boolean isDone( )
+        {
+            return done;
+        }
+
+        void setDone( final boolean done )
+        {
+            this.done = done;
+        }
+    }
+
+    private static class WorkerStats
+    {
+        private final MovingAverage avgLagTime = new MovingAverage( TimeDuration.MINUTE.asDuration() );
+        private final EventRateMeter processRate = new EventRateMeter( TimeDuration.MINUTE );
     }
 
     private static class ItemWrapper<W extends Serializable> implements Serializable
@@ -578,6 +876,32 @@ public final class WorkQueueProcessor<W extends Serializable>
         ProcessResult process( W workItem );
 
         String convertToDebugString( W workItem );
+
+        /**
+         * Items sharing an ordering key are processed by the same worker in the order they were submitted.
+         *
+         * @param workItem item to be processed
+         * @return an ordering key, or null if the item may be processed in any order
+         */
+        default String orderingKey( final W workItem )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * An {@link ItemProcessor} able to process up to {@link Settings#getBatchSize()} items in a single call.
+     */
+    public interface BatchItemProcessor<W extends Serializable> extends ItemProcessor<W>
+    {
+        /**
+         * Process a batch of items in order.  The returned list holds a result for each processed item, and may be
+         * shorter than the supplied list if processing stopped early; items without a result remain queued.
+         *
+         * @param workItems items to be processed
+         * @return the result of each processed item
+         */
+        List<ProcessResult> processBatch( List<W> workItems );
     }
 
     @Value
@@ -590,6 +914,12 @@ public final class WorkQueueProcessor<W extends Serializable>
         @Builder.Default
         private int preThreads = 0;
 
+        @Builder.Default
+        private int workerThreads = 1;
+
+        @Builder.Default
+        private int batchSize = 1;
+
         @Builder.Default
         private TimeDuration maxSubmitWaitTime = TimeDuration.of( 5, TimeDuration.Unit.SECONDS );
 
@@ -603,12 +933,20 @@ public final class WorkQueueProcessor<W extends Serializable>
         private TimeDuration maxShutdownWaitTime = TimeDuration.of( 30, TimeDuration.Unit.SECONDS );
     }
 
-    private void logAndStatUpdateForSuccess( final ItemWrapper<W> itemWrapper, final Supplier<TimeDuration> processDuration )
-            throws PwmOperationalException
+    private void logAndStatUpdateForSuccess(
+            final ItemWrapper<W> itemWrapper,
+            final Supplier<TimeDuration> processDuration,
+            final WorkerStats stats
+    )
     {
         final TimeDuration lagTime = TimeDuration.fromCurrent( itemWrapper.getDate() );
         avgLagTime.update( lagTime.asMillis() );
         sendRate.markEvents( 1 );
+        if ( stats != null )
+        {
+            stats.avgLagTime.update( lagTime.asMillis() );
+            stats.processRate.markEvents( 1 );
+        }
         logger.trace( () -> "successfully processed item=" + makeDebugText( itemWrapper ) + "; lagTime=" + lagTime.asCompactString()
                 + "; " + StringUtil.mapToString( debugInfo() ), processDuration );
     }
@@ -624,7 +962,13 @@ public final class WorkQueueProcessor<W extends Serializable>
         }
         if ( workerThread != null )
         {
-            output.put( "postQueueThreads", workerThread.isRunning() ? "1" : "0" );
+            output.put( "postQueueThreads", workerThread.isRunning() ? String.valueOf( workerCount ) : "0" );
+        }
+        for ( int i = 0; i < workerCount; i++ )
+        {
+            final WorkerStats stats = workerStats[ i ];
+            output.put( "worker[" + i + "].avgLagTime", TimeDuration.fromDuration( stats.avgLagTime.getAverageAsDuration() ).asCompactString() );
+            output.put( "worker[" + i + "].processRate", stats.processRate.readEventRate().setScale( 2, RoundingMode.DOWN ) + "/s" );
         }
         output.putAll( workQueueStats.debugStats() );
         return Collections.unmodifiableMap( output );
@@ -252,6 +252,26 @@ public class XodusLocalDB implements LocalDBProvider
         return get( db, key ).isPresent();
     }
 
+    @Override
+    public boolean containsAny( final LocalDB.DB db, final Collection<String> keys ) throws LocalDBException
+    {
+        checkStatus( false );
+        return environment.computeInReadonlyTransaction( transaction ->
+        {
+            try ( Cursor cursor = getStore( db ).openCursor( transaction ) )
+            {
+                for ( final String key : keys )
+                {
+                    if ( cursor.getSearchKey( bindMachine.keyToEntry( key ) ) != null )
+                    {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } );
+    }
+
     @Override
     public Optional<String> get( final LocalDB.DB db, final String key ) throws LocalDBException
     {
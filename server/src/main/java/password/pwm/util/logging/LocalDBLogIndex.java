@@ -0,0 +1,506 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.logging;
+
+import lombok.Value;
+import password.pwm.util.java.StringUtil;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * <p>Memory resident secondary index of the events stored by {@link LocalDBLogger}.  Each stored event is assigned
+ * a sequence number when it is flushed, with the newest event at the head of the queue holding the highest number.
+ * Contiguous runs of events sharing a time window are summarized in an {@link IndexBucket} recording the highest level,
+ * the usernames and the event types present, so searches can step over ranges that can not match without decoding them.</p>
+ *
+ * <p>Sequence numbers without a covering bucket, such as older events before the startup rebuild completes, are
+ * always searched, so a missing or reset index only costs speed, never results.</p>
+ *
+ * <p>A complete index can be {@link #export(String)}ed at shutdown and {@link #restore(StoredIndex, String)}d at the
+ * next startup, so the stored events only need to be re-read when the saved index does not match the queue.</p>
+ */
+class LocalDBLogIndex
+{
+    private final long bucketMillis;
+    private final int maxBucketEvents;
+    private final int maxBucketUsernames;
+
+    private final Lock lock = new ReentrantLock();
+    private final NavigableMap<Long, IndexBucket> buckets = new TreeMap<>();
+
+    private long headSeq;
+    private long generation;
+    private boolean complete;
+    private IndexBucket headBucket;
+
+    LocalDBLogIndex( final LocalDBLoggerSettings settings, final long storedEvents )
+    {
+        this.bucketMillis = Math.max( 1, settings.getIndexBucketDuration().asMillis() );
+        this.maxBucketEvents = Math.max( 1, settings.getIndexMaxBucketEvents() );
+        this.maxBucketUsernames = Math.max( 0, settings.getIndexMaxBucketUsernames() );
+        this.headSeq = storedEvents;
+        this.complete = storedEvents == 0;
+    }
+
+    long getHeadSeq()
+    {
+        lock.lock();
+        try
+        {
+            return headSeq;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    long getGeneration()
+    {
+        lock.lock();
+        try
+        {
+            return generation;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    int bucketCount()
+    {
+        lock.lock();
+        try
+        {
+            return buckets.size();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record events just added to the head of the queue, in the order they were added.
+     * @param events newly stored events, null values are assigned a sequence but not indexed.
+     */
+    void append( final List<PwmLogEvent> events )
+    {
+        lock.lock();
+        try
+        {
+            for ( final PwmLogEvent event : events )
+            {
+                headSeq++;
+                if ( event == null )
+                {
+                    headBucket = null;
+                }
+                else
+                {
+                    if ( headBucket == null || !headBucket.accepts( event ) )
+                    {
+                        headBucket = newBucket( headSeq, event );
+                        buckets.put( headSeq, headBucket );
+                    }
+                    headBucket.add( headSeq, event );
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discard buckets for events that have been removed from the tail of the queue.
+     * @param storedEvents the number of events remaining in the queue.
+     */
+    void trim( final long storedEvents )
+    {
+        lock.lock();
+        try
+        {
+            final long tailSeq = headSeq - storedEvents + 1;
+            final Iterator<IndexBucket> iterator = buckets.values().iterator();
+            while ( iterator.hasNext() )
+            {
+                final IndexBucket bucket = iterator.next();
+                if ( bucket.lastSeq >= tailSeq )
+                {
+                    return;
+                }
+                iterator.remove();
+                if ( bucket == headBucket )
+                {
+                    headBucket = null;
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discard the entire index, used when the queue state can no longer be related to the assigned sequence numbers.
+     * @param storedEvents the number of events currently in the queue.
+     */
+    void reset( final long storedEvents )
+    {
+        lock.lock();
+        try
+        {
+            buckets.clear();
+            headBucket = null;
+            headSeq = storedEvents;
+            complete = storedEvents == 0;
+            generation++;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Build buckets for events stored before this index was created.  The iterator must walk the queue from the head
+     * starting at {@code startSeq}.  Buckets are assembled without holding the lock and merged at the end, so
+     * concurrent appends and searches are not blocked by the rebuild.  The result is discarded if the index was
+     * {@link #reset(long)} or {@link #restore(StoredIndex, String)}d in the meantime, or if the calling thread is
+     * interrupted before the iterator is exhausted.
+     *
+     * @param iterator queue iterator positioned at the head
+     * @param startSeq sequence number of the first value returned by the iterator
+     * @param startGeneration value of {@link #getGeneration()} when the iterator was created
+     * @param decoder decodes stored values, returning null for unreadable values
+     * @return number of events indexed
+     */
+    long rebuild(
+            final Iterator<String> iterator,
+            final long startSeq,
+            final long startGeneration,
+            final Function<String, PwmLogEvent> decoder
+    )
+    {
+        final List<IndexBucket> rebuiltBuckets = new ArrayList<>();
+        IndexBucket currentBucket = null;
+        long seq = startSeq;
+        while ( seq > 0 && iterator.hasNext() )
+        {
+            if ( Thread.currentThread().isInterrupted() )
+            {
+                return 0;
+            }
+
+            final PwmLogEvent event = decoder.apply( iterator.next() );
+            if ( event == null )
+            {
+                currentBucket = null;
+            }
+            else
+            {
+                if ( currentBucket == null || !currentBucket.accepts( event ) )
+                {
+                    currentBucket = newBucket( seq, event );
+                    rebuiltBuckets.add( currentBucket );
+                }
+                currentBucket.add( seq, event );
+            }
+            seq--;
+        }
+
+        lock.lock();
+        try
+        {
+            if ( generation != startGeneration )
+            {
+                return 0;
+            }
+            for ( final IndexBucket bucket : rebuiltBuckets )
+            {
+                buckets.put( bucket.firstSeq, bucket );
+            }
+            complete = true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return startSeq - seq;
+    }
+
+    /**
+     * Capture the index for storage.
+     * @param queueStamp value identifying the current queue contents, checked by {@link #restore(StoredIndex, String)}.
+     * @return the index, or empty if it does not yet cover all of the stored events.
+     */
+    Optional<StoredIndex> export( final String queueStamp )
+    {
+        lock.lock();
+        try
+        {
+            if ( !complete )
+            {
+                return Optional.empty();
+            }
+
+            final List<StoredBucket> storedBuckets = new ArrayList<>( buckets.size() );
+            for ( final IndexBucket bucket : buckets.values() )
+            {
+                storedBuckets.add( new StoredBucket(
+                        bucket.window,
+                        bucket.firstSeq,
+                        bucket.lastSeq,
+                        bucket.eventCount,
+                        bucket.maxLevel,
+                        bucket.userEvents,
+                        bucket.systemEvents,
+                        bucket.usernameOverflow,
+                        new ArrayList<>( bucket.usernames ) ) );
+            }
+            return Optional.of( new StoredIndex( queueStamp, headSeq, storedBuckets ) );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replace the index with a previously exported copy.  Sequence numbers are shifted to the current head sequence, and
+     * any rebuild in progress is discarded.
+     * @param storedIndex index returned by {@link #export(String)}
+     * @param queueStamp value identifying the current queue contents
+     * @return true if the stored index matched the queue and was restored.
+     */
+    boolean restore( final StoredIndex storedIndex, final String queueStamp )
+    {
+        if ( storedIndex == null || storedIndex.getBuckets() == null || !queueStamp.equals( storedIndex.getQueueStamp() ) )
+        {
+            return false;
+        }
+
+        lock.lock();
+        try
+        {
+            final long offset = headSeq - storedIndex.getHeadSeq();
+            buckets.clear();
+            headBucket = null;
+            for ( final StoredBucket storedBucket : storedIndex.getBuckets() )
+            {
+                final IndexBucket bucket = new IndexBucket( storedBucket.getFirstSeq() + offset, storedBucket.getWindow() );
+                bucket.lastSeq = storedBucket.getLastSeq() + offset;
+                bucket.eventCount = storedBucket.getEventCount();
+                bucket.maxLevel = storedBucket.getMaxLevel();
+                bucket.userEvents = storedBucket.isUserEvents();
+                bucket.systemEvents = storedBucket.isSystemEvents();
+                bucket.usernameOverflow = storedBucket.isUsernameOverflow();
+                if ( storedBucket.getUsernames() != null )
+                {
+                    bucket.usernames.addAll( storedBucket.getUsernames() );
+                }
+                buckets.put( bucket.firstSeq, bucket );
+            }
+            complete = true;
+            generation++;
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Count the events, starting at {@code seq} and moving toward the tail, that belong to a bucket the filter
+     * rules out.
+     * @param seq sequence number of the next event to be read
+     * @param searchFilter compiled search filter
+     * @return number of events that can be skipped without reading them, zero if the next event must be read.
+     */
+    long skippableCount( final long seq, final LocalDBSearchFilter searchFilter )
+    {
+        lock.lock();
+        try
+        {
+            final Map.Entry<Long, IndexBucket> entry = buckets.floorEntry( seq );
+            if ( entry == null )
+            {
+                return 0;
+            }
+
+            final IndexBucket bucket = entry.getValue();
+            if ( seq > bucket.lastSeq || searchFilter.mayMatch( bucket ) )
+            {
+                return 0;
+            }
+
+            return seq - bucket.firstSeq + 1;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private IndexBucket newBucket( final long seq, final PwmLogEvent event )
+    {
+        return new IndexBucket( seq, windowOf( event.getTimestamp() ) );
+    }
+
+    private long windowOf( final Instant timestamp )
+    {
+        return timestamp == null ? 0 : Math.floorDiv( timestamp.toEpochMilli(), bucketMillis );
+    }
+
+    @Value
+    static class StoredIndex implements Serializable
+    {
+        private final String queueStamp;
+        private final long headSeq;
+        private final List<StoredBucket> buckets;
+    }
+
+    @Value
+    static class StoredBucket implements Serializable
+    {
+        private final long window;
+        private final long firstSeq;
+        private final long lastSeq;
+        private final int eventCount;
+        private final PwmLogLevel maxLevel;
+        private final boolean userEvents;
+        private final boolean systemEvents;
+        private final boolean usernameOverflow;
+        private final List<String> usernames;
+    }
+
+    /**
+     * Summary of a contiguous run of stored events.  Only mutated and read while the owning index lock is held.
+     */
+    class IndexBucket
+    {
+        private final long window;
+        private final Set<String> usernames = new HashSet<>();
+
+        private long firstSeq;
+        private long lastSeq;
+        private int eventCount;
+        private PwmLogLevel maxLevel;
+        private boolean userEvents;
+        private boolean systemEvents;
+        private boolean usernameOverflow;
+
+        private IndexBucket( final long seq, final long window )
+        {
+            this.firstSeq = seq;
+            this.lastSeq = seq;
+            this.window = window;
+        }
+
+        private boolean accepts( final PwmLogEvent event )
+        {
+            return eventCount < maxBucketEvents && window == windowOf( event.getTimestamp() );
+        }
+
+        private void add( final long seq, final PwmLogEvent event )
+        {
+            firstSeq = Math.min( firstSeq, seq );
+            lastSeq = Math.max( lastSeq, seq );
+            eventCount++;
+
+            if ( maxLevel == null || ( event.getLevel() != null && event.getLevel().compareTo( maxLevel ) > 0 ) )
+            {
+                maxLevel = event.getLevel();
+            }
+
+            final String username = event.getUsername();
+            if ( StringUtil.isEmpty( username ) )
+            {
+                systemEvents = true;
+            }
+            else
+            {
+                userEvents = true;
+                if ( !usernameOverflow && !usernames.contains( username ) )
+                {
+                    if ( usernames.size() >= maxBucketUsernames )
+                    {
+                        usernameOverflow = true;
+                        usernames.clear();
+                    }
+                    else
+                    {
+                        usernames.add( username );
+                    }
+                }
+            }
+        }
+
+        PwmLogLevel getMaxLevel()
+        {
+            return maxLevel;
+        }
+
+        boolean hasUserEvents()
+        {
+            return userEvents;
+        }
+
+        boolean hasSystemEvents()
+        {
+            return systemEvents;
+        }
+
+        /**
+         * Distinct usernames of the user events in this bucket.
+         * @return the usernames, or empty if more than the configured maximum were seen, see {@link #isUsernameOverflow()}.
+         */
+        Set<String> getUsernames()
+        {
+            return Collections.unmodifiableSet( usernames );
+        }
+
+        boolean isUsernameOverflow()
+        {
+            return usernameOverflow;
+        }
+    }
+}
@@ -47,6 +47,7 @@ import java.text.NumberFormat;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -54,13 +55,13 @@ import java.util.Optional;
 import java.util.Queue;
 import java.util.TreeMap;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Saves a recent copy of PWM events in the pwmDB.
@@ -71,11 +72,15 @@ public class LocalDBLogger extends AbstractPwmService implements PwmService
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( LocalDBLogger.class );
 
+    private final PwmApplication pwmApplication;
     private final LocalDBLoggerSettings settings;
     private final LocalDBStoredQueue localDBListQueue;
+    private final LocalDBLogIndex logIndex;
+    private final Lock queueLock = new ReentrantLock();
     private final Queue<PwmLogEvent> tempMemoryEventQueue;
     private final ScheduledExecutorService cleanerService;
     private final ScheduledExecutorService writerService;
+    private final ExecutorService indexerService;
     private final AtomicBoolean cleanOnWriteFlag = new AtomicBoolean( false );
     private final AtomicBoolean flushScheduled = new AtomicBoolean( true );
 
@@ -111,6 +116,7 @@ public class LocalDBLogger extends AbstractPwmService implements PwmService
     {
         Objects.requireNonNull( localDB, "localDB can not be null" );
 
+        this.pwmApplication = pwmApplication;
         this.settings = settings == null
                 ? LocalDBLoggerSettings.builder().build().applyValueChecks()
                 : settings.applyValueChecks();
@@ -146,6 +152,9 @@ public class LocalDBLogger extends AbstractPwmService implements PwmService
                     } );
         }
 
+        logIndex = new LocalDBLogIndex( this.settings, localDBListQueue.size() );
+        final boolean indexRestored = restoreIndex();
+
         setStatus( STATUS.OPEN );
 
         cleanerService = Executors.newSingleThreadScheduledExecutor(
@@ -160,6 +169,21 @@ public class LocalDBLogger extends AbstractPwmService implements PwmService
                         true
                 ) );
 
+        if ( indexRestored )
+        {
+            indexerService = null;
+        }
+        else
+        {
+            indexerService = Executors.newSingleThreadExecutor(
+                    PwmScheduler.makePwmThreadFactory(
+                            PwmScheduler.makeThreadName( pwmApplication, this.getClass() ) + "-indexer-",
+                            true
+                    ) );
+            indexerService.execute( this::rebuildIndex );
+            indexerService.shutdown();
+        }
+
         cleanerService.scheduleAtFixedRate( new CleanupTask(), 0, this.settings.cleanerFrequency().asMillis(), TimeUnit.MILLISECONDS );
 
         cleanOnWriteFlag.set( tempMemoryEventQueue.size() >= this.settings.getMaxEvents() );
@@ -195,6 +219,113 @@ public class LocalDBLogger extends AbstractPwmService implements PwmService
         return Optional.empty();
     }
 
+    /**
+     * Value identifying the current queue contents, used to verify a stored index still describes the queue.  Must
+     * be called while holding the queue lock, or before the writer and cleaner are started.
+     */
+    private String queueStamp()
+    {
+        if ( localDBListQueue.isEmpty() )
+        {
+            return "0";
+        }
+        return localDBListQueue.size()
+                + ":" + Objects.hashCode( localDBListQueue.getFirst() )
+                + ":" + Objects.hashCode( localDBListQueue.getLast() );
+    }
+
+    /**
+     * Restore the index saved by the previous {@link #close()}.  The stored copy is removed before use so an
+     * unclean shutdown can not leave a stale index behind for the next startup.
+     * @return true if the stored index matched the queue and no rebuild is needed.
+     */
+    private boolean restoreIndex()
+    {
+        if ( pwmApplication == null || localDBListQueue.isEmpty() )
+        {
+            return localDBListQueue.isEmpty();
+        }
+
+        try
+        {
+            final Optional<LocalDBLogIndex.StoredIndex> storedIndex = pwmApplication.readAppAttribute(
+                    AppAttribute.LOCALDB_LOGGER_INDEX, LocalDBLogIndex.StoredIndex.class );
+            if ( storedIndex.isPresent() )
+            {
+                pwmApplication.writeAppAttribute( AppAttribute.LOCALDB_LOGGER_INDEX, null );
+                if ( logIndex.restore( storedIndex.get(), queueStamp() ) )
+                {
+                    LOGGER.trace( () -> "restored stored index of " + logIndex.bucketCount() + " buckets" );
+                    return true;
+                }
+                LOGGER.debug( () -> "stored index does not match stored events, index will be rebuilt" );
+            }
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.debug( () -> "unable to restore stored index, index will be rebuilt: " + e.getMessage() );
+        }
+        return false;
+    }
+
+    private void persistIndex()
+    {
+        if ( pwmApplication == null || localDBListQueue.getLocalDB().status() != LocalDB.Status.OPEN )
+        {
+            return;
+        }
+
+        queueLock.lock();
+        try
+        {
+            final Optional<LocalDBLogIndex.StoredIndex> storedIndex = logIndex.export( queueStamp() );
+            if ( storedIndex.isPresent() )
+            {
+                pwmApplication.writeAppAttribute( AppAttribute.LOCALDB_LOGGER_INDEX, storedIndex.get() );
+                LOGGER.trace( () -> "stored index of " + storedIndex.get().getBuckets().size() + " buckets" );
+            }
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.debug( () -> "unable to store index, index will be rebuilt at next startup: " + e.getMessage() );
+        }
+        finally
+        {
+            queueLock.unlock();
+        }
+    }
+
+    private void rebuildIndex()
+    {
+        final Instant startTime = Instant.now();
+        final Iterator<String> iterator;
+        final long startSeq;
+        final long generation;
+
+        queueLock.lock();
+        try
+        {
+            iterator = localDBListQueue.iterator();
+            startSeq = logIndex.getHeadSeq();
+            generation = logIndex.getGeneration();
+        }
+        finally
+        {
+            queueLock.unlock();
+        }
+
+        try
+        {
+            final long indexedEvents = logIndex.rebuild( iterator, startSeq, generation, this::readEvent );
+            LOGGER.trace( () -> "indexed " + indexedEvents + " stored events into " + logIndex.bucketCount() + " buckets",
+                    () -> TimeDuration.fromCurrent( startTime ) );
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.error( () -> "error indexing stored localDBLogger events, searches will scan unindexed events: " + e.getMessage() );
+        }
+    }
+
     private void scheduleNextFlush()
     {
         if ( tempMemoryEventQueue.size() > settings.getMaxBufferSize() / 2 )
@@ -222,6 +353,7 @@ public class LocalDBLogger extends AbstractPwmService implements PwmService
         }
 
         debugData.put( "EventsStored", String.valueOf( localDBListQueue.size() ) );
+        debugData.put( "IndexBuckets", String.valueOf( logIndex.bucketCount() ) );
         debugData.put( "ConfiguredMaxEvents", MiscUtil.forDefaultLocale().format( settings.getMaxEvents() ) );
         debugData.put( "ConfiguredMaxAge", settings.getMaxAge().asCompactString() );
         debugData.put( "BufferAverageLatency", averages.getFormattedAverage( AverageStat.avgFlushLatency ) );
@@ -247,12 +379,18 @@ public class LocalDBLogger extends AbstractPwmService implements PwmService
         {
             LOGGER.trace( () -> "LocalDBLogger closing" );
             flushedEvents += tempMemoryEventQueue.size();
+            if ( indexerService != null )
+            {
+                indexerService.shutdownNow();
+            }
             if ( cleanerService != null )
             {
                 cleanerService.shutdown();
             }
             writerService.execute( new FlushTask() );
             JavaHelper.closeAndWaitExecutor( writerService, TimeDuration.SECONDS_10 );
+            JavaHelper.closeAndWaitExecutor( cleanerService, TimeDuration.SECONDS_10 );
+            persistIndex();
         }
         setStatus( STATUS.CLOSED );
 
@@ -317,7 +455,21 @@ public class LocalDBLogger extends AbstractPwmService implements PwmService
             final LocalDBSearchQuery searchParameters
     )
     {
-        return new LocalDBSearchResults( this, localDBListQueue.iterator(), searchParameters );
+        final LocalDBStoredQueue.QueueIterator iterator;
+        final long headSeq;
+
+        queueLock.lock();
+        try
+        {
+            iterator = localDBListQueue.iterator();
+            headSeq = logIndex.getHeadSeq();
+        }
+        finally
+        {
+            queueLock.unlock();
+        }
+
+        return new LocalDBSearchResults( this, iterator, searchParameters, logIndex, headSeq );
     }
 
     PwmLogEvent readEvent( final String value )
@@ -337,101 +489,6 @@ public class LocalDBLogger extends AbstractPwmService implements PwmService
         return null;
     }
 
-    boolean checkEventForParams(
-            final PwmLogEvent event,
-            final LocalDBSearchQuery searchParameters
-    )
-    {
-        if ( event == null )
-        {
-            return false;
-        }
-
-        boolean eventMatchesParams = true;
-
-        if ( searchParameters.getMinimumLevel() != null )
-        {
-            if ( event.getLevel().compareTo( searchParameters.getMinimumLevel() ) <= -1 )
-            {
-                eventMatchesParams = false;
-            }
-        }
-
-        Pattern pattern = null;
-        try
-        {
-            if ( searchParameters.getUsername() != null && searchParameters.getUsername().length() > 0 )
-            {
-                pattern = Pattern.compile( searchParameters.getUsername() );
-            }
-        }
-        catch ( final PatternSyntaxException e )
-        {
-            LOGGER.trace( () -> "invalid regex syntax for " + searchParameters.getUsername() + ", reverting to plaintext search" );
-        }
-        if ( pattern != null )
-        {
-            final Matcher matcher = pattern.matcher( event.getUsername() == null ? "" : event.getUsername() );
-            if ( !matcher.find() )
-            {
-                eventMatchesParams = false;
-            }
-        }
-        else if ( eventMatchesParams && ( searchParameters.getUsername() != null && searchParameters.getUsername().length() > 1 ) )
-        {
-            final String eventUsername = event.getUsername();
-            if ( eventUsername == null || !eventUsername.equalsIgnoreCase( searchParameters.getUsername() ) )
-            {
-                eventMatchesParams = false;
-            }
-        }
-
-        if ( eventMatchesParams && ( searchParameters.getText() != null && searchParameters.getText().length() > 0 ) )
-        {
-            final String eventMessage = event.getMessage();
-            final String textLowercase = searchParameters.getText().toLowerCase();
-            boolean isAMatch = false;
-            if ( eventMessage != null && eventMessage.length() > 0 )
-            {
-                if ( eventMessage.toLowerCase().contains( textLowercase ) )
-                {
-                    isAMatch = true;
-                }
-                else if ( event.getTopic() != null && event.getTopic().length() > 0 )
-                {
-                    if ( event.getTopic().toLowerCase().contains( textLowercase ) )
-                    {
-                        isAMatch = true;
-                    }
-                }
-                if ( !isAMatch )
-                {
-                    eventMatchesParams = false;
-                }
-            }
-        }
-
-        if ( searchParameters.getEventType() != null )
-        {
-            if ( searchParameters.getEventType() == EventType.System )
-            {
-                if ( event.getUsername() != null && event.getUsername().length() > 0 )
-                {
-                    eventMatchesParams = false;
-                }
-            }
-            else if ( searchParameters.getEventType() == EventType.User )
-            {
-                if ( event.getUsername() == null || event.getUsername().length() < 1 )
-                {
-                    eventMatchesParams = false;
-                }
-            }
-        }
-
-        return eventMatchesParams;
-    }
-
     public void writeEvent( final PwmLogEvent event )
     {
         if ( status() == STATUS.OPEN )
@@ -463,12 +520,14 @@ public class LocalDBLogger extends AbstractPwmService implements PwmService
 
         Instant eldestEntry = Instant.now();
         final List<String> localBuffer = new ArrayList<>( Math.min( tempMemoryEventQueue.size(), settings.getMaxBufferSize() ) );
+        final List<PwmLogEvent> bufferedEvents = new ArrayList<>( Math.min( tempMemoryEventQueue.size(), settings.getMaxBufferSize() ) );
         while ( localBuffer.size() < ( settings.getMaxBufferSize() ) - 1 && !tempMemoryEventQueue.isEmpty() )
         {
             final PwmLogEvent pwmLogEvent = tempMemoryEventQueue.poll();
             try
             {
                 localBuffer.add( pwmLogEvent.toEncodedString() );
+                bufferedEvents.add( pwmLogEvent );
                 eldestEntry = pwmLogEvent.getTimestamp();
             }
             catch ( final IOException e )
@@ -477,14 +536,16 @@ public class LocalDBLogger extends AbstractPwmService implements PwmService
             }
         }
 
+        queueLock.lock();
         try
         {
             if ( cleanOnWriteFlag.get() )
             {
-                localDBListQueue.removeLast( localBuffer.size() );
+                removeTailEvents( localBuffer.size() );
                 stats.increment( CounterStat.EventsRemoved, localBuffer.size() );
             }
             localDBListQueue.addAll( localBuffer );
+            logIndex.append( bufferedEvents );
 
             stats.increment( CounterStat.BufferFlushCycles );
             stats.increment( CounterStat.EventsWritten, localBuffer.size() );
@@ -493,12 +554,32 @@ public class LocalDBLogger extends AbstractPwmService implements PwmService
         }
         catch ( final Exception e )
         {
+            // sequence numbers can no longer be related to queue positions
+            logIndex.reset( localDBListQueue.size() );
             LOGGER.error( () -> "error writing to localDBLogger: " + e.getMessage(), e );
         }
+        finally
+        {
+            queueLock.unlock();
+        }
 
         debugOutputter.conditionallyExecuteTask();
     }
 
+    private void removeTailEvents( final int count )
+    {
+        queueLock.lock();
+        try
+        {
+            localDBListQueue.removeLast( count );
+            logIndex.trim( localDBListQueue.size() );
+        }
+        finally
+        {
+            queueLock.unlock();
+        }
+    }
+
     private class FlushTask implements Runnable
     {
         @Override
@@ -535,7 +616,7 @@ public class LocalDBLogger extends AbstractPwmService implements PwmService
                     {
                         cleanOnWriteFlag.set( true );
                         final Instant startTime = Instant.now();
-                        localDBListQueue.removeLast( cleanupCount );
+                        removeTailEvents( cleanupCount );
                         stats.increment( CounterStat.EventsRemoved, cleanupCount );
                         final TimeDuration purgeTime = TimeDuration.fromCurrent( startTime );
                         final TimeDuration pauseTime = TimeDuration.of( JavaHelper.rangeCheck( 20, 2000, ( int ) purgeTime.asMillis() ), TimeDuration.Unit.MILLISECONDS );
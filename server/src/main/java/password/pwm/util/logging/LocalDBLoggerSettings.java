@@ -61,6 +61,15 @@ public class LocalDBLoggerSettings implements Serializable
     @Builder.Default
     private int maxTrimSize = 501;
 
+    @Builder.Default
+    private TimeDuration indexBucketDuration = TimeDuration.of( 5, TimeDuration.Unit.MINUTES );
+
+    @Builder.Default
+    private int indexMaxBucketEvents = 5_000;
+
+    @Builder.Default
+    private int indexMaxBucketUsernames = 32;
+
 
     public enum Flag
     {
@@ -98,6 +107,12 @@ public class LocalDBLoggerSettings implements Serializable
                 TimeDuration.Unit.MILLISECONDS
         );
         final int maxTrimSize = Integer.parseInt( appConfig.readAppProperty( AppProperty.LOCALDB_LOGWRITER_MAX_TRIM_SIZE ) );
+        final TimeDuration indexBucketDuration = TimeDuration.of(
+                Long.parseLong( appConfig.readAppProperty( AppProperty.LOCALDB_LOGWRITER_INDEX_BUCKET_MS ) ),
+                TimeDuration.Unit.MILLISECONDS
+        );
+        final int indexMaxBucketEvents = Integer.parseInt( appConfig.readAppProperty( AppProperty.LOCALDB_LOGWRITER_INDEX_MAX_BUCKET_EVENTS ) );
+        final int indexMaxBucketUsernames = Integer.parseInt( appConfig.readAppProperty( AppProperty.LOCALDB_LOGWRITER_INDEX_MAX_BUCKET_USERNAMES ) );
 
         return LocalDBLoggerSettings.builder()
                 .maxEvents( maxEvents )
@@ -106,6 +121,9 @@ public class LocalDBLoggerSettings implements Serializable
                 .maxBufferSize( maxBufferSize )
                 .maxBufferWaitTime( maxBufferWaitTime )
                 .maxTrimSize( maxTrimSize )
+                .indexBucketDuration( indexBucketDuration )
+                .indexMaxBucketEvents( indexMaxBucketEvents )
+                .indexMaxBucketUsernames( indexMaxBucketUsernames )
                 .build().applyValueChecks();
     }
 }
@@ -0,0 +1,170 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.logging;
+
+import password.pwm.util.java.StringUtil;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A {@link LocalDBSearchQuery} prepared for evaluation against many events, with the username pattern compiled
+ * once per search.
+ */
+class LocalDBSearchFilter
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( LocalDBSearchFilter.class );
+
+    private final LocalDBSearchQuery searchParameters;
+    private final Pattern usernamePattern;
+    private final String plainUsername;
+    private final String textLowercase;
+
+    LocalDBSearchFilter( final LocalDBSearchQuery searchParameters )
+    {
+        this.searchParameters = searchParameters;
+        this.usernamePattern = compileUsernamePattern( searchParameters.getUsername() );
+        this.plainUsername = usernamePattern == null && searchParameters.getUsername() != null && searchParameters.getUsername().length() > 1
+                ? searchParameters.getUsername()
+                : null;
+        this.textLowercase = StringUtil.isEmpty( searchParameters.getText() )
+                ? null
+                : searchParameters.getText().toLowerCase();
+    }
+
+    private static Pattern compileUsernamePattern( final String username )
+    {
+        if ( StringUtil.isEmpty( username ) )
+        {
+            return null;
+        }
+
+        try
+        {
+            return Pattern.compile( username );
+        }
+        catch ( final PatternSyntaxException e )
+        {
+            LOGGER.trace( () -> "invalid regex syntax for " + username + ", reverting to plaintext search" );
+        }
+        return null;
+    }
+
+    boolean matches( final PwmLogEvent event )
+    {
+        if ( event == null )
+        {
+            return false;
+        }
+
+        if ( !levelMatches( event.getLevel() ) )
+        {
+            return false;
+        }
+
+        if ( !usernameMatches( event.getUsername() ) )
+        {
+            return false;
+        }
+
+        if ( textLowercase != null )
+        {
+            final String eventMessage = event.getMessage();
+            if ( eventMessage != null && eventMessage.length() > 0 )
+            {
+                final boolean isAMatch = eventMessage.toLowerCase().contains( textLowercase )
+                        || ( event.getTopic() != null && event.getTopic().toLowerCase().contains( textLowercase ) );
+                if ( !isAMatch )
+                {
+                    return false;
+                }
+            }
+        }
+
+        final boolean userEvent = StringUtil.notEmpty( event.getUsername() );
+        return eventTypeMatches( userEvent, !userEvent );
+    }
+
+    /**
+     * Test if any event summarized by the bucket could satisfy this filter.  A false result is definitive.
+     * @param bucket index bucket
+     * @return false if no event in the bucket can match.
+     */
+    boolean mayMatch( final LocalDBLogIndex.IndexBucket bucket )
+    {
+        if ( bucket.getMaxLevel() != null && !levelMatches( bucket.getMaxLevel() ) )
+        {
+            return false;
+        }
+
+        if ( !eventTypeMatches( bucket.hasUserEvents(), bucket.hasSystemEvents() ) )
+        {
+            return false;
+        }
+
+        if ( ( usernamePattern != null || plainUsername != null ) && !bucket.isUsernameOverflow() )
+        {
+            if ( bucket.hasSystemEvents() && usernameMatches( null ) )
+            {
+                return true;
+            }
+            return bucket.getUsernames().stream().anyMatch( this::usernameMatches );
+        }
+
+        return true;
+    }
+
+    private boolean levelMatches( final PwmLogLevel level )
+    {
+        return searchParameters.getMinimumLevel() == null
+                || level.compareTo( searchParameters.getMinimumLevel() ) >= 0;
+    }
+
+    private boolean usernameMatches( final String username )
+    {
+        if ( usernamePattern != null )
+        {
+            return usernamePattern.matcher( username == null ? "" : username ).find();
+        }
+
+        if ( plainUsername != null )
+        {
+            return username != null && username.equalsIgnoreCase( plainUsername );
+        }
+
+        return true;
+    }
+
+    private boolean eventTypeMatches( final boolean hasUserEvents, final boolean hasSystemEvents )
+    {
+        if ( searchParameters.getEventType() == LocalDBLogger.EventType.System )
+        {
+            return hasSystemEvents;
+        }
+
+        if ( searchParameters.getEventType() == LocalDBLogger.EventType.User )
+        {
+            return hasUserEvents;
+        }
+
+        return true;
+    }
+}
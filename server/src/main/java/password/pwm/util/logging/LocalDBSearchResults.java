@@ -21,6 +21,7 @@
 package password.pwm.util.logging;
 
 import password.pwm.util.java.TimeDuration;
+import password.pwm.util.localdb.LocalDBStoredQueue;
 
 import java.time.Instant;
 import java.util.Iterator;
@@ -29,24 +30,32 @@ import java.util.NoSuchElementException;
 public class LocalDBSearchResults implements Iterator<PwmLogEvent>
 {
     private transient LocalDBLogger localDBLogger;
-    private final Iterator<String> localDBIterator;
+    private final LocalDBStoredQueue.QueueIterator localDBIterator;
     private final LocalDBSearchQuery searchParameters;
+    private final LocalDBSearchFilter searchFilter;
+    private final LocalDBLogIndex logIndex;
 
     private final Instant startTime;
 
     private PwmLogEvent nextEvent;
     private int eventCount = 0;
+    private long nextSeq;
     private Instant finishTime;
 
     LocalDBSearchResults( final LocalDBLogger localDBLogger,
-                          final Iterator<String> localDBIterator,
-                          final LocalDBSearchQuery searchParameters
+                          final LocalDBStoredQueue.QueueIterator localDBIterator,
+                          final LocalDBSearchQuery searchParameters,
+                          final LocalDBLogIndex logIndex,
+                          final long headSeq
     )
     {
         this.localDBLogger = localDBLogger;
         startTime = Instant.now();
         this.localDBIterator = localDBIterator;
         this.searchParameters = searchParameters;
+        this.searchFilter = new LocalDBSearchFilter( searchParameters );
+        this.logIndex = logIndex;
+        this.nextSeq = headSeq;
         nextEvent = readNextEvent();
     }
 
@@ -97,7 +106,13 @@ public class LocalDBSearchResults implements Iterator<PwmLogEvent>
 
         while ( !isTimedOut() && localDBIterator.hasNext() )
         {
+            if ( skipNonMatchingRange() )
+            {
+                continue;
+            }
+
             final String nextDbValue = localDBIterator.next();
+            nextSeq--;
             if ( nextDbValue == null )
             {
                 finishTime = Instant.now();
@@ -105,7 +120,7 @@ public class LocalDBSearchResults implements Iterator<PwmLogEvent>
             }
 
             final PwmLogEvent logEvent = localDBLogger.readEvent( nextDbValue );
-            if ( logEvent != null && localDBLogger.checkEventForParams( logEvent, searchParameters ) )
+            if ( logEvent != null && searchFilter.matches( logEvent ) )
             {
                 eventCount++;
                 return logEvent;
@@ -116,6 +131,23 @@ public class LocalDBSearchResults implements Iterator<PwmLogEvent>
         return null;
     }
 
+    /**
+     * Step over the run of stored events the index rules out, without decoding them.
+     * @return true if any events were skipped.
+     */
+    private boolean skipNonMatchingRange( )
+    {
+        if ( logIndex == null )
+        {
+            return false;
+        }
+
+        final long skipCount = logIndex.skippableCount( nextSeq, searchFilter );
+        final long skipped = skipCount > 0 ? localDBIterator.skip( skipCount ) : 0;
+        nextSeq -= skipped;
+        return skipped > 0;
+    }
+
     public int getReturnedEvents( )
     {
         return eventCount;
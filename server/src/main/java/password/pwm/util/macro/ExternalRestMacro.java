@@ -43,6 +43,8 @@ class ExternalRestMacro extends AbstractMacro
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( ExternalRestMacro.class );
 
+    static final String MACRO_PREFIX = "@External";
+
     private final Pattern pattern;
     private final String url;
 
@@ -51,7 +53,7 @@ class ExternalRestMacro extends AbstractMacro
             final String url
     )
     {
-        this.pattern = Pattern.compile( "@External" + iteration + ":.*@" );
+        this.pattern = Pattern.compile( MACRO_PREFIX + iteration + ":.*@" );
         this.url = url;
     }
 
@@ -20,8 +20,9 @@
 
 package password.pwm.util.macro;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Value;
 import password.pwm.PwmApplication;
 import password.pwm.PwmApplicationMode;
 import password.pwm.PwmConstants;
@@ -29,6 +30,7 @@ import password.pwm.PwmDomain;
 import password.pwm.bean.DomainID;
 import password.pwm.bean.SessionLabel;
 import password.pwm.config.PwmSetting;
+import password.pwm.util.java.MovingAverage;
 import password.pwm.util.java.StatisticCounterBundle;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
@@ -39,60 +41,53 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class MacroMachine
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( MacroMachine.class );
 
-    private static final Map<Pattern, Macro> BUILTIN_MACROS = makeImplementations();
+    private static final List<Macro> BUILTIN_MACROS = makeImplementations();
+
+    // cached templates are weighed by input length in chars, larger inputs are parsed per call instead of cached.
+    private static final long TEMPLATE_CACHE_MAX_WEIGHT = 4_000_000;
+    static final int TEMPLATE_CACHE_MAX_INPUT_LENGTH = 64_000;
+
+    private static final Cache<TemplateKey, CompiledTemplate> TEMPLATE_CACHE = Caffeine.newBuilder()
+            .maximumWeight( TEMPLATE_CACHE_MAX_WEIGHT )
+            .weigher( ( TemplateKey key, CompiledTemplate value ) -> key.getInput().length() )
+            .build();
 
     private static final StatisticCounterBundle<DebugItem> STATISTIC_COUNTER_BUNDLE = new StatisticCounterBundle<>( DebugItem.class );
 
+    private static final Map<String, MovingAverage> MACRO_TIMINGS = new ConcurrentHashMap<>();
+
     enum DebugItem
     {
         Matches,
         Replacements,
         ExternalInvokes,
+        TemplateCompiles,
     }
 
-    private static Map<Pattern, Macro> makeImplementations( )
+    private static List<Macro> makeImplementations( )
     {
-        final List<Macro> implementations;
-        {
-            final List<Macro> list = new ArrayList<>();
-            list.addAll( SystemMacros.SYSTEM_MACROS );
-            list.addAll( StaticMacros.STATIC_MACROS );
-            list.addAll( UserMacros.USER_MACROS );
-            implementations = Collections.unmodifiableList( list );
-        }
-
-        return implementations
-                .stream()
-                .sorted( Comparator.comparing( Macro::getSequence ) )
-                .collect(
-                        Collectors.toMap(
-                                Macro::getRegExPattern,
-                                macroImplementation -> macroImplementation,
-                                ( k, v ) ->
-                                {
-                                    throw new IllegalStateException();
-                                },
-                                LinkedHashMap::new
-                        )
-                );
-
+        final List<Macro> list = new ArrayList<>();
+        list.addAll( SystemMacros.SYSTEM_MACROS );
+        list.addAll( StaticMacros.STATIC_MACROS );
+        list.addAll( UserMacros.USER_MACROS );
+        list.sort( Comparator.comparing( Macro::getSequence ) );
+        return Collections.unmodifiableList( list );
     }
 
-    private static Map<Pattern, Macro> makeExternalImplementations( final PwmDomain pwmDomain )
+    private static List<Macro> makeExternalImplementations( final PwmDomain pwmDomain )
     {
-        final LinkedHashMap<Pattern, Macro> map = new LinkedHashMap<>();
+        final List<Macro> list = new ArrayList<>();
         final List<String> externalMethods = ( pwmDomain == null )
                 ? Collections.emptyList()
                 : pwmDomain.getConfig().readSettingAsStringArray( PwmSetting.EXTERNAL_MACROS_REST_URLS );
@@ -101,11 +96,9 @@ public class MacroMachine
         for ( final String url : externalMethods )
         {
             iteration++;
-            final Macro macroImplementation = new ExternalRestMacro( iteration, url );
-            final Pattern pattern = macroImplementation.getRegExPattern();
-            map.put( pattern, macroImplementation );
+            list.add( new ExternalRestMacro( iteration, url ) );
         }
-        return map;
+        return list;
     }
 
 
@@ -120,83 +113,131 @@ public class MacroMachine
         }
 
         final Set<Macro.Scope> scopes = effectiveScopesForRequest( macroRequest );
-
-        final Map<Pattern, Macro> macroImplementations = new LinkedHashMap<>( BUILTIN_MACROS );
-
-        //First the User macros
-        if ( scopes.contains( Macro.Scope.User ) )
+        final TemplateKey templateKey = new TemplateKey( input, scopes );
+        final CompiledTemplate compiledTemplate = input.length() > TEMPLATE_CACHE_MAX_INPUT_LENGTH
+                ? compileTemplate( templateKey )
+                : TEMPLATE_CACHE.get( templateKey, MacroMachine::compileTemplate );
+
+        // external macros are domain specific so are not part of the cached template, but like the built-in macros they
+        // are only matched against the input text and never against values produced by other macros.
+        MacroTemplate template = compiledTemplate.getTemplate();
+        if ( input.contains( ExternalRestMacro.MACRO_PREFIX ) )
         {
-            if ( macroRequest.getPwmApplication() != null
-                    && macroRequest.getUserInfo() != null
-                    && macroRequest.getUserInfo().getUserIdentity() != null )
+            final List<Macro> externalMacros = externalMacrosForRequest( macroRequest, scopes );
+            if ( !externalMacros.isEmpty() )
             {
-                final DomainID domainID = macroRequest.getUserInfo().getUserIdentity().getDomainID();
-                final PwmDomain pwmDomain = macroRequest.getPwmApplication().domains().get( domainID );
-                macroImplementations.putAll( makeExternalImplementations( pwmDomain ) );
+                template = template.parseLiterals( externalMacros );
+                if ( template.getSegments().stream().anyMatch( segment -> segment.getMacro() instanceof ExternalRestMacro ) )
+                {
+                    STATISTIC_COUNTER_BUNDLE.increment( DebugItem.ExternalInvokes );
+                }
             }
         }
 
-        final ReplaceWorkData workData = new ReplaceWorkData( input, input, macroRequest );
+        String workingString = template.expand( segment -> replaceSegment( segment, macroRequest ) );
 
-        macroImplementations.entrySet().stream()
-                .filter( entry -> scopes.contains( entry.getValue().getScope() ) )
-                .forEachOrdered( entry -> doRequest( workData,  entry.getKey(), entry.getValue() ) );
+        // post sequence macros wrap other macros, so they are matched against the output of the first pass.
+        if ( compiledTemplate.isPostSequencePresent() )
+        {
+            final MacroTemplate postTemplate = MacroTemplate.parse( workingString, macrosForScopes( scopes, Macro.Sequence.post ) );
+            workingString = postTemplate.expand( segment -> replaceSegment( segment, macroRequest ) );
+        }
 
-        return workData.getWorkingString();
+        return workingString;
     }
 
-    @Data
-    @AllArgsConstructor
-    private static class ReplaceWorkData
+    private static List<Macro> externalMacrosForRequest( final MacroRequest macroRequest, final Set<Macro.Scope> scopes )
     {
-        private String originalString;
-        private String workingString;
-        private MacroRequest macroRequestInfo;
+        if ( scopes.contains( Macro.Scope.User )
+                && macroRequest.getPwmApplication() != null
+                && macroRequest.getUserInfo() != null
+                && macroRequest.getUserInfo().getUserIdentity() != null )
+        {
+            final DomainID domainID = macroRequest.getUserInfo().getUserIdentity().getDomainID();
+            final PwmDomain pwmDomain = macroRequest.getPwmApplication().domains().get( domainID );
+            return makeExternalImplementations( pwmDomain );
+        }
+        return Collections.emptyList();
     }
 
-    private static void doRequest(
-            final ReplaceWorkData replaceWorkData,
-            final Pattern pattern,
-            final Macro pwmMacro
-    )
+    /**
+     * Test if the input contains a built-in or external macro, regardless of scope.
+     * @param input string to test
+     * @return true if expanding the input could change its value
+     */
+    public static boolean containsMacros( final String input )
     {
-        boolean matched;
-        int safetyCounter = 0;
-        do
+        if ( StringUtil.isEmpty( input ) )
         {
-            safetyCounter++;
-            final Matcher matcher = pattern.matcher( replaceWorkData.getWorkingString() );
-            matched = matcher.find();
-            if ( matched )
-            {
-                STATISTIC_COUNTER_BUNDLE.increment( DebugItem.Matches );
-                replaceWorkData.setWorkingString( doReplace( replaceWorkData.getWorkingString(), pwmMacro, matcher, replaceWorkData.getMacroRequestInfo() ) );
-                if ( replaceWorkData.getWorkingString().equals( replaceWorkData.getOriginalString() ) )
-                {
-                    LOGGER.warn(
-                            replaceWorkData.getMacroRequestInfo().getSessionLabel(),
-                            () -> "macro replace was called but input string was not modified.  " + " macro="
-                                    + pwmMacro.getClass().getName() + ", pattern=" + pwmMacro.getRegExPattern().toString() );
-                    break;
-                }
-            }
+            return false;
         }
-        while ( matched && safetyCounter < 1000 );
+
+        return input.contains( ExternalRestMacro.MACRO_PREFIX )
+                || MacroTemplate.parse( input, BUILTIN_MACROS ).isMacroPresent();
+    }
+
+    private static CompiledTemplate compileTemplate( final TemplateKey templateKey )
+    {
+        STATISTIC_COUNTER_BUNDLE.increment( DebugItem.TemplateCompiles );
+        final String input = templateKey.getInput();
+        final MacroTemplate template = MacroTemplate.parse( input, macrosForScopes( templateKey.getScopes(), Macro.Sequence.normal ) );
+        final boolean postSequencePresent = macrosForScopes( templateKey.getScopes(), Macro.Sequence.post ).stream()
+                .anyMatch( macro -> macro.getRegExPattern().matcher( input ).find() );
+        return new CompiledTemplate( template, postSequencePresent );
+    }
+
+    private static List<Macro> macrosForScopes( final Set<Macro.Scope> scopes, final Macro.Sequence sequence )
+    {
+        return BUILTIN_MACROS.stream()
+                .filter( macro -> macro.getSequence() == sequence )
+                .filter( macro -> scopes.contains( macro.getScope() ) )
+                .collect( Collectors.toList() );
+    }
+
+    public static Map<String, String> debugStats()
+    {
+        final Map<String, String> debugStats = new TreeMap<>( STATISTIC_COUNTER_BUNDLE.debugStats() );
+        debugStats.put( "CachedTemplates", String.valueOf( TEMPLATE_CACHE.estimatedSize() ) );
+        MACRO_TIMINGS.forEach( ( name, average ) -> debugStats.put( "AvgMs_" + name, average.getFormattedAverage() ) );
+        return Collections.unmodifiableMap( debugStats );
+    }
+
+    @Value
+    private static class TemplateKey
+    {
+        private final String input;
+        private final Set<Macro.Scope> scopes;
+    }
+
+    @Value
+    private static class CompiledTemplate
+    {
+        private final MacroTemplate template;
+        private final boolean postSequencePresent;
+    }
+
+    private static String replaceSegment(
+            final MacroTemplate.Segment segment,
+            final MacroRequest macroRequestInfo
+    )
+    {
+        final Instant startTime = Instant.now();
+        final String replaceStr = doReplace( segment.getMacro(), segment.getText(), macroRequestInfo );
+        MACRO_TIMINGS.computeIfAbsent( segment.getMacro().getClass().getSimpleName(), k -> new MovingAverage( TimeDuration.MINUTE.asDuration() ) )
+                .update( TimeDuration.fromCurrent( startTime ).asDuration() );
+        return replaceStr;
     }
 
     private static String doReplace(
-            final String input,
             final Macro macroImplementation,
-            final Matcher matcher,
+            final String matchedStr,
             final MacroRequest macroRequestInfo
     )
     {
+        STATISTIC_COUNTER_BUNDLE.increment( DebugItem.Matches );
         final SessionLabel sessionLabel = macroRequestInfo.getSessionLabel();
         final PwmApplication pwmApplication = macroRequestInfo.getPwmApplication();
         final Instant startTime = Instant.now();
-        final String matchedStr = matcher.group();
-        final int startPos = matcher.start();
-        final int endPos = matcher.end();
 
         String replaceStr = "";
         try
@@ -222,7 +263,7 @@ public class MacroMachine
 
         if ( replaceStr == null )
         {
-            return input;
+            return null;
         }
 
         final MacroReplacer macroReplacer = macroRequestInfo.getMacroReplacer();
@@ -251,7 +292,7 @@ public class MacroMachine
                         () -> TimeDuration.fromCurrent( startTime ) );
             }
         }
-        return new StringBuilder( input ).replace( startPos, endPos, replaceStr ).toString();
+        return replaceStr;
     }
 
     private static Set<Macro.Scope> effectiveScopesForRequest( final MacroRequest macroRequestInfo )
@@ -0,0 +1,175 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.macro;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+
+/**
+ * A macro input string parsed into literal segments and references to the macros matched within it.  A template
+ * is parsed once and can then be expanded any number of times with a single pass over its segments.
+ *
+ * <p>Matches are found against the input string only, scanning left to right.  Where the matches of two macros
+ * overlap the one starting first is used, and for matches starting at the same position the macro listed first
+ * wins.  Values produced by an expansion are never themselves scanned for macros.</p>
+ */
+class MacroTemplate
+{
+    private final List<Segment> segments;
+    private final boolean macroPresent;
+
+    private MacroTemplate( final List<Segment> segments )
+    {
+        this.segments = segments;
+        this.macroPresent = segments.stream().anyMatch( segment -> segment.getMacro() != null );
+    }
+
+    static MacroTemplate parse( final String input, final List<Macro> macros )
+    {
+        final List<MatchCandidate> candidates = new ArrayList<>();
+        for ( int i = 0; i < macros.size(); i++ )
+        {
+            final Macro macro = macros.get( i );
+            final Matcher matcher = macro.getRegExPattern().matcher( input );
+            while ( matcher.find() )
+            {
+                if ( matcher.end() > matcher.start() )
+                {
+                    candidates.add( new MatchCandidate( matcher.start(), matcher.end(), i, macro ) );
+                }
+            }
+        }
+
+        if ( candidates.isEmpty() )
+        {
+            return new MacroTemplate( Collections.singletonList( new Segment( input, null ) ) );
+        }
+
+        candidates.sort( Comparator.comparingInt( MatchCandidate::getStart ).thenComparingInt( MatchCandidate::getMacroIndex ) );
+
+        final List<Segment> segments = new ArrayList<>();
+        int position = 0;
+        for ( final MatchCandidate candidate : candidates )
+        {
+            if ( candidate.getStart() < position )
+            {
+                continue;
+            }
+
+            if ( candidate.getStart() > position )
+            {
+                segments.add( new Segment( input.substring( position, candidate.getStart() ), null ) );
+            }
+            segments.add( new Segment( input.substring( candidate.getStart(), candidate.getEnd() ), candidate.getMacro() ) );
+            position = candidate.getEnd();
+        }
+
+        if ( position < input.length() )
+        {
+            segments.add( new Segment( input.substring( position ), null ) );
+        }
+
+        return new MacroTemplate( Collections.unmodifiableList( segments ) );
+    }
+
+    /**
+     * Parse the literal segments of this template for additional macros.  Text already matched by a macro is left
+     * as is, so the additional macros are also only matched against the original input.
+     * @param macros additional macros, matched within each literal segment
+     * @return a new template, this template is unchanged
+     */
+    MacroTemplate parseLiterals( final List<Macro> macros )
+    {
+        final List<Segment> newSegments = new ArrayList<>();
+        for ( final Segment segment : segments )
+        {
+            if ( segment.getMacro() == null )
+            {
+                newSegments.addAll( parse( segment.getText(), macros ).getSegments() );
+            }
+            else
+            {
+                newSegments.add( segment );
+            }
+        }
+        return new MacroTemplate( Collections.unmodifiableList( newSegments ) );
+    }
+
+    boolean isMacroPresent()
+    {
+        return macroPresent;
+    }
+
+    List<Segment> getSegments()
+    {
+        return segments;
+    }
+
+    /**
+     * Expand the template.
+     * @param replaceFunction supplies the value for each macro segment, a null value leaves the matched text in place.
+     * @return the expanded string
+     */
+    String expand( final Function<Segment, String> replaceFunction )
+    {
+        if ( !macroPresent )
+        {
+            return segments.isEmpty() ? "" : segments.get( 0 ).getText();
+        }
+
+        final StringBuilder output = new StringBuilder();
+        for ( final Segment segment : segments )
+        {
+            if ( segment.getMacro() == null )
+            {
+                output.append( segment.getText() );
+            }
+            else
+            {
+                final String replaceValue = replaceFunction.apply( segment );
+                output.append( replaceValue == null ? segment.getText() : replaceValue );
+            }
+        }
+        return output.toString();
+    }
+
+    @Value
+    static class Segment
+    {
+        private final String text;
+        private final Macro macro;
+    }
+
+    @Value
+    private static class MatchCandidate
+    {
+        private final int start;
+        private final int end;
+        private final int macroIndex;
+        private final Macro macro;
+    }
+}
@@ -20,177 +20,276 @@
 
 package password.pwm.util.password;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.novell.ldapchai.ChaiPasswordRule;
 import com.novell.ldapchai.util.DefaultChaiPasswordPolicy;
+import lombok.Value;
 import password.pwm.config.option.ADPolicyComplexity;
 import password.pwm.config.profile.PwmPasswordPolicy;
 import password.pwm.config.profile.PwmPasswordRule;
 import password.pwm.util.java.JavaHelper;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.macro.MacroMachine;
 import password.pwm.util.macro.MacroRequest;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
 
+/**
+ * Reads the rule values of a {@link PwmPasswordPolicy}.  All values are parsed when the helper is constructed, so
+ * that repeated reads (such as during live password checks) do not re-parse the policy.  Regular expression
+ * values are compiled once; values containing macros are only expanded and compiled when a {@link MacroRequest} is
+ * supplied.
+ */
 public class PasswordRuleReaderHelper
 {
     private static final PwmLogger LOGGER = PwmLogger.forClass( PasswordRuleReaderHelper.class );
 
+    private static final int HELPER_CACHE_MAX_ENTRIES = 100;
+    private static final int PATTERN_CACHE_MAX_ENTRIES = 1000;
+
+    private static final Cache<Map<String, String>, PasswordRuleReaderHelper> HELPER_CACHE = Caffeine.newBuilder()
+            .maximumSize( HELPER_CACHE_MAX_ENTRIES )
+            .build();
+
+    private static final Cache<String, Optional<Pattern>> PATTERN_CACHE = Caffeine.newBuilder()
+            .maximumSize( PATTERN_CACHE_MAX_ENTRIES )
+            .build();
+
     public enum Flag
     {
         KeepThresholds
     }
 
-    private final PwmPasswordPolicy passwordPolicy;
-    private final com.novell.ldapchai.util.PasswordRuleHelper chaiRuleHelper;
+    private final Map<String, String> policyMap;
+    private final Map<PwmPasswordRule, Integer> intValues = new EnumMap<>( PwmPasswordRule.class );
+    private final Map<PwmPasswordRule, Boolean> booleanValues = new EnumMap<>( PwmPasswordRule.class );
+    private final List<String> disallowedValues;
+    private final List<String> disallowedAttributes;
+    private final List<String> strippedDisallowedAttributes;
+    private final List<RegExValue> regExMatch;
+    private final List<RegExValue> regExNoMatch;
+    private final List<Pattern> charGroupValues;
 
     public PasswordRuleReaderHelper( final PwmPasswordPolicy passwordPolicy )
     {
-        this.passwordPolicy = passwordPolicy;
-        chaiRuleHelper = DefaultChaiPasswordPolicy.createDefaultChaiPasswordPolicy( passwordPolicy.getPolicyMap() ).getRuleHelper();
+        this.policyMap = passwordPolicy.getPolicyMap();
+
+        for ( final PwmPasswordRule rule : PwmPasswordRule.values() )
+        {
+            final ChaiPasswordRule.RuleType ruleType = rule.getRuleType();
+            if ( ruleType == ChaiPasswordRule.RuleType.MIN
+                    || ruleType == ChaiPasswordRule.RuleType.MAX
+                    || ruleType == ChaiPasswordRule.RuleType.NUMERIC )
+            {
+                final int defaultValue = StringUtil.convertStrToInt( rule.getDefaultValue(), 0 );
+                intValues.put( rule, StringUtil.convertStrToInt( policyMap.get( rule.getKey() ), defaultValue ) );
+            }
+            else if ( ruleType == ChaiPasswordRule.RuleType.BOOLEAN )
+            {
+                booleanValues.put( rule, StringUtil.convertStrToBoolean( policyMap.get( rule.getKey() ) ) );
+            }
+        }
+
+        final com.novell.ldapchai.util.PasswordRuleHelper chaiRuleHelper
+                = DefaultChaiPasswordPolicy.createDefaultChaiPasswordPolicy( policyMap ).getRuleHelper();
+        this.disallowedValues = copyList( chaiRuleHelper.getDisallowedValues() );
+        this.disallowedAttributes = copyList( chaiRuleHelper.getDisallowedAttributes() );
+        this.strippedDisallowedAttributes = Collections.unmodifiableList( stripThresholds( disallowedAttributes ) );
+
+        this.regExMatch = parseRegExValues( PwmPasswordRule.RegExMatch, policyMap.get( PwmPasswordRule.RegExMatch.getKey() ) );
+        this.regExNoMatch = parseRegExValues( PwmPasswordRule.RegExNoMatch, policyMap.get( PwmPasswordRule.RegExNoMatch.getKey() ) );
+        this.charGroupValues = resolvePatterns( parseRegExValues( PwmPasswordRule.CharGroupsValues,
+                policyMap.get( PwmPasswordRule.CharGroupsValues.getKey() ) ), null );
+    }
+
+    /**
+     * Returns a rule helper for the policy, shared with any other policy having identical rule values.
+     * @param passwordPolicy policy to read
+     * @return a rule helper for the policy
+     */
+    public static PasswordRuleReaderHelper forPolicy( final PwmPasswordPolicy passwordPolicy )
+    {
+        return HELPER_CACHE.get( passwordPolicy.getPolicyMap(), k -> new PasswordRuleReaderHelper( passwordPolicy ) );
     }
 
     public List<String> getDisallowedValues( )
     {
-        return chaiRuleHelper.getDisallowedValues();
+        return disallowedValues;
     }
 
     public List<String> getDisallowedAttributes( final Flag... flags )
     {
-        final List<String> disallowedAttributes = chaiRuleHelper.getDisallowedAttributes();
-
         if ( JavaHelper.enumArrayContainsValue( flags, Flag.KeepThresholds ) )
         {
             return disallowedAttributes;
         }
-        else
-        {
-            // Strip off any thresholds from attribute (specified as: "attributeName:N", where N is a numeric value).
-            final List<String> strippedDisallowedAttributes = new ArrayList<String>();
 
-            if ( disallowedAttributes != null )
+        return strippedDisallowedAttributes;
+    }
+
+    private static List<String> stripThresholds( final List<String> disallowedAttributes )
+    {
+        // Strip off any thresholds from attribute (specified as: "attributeName:N", where N is a numeric value).
+        final List<String> strippedDisallowedAttributes = new ArrayList<String>();
+
+        for ( final String disallowedAttribute : disallowedAttributes )
+        {
+            if ( disallowedAttribute != null )
             {
-                for ( final String disallowedAttribute : disallowedAttributes )
+                final int indexOfColon = disallowedAttribute.indexOf( ':' );
+                if ( indexOfColon > 0 )
                 {
-                    if ( disallowedAttribute != null )
-                    {
-                        final int indexOfColon = disallowedAttribute.indexOf( ':' );
-                        if ( indexOfColon > 0 )
-                        {
-                            strippedDisallowedAttributes.add( disallowedAttribute.substring( 0, indexOfColon ) );
-                        }
-                        else
-                        {
-                            strippedDisallowedAttributes.add( disallowedAttribute );
-                        }
-                    }
+                    strippedDisallowedAttributes.add( disallowedAttribute.substring( 0, indexOfColon ) );
+                }
+                else
+                {
+                    strippedDisallowedAttributes.add( disallowedAttribute );
                 }
             }
-
-            return strippedDisallowedAttributes;
         }
+
+        return strippedDisallowedAttributes;
+    }
+
+    private static List<String> copyList( final List<String> input )
+    {
+        return input == null
+                ? Collections.emptyList()
+                : Collections.unmodifiableList( new ArrayList<>( input ) );
     }
 
     public List<Pattern> getRegExMatch( final MacroRequest macroRequest )
     {
-        return readRegExSetting( PwmPasswordRule.RegExMatch, macroRequest );
+        return resolvePatterns( regExMatch, macroRequest );
     }
 
     public List<Pattern> getRegExNoMatch( final MacroRequest macroRequest )
     {
-        return readRegExSetting( PwmPasswordRule.RegExNoMatch, macroRequest );
+        return resolvePatterns( regExNoMatch, macroRequest );
     }
 
     public List<Pattern> getCharGroupValues( )
     {
-        return readRegExSetting( PwmPasswordRule.CharGroupsValues, null );
+        return charGroupValues;
     }
 
 
     public int readIntValue( final PwmPasswordRule rule )
     {
-        if (
-                ( rule.getRuleType() != ChaiPasswordRule.RuleType.MIN )
-                        && ( rule.getRuleType() != ChaiPasswordRule.RuleType.MAX )
-                        && ( rule.getRuleType() != ChaiPasswordRule.RuleType.NUMERIC )
-                )
+        final Integer value = intValues.get( rule );
+        if ( value == null )
         {
             throw new IllegalArgumentException( "attempt to read non-numeric rule value as int for rule " + rule );
         }
 
-        final String value = passwordPolicy.getPolicyMap().get( rule.getKey() );
-        final int defaultValue = StringUtil.convertStrToInt( rule.getDefaultValue(), 0 );
-        return StringUtil.convertStrToInt( value, defaultValue );
+        return value;
     }
 
     public boolean readBooleanValue( final PwmPasswordRule rule )
     {
-        if ( rule.getRuleType() != ChaiPasswordRule.RuleType.BOOLEAN )
+        final Boolean value = booleanValues.get( rule );
+        if ( value == null )
         {
             throw new IllegalArgumentException( "attempt to read non-boolean rule value as boolean for rule " + rule );
         }
 
-        final String value = passwordPolicy.getPolicyMap().get( rule.getKey() );
-        return StringUtil.convertStrToBoolean( value );
+        return value;
     }
 
-    private List<Pattern> readRegExSetting( final PwmPasswordRule rule, final MacroRequest macroRequest )
+    public List<Pattern> readRegExSetting( final PwmPasswordRule rule, final MacroRequest macroRequest, final String input )
     {
-        final String input = passwordPolicy.getPolicyMap().get( rule.getKey() );
-
-        return readRegExSetting( rule, macroRequest, input );
+        return resolvePatterns( parseRegExValues( rule, input ), macroRequest );
     }
 
-    public List<Pattern> readRegExSetting( final PwmPasswordRule rule, final MacroRequest macroRequest, final String input )
+    private List<RegExValue> parseRegExValues( final PwmPasswordRule rule, final String input )
     {
         if ( input == null )
         {
             return Collections.emptyList();
         }
 
+        final boolean macrosAllowed = rule != PwmPasswordRule.CharGroupsValues && readBooleanValue( PwmPasswordRule.AllowMacroInRegExSetting );
         final String separator = ( rule == PwmPasswordRule.RegExMatch || rule == PwmPasswordRule.RegExNoMatch ) ? ";;;" : "\n";
-        final List<String> values = new ArrayList<>( StringUtil.tokenizeString( input, separator ) );
-        final List<Pattern> patterns = new ArrayList<>();
+        final List<RegExValue> values = new ArrayList<>();
 
-        for ( final String value : values )
+        for ( final String value : StringUtil.tokenizeString( input, separator ) )
         {
             if ( StringUtil.notEmpty( value ) )
             {
-                String valueToCompile = value;
+                final boolean macroDependent = macrosAllowed && MacroMachine.containsMacros( value );
+                values.add( new RegExValue( rule, value, compilePattern( rule, value ).orElse( null ), macroDependent ) );
+            }
+        }
 
-                if ( macroRequest != null && readBooleanValue( PwmPasswordRule.AllowMacroInRegExSetting ) )
-                {
-                    valueToCompile = macroRequest.expandMacros( value );
-                }
+        return Collections.unmodifiableList( values );
+    }
 
-                try
-                {
-                    final Pattern loopPattern = Pattern.compile( valueToCompile );
-                    patterns.add( loopPattern );
-                }
-                catch ( final PatternSyntaxException e )
-                {
-                    final String valueToCompileFinal = valueToCompile;
-                    LOGGER.warn( () -> "reading password rule value '" + valueToCompileFinal + "' for rule " + rule.getKey()
-                            + " is not a valid regular expression " + e.getMessage() );
-                }
-            }
+    private static List<Pattern> resolvePatterns( final List<RegExValue> values, final MacroRequest macroRequest )
+    {
+        if ( values.isEmpty() )
+        {
+            return Collections.emptyList();
         }
 
-        return patterns;
+        return values.stream()
+                .map( value -> value.resolve( macroRequest ) )
+                .filter( Objects::nonNull )
+                .collect( Collectors.toUnmodifiableList() );
+    }
+
+    private static Optional<Pattern> compilePattern( final PwmPasswordRule rule, final String value )
+    {
+        return PATTERN_CACHE.get( value, k ->
+        {
+            try
+            {
+                return Optional.of( Pattern.compile( value ) );
+            }
+            catch ( final PatternSyntaxException e )
+            {
+                LOGGER.warn( () -> "reading password rule value '" + value + "' for rule " + rule.getKey()
+                        + " is not a valid regular expression " + e.getMessage() );
+            }
+            return Optional.empty();
+        } );
     }
 
     public ADPolicyComplexity getADComplexityLevel( )
     {
-        final String strLevel = passwordPolicy.getValue( PwmPasswordRule.ADComplexityLevel );
+        final String strLevel = policyMap.get( PwmPasswordRule.ADComplexityLevel.getKey() );
         if ( strLevel == null || strLevel.isEmpty() )
         {
             return ADPolicyComplexity.NONE;
         }
         return ADPolicyComplexity.valueOf( strLevel );
     }
+
+    @Value
+    private static class RegExValue
+    {
+        private final PwmPasswordRule rule;
+        private final String value;
+        private final Pattern pattern;
+        private final boolean macroDependent;
+
+        Pattern resolve( final MacroRequest macroRequest )
+        {
+            if ( macroDependent && macroRequest != null )
+            {
+                return compilePattern( rule, macroRequest.expandMacros( value ) ).orElse( null );
+            }
+            return pattern;
+        }
+    }
 }
@@ -0,0 +1,234 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.password;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nulabinc.zxcvbn.Matching;
+import com.nulabinc.zxcvbn.Strength;
+import com.nulabinc.zxcvbn.Zxcvbn;
+import password.pwm.AppProperty;
+import password.pwm.PwmDomain;
+import password.pwm.config.DomainConfig;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.option.StrengthMeterType;
+import password.pwm.svc.wordlist.Wordlist;
+import password.pwm.util.java.MiscUtil;
+import password.pwm.util.java.StringUtil;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+import password.pwm.util.secure.PwmHashAlgorithm;
+import password.pwm.util.secure.PwmRandom;
+import password.pwm.util.secure.SecureEngine;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Password strength meter for a domain configuration.  Instances are thread-safe and are shared by all strength
+ * checks of the configuration, see {@link DomainConfig#getPasswordStrengthEngine()}.
+ *
+ * <p>The zxcvbn meter can be supplemented with additional ranked dictionaries, such as the leading words of the
+ * configured wordlist or seedlist.  Zxcvbn results are cached by a hash of the password with a random salt generated for
+ * each engine, so cache keys can not be matched against precomputed hashes of common passwords.</p>
+ */
+public class PasswordStrengthEngine
+{
+    private static final PwmLogger LOGGER = PwmLogger.forClass( PasswordStrengthEngine.class );
+
+    private static final int MAX_TEST_LENGTH = 100;
+    private static final int CACHE_KEY_SALT_LENGTH = 32;
+
+    private final StrengthMeterType strengthMeterType;
+    private final int[] zxcvbnScoreThresholds;
+    private final Cache<String, Integer> resultCache;
+    private final String cacheKeySalt = PwmRandom.getInstance().alphaNumericString( CACHE_KEY_SALT_LENGTH );
+
+    private volatile RankedDictionaryZxcvbn zxcvbn = new RankedDictionaryZxcvbn( Collections.emptyMap() );
+
+    public PasswordStrengthEngine( final DomainConfig domainConfig )
+    {
+        this.strengthMeterType = domainConfig.getAppConfig().readSettingAsEnum( PwmSetting.PASSWORD_STRENGTH_METER_TYPE, StrengthMeterType.class );
+
+        // zxcvbn returns a score of 0-4 (see: https://github.com/nulab/zxcvbn4j)
+        this.zxcvbnScoreThresholds = new int[] {
+                Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_VERY_WEAK ) ),
+                Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_WEAK ) ),
+                Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_GOOD ) ),
+                Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_STRONG ) ),
+                Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_VERY_STRONG ) ),
+        };
+
+        this.resultCache = Caffeine.newBuilder()
+                .maximumSize( Long.parseLong( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_CACHE_MAX_ENTRIES ) ) )
+                .build();
+    }
+
+    public int judgePasswordStrength( final String password )
+    {
+        switch ( strengthMeterType )
+        {
+            case ZXCVBN:
+                return judgePasswordStrengthUsingZxcvbnAlgorithm( password );
+
+            case PWM:
+                return PasswordUtility.judgePasswordStrengthUsingTraditionalAlgorithm( password );
+
+            default:
+                MiscUtil.unhandledSwitchStatement( strengthMeterType );
+        }
+
+        return -1;
+    }
+
+    public int judgePasswordStrengthUsingZxcvbnAlgorithm( final String password )
+    {
+        if ( StringUtil.isEmpty( password ) )
+        {
+            return zxcvbnScoreThresholds[0];
+        }
+
+        final String testPassword = StringUtil.truncate( password, MAX_TEST_LENGTH );
+        return resultCache.get( cacheKey( testPassword ), k ->
+        {
+            final Strength strength = zxcvbn.measure( testPassword );
+            final int score = Math.max( 0, Math.min( zxcvbnScoreThresholds.length - 1, strength.getScore() ) );
+            return zxcvbnScoreThresholds[score];
+        } );
+    }
+
+    String cacheKey( final String password )
+    {
+        return SecureEngine.hash( cacheKeySalt + password, PwmHashAlgorithm.SHA256 );
+    }
+
+    /**
+     * Add a ranked dictionary to the zxcvbn meter, replacing any existing dictionary of the same name.
+     * @param name dictionary name
+     * @param words dictionary words, most common first
+     */
+    public void addRankedDictionary( final String name, final List<String> words )
+    {
+        final Map<String, Integer> rankedDictionary = new HashMap<>( words.size() );
+        int rank = 1;
+        for ( final String word : words )
+        {
+            rankedDictionary.putIfAbsent( word.toLowerCase(), rank++ );
+        }
+
+        final Map<String, Map<String, Integer>> dictionaries = new HashMap<>( zxcvbn.getExtraDictionaries() );
+        dictionaries.put( name, Collections.unmodifiableMap( rankedDictionary ) );
+        zxcvbn = new RankedDictionaryZxcvbn( Collections.unmodifiableMap( dictionaries ) );
+        resultCache.invalidateAll();
+    }
+
+    public Set<String> getRankedDictionaryNames()
+    {
+        return zxcvbn.getExtraDictionaries().keySet();
+    }
+
+    /**
+     * Load the leading words of the wordlist and seedlist as ranked dictionaries, if enabled by
+     * {@link AppProperty#PASSWORD_STRENGTH_DICTIONARY_MAX_WORDS}.
+     * @param pwmDomain domain whose engine is loaded
+     */
+    public static void loadWordlistDictionaries( final PwmDomain pwmDomain )
+    {
+        final DomainConfig domainConfig = pwmDomain.getConfig();
+        final int maxWords = Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_DICTIONARY_MAX_WORDS ) );
+        if ( maxWords <= 0 || domainConfig.getPasswordStrengthEngine().strengthMeterType != StrengthMeterType.ZXCVBN )
+        {
+            return;
+        }
+
+        loadWordlistDictionary( domainConfig, "pwm_wordlist", pwmDomain.getPwmApplication().getWordlistService(), maxWords );
+        loadWordlistDictionary( domainConfig, "pwm_seedlist", pwmDomain.getPwmApplication().getSeedlistManager(), maxWords );
+    }
+
+    private static void loadWordlistDictionary(
+            final DomainConfig domainConfig,
+            final String name,
+            final Wordlist wordlist,
+            final int maxWords
+    )
+    {
+        if ( wordlist == null )
+        {
+            return;
+        }
+
+        final Instant startTime = Instant.now();
+        try
+        {
+            final List<String> words = wordlist.readSourceWords( maxWords );
+            if ( !words.isEmpty() )
+            {
+                domainConfig.getPasswordStrengthEngine().addRankedDictionary( name, words );
+                LOGGER.debug( () -> "loaded " + words.size() + " words into strength meter dictionary " + name,
+                        () -> TimeDuration.fromCurrent( startTime ) );
+            }
+        }
+        catch ( final Exception e )
+        {
+            LOGGER.warn( () -> "error loading strength meter dictionary " + name + ": " + e.getMessage() );
+        }
+    }
+
+    private static class RankedDictionaryZxcvbn extends Zxcvbn
+    {
+        private final Map<String, Map<String, Integer>> extraDictionaries;
+
+        RankedDictionaryZxcvbn( final Map<String, Map<String, Integer>> extraDictionaries )
+        {
+            this.extraDictionaries = extraDictionaries;
+        }
+
+        Map<String, Map<String, Integer>> getExtraDictionaries()
+        {
+            return extraDictionaries;
+        }
+
+        @Override
+        protected Matching createMatching( final List<String> userInputs )
+        {
+            if ( extraDictionaries.isEmpty() )
+            {
+                return super.createMatching( userInputs );
+            }
+            return new RankedDictionaryMatching( extraDictionaries, userInputs );
+        }
+    }
+
+    private static class RankedDictionaryMatching extends Matching
+    {
+        RankedDictionaryMatching( final Map<String, Map<String, Integer>> extraDictionaries, final List<String> userInputs )
+        {
+            super( userInputs );
+
+            // each matching instance holds its own copy of the dictionary map, the dictionaries themselves are shared
+            rankedDictionaries.putAll( extraDictionaries );
+        }
+    }
+}
@@ -32,8 +32,6 @@ import com.novell.ldapchai.provider.ChaiProvider;
 import com.novell.ldapchai.provider.ChaiSetting;
 import com.novell.ldapchai.provider.DirectoryVendor;
 import com.novell.ldapchai.util.ChaiUtility;
-import com.nulabinc.zxcvbn.Strength;
-import com.nulabinc.zxcvbn.Zxcvbn;
 import password.pwm.AppProperty;
 import password.pwm.PwmDomain;
 import password.pwm.bean.EmailItemBean;
@@ -46,7 +44,6 @@ import password.pwm.config.DomainConfig;
 import password.pwm.config.PwmSetting;
 import password.pwm.config.option.HelpdeskClearResponseMode;
 import password.pwm.config.option.MessageSendMethod;
-import password.pwm.config.option.StrengthMeterType;
 import password.pwm.config.profile.AbstractProfile;
 import password.pwm.config.profile.ChangePasswordProfile;
 import password.pwm.config.profile.ForgottenPasswordProfile;
@@ -85,7 +82,6 @@ import password.pwm.svc.stats.Statistic;
 import password.pwm.svc.stats.StatisticsClient;
 import password.pwm.util.PasswordData;
 import password.pwm.util.java.CollectionUtil;
-import password.pwm.util.java.MiscUtil;
 import password.pwm.util.json.JsonFactory;
 import password.pwm.util.java.StringUtil;
 import password.pwm.util.java.TimeDuration;
@@ -817,20 +813,7 @@ public class PasswordUtility
     )
             throws PwmUnrecoverableException
     {
-        final StrengthMeterType strengthMeterType = domainConfig.getAppConfig().readSettingAsEnum( PwmSetting.PASSWORD_STRENGTH_METER_TYPE, StrengthMeterType.class );
-        switch ( strengthMeterType )
-        {
-            case ZXCVBN:
-                return judgePasswordStrengthUsingZxcvbnAlgorithm( domainConfig, password );
-
-            case PWM:
-                return judgePasswordStrengthUsingTraditionalAlgorithm( password );
-
-            default:
-                MiscUtil.unhandledSwitchStatement( strengthMeterType );
-        }
-
-        return -1;
+        return domainConfig.getPasswordStrengthEngine().judgePasswordStrength( password );
     }
 
     public static int judgePasswordStrengthUsingZxcvbnAlgorithm(
@@ -838,34 +821,7 @@ public class PasswordUtility
             final String password
     )
     {
-        final int maxTestLength = 100;
-
-        if ( StringUtil.isEmpty( password ) )
-        {
-            return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_VERY_WEAK ) );
-        }
-
-        final String testPassword = StringUtil.truncate( password, maxTestLength );
-
-        final Zxcvbn zxcvbn = new Zxcvbn();
-        final Strength strength = zxcvbn.measure( testPassword );
-
-        final int zxcvbnScore = strength.getScore();
-
-        // zxcvbn returns a score of 0-4 (see: https://github.com/nulab/zxcvbn4j)
-        switch ( zxcvbnScore )
-        {
-            case 4:
-                return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_VERY_STRONG ) );
-            case 3:
-                return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_STRONG ) );
-            case 2:
-                return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_GOOD ) );
-            case 1:
-                return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_WEAK ) );
-            default:
-                return Integer.parseInt( domainConfig.readAppProperty( AppProperty.PASSWORD_STRENGTH_THRESHOLD_VERY_WEAK ) );
-        }
+        return domainConfig.getPasswordStrengthEngine().judgePasswordStrengthUsingZxcvbnAlgorithm( password );
     }
 
     public static int judgePasswordStrengthUsingTraditionalAlgorithm(
@@ -1070,7 +1026,7 @@ public class PasswordUtility
         final CachePolicy cachePolicy;
         {
             final long cacheLifetimeMS = Long.parseLong( pwmDomain.getConfig().readAppProperty( AppProperty.CACHE_PWRULECHECK_LIFETIME_MS ) );
-            cachePolicy = CachePolicy.makePolicyWithExpirationMS( cacheLifetimeMS );
+            cachePolicy = CachePolicy.makePolicyWithExpirationMS( cacheLifetimeMS ).withImmutablePayload();
         }
 
         if ( password == null )
@@ -1277,7 +1233,7 @@ public class PasswordUtility
         return determinePwdLastModified( pwmDomain, sessionLabel, theUser, userIdentity );
     }
 
-    private static Instant determinePwdLastModified(
+    public static Instant determinePwdLastModified(
             final PwmDomain pwmDomain,
             final SessionLabel sessionLabel,
             final ChaiUser theUser,
@@ -32,6 +32,7 @@ import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.http.HttpContentType;
 import password.pwm.http.HttpMethod;
 import password.pwm.http.PwmHttpRequestWrapper;
+import password.pwm.ldap.LdapOperationMetrics;
 import password.pwm.svc.stats.AvgStatistic;
 import password.pwm.svc.stats.DailyKey;
 import password.pwm.svc.stats.EpsStatistic;
@@ -89,6 +90,7 @@ public class RestStatisticsServer extends RestServlet
         public List<StatValue> current;
         public List<StatValue> cumulative;
         public List<HistoryData> history;
+        public List<LdapOperationMetrics.LatencyRecord> ldapLatency;
     }
 
     @Builder
@@ -168,6 +170,7 @@ public class RestStatisticsServer extends RestServlet
                     .eventRates( makeEpsStatInfos( statisticsManager ) )
                     .history( makeHistoryStatInfos( statisticsManager, days ) )
                     .labels( makeLabels( locale ) )
+                    .ldapLatency( restRequest.getDomain().getLdapConnectionService().getOperationMetrics().latencyRecords() )
                     .build();
             return RestResultBean.withData( jsonOutput, JsonOutput.class );
         }
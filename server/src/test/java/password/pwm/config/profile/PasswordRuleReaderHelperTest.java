@@ -99,4 +99,27 @@ public class PasswordRuleReaderHelperTest
         Assert.assertEquals( "^fflintstone[0-9]+$", patterns.get( 0 ).pattern() );
         Assert.assertEquals( "^password$", patterns.get( 1 ).pattern() );
     }
+
+    @Test
+    public void testCompiledPolicyReuse() throws Exception
+    {
+        final Map<String, String> passwordPolicyRules = new HashMap<>( );
+        passwordPolicyRules.put( PwmPasswordRule.AllowMacroInRegExSetting.getKey(), Boolean.toString( true ) );
+        passwordPolicyRules.put( PwmPasswordRule.RegExMatch.getKey(), "^[a-z]+$;;;^@User:ID@.*$" );
+        final PwmPasswordPolicy policy1 = PwmPasswordPolicy.createPwmPasswordPolicy( PwmPasswordPolicy.defaultPolicy().getDomainID(), passwordPolicyRules );
+        final PwmPasswordPolicy policy2 = PwmPasswordPolicy.createPwmPasswordPolicy( PwmPasswordPolicy.defaultPolicy().getDomainID(), passwordPolicyRules );
+
+        final PasswordRuleReaderHelper ruleHelper = policy1.getRuleHelper();
+        Assert.assertSame( ruleHelper, policy2.getRuleHelper() );
+
+        final MacroRequest macroRequest = makeMacroRequest();
+        final List<Pattern> patterns1 = ruleHelper.getRegExMatch( macroRequest );
+        final List<Pattern> patterns2 = ruleHelper.getRegExMatch( macroRequest );
+        Assert.assertEquals( 2, patterns1.size() );
+        Assert.assertSame( patterns1.get( 0 ), patterns2.get( 0 ) );
+        Assert.assertEquals( "^fflintstone.*$", patterns1.get( 1 ).pattern() );
+
+        // without a macro request the configured values are used as-is
+        Assert.assertEquals( "^@User:ID@.*$", ruleHelper.getRegExMatch( null ).get( 1 ).pattern() );
+    }
 }
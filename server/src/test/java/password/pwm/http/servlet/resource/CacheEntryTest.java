@@ -0,0 +1,67 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.http.servlet.resource;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.PwmConstants;
+import password.pwm.http.HttpHeader;
+import password.pwm.util.java.ImmutableByteArray;
+
+import java.io.IOException;
+import java.time.Instant;
+
+public class CacheEntryTest
+{
+    @Test
+    public void testETagPerRepresentation() throws IOException
+    {
+        final Instant modified = Instant.parse( "2021-01-01T00:00:00Z" );
+        final FileResource file = new MemoryFileResource( "test.css", contents( "body { color: red; }" ), modified );
+        final FileResource sameContent = new MemoryFileResource( "other.css", contents( "body { color: red; }" ), Instant.now() );
+        final FileResource otherContent = new MemoryFileResource( "test.css", contents( "body { color: blue; }" ), modified );
+
+        final CacheEntry plainEntry = CacheEntry.fromFileResource( file, false );
+        final CacheEntry gzipEntry = CacheEntry.fromFileResource( file, true );
+
+        Assert.assertEquals( "gzip", gzipEntry.getHeaderStrings().get( HttpHeader.ContentEncoding.getHttpName() ) );
+        Assert.assertEquals( String.valueOf( gzipEntry.getEntity().size() ), gzipEntry.getHeaderStrings().get( HttpHeader.ContentLength.getHttpName() ) );
+        Assert.assertNotEquals( plainEntry.getETag(), gzipEntry.getETag() );
+        Assert.assertEquals( plainEntry.getETag(), CacheEntry.fromFileResource( sameContent, false ).getETag() );
+        Assert.assertNotEquals( plainEntry.getETag(), CacheEntry.fromFileResource( otherContent, false ).getETag() );
+    }
+
+    @Test
+    public void testETagMatches()
+    {
+        Assert.assertTrue( ResourceFileServlet.eTagMatches( "\"abc\"", "\"abc\"" ) );
+        Assert.assertTrue( ResourceFileServlet.eTagMatches( "\"xyz\", W/\"abc\"", "\"abc\"" ) );
+        Assert.assertTrue( ResourceFileServlet.eTagMatches( "\"abc\"", "W/\"abc\"" ) );
+        Assert.assertTrue( ResourceFileServlet.eTagMatches( "*", "\"abc\"" ) );
+        Assert.assertFalse( ResourceFileServlet.eTagMatches( "\"abcd\"", "\"abc\"" ) );
+        Assert.assertFalse( ResourceFileServlet.eTagMatches( null, "\"abc\"" ) );
+    }
+
+    private static ImmutableByteArray contents( final String value )
+    {
+        return ImmutableByteArray.of( value.getBytes( PwmConstants.DEFAULT_CHARSET ) );
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.http.servlet.resource;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import password.pwm.AppProperty;
+import password.pwm.bean.SessionLabel;
+import password.pwm.config.AppConfig;
+import password.pwm.config.stored.StoredConfigurationFactory;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@SuppressWarnings( "deprecation" )
+public class ResourceServletConfigurationTest
+{
+    @Test
+    public void testMaxCacheTotalBytesDefault() throws Exception
+    {
+        final AppConfig appConfig = makeAppConfig( Map.of() );
+        Assert.assertEquals(
+                Long.parseLong( AppProperty.HTTP_RESOURCES_MAX_CACHE_TOTAL_BYTES.getDefaultValue() ),
+                ResourceServletConfiguration.readMaxCacheTotalBytes( SessionLabel.TEST_SESSION_LABEL, appConfig ) );
+    }
+
+    @Test
+    public void testMaxCacheItemsFallback() throws Exception
+    {
+        final AppConfig appConfig = makeAppConfig( Map.of(
+                AppProperty.HTTP_RESOURCES_MAX_CACHE_ITEMS, "10",
+                AppProperty.HTTP_RESOURCES_MAX_CACHE_BYTES, "1000" ) );
+        Assert.assertEquals( 10_000, ResourceServletConfiguration.readMaxCacheTotalBytes( SessionLabel.TEST_SESSION_LABEL, appConfig ) );
+    }
+
+    @Test
+    public void testMaxCacheTotalBytesOverridesItems() throws Exception
+    {
+        final AppConfig appConfig = makeAppConfig( Map.of(
+                AppProperty.HTTP_RESOURCES_MAX_CACHE_ITEMS, "10",
+                AppProperty.HTTP_RESOURCES_MAX_CACHE_TOTAL_BYTES, "5000" ) );
+        Assert.assertEquals( 5000, ResourceServletConfiguration.readMaxCacheTotalBytes( SessionLabel.TEST_SESSION_LABEL, appConfig ) );
+    }
+
+    private static AppConfig makeAppConfig( final Map<AppProperty, String> overrides ) throws Exception
+    {
+        final AppConfig appConfig = Mockito.spy( new AppConfig( StoredConfigurationFactory.newConfig() ) );
+        final Map<AppProperty, String> overrideMap = new EnumMap<>( AppProperty.class );
+        overrideMap.putAll( overrides );
+        Mockito.doReturn( overrideMap ).when( appConfig ).readAllNonDefaultAppProperties();
+        Mockito.doAnswer( invocation ->
+        {
+            final AppProperty appProperty = invocation.getArgument( 0 );
+            return overrideMap.getOrDefault( appProperty, appProperty.getDefaultValue() );
+        } ).when( appConfig ).readAppProperty( Mockito.any() );
+        return appConfig;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.http.state;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.http.bean.ChangePasswordBean;
+import password.pwm.http.bean.SetupOtpBean;
+
+public class CryptoCookieBeanImplTest
+{
+    private static final String GUID_1 = "guid1";
+    private static final String GUID_2 = "guid2";
+
+    @Test
+    public void testUnchangedBean()
+    {
+        final CryptoCookieBeanImpl.BeanSnapshots snapshots = new CryptoCookieBeanImpl.BeanSnapshots();
+        snapshots.put( GUID_1, ChangePasswordBean.class, "{\"a\":1}" );
+        Assert.assertTrue( snapshots.isUnchanged( GUID_1, ChangePasswordBean.class, "{\"a\":1}" ) );
+        Assert.assertFalse( snapshots.isUnchanged( GUID_1, SetupOtpBean.class, "{\"a\":1}" ) );
+    }
+
+    @Test
+    public void testChangedBean()
+    {
+        final CryptoCookieBeanImpl.BeanSnapshots snapshots = new CryptoCookieBeanImpl.BeanSnapshots();
+        snapshots.put( GUID_1, ChangePasswordBean.class, "{\"a\":1}" );
+        Assert.assertFalse( snapshots.isUnchanged( GUID_1, ChangePasswordBean.class, "{\"a\":2}" ) );
+
+        snapshots.remove( ChangePasswordBean.class );
+        Assert.assertFalse( snapshots.isUnchanged( GUID_1, ChangePasswordBean.class, "{\"a\":1}" ) );
+    }
+
+    @Test
+    public void testKeyRotation()
+    {
+        final CryptoCookieBeanImpl.BeanSnapshots snapshots = new CryptoCookieBeanImpl.BeanSnapshots();
+        snapshots.put( GUID_1, ChangePasswordBean.class, "{\"a\":1}" );
+        snapshots.put( GUID_1, SetupOtpBean.class, "{\"b\":1}" );
+
+        // a new login guid changes the cookie encryption key, so all beans must be written again
+        Assert.assertFalse( snapshots.isUnchanged( GUID_2, ChangePasswordBean.class, "{\"a\":1}" ) );
+        Assert.assertFalse( snapshots.isUnchanged( GUID_2, SetupOtpBean.class, "{\"b\":1}" ) );
+
+        snapshots.put( GUID_2, ChangePasswordBean.class, "{\"a\":1}" );
+        Assert.assertTrue( snapshots.isUnchanged( GUID_2, ChangePasswordBean.class, "{\"a\":1}" ) );
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.ldap;
+
+import com.novell.ldapchai.provider.ChaiProvider;
+import com.novell.ldapchai.provider.SearchScope;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class LdapOperationMetricsTest
+{
+    @Test
+    public void testWrappedProviderRecordsOperations() throws Exception
+    {
+        final LdapOperationMetrics operationMetrics = new LdapOperationMetrics();
+        final ChaiProvider chaiProvider = operationMetrics.wrapProvider( Mockito.mock( ChaiProvider.class ), "profile1" );
+
+        chaiProvider.search( "o=test", "(cn=*)", Collections.emptySet(), SearchScope.SUBTREE );
+        chaiProvider.search( "o=test", "(cn=*)", Collections.emptySet(), SearchScope.SUBTREE );
+        chaiProvider.readStringAttribute( "cn=user,o=test", "cn" );
+        chaiProvider.writeStringAttribute( "cn=user,o=test", "description", Collections.singleton( "value" ), true );
+        chaiProvider.writeStringAttribute( "cn=user,o=test", "userPassword", Collections.singleton( "value" ), true );
+        chaiProvider.getChaiConfiguration();
+
+        final List<LdapOperationMetrics.LatencyRecord> records = operationMetrics.latencyRecords();
+        final Map<LdapOperationMetrics.OperationType, Long> counts = records.stream().collect( Collectors.toMap(
+                LdapOperationMetrics.LatencyRecord::getOperation,
+                record -> record.getLatency().getCount() ) );
+
+        Assert.assertTrue( records.stream().allMatch( record -> "profile1".equals( record.getLdapProfile() ) ) );
+        Assert.assertEquals( Long.valueOf( 2 ), counts.get( LdapOperationMetrics.OperationType.search ) );
+        Assert.assertEquals( Long.valueOf( 1 ), counts.get( LdapOperationMetrics.OperationType.read ) );
+        Assert.assertEquals( Long.valueOf( 1 ), counts.get( LdapOperationMetrics.OperationType.modify ) );
+        Assert.assertEquals( Long.valueOf( 1 ), counts.get( LdapOperationMetrics.OperationType.passwordSet ) );
+        Assert.assertFalse( counts.containsKey( LdapOperationMetrics.OperationType.bind ) );
+
+        Assert.assertSame( chaiProvider, operationMetrics.wrapProvider( chaiProvider, "profile1" ) );
+    }
+}
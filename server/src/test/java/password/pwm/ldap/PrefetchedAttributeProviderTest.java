@@ -0,0 +1,82 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.ldap;
+
+import com.novell.ldapchai.provider.ChaiProvider;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class PrefetchedAttributeProviderTest
+{
+    private static final String USER_DN = "cn=user,o=test";
+    private static final String OTHER_DN = "cn=other,o=test";
+
+    @Test
+    public void testPrefetchedReads() throws Exception
+    {
+        final ChaiProvider chaiProvider = Mockito.mock( ChaiProvider.class );
+        final ChaiProvider prefetchedProvider = PrefetchedAttributeProvider.create( chaiProvider, USER_DN, prefetchedValues() );
+
+        Assert.assertEquals( "user@example.com", prefetchedProvider.readStringAttribute( USER_DN, "mail" ) );
+        Assert.assertEquals( "user@example.com", prefetchedProvider.readStringAttribute( "CN=User,O=Test", "MAIL" ) );
+        Assert.assertNull( prefetchedProvider.readStringAttribute( USER_DN, "pwdReset" ) );
+        Assert.assertEquals(
+                Collections.singletonMap( "mail", "user@example.com" ),
+                prefetchedProvider.readStringAttributes( USER_DN, Set.of( "mail", "pwdReset" ) ) );
+
+        Mockito.verifyNoInteractions( chaiProvider );
+    }
+
+    @Test
+    public void testPassThroughReads() throws Exception
+    {
+        final ChaiProvider chaiProvider = Mockito.mock( ChaiProvider.class );
+        Mockito.when( chaiProvider.readStringAttribute( OTHER_DN, "mail" ) ).thenReturn( "other@example.com" );
+        Mockito.when( chaiProvider.readStringAttribute( USER_DN, "givenName" ) ).thenReturn( "user" );
+        Mockito.when( chaiProvider.readStringAttributes( USER_DN, Set.of( "mail", "givenName" ) ) )
+                .thenReturn( Map.of( "mail", "user@example.com", "givenName", "user" ) );
+        final ChaiProvider prefetchedProvider = PrefetchedAttributeProvider.create( chaiProvider, USER_DN, prefetchedValues() );
+
+        // other entries and attributes not part of the search are read from the directory
+        Assert.assertEquals( "other@example.com", prefetchedProvider.readStringAttribute( OTHER_DN, "mail" ) );
+        Assert.assertEquals( "user", prefetchedProvider.readStringAttribute( USER_DN, "givenName" ) );
+        Assert.assertEquals( 2, prefetchedProvider.readStringAttributes( USER_DN, Set.of( "mail", "givenName" ) ).size() );
+
+        Mockito.verify( chaiProvider ).readStringAttribute( OTHER_DN, "mail" );
+        Mockito.verify( chaiProvider ).readStringAttribute( USER_DN, "givenName" );
+        Mockito.verify( chaiProvider ).readStringAttributes( USER_DN, Set.of( "mail", "givenName" ) );
+    }
+
+    private static Map<String, List<String>> prefetchedValues()
+    {
+        final Map<String, List<String>> prefetchedValues = new LinkedHashMap<>();
+        prefetchedValues.put( "mail", Collections.singletonList( "user@example.com" ) );
+        prefetchedValues.put( "pwdReset", Collections.emptyList() );
+        return prefetchedValues;
+    }
+}
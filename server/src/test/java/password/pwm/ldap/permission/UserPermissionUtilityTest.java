@@ -0,0 +1,161 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.ldap.permission;
+
+import com.novell.ldapchai.ChaiUser;
+import com.novell.ldapchai.provider.ChaiProvider;
+import com.novell.ldapchai.provider.SearchScope;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import password.pwm.AppProperty;
+import password.pwm.PwmApplication;
+import password.pwm.PwmConstants;
+import password.pwm.PwmDomain;
+import password.pwm.bean.DomainID;
+import password.pwm.bean.SessionLabel;
+import password.pwm.bean.UserIdentity;
+import password.pwm.config.DomainConfig;
+import password.pwm.config.value.data.UserPermission;
+import password.pwm.util.localdb.TestHelper;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class UserPermissionUtilityTest
+{
+    private static final String USER_DN = "cn=user,o=test";
+    private static final String MATCH_FILTER = "(cn=user)";
+    private static final String NO_MATCH_FILTER = "(cn=other)";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private PwmDomain pwmDomain;
+    private DomainConfig domainConfig;
+    private ChaiProvider chaiProvider;
+    private UserIdentity userIdentity;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( temporaryFolder.newFolder() );
+        pwmDomain = Mockito.spy( pwmApplication.domains().get( DomainID.DOMAIN_ID_DEFAULT ) );
+        domainConfig = Mockito.spy( pwmDomain.getConfig() );
+        Mockito.doReturn( domainConfig ).when( pwmDomain ).getConfig();
+
+        chaiProvider = Mockito.mock( ChaiProvider.class );
+        Mockito.when( chaiProvider.search( Mockito.eq( USER_DN ), Mockito.anyString(), Mockito.anySet(), Mockito.any( SearchScope.class ) ) )
+                .thenAnswer( invocation -> MATCH_FILTER.equals( invocation.getArgument( 1 ) )
+                        ? Map.of( USER_DN, Collections.emptyMap() )
+                        : Collections.emptyMap() );
+        final ChaiUser chaiUser = Mockito.mock( ChaiUser.class );
+        Mockito.when( chaiUser.getEntryDN() ).thenReturn( USER_DN );
+        Mockito.when( chaiUser.getChaiProvider() ).thenReturn( chaiProvider );
+        Mockito.doReturn( chaiUser ).when( pwmDomain ).getProxiedChaiUser( Mockito.any(), Mockito.any() );
+
+        userIdentity = UserIdentity.create( USER_DN, "default", DomainID.DOMAIN_ID_DEFAULT );
+    }
+
+    @Test
+    public void testSelfSearchMemoizedPerPass() throws Exception
+    {
+        setPermissionCache( false, 30 );
+        final List<UserPermission> permissions = List.of(
+                queryPermission( null, NO_MATCH_FILTER ),
+                queryPermission( PwmConstants.PROFILE_ID_ALL, NO_MATCH_FILTER ) );
+
+        Assert.assertFalse( testPermissions( permissions ) );
+        assertSearchCount( 1 );
+
+        // each pass starts with no remembered results
+        Assert.assertFalse( testPermissions( permissions ) );
+        assertSearchCount( 2 );
+    }
+
+    @Test
+    public void testPermissionCacheHit() throws Exception
+    {
+        setPermissionCache( true, 30 );
+        final List<UserPermission> permissions = List.of( queryPermission( null, MATCH_FILTER ) );
+
+        Assert.assertTrue( testPermissions( permissions ) );
+        Assert.assertTrue( testPermissions( permissions ) );
+        assertSearchCount( 1 );
+    }
+
+    @Test
+    public void testPermissionCacheMiss() throws Exception
+    {
+        setPermissionCache( true, 30 );
+
+        Assert.assertTrue( testPermissions( List.of( queryPermission( null, MATCH_FILTER ) ) ) );
+        Assert.assertFalse( testPermissions( List.of( queryPermission( null, NO_MATCH_FILTER ) ) ) );
+        assertSearchCount( 2 );
+
+        // another user is not answered by the cached result
+        final UserIdentity otherUser = UserIdentity.create( "cn=other,o=test", "default", DomainID.DOMAIN_ID_DEFAULT );
+        UserPermissionUtility.testUserPermission( pwmDomain, SessionLabel.TEST_SESSION_LABEL, otherUser, List.of( queryPermission( null, MATCH_FILTER ) ) );
+        Mockito.verify( pwmDomain, Mockito.times( 3 ) ).getProxiedChaiUser( Mockito.any(), Mockito.any() );
+    }
+
+    @Test
+    public void testPermissionCacheExpiry() throws Exception
+    {
+        // a zero second lifetime expires each result as soon as it is stored
+        setPermissionCache( true, 0 );
+        final List<UserPermission> permissions = List.of( queryPermission( null, MATCH_FILTER ) );
+
+        Assert.assertTrue( testPermissions( permissions ) );
+        Assert.assertTrue( testPermissions( permissions ) );
+        assertSearchCount( 2 );
+    }
+
+    private boolean testPermissions( final List<UserPermission> permissions ) throws Exception
+    {
+        return UserPermissionUtility.testUserPermission( pwmDomain, SessionLabel.TEST_SESSION_LABEL, userIdentity, permissions );
+    }
+
+    private void assertSearchCount( final int count ) throws Exception
+    {
+        Mockito.verify( chaiProvider, Mockito.times( count ) )
+                .search( Mockito.anyString(), Mockito.anyString(), Mockito.anySet(), Mockito.any( SearchScope.class ) );
+    }
+
+    private void setPermissionCache( final boolean enable, final long seconds )
+    {
+        Mockito.doReturn( String.valueOf( enable ) ).when( domainConfig ).readAppProperty( AppProperty.LDAP_CACHE_PERMISSION_ENABLE );
+        Mockito.doReturn( String.valueOf( seconds ) ).when( domainConfig ).readAppProperty( AppProperty.LDAP_CACHE_PERMISSION_SECONDS );
+    }
+
+    private static UserPermission queryPermission( final String ldapProfileID, final String filter )
+    {
+        return UserPermission.builder()
+                .type( UserPermissionType.ldapQuery )
+                .ldapProfileID( ldapProfileID )
+                .ldapQuery( filter )
+                .build();
+    }
+}
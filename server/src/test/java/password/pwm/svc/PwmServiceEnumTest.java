@@ -0,0 +1,47 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.config.PwmSettingScope;
+
+import java.util.List;
+
+public class PwmServiceEnumTest
+{
+    @Test
+    public void testDependenciesWithinScope()
+    {
+        for ( final PwmSettingScope scope : List.of( PwmSettingScope.SYSTEM, PwmSettingScope.DOMAIN ) )
+        {
+            final List<PwmServiceEnum> services = PwmServiceEnum.forScope( scope );
+            for ( final PwmServiceEnum service : services )
+            {
+                for ( final PwmServiceEnum dependency : service.getDependencies() )
+                {
+                    Assert.assertTrue( service + " depends on " + dependency + " outside of its scope", services.contains( dependency ) );
+                    Assert.assertTrue( service + " depends on later service " + dependency, dependency.ordinal() < service.ordinal() );
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.util.java.StatisticCounterBundle;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MemoryCacheStoreTest
+{
+    private static final CacheKey CACHE_KEY = CacheKey.newKey( MemoryCacheStoreTest.class, null, "test" );
+    private static final TimeDuration LOAD_WAIT_TIMEOUT = TimeDuration.SECONDS_10;
+
+    @Test
+    public void testSingleFlightLoad()
+            throws Exception
+    {
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, 0, LOAD_WAIT_TIMEOUT );
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE );
+        final AtomicInteger loadCount = new AtomicInteger();
+        final CountDownLatch loaderStarted = new CountDownLatch( 1 );
+        final CountDownLatch readersStarted = new CountDownLatch( 7 );
+        final CountDownLatch releaseLoader = new CountDownLatch( 1 );
+
+        final CacheLoader<String> cacheLoader = () ->
+        {
+            loadCount.incrementAndGet();
+            loaderStarted.countDown();
+            try
+            {
+                releaseLoader.await();
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            return "loaded-value";
+        };
+
+        final int threads = ( int ) readersStarted.getCount() + 1;
+        final ExecutorService executorService = Executors.newFixedThreadPool( threads );
+        try
+        {
+            final List<Future<String>> results = new ArrayList<>();
+            results.add( executorService.submit( () -> memoryCacheStore.readAndStore( CACHE_KEY, cachePolicy, String.class, cacheLoader ) ) );
+            Assert.assertTrue( loaderStarted.await( 10, TimeUnit.SECONDS ) );
+
+            for ( int i = 1; i < threads; i++ )
+            {
+                results.add( executorService.submit( () ->
+                {
+                    readersStarted.countDown();
+                    return memoryCacheStore.readAndStore( CACHE_KEY, cachePolicy, String.class, cacheLoader );
+                } ) );
+            }
+
+            Assert.assertTrue( readersStarted.await( 10, TimeUnit.SECONDS ) );
+            releaseLoader.countDown();
+
+            for ( final Future<String> result : results )
+            {
+                Assert.assertEquals( "loaded-value", result.get( 10, TimeUnit.SECONDS ) );
+            }
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+
+        Assert.assertEquals( 1, loadCount.get() );
+
+        // each reader either waited for the in-flight load or read its stored result
+        final StatisticCounterBundle<CacheStore.DebugKey> stats = memoryCacheStore.getCacheStoreInfo();
+        Assert.assertEquals( threads - 1, stats.get( CacheStore.DebugKey.sharedLoadCount ) + stats.get( CacheStore.DebugKey.hitCount ) );
+    }
+
+    @Test
+    public void testSharedLoadClassMismatch()
+            throws Exception
+    {
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, 0, LOAD_WAIT_TIMEOUT );
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE ).withImmutablePayload();
+        final CountDownLatch loaderStarted = new CountDownLatch( 1 );
+        final CountDownLatch releaseLoader = new CountDownLatch( 1 );
+
+        final CacheLoader<ArrayList> listLoader = () ->
+        {
+            loaderStarted.countDown();
+            try
+            {
+                releaseLoader.await();
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            return new ArrayList<>( List.of( "value1" ) );
+        };
+
+        final ExecutorService executorService = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            final Future<ArrayList> listResult = executorService.submit( () -> memoryCacheStore.readAndStore( CACHE_KEY, cachePolicy, ArrayList.class, listLoader ) );
+            Assert.assertTrue( loaderStarted.await( 10, TimeUnit.SECONDS ) );
+
+            // a reader of another class gets its own value rather than null, whether or not it shares the load
+            final Future<String> stringResult = executorService.submit( () -> memoryCacheStore.readAndStore( CACHE_KEY, cachePolicy, String.class, () -> "string-value" ) );
+            releaseLoader.countDown();
+
+            Assert.assertEquals( List.of( "value1" ), listResult.get( 10, TimeUnit.SECONDS ) );
+            Assert.assertEquals( "string-value", stringResult.get( 10, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReentrantLoad()
+            throws Exception
+    {
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, 0, LOAD_WAIT_TIMEOUT );
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE );
+
+        final CacheLoader<String> outerLoader = () -> "outer-" + memoryCacheStore.readAndStore( CACHE_KEY, cachePolicy, String.class, () -> "inner" );
+
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try
+        {
+            final Future<String> result = executorService.submit( () -> memoryCacheStore.readAndStore( CACHE_KEY, cachePolicy, String.class, outerLoader ) );
+            Assert.assertEquals( "outer-inner", result.get( 10, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+
+        Assert.assertEquals( "outer-inner", memoryCacheStore.read( CACHE_KEY, String.class ) );
+    }
+
+    @Test
+    public void testImmutablePayload()
+            throws Exception
+    {
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, 0, LOAD_WAIT_TIMEOUT );
+        final ArrayList<String> payload = new ArrayList<>( List.of( "value1" ) );
+
+        memoryCacheStore.store( CACHE_KEY, CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE ), payload );
+        Assert.assertNotSame( payload, memoryCacheStore.read( CACHE_KEY, ArrayList.class ) );
+
+        memoryCacheStore.store( CACHE_KEY, CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE ).withImmutablePayload(), payload );
+        Assert.assertSame( payload, memoryCacheStore.read( CACHE_KEY, ArrayList.class ) );
+        Assert.assertNull( memoryCacheStore.read( CACHE_KEY, String.class ) );
+    }
+
+    @Test
+    public void testPolicyExpiration()
+            throws Exception
+    {
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, 0, LOAD_WAIT_TIMEOUT );
+        final CacheKey expiringKey = CacheKey.newKey( MemoryCacheStoreTest.class, null, "expiring" );
+
+        memoryCacheStore.store( CACHE_KEY, CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE ), "value" );
+        memoryCacheStore.store( expiringKey, CachePolicy.makePolicyWithExpirationMS( 50 ), "value" );
+        Assert.assertEquals( 2, memoryCacheStore.itemCount() );
+
+        // caffeine removes variable expirations on a timer wheel with roughly one second resolution
+        TimeDuration.of( 2500, TimeDuration.Unit.MILLISECONDS ).pause();
+        memoryCacheStore.cleanUp();
+
+        // the expired entry is removed without being read or evicted by size
+        Assert.assertEquals( 1, memoryCacheStore.itemCount() );
+        Assert.assertNull( memoryCacheStore.read( expiringKey, String.class ) );
+        Assert.assertEquals( "value", memoryCacheStore.read( CACHE_KEY, String.class ) );
+    }
+
+    @Test
+    public void testWeightEviction()
+            throws Exception
+    {
+        final long maxBytes = 64 * 1024;
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, maxBytes, LOAD_WAIT_TIMEOUT );
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE );
+        final String payload = "x".repeat( 4 * 1024 );
+
+        // well under the item limit, but each entry weighs over 8KB so only a handful fit the byte budget
+        for ( int i = 0; i < 50; i++ )
+        {
+            memoryCacheStore.store( CacheKey.newKey( MemoryCacheStoreTest.class, null, "item" + i ), cachePolicy, payload );
+        }
+        memoryCacheStore.cleanUp();
+
+        Assert.assertTrue( memoryCacheStore.itemCount() < 10 );
+        Assert.assertTrue( memoryCacheStore.byteCount() <= maxBytes );
+    }
+
+    @Test
+    public void testItemLimitWithoutByteLimit()
+            throws Exception
+    {
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 10, 0, LOAD_WAIT_TIMEOUT );
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE );
+
+        for ( int i = 0; i < 50; i++ )
+        {
+            memoryCacheStore.store( CacheKey.newKey( MemoryCacheStoreTest.class, null, "item" + i ), cachePolicy, "value" );
+        }
+        memoryCacheStore.cleanUp();
+
+        Assert.assertEquals( 10, memoryCacheStore.itemCount() );
+    }
+
+    @Test
+    public void testImmutablePayloadWeight()
+            throws Exception
+    {
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, 0, LOAD_WAIT_TIMEOUT );
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE ).withImmutablePayload();
+
+        memoryCacheStore.store( CACHE_KEY, cachePolicy, Boolean.TRUE );
+        final long booleanWeight = memoryCacheStore.byteCount();
+
+        final ArrayList<String> largePayload = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            largePayload.add( "value" + i );
+        }
+        memoryCacheStore.store( CACHE_KEY, cachePolicy, largePayload );
+
+        // a collection is weighed by its contents rather than a fixed guess
+        Assert.assertTrue( memoryCacheStore.byteCount() > booleanWeight + 100 * "value".length() * Character.BYTES );
+    }
+
+    @Test
+    public void testSharedNullResult()
+            throws Exception
+    {
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, 0, LOAD_WAIT_TIMEOUT );
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE );
+        final AtomicInteger loadCount = new AtomicInteger();
+        final CountDownLatch loaderStarted = new CountDownLatch( 1 );
+        final CountDownLatch releaseLoader = new CountDownLatch( 1 );
+
+        final CacheLoader<String> nullLoader = () ->
+        {
+            loadCount.incrementAndGet();
+            loaderStarted.countDown();
+            try
+            {
+                releaseLoader.await();
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        };
+
+        final ExecutorService executorService = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            final Future<String> loaderResult = executorService.submit( () -> memoryCacheStore.readAndStore( CACHE_KEY, cachePolicy, String.class, nullLoader ) );
+            Assert.assertTrue( loaderStarted.await( 10, TimeUnit.SECONDS ) );
+
+            final Future<String> waiterResult = executorService.submit( () -> memoryCacheStore.readAndStore( CACHE_KEY, cachePolicy, String.class, nullLoader ) );
+            while ( memoryCacheStore.getCacheStoreInfo().get( CacheStore.DebugKey.sharedLoadCount ) == 0 && !waiterResult.isDone() )
+            {
+                TimeDuration.MILLISECOND.pause();
+            }
+            releaseLoader.countDown();
+
+            Assert.assertNull( loaderResult.get( 10, TimeUnit.SECONDS ) );
+            Assert.assertNull( waiterResult.get( 10, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+
+        // the waiter shared the null result rather than running the loader again
+        Assert.assertEquals( 1, memoryCacheStore.getCacheStoreInfo().get( CacheStore.DebugKey.sharedLoadCount ) );
+        Assert.assertEquals( 1, loadCount.get() );
+    }
+
+    @Test
+    public void testSharedLoadTimeout()
+            throws Exception
+    {
+        final MemoryCacheStore memoryCacheStore = new MemoryCacheStore( 100, 0, TimeDuration.of( 100, TimeDuration.Unit.MILLISECONDS ) );
+        final CachePolicy cachePolicy = CachePolicy.makePolicyWithExpiration( TimeDuration.MINUTE );
+        final CountDownLatch loaderStarted = new CountDownLatch( 1 );
+        final CountDownLatch releaseLoader = new CountDownLatch( 1 );
+
+        final CacheLoader<String> stalledLoader = () ->
+        {
+            loaderStarted.countDown();
+            try
+            {
+                releaseLoader.await();
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            return "stalled-value";
+        };
+
+        final ExecutorService executorService = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            final Future<String> stalledResult = executorService.submit( () -> memoryCacheStore.readAndStore( CACHE_KEY, cachePolicy, String.class, stalledLoader ) );
+            Assert.assertTrue( loaderStarted.await( 10, TimeUnit.SECONDS ) );
+
+            // the waiter gives up on the stalled load and runs its own loader
+            final Future<String> waiterResult = executorService.submit( () -> memoryCacheStore.readAndStore( CACHE_KEY, cachePolicy, String.class, () -> "direct-value" ) );
+            Assert.assertEquals( "direct-value", waiterResult.get( 10, TimeUnit.SECONDS ) );
+            Assert.assertEquals( 1, memoryCacheStore.getCacheStoreInfo().get( CacheStore.DebugKey.sharedLoadTimeoutCount ) );
+
+            releaseLoader.countDown();
+            Assert.assertEquals( "stalled-value", stalledResult.get( 10, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+}
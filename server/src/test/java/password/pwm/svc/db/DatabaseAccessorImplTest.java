@@ -0,0 +1,186 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import password.pwm.AppProperty;
+import password.pwm.config.AppConfig;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DatabaseAccessorImplTest
+{
+    private static final DatabaseTable TABLE = DatabaseTable.OTP;
+
+    // never created, so every statement against it fails
+    private static final DatabaseTable MISSING_TABLE = DatabaseTable.PW_NOTIFY;
+
+    @Test
+    public void testPutOperations() throws Exception
+    {
+        for ( final DatabaseVendor vendor : List.of( DatabaseVendor.H2, DatabaseVendor.GENERIC ) )
+        {
+            final TestAccessor testAccessor = makeAccessor( vendor, 64 );
+            try
+            {
+                final DatabaseAccessorImpl accessor = testAccessor.accessor;
+
+                accessor.put( TABLE, "key1", "value1" );
+                accessor.put( TABLE, "key1", "value2" );
+                Assert.assertEquals( vendor.name(), "value2", accessor.get( TABLE, "key1" ).orElseThrow() );
+
+                Assert.assertTrue( vendor.name(), accessor.putIfAbsent( TABLE, "key2", "value1" ) );
+                Assert.assertFalse( vendor.name(), accessor.putIfAbsent( TABLE, "key2", "value2" ) );
+                Assert.assertEquals( vendor.name(), "value1", accessor.get( TABLE, "key2" ).orElseThrow() );
+
+                // more values than the batch size, mixing new keys with a key that is replaced
+                final Map<String, String> values = new LinkedHashMap<>();
+                values.put( "key1", "value3" );
+                for ( int i = 3; i < 8; i++ )
+                {
+                    values.put( "key" + i, "value" + i );
+                }
+                accessor.putAll( TABLE, values );
+
+                Assert.assertEquals( vendor.name(), 7, accessor.size( TABLE ) );
+                Assert.assertEquals( vendor.name(), "value3", accessor.get( TABLE, "key1" ).orElseThrow() );
+                Assert.assertEquals( vendor.name(), "value7", accessor.get( TABLE, "key7" ).orElseThrow() );
+                Assert.assertTrue( vendor.name(), accessor.contains( TABLE, "key5" ) );
+
+                accessor.putAll( TABLE, Map.of() );
+                Assert.assertEquals( vendor.name(), 7, accessor.size( TABLE ) );
+            }
+            finally
+            {
+                testAccessor.accessor.close();
+            }
+        }
+    }
+
+    @Test
+    public void testStatementCacheEviction() throws Exception
+    {
+        final TestAccessor testAccessor = makeAccessor( DatabaseVendor.GENERIC, 2 );
+        final DatabaseAccessorImpl accessor = testAccessor.accessor;
+
+        accessor.get( TABLE, "key1" );
+        accessor.get( TABLE, "key2" );
+        Assert.assertEquals( 1, testAccessor.preparedStatements.size() );
+
+        accessor.contains( TABLE, "key1" );
+        accessor.get( TABLE, "key1" );
+        accessor.size( TABLE );
+
+        // the contains statement was least recently used when the third statement was prepared
+        Assert.assertEquals( 3, testAccessor.preparedStatements.size() );
+        Assert.assertFalse( testAccessor.preparedStatements.get( 0 ).isClosed() );
+        Assert.assertTrue( testAccessor.preparedStatements.get( 1 ).isClosed() );
+        Assert.assertFalse( testAccessor.preparedStatements.get( 2 ).isClosed() );
+
+        accessor.close();
+        for ( final PreparedStatement statement : testAccessor.preparedStatements )
+        {
+            Assert.assertTrue( statement.isClosed() );
+        }
+    }
+
+    @Test
+    public void testStatementsClosedOnError() throws Exception
+    {
+        for ( final DatabaseVendor vendor : List.of( DatabaseVendor.H2, DatabaseVendor.GENERIC ) )
+        {
+            final TestAccessor testAccessor = makeAccessor( vendor, 64 );
+            try
+            {
+                final DatabaseAccessorImpl accessor = testAccessor.accessor;
+                accessor.put( TABLE, "key1", "value1" );
+                accessor.get( TABLE, "key1" );
+                Assert.assertFalse( testAccessor.preparedStatements.isEmpty() );
+
+                Assert.assertThrows( DatabaseException.class, () -> accessor.put( MISSING_TABLE, "key1", "value1" ) );
+                Assert.assertThrows( DatabaseException.class, () -> accessor.putAll( MISSING_TABLE, Map.of( "key1", "value1" ) ) );
+                for ( final PreparedStatement statement : testAccessor.preparedStatements )
+                {
+                    Assert.assertTrue( vendor.name(), statement.isClosed() );
+                }
+
+                // the accessor prepares new statements after the error
+                Assert.assertEquals( vendor.name(), "value1", accessor.get( TABLE, "key1" ).orElseThrow() );
+            }
+            finally
+            {
+                testAccessor.accessor.close();
+            }
+        }
+    }
+
+    private static TestAccessor makeAccessor( final DatabaseVendor vendor, final int statementCacheSize ) throws SQLException
+    {
+        final AppConfig appConfig = Mockito.mock( AppConfig.class );
+        Mockito.when( appConfig.readAppProperty( Mockito.any() ) ).thenAnswer( invocation -> ( ( AppProperty ) invocation.getArgument( 0 ) ).getDefaultValue() );
+        Mockito.when( appConfig.readAppProperty( AppProperty.DB_VENDOR ) ).thenReturn( vendor.name() );
+        Mockito.when( appConfig.readAppProperty( AppProperty.DB_STATEMENT_CACHE_SIZE ) ).thenReturn( String.valueOf( statementCacheSize ) );
+        Mockito.when( appConfig.readAppProperty( AppProperty.DB_BATCH_MAX_SIZE ) ).thenReturn( "2" );
+        final DBConfiguration dbConfiguration = DBConfiguration.fromConfiguration( appConfig );
+        Assert.assertEquals( vendor, dbConfiguration.getVendor() );
+
+        final Connection connection = Mockito.spy( DriverManager.getConnection( "jdbc:h2:mem:accessor-" + vendor.name() + "-" + statementCacheSize + ";NON_KEYWORDS=VALUE" ) );
+        connection.setAutoCommit( false );
+        try ( Statement statement = connection.createStatement() )
+        {
+            statement.execute( "CREATE TABLE " + TABLE.name() + " (id VARCHAR(128) NOT NULL PRIMARY KEY, value CLOB)" );
+        }
+        connection.commit();
+
+        final List<PreparedStatement> preparedStatements = new ArrayList<>();
+        Mockito.doAnswer( invocation ->
+        {
+            final PreparedStatement statement = ( PreparedStatement ) invocation.callRealMethod();
+            preparedStatements.add( statement );
+            return statement;
+        } ).when( connection ).prepareStatement( Mockito.anyString() );
+
+        final DatabaseService databaseService = Mockito.mock( DatabaseService.class );
+        return new TestAccessor( new DatabaseAccessorImpl( databaseService, dbConfiguration, connection, false ), preparedStatements );
+    }
+
+    private static class TestAccessor
+    {
+        private final DatabaseAccessorImpl accessor;
+        private final List<PreparedStatement> preparedStatements;
+
+        TestAccessor( final DatabaseAccessorImpl accessor, final List<PreparedStatement> preparedStatements )
+        {
+            this.accessor = accessor;
+            this.preparedStatements = preparedStatements;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DatabaseConnectionPoolTest
+{
+    private static final TimeDuration CHECKOUT_TIMEOUT = TimeDuration.of( 50, TimeDuration.Unit.MILLISECONDS );
+
+    @Test
+    public void testCheckoutAndRelease() throws Exception
+    {
+        final AtomicInteger opened = new AtomicInteger();
+        final DatabaseConnectionPool pool = new DatabaseConnectionPool( "test", 1, CHECKOUT_TIMEOUT, TimeDuration.HOUR, () ->
+        {
+            opened.incrementAndGet();
+            return Mockito.mock( DatabaseAccessorImpl.class );
+        } );
+
+        final DatabaseConnectionPool.Lease lease = pool.checkout();
+        Assert.assertEquals( 1, pool.summary().getActive() );
+
+        // the owning thread is given the connection it already holds
+        final DatabaseConnectionPool.Lease nestedLease = pool.checkout();
+        Assert.assertSame( lease, nestedLease );
+        pool.release( nestedLease );
+        Assert.assertEquals( 1, pool.summary().getActive() );
+
+        // other threads wait for the connection to be returned
+        final CompletableFuture<Boolean> otherThread = CompletableFuture.supplyAsync( () ->
+        {
+            try
+            {
+                pool.release( pool.checkout() );
+                return true;
+            }
+            catch ( final DatabaseException e )
+            {
+                return false;
+            }
+        } );
+        Assert.assertFalse( otherThread.get() );
+        Assert.assertEquals( 1, pool.summary().getCheckoutTimeouts() );
+
+        pool.release( lease );
+        Assert.assertEquals( 0, pool.summary().getActive() );
+        Assert.assertEquals( 1, pool.summary().getIdle() );
+
+        pool.release( pool.checkout() );
+        Assert.assertEquals( 1, opened.get() );
+        Assert.assertEquals( 2, pool.summary().getCheckoutTime().getCount() );
+    }
+
+    @Test
+    public void testInvalidConnectionReplaced() throws Exception
+    {
+        final AtomicInteger opened = new AtomicInteger();
+        final DatabaseConnectionPool pool = new DatabaseConnectionPool( "test", 2, CHECKOUT_TIMEOUT, TimeDuration.ZERO, () ->
+        {
+            opened.incrementAndGet();
+            final DatabaseAccessorImpl accessor = Mockito.mock( DatabaseAccessorImpl.class );
+            Mockito.when( accessor.isValid() ).thenReturn( false );
+            return accessor;
+        } );
+
+        pool.prefill( 2 );
+        Assert.assertEquals( 2, pool.summary().getIdle() );
+        Thread.sleep( 5 );
+
+        pool.validateIdleConnections();
+        Assert.assertEquals( 0, pool.summary().getIdle() );
+
+        // a replacement is opened on checkout
+        final DatabaseConnectionPool.Lease lease = pool.checkout();
+        Assert.assertEquals( 3, opened.get() );
+        pool.release( lease );
+        pool.close();
+        Assert.assertEquals( 0, pool.summary().getIdle() + pool.summary().getActive() );
+    }
+}
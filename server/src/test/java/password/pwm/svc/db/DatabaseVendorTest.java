@@ -0,0 +1,129 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public class DatabaseVendorTest
+{
+    @Test
+    public void testForConfiguration()
+    {
+        Assert.assertEquals( DatabaseVendor.POSTGRESQL, DatabaseVendor.forConfiguration( "", "jdbc:postgresql://localhost/pwm" ) );
+        Assert.assertEquals( DatabaseVendor.MYSQL, DatabaseVendor.forConfiguration( null, "jdbc:mariadb://localhost/pwm" ) );
+        Assert.assertEquals( DatabaseVendor.MSSQL, DatabaseVendor.forConfiguration( null, "JDBC:SQLSERVER://localhost" ) );
+        Assert.assertEquals( DatabaseVendor.GENERIC, DatabaseVendor.forConfiguration( null, "jdbc:derby:pwm" ) );
+
+        // a configured vendor overrides the connection url
+        Assert.assertEquals( DatabaseVendor.GENERIC, DatabaseVendor.forConfiguration( "generic", "jdbc:postgresql://localhost/pwm" ) );
+        Assert.assertEquals( DatabaseVendor.H2, DatabaseVendor.forConfiguration( "invalid", "jdbc:h2:mem:pwm" ) );
+    }
+
+    @Test
+    public void testStatements()
+    {
+        Assert.assertEquals(
+                "INSERT INTO OTP (id, value) VALUES (?, ?) ON CONFLICT (id) DO UPDATE SET value = EXCLUDED.value",
+                DatabaseVendor.POSTGRESQL.upsertSql( DatabaseTable.OTP ).orElseThrow() );
+        Assert.assertEquals(
+                "MERGE INTO OTP WITH (HOLDLOCK) t USING (SELECT ? AS id, ? AS value) s ON (t.id = s.id)"
+                        + " WHEN MATCHED THEN UPDATE SET t.value = s.value"
+                        + " WHEN NOT MATCHED THEN INSERT (id, value) VALUES (s.id, s.value);",
+                DatabaseVendor.MSSQL.upsertSql( DatabaseTable.OTP ).orElseThrow() );
+        Assert.assertTrue( DatabaseVendor.ORACLE.upsertSql( DatabaseTable.OTP ).isEmpty() );
+        Assert.assertTrue( DatabaseVendor.ORACLE.insertIfAbsentSql( DatabaseTable.OTP ).isEmpty() );
+        Assert.assertTrue( DatabaseVendor.MYSQL.insertIfAbsentSql( DatabaseTable.OTP ).isEmpty() );
+        Assert.assertTrue( DatabaseVendor.H2.insertIfAbsentSql( DatabaseTable.OTP ).isEmpty() );
+        Assert.assertTrue( DatabaseVendor.GENERIC.upsertSql( DatabaseTable.OTP ).isEmpty() );
+    }
+
+    /**
+     * Run the statements against H2 in the compatibility mode of each vendor.  H2 does not support ON CONFLICT with a
+     * conflict target or untyped parameters as SELECT columns, so the PostgreSQL and SQL Server statements are not
+     * executed.
+     */
+    @Test
+    public void testStatementExecution() throws SQLException
+    {
+        testStatementExecution( DatabaseVendor.H2, "REGULAR" );
+        testStatementExecution( DatabaseVendor.MYSQL, "MySQL" );
+    }
+
+    private static void testStatementExecution( final DatabaseVendor vendor, final String h2Mode ) throws SQLException
+    {
+        final DatabaseTable table = DatabaseTable.OTP;
+        final String url = "jdbc:h2:mem:" + vendor.name() + ";MODE=" + h2Mode + ";NON_KEYWORDS=VALUE";
+        try ( Connection connection = DriverManager.getConnection( url ) )
+        {
+            try ( Statement statement = connection.createStatement() )
+            {
+                statement.execute( "CREATE TABLE " + table.name() + " (id VARCHAR(128) NOT NULL PRIMARY KEY, value CLOB)" );
+            }
+
+            if ( vendor.upsertSql( table ).isPresent() )
+            {
+                final String upsertSql = vendor.upsertSql( table ).get();
+                executeUpdate( connection, upsertSql, "key1", "value1" );
+                executeUpdate( connection, upsertSql, "key1", "value2" );
+                Assert.assertEquals( vendor.name(), "value2", readValue( connection, table, "key1" ) );
+            }
+
+            if ( vendor.insertIfAbsentSql( table ).isPresent() )
+            {
+                final String insertIfAbsentSql = vendor.insertIfAbsentSql( table ).get();
+                Assert.assertEquals( vendor.name(), 1, executeUpdate( connection, insertIfAbsentSql, "key2", "value1" ) );
+                Assert.assertEquals( vendor.name(), 0, executeUpdate( connection, insertIfAbsentSql, "key2", "value2" ) );
+                Assert.assertEquals( vendor.name(), "value1", readValue( connection, table, "key2" ) );
+            }
+        }
+    }
+
+    private static int executeUpdate( final Connection connection, final String sql, final String key, final String value ) throws SQLException
+    {
+        try ( PreparedStatement statement = connection.prepareStatement( sql ) )
+        {
+            statement.setString( 1, key );
+            statement.setString( 2, value );
+            return statement.executeUpdate();
+        }
+    }
+
+    private static String readValue( final Connection connection, final DatabaseTable table, final String key ) throws SQLException
+    {
+        try ( PreparedStatement statement = connection.prepareStatement( "SELECT value FROM " + table.name() + " WHERE id = ?" ) )
+        {
+            statement.setString( 1, key );
+            try ( ResultSet resultSet = statement.executeQuery() )
+            {
+                Assert.assertTrue( resultSet.next() );
+                return resultSet.getString( 1 );
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.intruder;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import password.pwm.bean.DomainID;
+import password.pwm.bean.SessionLabel;
+import password.pwm.config.option.DataStorageMethod;
+import password.pwm.svc.PwmService;
+import password.pwm.util.DataStore;
+import password.pwm.util.java.ClosableIterator;
+import password.pwm.util.java.TimeDuration;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+public class IntruderDataStoreTest
+{
+    @Test
+    public void testIndexedCleanup() throws Exception
+    {
+        final PwmService pwmService = Mockito.mock( PwmService.class );
+        Mockito.when( pwmService.getSessionLabel() ).thenReturn( SessionLabel.TEST_SESSION_LABEL );
+
+        final MapDataStore recordData = new MapDataStore();
+        final MapDataStore indexData = new MapDataStore();
+        final IntruderExpiryIndex expiryIndex = new IntruderExpiryIndex( indexData, TimeDuration.of( 1, TimeDuration.Unit.MILLISECONDS ), "node1" );
+        final IntruderDataStore dataStore = new IntruderDataStore( pwmService, recordData, expiryIndex, () -> PwmService.STATUS.OPEN );
+        final TimeDuration maxRecordAge = TimeDuration.MINUTE;
+
+        dataStore.write( "fresh", makeRecord( "fresh", Instant.now() ) );
+        dataStore.write( "stale1", makeRecord( "stale1", Instant.now().minusSeconds( 600 ) ) );
+
+        // first cleanup scans the whole table and establishes the index
+        Assert.assertFalse( expiryIndex.isInitialized() );
+        Assert.assertEquals( 1, dataStore.cleanup( maxRecordAge ) );
+        Assert.assertTrue( expiryIndex.isInitialized() );
+        Assert.assertEquals( 2, dataStore.getStats().get( IntruderRecordStore.DebugKeys.cleanupExamines ) );
+
+        dataStore.write( "stale2", makeRecord( "stale2", Instant.now().minusSeconds( 600 ) ) );
+        Thread.sleep( 10 );
+
+        // subsequent cleanups only examine records listed in expired buckets
+        Assert.assertEquals( 1, dataStore.cleanup( maxRecordAge ) );
+        Assert.assertEquals( 3, dataStore.getStats().get( IntruderRecordStore.DebugKeys.cleanupExamines ) );
+        Assert.assertTrue( dataStore.read( "fresh" ).isPresent() );
+        Assert.assertTrue( dataStore.read( "stale1" ).isEmpty() );
+        Assert.assertTrue( dataStore.read( "stale2" ).isEmpty() );
+    }
+
+    @Test
+    public void testBatchedIndexWrites() throws Exception
+    {
+        final PwmService pwmService = Mockito.mock( PwmService.class );
+        Mockito.when( pwmService.getSessionLabel() ).thenReturn( SessionLabel.TEST_SESSION_LABEL );
+
+        final MapDataStore recordData = new MapDataStore();
+        final MapDataStore indexData = new MapDataStore();
+        final IntruderExpiryIndex expiryIndex = new IntruderExpiryIndex( indexData, TimeDuration.HOUR, "node1" );
+        final IntruderDataStore dataStore = new IntruderDataStore( pwmService, recordData, expiryIndex, () -> PwmService.STATUS.OPEN );
+        final Instant timestamp = Instant.now();
+
+        final Map<String, Function<Optional<IntruderRecord>, IntruderRecord>> updaters = new LinkedHashMap<>();
+        for ( int i = 0; i < 250; i++ )
+        {
+            final String key = "key" + i;
+            updaters.put( key, existing -> makeRecord( key, timestamp ) );
+        }
+        dataStore.updateAll( updaters );
+
+        // all keys are indexed with one store write, split into pages
+        Assert.assertEquals( 1, indexData.putAllCount );
+        Assert.assertEquals( 2, indexData.size() );
+
+        // rewriting an indexed key does not write the index, a new key is appended as a new page
+        final Map<String, String> existingPages = new TreeMap<>( indexData.values );
+        dataStore.write( "key0", makeRecord( "key0", timestamp ) );
+        Assert.assertEquals( existingPages, indexData.values );
+        dataStore.write( "key250", makeRecord( "key250", timestamp ) );
+        Assert.assertEquals( 3, indexData.size() );
+        Assert.assertTrue( indexData.values.entrySet().containsAll( existingPages.entrySet() ) );
+    }
+
+    @Test
+    public void testSharedIndexStore() throws Exception
+    {
+        final PwmService pwmService = Mockito.mock( PwmService.class );
+        Mockito.when( pwmService.getSessionLabel() ).thenReturn( SessionLabel.TEST_SESSION_LABEL );
+
+        final MapDataStore recordData = new MapDataStore();
+        final MapDataStore indexData = new MapDataStore();
+        final TimeDuration bucketWidth = TimeDuration.of( 1, TimeDuration.Unit.MILLISECONDS );
+        final IntruderDataStore node1 = new IntruderDataStore( pwmService, recordData, new IntruderExpiryIndex( indexData, bucketWidth, "node1" ),
+                () -> PwmService.STATUS.OPEN );
+        final IntruderDataStore node2 = new IntruderDataStore( pwmService, recordData, new IntruderExpiryIndex( indexData, bucketWidth, "node2" ),
+                () -> PwmService.STATUS.OPEN );
+        final TimeDuration maxRecordAge = TimeDuration.MINUTE;
+
+        Assert.assertEquals( 0, node1.cleanup( maxRecordAge ) );
+
+        // both nodes index into the same bucket without replacing each other's pages
+        node1.write( "stale1", makeRecord( "stale1", Instant.now().minusSeconds( 600 ) ) );
+        node2.write( "stale2", makeRecord( "stale2", Instant.now().minusSeconds( 600 ) ) );
+        Assert.assertEquals( 3, indexData.size() );
+        Thread.sleep( 10 );
+
+        Assert.assertEquals( 2, node1.cleanup( maxRecordAge ) );
+        Assert.assertTrue( node1.read( "stale1" ).isEmpty() );
+        Assert.assertTrue( node1.read( "stale2" ).isEmpty() );
+
+        // node2 still holds the old cleaned through position, its page for an already cleaned bucket is picked up later
+        node2.write( "stale3", makeRecord( "stale3", Instant.now().minusSeconds( 600 ) ) );
+        Thread.sleep( 10 );
+        Assert.assertEquals( 1, node2.cleanup( maxRecordAge ) );
+        Assert.assertTrue( node2.read( "stale3" ).isEmpty() );
+        Assert.assertEquals( 1, indexData.size() );
+    }
+
+    private static IntruderRecord makeRecord( final String subject, final Instant timestamp )
+    {
+        final IntruderRecord record = new IntruderRecord( DomainID.systemId(), IntruderRecordType.USERNAME, subject );
+        record.setTimeStamp( timestamp );
+        return record;
+    }
+
+    private static class MapDataStore implements DataStore
+    {
+        private final Map<String, String> values = new TreeMap<>();
+        private int putAllCount;
+
+        @Override
+        public void close()
+        {
+        }
+
+        @Override
+        public boolean contains( final String key )
+        {
+            return values.containsKey( key );
+        }
+
+        @Override
+        public Optional<String> get( final String key )
+        {
+            return Optional.ofNullable( values.get( key ) );
+        }
+
+        @Override
+        public ClosableIterator<Map.Entry<String, String>> iterator()
+        {
+            final Iterator<Map.Entry<String, String>> innerIterator = new TreeMap<>( values ).entrySet().iterator();
+            return new ClosableIterator<>()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    return innerIterator.hasNext();
+                }
+
+                @Override
+                public Map.Entry<String, String> next()
+                {
+                    return innerIterator.next();
+                }
+
+                @Override
+                public void close()
+                {
+                }
+            };
+        }
+
+        @Override
+        public Status status()
+        {
+            return Status.OPEN;
+        }
+
+        @Override
+        public boolean put( final String key, final String value )
+        {
+            return values.put( key, value ) != null;
+        }
+
+        @Override
+        public void putAll( final Map<String, String> keyValueMap )
+        {
+            putAllCount++;
+            values.putAll( keyValueMap );
+        }
+
+        @Override
+        public boolean putIfAbsent( final String key, final String value )
+        {
+            return values.putIfAbsent( key, value ) == null;
+        }
+
+        @Override
+        public void remove( final String key )
+        {
+            values.remove( key );
+        }
+
+        @Override
+        public long size()
+        {
+            return values.size();
+        }
+
+        @Override
+        public DataStorageMethod getDataStorageMethod()
+        {
+            return DataStorageMethod.LOCALDB;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.intruder;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import password.pwm.bean.DomainID;
+import password.pwm.bean.SessionLabel;
+import password.pwm.error.PwmOperationalException;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.svc.PwmService;
+import password.pwm.util.java.ClosableIterator;
+import password.pwm.util.java.StatisticCounterBundle;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+public class IntruderHotSetStoreTest
+{
+    private static final String KEY = "key1";
+
+    @Test
+    public void testConcurrentUpdates() throws Exception
+    {
+        final MapRecordStore backingStore = new MapRecordStore();
+        final IntruderHotSetStore hotSetStore = makeStore( backingStore );
+
+        final int threads = 8;
+        final int updatesPerThread = 250;
+        final ExecutorService executorService = Executors.newFixedThreadPool( threads );
+        try
+        {
+            final List<Future<?>> futures = new ArrayList<>();
+            for ( int i = 0; i < threads; i++ )
+            {
+                futures.add( executorService.submit( () ->
+                {
+                    for ( int j = 0; j < updatesPerThread; j++ )
+                    {
+                        hotSetStore.update( KEY, existing ->
+                        {
+                            final IntruderRecord record = existing.orElseGet( () -> new IntruderRecord( DomainID.systemId(), IntruderRecordType.USERNAME, "subject" ) );
+                            record.incrementAttemptCount();
+                            return record;
+                        } );
+                    }
+                    return null;
+                } ) );
+            }
+            for ( final Future<?> future : futures )
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executorService.shutdown();
+        }
+
+        Assert.assertEquals( threads * updatesPerThread, hotSetStore.read( KEY ).orElseThrow().getAttemptCount() );
+        Assert.assertTrue( backingStore.records.isEmpty() );
+
+        hotSetStore.flush();
+        Assert.assertEquals( threads * updatesPerThread, backingStore.records.get( KEY ).getAttemptCount() );
+    }
+
+    @Test
+    public void testReadReturnsCopy() throws Exception
+    {
+        final MapRecordStore backingStore = new MapRecordStore();
+        final IntruderHotSetStore hotSetStore = makeStore( backingStore );
+
+        hotSetStore.write( KEY, new IntruderRecord( DomainID.systemId(), IntruderRecordType.USERNAME, "subject" ) );
+        hotSetStore.read( KEY ).orElseThrow().incrementAttemptCount();
+        Assert.assertEquals( 0, hotSetStore.read( KEY ).orElseThrow().getAttemptCount() );
+    }
+
+    @Test
+    public void testFlushKeepsStoredAttempts() throws Exception
+    {
+        final MapRecordStore backingStore = new MapRecordStore();
+        final IntruderHotSetStore hotSetStore = makeStore( backingStore );
+
+        hotSetStore.update( KEY, IntruderHotSetStoreTest::increment );
+        hotSetStore.flush();
+        Assert.assertEquals( 1, backingStore.records.get( KEY ).getAttemptCount() );
+
+        // attempts counted by another instance sharing the backing store
+        backingStore.records.get( KEY ).setAttemptCount( 5 );
+
+        hotSetStore.update( KEY, IntruderHotSetStoreTest::increment );
+        hotSetStore.update( KEY, IntruderHotSetStoreTest::increment );
+        hotSetStore.flush();
+
+        Assert.assertEquals( 7, backingStore.records.get( KEY ).getAttemptCount() );
+        Assert.assertEquals( 7, hotSetStore.read( KEY ).orElseThrow().getAttemptCount() );
+        Assert.assertEquals( 2, backingStore.updateAllCount );
+    }
+
+    @Test
+    public void testFlushWritesClearedRecord() throws Exception
+    {
+        final MapRecordStore backingStore = new MapRecordStore();
+        final IntruderHotSetStore hotSetStore = makeStore( backingStore );
+
+        hotSetStore.update( KEY, IntruderHotSetStoreTest::increment );
+        hotSetStore.flush();
+        backingStore.records.get( KEY ).setAttemptCount( 5 );
+
+        hotSetStore.update( KEY, existing ->
+        {
+            final IntruderRecord record = existing.orElseThrow();
+            record.clearAttemptCount();
+            return record;
+        } );
+        hotSetStore.flush();
+
+        Assert.assertEquals( 0, backingStore.records.get( KEY ).getAttemptCount() );
+    }
+
+    @Test
+    public void testMaxItemsBoundsUpdates() throws Exception
+    {
+        final MapRecordStore backingStore = new MapRecordStore();
+        final IntruderHotSetStore hotSetStore = makeStore( backingStore, 10 );
+
+        for ( int i = 0; i < 50; i++ )
+        {
+            hotSetStore.update( "key" + i, IntruderHotSetStoreTest::increment );
+        }
+        Assert.assertEquals( 10, hotSetStore.size() );
+        Assert.assertEquals( 40, backingStore.records.size() );
+
+        // once flushed, unmodified records are released to admit new keys
+        hotSetStore.flush();
+        for ( int i = 50; i < 60; i++ )
+        {
+            hotSetStore.update( "key" + i, IntruderHotSetStoreTest::increment );
+        }
+        Assert.assertEquals( 10, hotSetStore.size() );
+        Assert.assertEquals( 50, backingStore.records.size() );
+
+        hotSetStore.flush();
+        for ( int i = 0; i < 60; i++ )
+        {
+            Assert.assertEquals( 1, backingStore.records.get( "key" + i ).getAttemptCount() );
+        }
+    }
+
+    @Test
+    public void testMerge()
+    {
+        final IntruderRecord synced = makeRecord( 2 );
+        final IntruderRecord local = makeRecord( 4 );
+        final IntruderRecord stored = makeRecord( 5 );
+        stored.setAlerted( true );
+
+        final IntruderRecord merged = IntruderHotSetStore.merge( Optional.of( stored ), synced, local, false );
+        Assert.assertEquals( 7, merged.getAttemptCount() );
+        Assert.assertTrue( merged.isAlerted() );
+
+        Assert.assertEquals( 4, IntruderHotSetStore.merge( Optional.of( stored ), synced, local, true ).getAttemptCount() );
+        Assert.assertEquals( 4, IntruderHotSetStore.merge( Optional.empty(), synced, local, false ).getAttemptCount() );
+        Assert.assertEquals( 9, IntruderHotSetStore.merge( Optional.of( stored ), null, local, false ).getAttemptCount() );
+    }
+
+    private static IntruderRecord increment( final Optional<IntruderRecord> existing )
+    {
+        final IntruderRecord record = existing.orElseGet( () -> makeRecord( 0 ) );
+        record.incrementAttemptCount();
+        return record;
+    }
+
+    private static IntruderRecord makeRecord( final int attemptCount )
+    {
+        final IntruderRecord record = new IntruderRecord( DomainID.systemId(), IntruderRecordType.USERNAME, "subject" );
+        record.setAttemptCount( attemptCount );
+        return record;
+    }
+
+    private static IntruderHotSetStore makeStore( final IntruderRecordStore backingStore )
+    {
+        return makeStore( backingStore, 1000 );
+    }
+
+    private static IntruderHotSetStore makeStore( final IntruderRecordStore backingStore, final int maxItems )
+    {
+        final PwmService pwmService = Mockito.mock( PwmService.class );
+        Mockito.when( pwmService.getSessionLabel() ).thenReturn( SessionLabel.TEST_SESSION_LABEL );
+        return new IntruderHotSetStore( pwmService, backingStore, TimeDuration.MINUTE, maxItems );
+    }
+
+    private static class MapRecordStore implements IntruderRecordStore
+    {
+        private final Map<String, IntruderRecord> records = new ConcurrentHashMap<>();
+        private int updateAllCount;
+
+        @Override
+        public StatisticCounterBundle<DebugKeys> getStats()
+        {
+            return new StatisticCounterBundle<>( DebugKeys.class );
+        }
+
+        @Override
+        public Optional<IntruderRecord> read( final String key )
+        {
+            return Optional.ofNullable( records.get( key ) );
+        }
+
+        @Override
+        public void write( final String key, final IntruderRecord record )
+        {
+            records.put( key, record.copy() );
+        }
+
+        @Override
+        public Optional<IntruderRecord> update( final String key, final Function<Optional<IntruderRecord>, IntruderRecord> updater )
+        {
+            final IntruderRecord updatedRecord = updater.apply( read( key ).map( IntruderRecord::copy ) );
+            if ( updatedRecord != null )
+            {
+                write( key, updatedRecord );
+            }
+            return read( key );
+        }
+
+        @Override
+        public Map<String, IntruderRecord> updateAll( final Map<String, Function<Optional<IntruderRecord>, IntruderRecord>> updaters )
+                throws PwmOperationalException, PwmUnrecoverableException
+        {
+            updateAllCount++;
+            return IntruderRecordStore.super.updateAll( updaters );
+        }
+
+        @Override
+        public ClosableIterator<IntruderRecord> iterator()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long cleanup( final TimeDuration maxRecordAge )
+        {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.pwnotify;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.bean.DomainID;
+import password.pwm.bean.UserIdentity;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public class PwNotifyEngineTest
+{
+    @Test
+    public void testExpirationWindowFilter()
+    {
+        final Instant jobStart = Instant.parse( "2021-03-01T00:00:00Z" );
+
+        Assert.assertEquals(
+                "(&(passwordExpirationTime>=20210307000000Z)(passwordExpirationTime<=20210309000000Z))",
+                PwNotifyEngine.expirationWindowFilter( "passwordExpirationTime", List.of( 7 ), jobStart ) );
+
+        // adjacent intervals are merged into a single range
+        Assert.assertEquals(
+                "(|(&(exp>=20210301000000Z)(exp<=20210304000000Z))(&(exp>=20210314000000Z)(exp<=20210316000000Z)))",
+                PwNotifyEngine.expirationWindowFilter( "exp", List.of( 14, 2, 1 ), jobStart ) );
+    }
+
+    @Test
+    public void testShardAssignment()
+    {
+        final List<String> nodes = List.of( "node-c", "node-a", "node-b" );
+        Assert.assertTrue( PwNotifyShard.forInstance( "node-x", nodes ).isEmpty() );
+        Assert.assertEquals( Optional.of( PwNotifyShard.ALL ), PwNotifyShard.forInstance( "node-x", List.of() ) );
+
+        final List<PwNotifyShard> shards = List.of(
+                PwNotifyShard.forInstance( "node-a", nodes ).orElseThrow(),
+                PwNotifyShard.forInstance( "node-b", nodes ).orElseThrow(),
+                PwNotifyShard.forInstance( "node-c", nodes ).orElseThrow() );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            final UserIdentity userIdentity = UserIdentity.create( "cn=user" + i + ",o=test", "default", DomainID.DOMAIN_ID_DEFAULT );
+            Assert.assertEquals( 1, shards.stream().filter( shard -> shard.includes( userIdentity ) ).count() );
+            Assert.assertTrue( PwNotifyShard.ALL.includes( userIdentity ) );
+        }
+    }
+}
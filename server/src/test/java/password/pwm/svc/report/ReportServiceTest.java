@@ -0,0 +1,99 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.report;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.bean.DomainID;
+import password.pwm.bean.SessionLabel;
+import password.pwm.bean.UserIdentity;
+import password.pwm.util.java.TimeDuration;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class ReportServiceTest
+{
+    private static final UserIdentity USER_IDENTITY = UserIdentity.create( "cn=user,o=test", "default", DomainID.DOMAIN_ID_DEFAULT );
+
+    @Test
+    public void testWorkQueueItemEncoding() throws Exception
+    {
+        final Set<String> searchAttributes = new TreeSet<>( String.CASE_INSENSITIVE_ORDER );
+        searchAttributes.add( "mail" );
+        searchAttributes.add( "pwdReset" );
+
+        final ReportService.WorkQueueItem workQueueItem = ReportService.WorkQueueItem.fromSearchResult(
+                USER_IDENTITY, Collections.singletonMap( "MAIL", "user@example.com" ), searchAttributes );
+        final ReportService.WorkQueueItem decodedItem = ReportService.WorkQueueItem.decode( workQueueItem.encode() );
+
+        Assert.assertEquals( workQueueItem, decodedItem );
+        Assert.assertEquals( USER_IDENTITY, decodedItem.userIdentity( SessionLabel.TEST_SESSION_LABEL ) );
+        Assert.assertEquals( "user@example.com", decodedItem.attributeValue( "Mail" ) );
+
+        final Map<String, List<String>> prefetchedValues = decodedItem.prefetchedValues();
+        Assert.assertEquals( Collections.singletonList( "user@example.com" ), prefetchedValues.get( "mail" ) );
+        Assert.assertEquals( Collections.emptyList(), prefetchedValues.get( "pwdReset" ) );
+    }
+
+    @Test
+    public void testLegacyWorkQueueItem() throws Exception
+    {
+        final String legacyValue = USER_IDENTITY.toDelimitedKey();
+        final ReportService.WorkQueueItem decodedItem = ReportService.WorkQueueItem.decode( legacyValue );
+
+        Assert.assertEquals( legacyValue, decodedItem.getUserKey() );
+        Assert.assertNull( decodedItem.getAttributes() );
+        Assert.assertEquals( USER_IDENTITY, decodedItem.userIdentity( SessionLabel.TEST_SESSION_LABEL ) );
+    }
+
+    @Test
+    public void testChangeMarkerMargin()
+    {
+        final TimeDuration margin = TimeDuration.of( 5, TimeDuration.Unit.MINUTES );
+        final Map<String, String> changeMarkers = new HashMap<>();
+        final Map<String, Instant> latestChanges = new HashMap<>();
+        latestChanges.put( "profile1", ReportService.parseChangeTime( "20260101120000Z" ).orElseThrow() );
+
+        ReportService.updateChangeMarkers( changeMarkers, latestChanges, margin );
+        Assert.assertEquals( Instant.parse( "2026-01-01T11:55:00Z" ), ReportService.parseChangeTime( changeMarkers.get( "profile1" ) ).orElseThrow() );
+
+        // a later pass that only sees an older change does not move the marker backwards
+        latestChanges.put( "profile1", Instant.parse( "2026-01-01T11:57:00Z" ) );
+        ReportService.updateChangeMarkers( changeMarkers, latestChanges, margin );
+        Assert.assertEquals( Instant.parse( "2026-01-01T11:55:00Z" ), ReportService.parseChangeTime( changeMarkers.get( "profile1" ) ).orElseThrow() );
+
+        latestChanges.put( "profile1", Instant.parse( "2026-01-01T13:00:00Z" ) );
+        ReportService.updateChangeMarkers( changeMarkers, latestChanges, margin );
+        Assert.assertEquals( Instant.parse( "2026-01-01T12:55:00Z" ), ReportService.parseChangeTime( changeMarkers.get( "profile1" ) ).orElseThrow() );
+    }
+
+    @Test
+    public void testUnparsableChangeTime()
+    {
+        Assert.assertTrue( ReportService.parseChangeTime( "not-a-timestamp" ).isEmpty() );
+    }
+}
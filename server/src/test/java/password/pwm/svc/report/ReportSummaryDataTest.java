@@ -0,0 +1,78 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.svc.report;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.bean.DomainID;
+import password.pwm.config.option.DataStorageMethod;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+public class ReportSummaryDataTest
+{
+    @Test
+    public void testRemoveReversesUpdate()
+    {
+        final ReportSummaryData summaryData = ReportSummaryData.newSummaryData( List.of( 1, 7 ) );
+
+        final UserReportRecord unchangedRecord = UserReportRecord.builder()
+                .domainID( DomainID.create( "acme" ) )
+                .ldapProfile( "default" )
+                .hasResponses( true )
+                .responseStorageMethod( DataStorageMethod.LDAP )
+                .otpSecretSetTime( Instant.now().plus( 2, ChronoUnit.DAYS ) )
+                .build();
+
+        final UserReportRecord previousRecord = UserReportRecord.builder()
+                .domainID( DomainID.create( "acme" ) )
+                .ldapProfile( "default" )
+                .otpSecretSetTime( Instant.now().plus( 3, ChronoUnit.DAYS ) )
+                .build();
+
+        final UserReportRecord updatedRecord = UserReportRecord.builder()
+                .domainID( DomainID.create( "acme" ) )
+                .ldapProfile( "default" )
+                .hasResponses( true )
+                .responseStorageMethod( DataStorageMethod.LOCALDB )
+                .build();
+
+        summaryData.update( unchangedRecord );
+        summaryData.update( previousRecord );
+        Assert.assertEquals( 2, summaryData.getTotalUsers().sum() );
+        Assert.assertEquals( 2, summaryData.getOtpSetDays().get( 7 ).sum() );
+
+        summaryData.remove( previousRecord );
+        summaryData.update( updatedRecord );
+
+        Assert.assertEquals( 2, summaryData.getTotalUsers().sum() );
+        Assert.assertEquals( 2, summaryData.getHasResponses().sum() );
+        Assert.assertEquals( 1, summaryData.getHasOtpSecretSetTime().sum() );
+        Assert.assertEquals( 1, summaryData.getOtpSetDays().get( 7 ).sum() );
+        Assert.assertEquals( 0, summaryData.getOtpSetDays().get( 1 ).sum() );
+        Assert.assertEquals( Long.valueOf( 1 ), summaryData.getResponseStorage().get( DataStorageMethod.LDAP ) );
+        Assert.assertEquals( Long.valueOf( 1 ), summaryData.getResponseStorage().get( DataStorageMethod.LOCALDB ) );
+        Assert.assertEquals( 2, summaryData.getLdapProfile().get( DomainID.create( "acme" ) ).get( "default" ).sum() );
+    }
+}
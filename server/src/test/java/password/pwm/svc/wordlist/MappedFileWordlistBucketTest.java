@@ -0,0 +1,139 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.PwmApplication;
+import password.pwm.PwmConstants;
+import password.pwm.util.localdb.TestHelper;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class MappedFileWordlistBucketTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testImportAndLookup()
+            throws Exception
+    {
+        final MappedFileWordlistBucket bucket = makeBucket( temporaryFolder.newFolder() );
+
+        // enough batches to cause intermediate run compaction
+        for ( int batch = 0; batch < 40; batch++ )
+        {
+            final Map<String, String> values = new TreeMap<>();
+            for ( int i = 0; i < 100; i++ )
+            {
+                values.put( "word-" + batch + "-" + i, "" );
+            }
+            values.put( "duplicate", "" );
+            bucket.putValues( values );
+        }
+
+        Assert.assertFalse( bucket.containsWord( "word-0-0" ) );
+        Assert.assertEquals( 0, bucket.size() );
+
+        bucket.importComplete();
+
+        Assert.assertEquals( 40 * 100 + 1, bucket.size() );
+        Assert.assertTrue( bucket.containsWord( "duplicate" ) );
+        for ( int batch = 0; batch < 40; batch++ )
+        {
+            for ( int i = 0; i < 100; i++ )
+            {
+                Assert.assertTrue( bucket.containsWord( "word-" + batch + "-" + i ) );
+            }
+        }
+        Assert.assertFalse( bucket.containsWord( "word-40-0" ) );
+        Assert.assertFalse( bucket.containsWord( "not-a-word" ) );
+        Assert.assertTrue( bucket.containsAny( List.of( "not-a-word", "word-39-99" ) ) );
+        Assert.assertFalse( bucket.containsAny( List.of( "not-a-word", "word-40-0" ) ) );
+
+        bucket.clear();
+        Assert.assertEquals( 0, bucket.size() );
+        Assert.assertFalse( bucket.containsWord( "duplicate" ) );
+    }
+
+    @Test
+    @SuppressWarnings( "checkstyle:avoidescapedunicodecharacters" )
+    public void testHashKey()
+            throws Exception
+    {
+        // must match the hash of the utf8 encoded key, which existing sorted files were written with
+        for ( final String key : new String[] {"", "password", "p\u00e4ssw\u00f6rd", "\uD83D\uDE00", "\uD800", "x".repeat( 1000 )} )
+        {
+            final byte[] digest = MessageDigest.getInstance( "SHA1" ).digest( key.getBytes( PwmConstants.DEFAULT_CHARSET ) );
+            Assert.assertEquals( key, ByteBuffer.wrap( digest ).getLong(), MappedFileWordlistBucket.hashKey( key ) );
+        }
+    }
+
+    @Test
+    public void testSourceWords()
+            throws Exception
+    {
+        final MappedFileWordlistBucket bucket = makeBucket( temporaryFolder.newFolder() );
+        Assert.assertFalse( bucket.readSourceWords( "stamp" ).isPresent() );
+
+        bucket.writeSourceWords( "stamp", List.of( "password", "letmein" ) );
+        Assert.assertEquals( List.of( "password", "letmein" ), bucket.readSourceWords( "stamp" ).orElseThrow() );
+        Assert.assertFalse( bucket.readSourceWords( "other" ).isPresent() );
+
+        bucket.clear();
+        Assert.assertFalse( bucket.readSourceWords( "stamp" ).isPresent() );
+    }
+
+    @Test
+    public void testReopen()
+            throws Exception
+    {
+        final File directory = temporaryFolder.newFolder();
+        final MappedFileWordlistBucket bucket = makeBucket( directory );
+        bucket.putValues( Map.of( "password", "", "letmein", "" ) );
+        bucket.importComplete();
+
+        final MappedFileWordlistBucket reopenedBucket = new MappedFileWordlistBucket(
+                bucket.pwmApplication,
+                bucket.wordlistConfiguration,
+                WordlistType.WORDLIST,
+                directory );
+        Assert.assertEquals( 2, reopenedBucket.size() );
+        Assert.assertTrue( reopenedBucket.containsWord( "password" ) );
+        Assert.assertTrue( reopenedBucket.containsWord( "letmein" ) );
+    }
+
+    private MappedFileWordlistBucket makeBucket( final File directory )
+            throws Exception
+    {
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( temporaryFolder.newFolder() );
+        final WordlistConfiguration wordlistConfiguration = WordlistConfiguration.fromConfiguration( pwmApplication.getConfig(), WordlistType.WORDLIST );
+        return new MappedFileWordlistBucket( pwmApplication, wordlistConfiguration, WordlistType.WORDLIST, directory );
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import password.pwm.PwmApplication;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.localdb.LocalDB;
+import password.pwm.util.localdb.LocalDBFactory;
+import password.pwm.util.localdb.TestHelper;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.Map;
+
+public class SharedHistoryPartitionsTest
+{
+    private static final LocalDB.DB META_DB = LocalDB.DB.SHAREDHISTORY_META;
+    private static final LocalDB.DB WORDS_DB = LocalDB.DB.SHAREDHISTORY_WORDS;
+    private static final Instant START = Instant.parse( "2021-01-01T00:00:00Z" );
+    private static final TimeDuration MAX_AGE = TimeDuration.of( 5, TimeDuration.Unit.MINUTES );
+
+    @Rule
+    public TemporaryFolder testFolder = new TemporaryFolder();
+
+    @Test
+    public void testPartitionExpiry() throws Exception
+    {
+        final File localDbTestFolder = testFolder.newFolder( "test-shared-history" );
+        final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( localDbTestFolder );
+        final LocalDB localDB = LocalDBFactory.getInstance( localDbTestFolder, false, pwmApplication.getPwmEnvironment(), pwmApplication.getConfig() );
+
+        final SharedHistoryPartitions partitions = SharedHistoryPartitions.open( localDB, META_DB, WORDS_DB, TimeDuration.MINUTE, START );
+
+        Assert.assertEquals( 2, partitions.write( Map.of( "hash1", START, "hash2", START ) ) );
+        Assert.assertEquals( 1, partitions.write( Map.of( "hash1", START.plusSeconds( 120 ) ) ) );
+        Assert.assertEquals( 0, partitions.write( Map.of( "hash1", START.plusSeconds( 150 ) ) ) );
+        Assert.assertEquals( 3, localDB.size( WORDS_DB ) );
+
+        Assert.assertTrue( partitions.contains( "hash2", START.plusSeconds( 200 ), MAX_AGE ) );
+        Assert.assertFalse( partitions.contains( "hash3", START.plusSeconds( 200 ), MAX_AGE ) );
+
+        // words are found until the partition they were written in is entirely older than the max age
+        Assert.assertTrue( partitions.contains( "hash2", START.plusSeconds( 359 ), MAX_AGE ) );
+        Assert.assertFalse( partitions.contains( "hash2", START.plusSeconds( 360 ), MAX_AGE ) );
+
+        Assert.assertEquals( 2, partitions.removeExpired( START.plusSeconds( 90 ), () -> true ) );
+        Assert.assertEquals( 1, localDB.size( WORDS_DB ) );
+        Assert.assertEquals( START.plusSeconds( 60 ), partitions.oldestPartitionStart() );
+        Assert.assertFalse( partitions.contains( "hash2", START.plusSeconds( 200 ), MAX_AGE ) );
+        Assert.assertTrue( partitions.contains( "hash1", START.plusSeconds( 200 ), MAX_AGE ) );
+
+        // a reopened store keeps its stored width and cleanup position
+        final SharedHistoryPartitions reopened = SharedHistoryPartitions.open( localDB, META_DB, WORDS_DB, TimeDuration.HOUR, START.plusSeconds( 200 ) );
+        Assert.assertEquals( TimeDuration.MINUTE, reopened.getPartitionWidth() );
+        Assert.assertEquals( 1, reopened.removeExpired( START.plusSeconds( 180 ), () -> true ) );
+        Assert.assertEquals( 0, localDB.size( WORDS_DB ) );
+
+        SharedHistoryPartitions.clear( localDB, META_DB, WORDS_DB );
+        Assert.assertFalse( localDB.contains( META_DB, "partitionWidthMs" ) );
+        localDB.close();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+public class WordlistBloomFilterTest
+{
+    @Test
+    public void testNoFalseNegatives()
+    {
+        final WordlistBloomFilter filter = WordlistBloomFilter.create( 10_000, 0.01, 1_000_000, "hash" );
+        for ( int i = 0; i < 10_000; i++ )
+        {
+            filter.put( "word-" + i );
+        }
+
+        for ( int i = 0; i < 10_000; i++ )
+        {
+            Assert.assertTrue( filter.mightContain( "word-" + i ) );
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate()
+    {
+        final WordlistBloomFilter filter = WordlistBloomFilter.create( 10_000, 0.01, 1_000_000, "hash" );
+        for ( int i = 0; i < 10_000; i++ )
+        {
+            filter.put( "word-" + i );
+        }
+
+        int falsePositives = 0;
+        for ( int i = 0; i < 10_000; i++ )
+        {
+            if ( filter.mightContain( "other-" + i ) )
+            {
+                falsePositives++;
+            }
+        }
+
+        Assert.assertTrue( "false positives: " + falsePositives, falsePositives < 300 );
+    }
+
+    @Test
+    public void testWriteAndRead()
+            throws Exception
+    {
+        final WordlistBloomFilter filter = WordlistBloomFilter.create( 1_000, 0.01, 1_000_000, "hash" );
+        filter.put( "password" );
+        filter.setValueCount( 1 );
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        filter.writeTo( outputStream );
+
+        final WordlistBloomFilter readFilter = WordlistBloomFilter.readFrom( new ByteArrayInputStream( outputStream.toByteArray() ) );
+        Assert.assertTrue( readFilter.mightContain( "password" ) );
+        Assert.assertEquals( filter.byteSize(), readFilter.byteSize() );
+
+        final WordlistStatus wordlistStatus = WordlistStatus.builder()
+                .completed( true )
+                .valueCount( 1 )
+                .configHash( "hash" )
+                .build();
+        final WordlistConfiguration wordlistConfiguration = WordlistConfiguration.builder().build();
+        Assert.assertFalse( readFilter.matchesStatus( wordlistStatus, wordlistConfiguration ) );
+        Assert.assertFalse( readFilter.matchesStatus( wordlistStatus.toBuilder().valueCount( 2 ).build(), wordlistConfiguration ) );
+    }
+}
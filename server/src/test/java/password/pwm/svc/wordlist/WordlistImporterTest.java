@@ -0,0 +1,192 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.svc.wordlist;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import password.pwm.PwmConstants;
+import password.pwm.bean.SessionLabel;
+import password.pwm.error.PwmError;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.java.TimeDuration;
+import password.pwm.util.logging.PwmLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class WordlistImporterTest
+{
+    @Test( timeout = 10_000 )
+    public void testReaderFailureWithFullQueue() throws Exception
+    {
+        final BlockingQueue<Future<String>> batchQueue = new ArrayBlockingQueue<>( 2 );
+        batchQueue.put( CompletableFuture.completedFuture( "batch1" ) );
+        batchQueue.put( CompletableFuture.completedFuture( "batch2" ) );
+
+        final CountDownLatch failureQueued = new CountDownLatch( 1 );
+        final Thread reader = new Thread( () ->
+        {
+            try
+            {
+                WordlistImporter.putFailure( batchQueue, PwmUnrecoverableException.newException( PwmError.ERROR_WORDLIST_IMPORT_ERROR, "read error" ) );
+                failureQueued.countDown();
+            }
+            catch ( final InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        } );
+        reader.start();
+
+        // the reader must wait for room rather than dropping the failure
+        Assert.assertFalse( failureQueued.await( 100, TimeUnit.MILLISECONDS ) );
+
+        Assert.assertEquals( "batch1", WordlistImporter.nextBatch( batchQueue ) );
+        Assert.assertEquals( "batch2", WordlistImporter.nextBatch( batchQueue ) );
+        try
+        {
+            WordlistImporter.nextBatch( batchQueue );
+            Assert.fail( "reader failure not delivered to writer" );
+        }
+        catch ( final PwmUnrecoverableException e )
+        {
+            Assert.assertEquals( PwmError.ERROR_WORDLIST_IMPORT_ERROR, e.getError() );
+        }
+
+        Assert.assertTrue( failureQueued.await( 1, TimeUnit.SECONDS ) );
+        reader.join();
+    }
+
+    @Test( timeout = 30_000 )
+    public void testResumeAfterStop() throws Exception
+    {
+        final List<String> sourceWords = new ArrayList<>();
+        for ( int i = 0; i < 40; i++ )
+        {
+            sourceWords.add( String.format( "word%04d", i ) );
+        }
+        final byte[] zipBytes = makeZip( sourceWords );
+        final WordlistSourceInfo sourceInfo = new WordlistSourceInfo( "test-hash", zipBytes.length, "test", sourceWords.size() );
+
+        final List<String> storedWords = Collections.synchronizedList( new ArrayList<>() );
+        final AtomicInteger transactions = new AtomicInteger();
+        final AbstractWordlist wordlist = makeWordlist( storedWords, transactions );
+
+        // stop once a few transactions are committed, with later batches already read and converted
+        final WordlistImporter stoppedImporter = new WordlistImporter(
+                sourceInfo, new WordlistZipReader( new ByteArrayInputStream( zipBytes ) ), WordlistSourceType.AutoImport, wordlist, () -> transactions.get() >= 3 );
+        stoppedImporter.run();
+        Assert.assertNull( stoppedImporter.getExitError() );
+
+        final WordlistStatus stoppedStatus = wordlist.readWordlistStatus();
+        final int committedLines = ( int ) stoppedStatus.getLines();
+        Assert.assertFalse( stoppedStatus.isCompleted() );
+        Assert.assertTrue( committedLines > 0 && committedLines < sourceWords.size() );
+
+        // batches are written in line order, so the checkpoint covers exactly the stored words
+        Assert.assertEquals( sourceWords.subList( 0, committedLines ), storedWords );
+
+        final WordlistImporter resumedImporter = new WordlistImporter(
+                sourceInfo, new WordlistZipReader( new ByteArrayInputStream( zipBytes ) ), WordlistSourceType.AutoImport, wordlist, () -> false );
+        resumedImporter.run();
+        Assert.assertNull( resumedImporter.getExitError() );
+
+        final WordlistStatus completedStatus = wordlist.readWordlistStatus();
+        Assert.assertTrue( completedStatus.isCompleted() );
+        Assert.assertEquals( sourceWords.size(), completedStatus.getLines() );
+
+        // every line stored once, none skipped or imported again after the restart
+        Assert.assertEquals( sourceWords, storedWords );
+    }
+
+    private static AbstractWordlist makeWordlist( final List<String> storedWords, final AtomicInteger transactions )
+            throws PwmUnrecoverableException
+    {
+        final WordlistConfiguration configuration = WordlistConfiguration.builder()
+                .minWordSize( 1 )
+                .maxWordSize( 64 )
+                .importDurationGoal( TimeDuration.SECOND )
+                .importPauseDuration( TimeDuration.ZERO )
+                .importPauseFrequency( TimeDuration.MINUTE )
+                .importMinTransactions( 1 )
+                .importMaxTransactions( 2 )
+                .importMaxChars( 10_000 )
+                .importThreads( 2 )
+                .importBatchLines( 3 )
+                .build();
+
+        final AtomicReference<WordlistStatus> status = new AtomicReference<>( WordlistStatus.builder().build() );
+
+        final WordlistBucket bucket = Mockito.mock( WordlistBucket.class );
+        Mockito.doAnswer( invocation ->
+        {
+            storedWords.addAll( invocation.getArgument( 0 ) );
+            transactions.incrementAndGet();
+            return null;
+        } ).when( bucket ).addWords( Mockito.any(), Mockito.any() );
+        Mockito.when( bucket.size() ).thenAnswer( invocation -> ( long ) storedWords.size() );
+        Mockito.when( bucket.spaceRemaining() ).thenReturn( Long.MAX_VALUE );
+
+        final AbstractWordlist wordlist = Mockito.mock( AbstractWordlist.class );
+        Mockito.when( wordlist.getConfiguration() ).thenReturn( configuration );
+        Mockito.when( wordlist.getWordlistBucket() ).thenReturn( bucket );
+        Mockito.when( wordlist.getWordlistType() ).thenReturn( WordlistType.WORDLIST );
+        Mockito.when( wordlist.getLogger() ).thenReturn( PwmLogger.forClass( WordlistImporterTest.class ) );
+        Mockito.when( wordlist.getSessionLabel() ).thenReturn( SessionLabel.TEST_SESSION_LABEL );
+        Mockito.when( wordlist.makeImportThreadFactory() ).thenReturn( Executors.defaultThreadFactory() );
+        Mockito.when( wordlist.readWordlistStatus() ).thenAnswer( invocation -> status.get() );
+        Mockito.doAnswer( invocation ->
+        {
+            status.set( invocation.getArgument( 0 ) );
+            return null;
+        } ).when( wordlist ).writeWordlistStatus( Mockito.any() );
+        return wordlist;
+    }
+
+    private static byte[] makeZip( final Collection<String> lines ) throws IOException
+    {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try ( ZipOutputStream zipOutputStream = new ZipOutputStream( outputStream ) )
+        {
+            zipOutputStream.putNextEntry( new ZipEntry( "wordlist.txt" ) );
+            zipOutputStream.write( String.join( "\n", lines ).getBytes( PwmConstants.DEFAULT_CHARSET ) );
+            zipOutputStream.closeEntry();
+        }
+        return outputStream.toByteArray();
+    }
+}
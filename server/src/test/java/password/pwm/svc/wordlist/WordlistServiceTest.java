@@ -30,6 +30,7 @@ import password.pwm.PwmApplication;
 import password.pwm.config.AppConfig;
 import password.pwm.config.PwmSetting;
 import password.pwm.config.stored.StoredConfigurationFactory;
+import password.pwm.util.java.StatisticCounterBundle;
 import password.pwm.util.localdb.TestHelper;
 
 import java.net.URL;
@@ -144,6 +145,62 @@ public class WordlistServiceTest
         Assert.assertTrue( wordlistService.containsWord( "ABCde" ) );
     }
 
+    @Test
+    public void testChunkStatistics()
+            throws Exception
+    {
+        final AppConfig appConfig = Mockito.spy( new AppConfig( StoredConfigurationFactory.newConfig() ) );
+        Mockito.when( appConfig.readSettingAsLong( PwmSetting.PASSWORD_WORDLIST_WORDSIZE ) ).thenReturn( 4L );
+        final WordlistService wordlistService = makeWordlistService( appConfig );
+        final StatisticCounterBundle<WordlistStatistics.CounterStat> stats = wordlistService.getStatistics().getCounterStats();
+
+        // a hit stops at the matching chunk, so only chunks known to have been checked are counted
+        Assert.assertTrue( wordlistService.containsWord( "abcdefghijklmnopqrstuvwxyz" ) );
+        Assert.assertFalse( wordlistService.containsWord( "zzzzzz" ) );
+        Assert.assertEquals( 1, stats.get( WordlistStatistics.CounterStat.chunkHits ) );
+        Assert.assertTrue( stats.get( WordlistStatistics.CounterStat.chunkMisses ) > 0 );
+        Assert.assertEquals(
+                stats.get( WordlistStatistics.CounterStat.chunkHits ) + stats.get( WordlistStatistics.CounterStat.chunkMisses ),
+                stats.get( WordlistStatistics.CounterStat.chunkChecks ) );
+    }
+
+    @Test
+    public void testFilteredBucketCheck()
+            throws Exception
+    {
+        final WordlistService filteredService = makeWordlistService( null );
+
+        final AppConfig appConfig = Mockito.spy( new AppConfig( StoredConfigurationFactory.newConfig() ) );
+        Mockito.when( appConfig.readAppProperty( AppProperty.WORDLIST_FILTER_ENABLE ) ).thenReturn( "false" );
+        final WordlistService unfilteredService = makeWordlistService( appConfig );
+
+        for ( final String word : new String[] {"password-test", "password-false-test", "0123456", "012345", "sha1-Password-Test"} )
+        {
+            Assert.assertEquals( word, unfilteredService.containsWord( word ), filteredService.containsWord( word ) );
+        }
+
+        // words absent from the filter are answered without a bucket read
+        final StatisticCounterBundle<WordlistStatistics.CounterStat> filteredStats = filteredService.getStatistics().getCounterStats();
+        Assert.assertTrue( filteredStats.get( WordlistStatistics.CounterStat.filterMisses ) > 0 );
+        Assert.assertTrue( filteredStats.get( WordlistStatistics.CounterStat.filterHits ) > 0 );
+
+        final StatisticCounterBundle<WordlistStatistics.CounterStat> unfilteredStats = unfilteredService.getStatistics().getCounterStats();
+        Assert.assertEquals( 0, unfilteredStats.get( WordlistStatistics.CounterStat.filterMisses ) );
+        Assert.assertEquals( 0, unfilteredStats.get( WordlistStatistics.CounterStat.filterHits ) );
+    }
+
+    @Test
+    public void testFilterFalsePositiveRateFallback()
+            throws Exception
+    {
+        final AppConfig appConfig = Mockito.spy( new AppConfig( StoredConfigurationFactory.newConfig() ) );
+        Mockito.when( appConfig.readAppProperty( AppProperty.WORDLIST_FILTER_FALSE_POSITIVE_RATE ) ).thenReturn( "0.05", "bogus", "2" );
+
+        Assert.assertEquals( 0.05, WordlistConfiguration.readFilterFalsePositiveRate( appConfig ), 0 );
+        Assert.assertEquals( WordlistConfiguration.DEFAULT_FILTER_FALSE_POSITIVE_RATE, WordlistConfiguration.readFilterFalsePositiveRate( appConfig ), 0 );
+        Assert.assertEquals( WordlistConfiguration.DEFAULT_FILTER_FALSE_POSITIVE_RATE, WordlistConfiguration.readFilterFalsePositiveRate( appConfig ), 0 );
+    }
+
     private WordlistService makeWordlistService( final AppConfig inputDomainConfig )
             throws Exception
     {
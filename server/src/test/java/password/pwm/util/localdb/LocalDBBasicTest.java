@@ -69,6 +69,9 @@ public class LocalDBBasicTest
         Assert.assertEquals( "value2", localDB.get( LocalDB.DB.TEMP, "key2" ).orElseThrow() );
         Assert.assertTrue(  localDB.get( LocalDB.DB.TEMP, "key3" ).isEmpty() );
         Assert.assertFalse( localDB.contains( LocalDB.DB.TEMP, "key3" ) );
+        Assert.assertTrue( localDB.containsAny( LocalDB.DB.TEMP, List.of( "key3", "key2" ) ) );
+        Assert.assertFalse( localDB.containsAny( LocalDB.DB.TEMP, List.of( "key3", "key4" ) ) );
+        Assert.assertFalse( localDB.containsAny( LocalDB.DB.TEMP, List.of() ) );
 
         localDB.removeAll( LocalDB.DB.TEMP, List.of( "key1", "key2" ) );
         Assert.assertEquals( 0, localDB.size( LocalDB.DB.TEMP ) );
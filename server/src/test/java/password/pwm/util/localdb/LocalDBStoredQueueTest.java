@@ -30,7 +30,9 @@ import password.pwm.PwmApplication;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.stream.Collectors;
 
@@ -41,6 +43,7 @@ public class LocalDBStoredQueueTest
     @Rule
     public TemporaryFolder testFolder = new TemporaryFolder();
 
+    private LocalDB localDB;
     private LocalDBStoredQueue localDBStoredQueue;
 
     @Before
@@ -48,7 +51,7 @@ public class LocalDBStoredQueueTest
     {
         final File localDbTestFolder = testFolder.newFolder( "test-stored-queue-test" );
         final PwmApplication pwmApplication = TestHelper.makeTestPwmApplication( localDbTestFolder );
-        final LocalDB localDB = LocalDBFactory.getInstance( localDbTestFolder, false, pwmApplication.getPwmEnvironment(), pwmApplication.getConfig() );
+        localDB = LocalDBFactory.getInstance( localDbTestFolder, false, pwmApplication.getPwmEnvironment(), pwmApplication.getConfig() );
         localDBStoredQueue = LocalDBStoredQueue.createLocalDBStoredQueue( localDB, LocalDB.DB.TEMP, true );
     }
 
@@ -148,6 +151,32 @@ public class LocalDBStoredQueueTest
         }
     }
 
+    @Test
+    public void testIteratorSkip()
+    {
+        final int valueCount = MAX_PROBLEM_SIZE * 3 + 50;
+        addValues( localDBStoredQueue, valueCount );
+
+        {
+            final LocalDBStoredQueue.QueueIterator iter = localDBStoredQueue.iterator();
+            Assert.assertEquals( 0, iter.skip( 0 ) );
+            Assert.assertEquals( String.valueOf( valueCount - 1 ), iter.next() );
+            Assert.assertEquals( 150, iter.skip( 150 ) );
+            Assert.assertEquals( String.valueOf( valueCount - 152 ), iter.next() );
+            Assert.assertEquals( valueCount - 152, iter.skip( valueCount ) );
+            Assert.assertFalse( iter.hasNext() );
+            Assert.assertEquals( 0, iter.skip( 1 ) );
+        }
+
+        {
+            final LocalDBStoredQueue.QueueIterator iter = localDBStoredQueue.descendingIterator();
+            Assert.assertEquals( 210, iter.skip( 210 ) );
+            Assert.assertEquals( "210", iter.next() );
+            Assert.assertEquals( valueCount - 211, iter.skip( valueCount ) );
+            Assert.assertFalse( iter.hasNext() );
+        }
+    }
+
     @Test
     public void testRemoveLast()
     {
@@ -570,6 +599,130 @@ public class LocalDBStoredQueueTest
         }
     }
 
+    @Test
+    public void testValuesSpanningBlocks() throws LocalDBException
+    {
+        final int valueCount = MAX_PROBLEM_SIZE * 25;
+        addValues( localDBStoredQueue, valueCount );
+        Assert.assertEquals( valueCount, localDBStoredQueue.size() );
+
+        localDBStoredQueue.removeFirst( 150 );
+        localDBStoredQueue.removeLast( 250 );
+        Assert.assertEquals( valueCount - 400, localDBStoredQueue.size() );
+
+        final LocalDBStoredQueue reopenedQueue = LocalDBStoredQueue.createLocalDBStoredQueue( localDB, LocalDB.DB.TEMP, false );
+        Assert.assertEquals( valueCount - 400, reopenedQueue.size() );
+        Assert.assertEquals( String.valueOf( valueCount - 151 ), reopenedQueue.getFirst() );
+        Assert.assertEquals( "250", reopenedQueue.getLast() );
+
+        final Iterator<String> iter = reopenedQueue.descendingIterator();
+        for ( int i = 250; i < valueCount - 150; i++ )
+        {
+            Assert.assertEquals( String.valueOf( i ), iter.next() );
+        }
+        Assert.assertFalse( iter.hasNext() );
+    }
+
+    @Test
+    public void testLegacyFormatMigration() throws LocalDBException
+    {
+        final int valueCount = 250;
+        localDB.truncate( LocalDB.DB.TEMP );
+
+        final Map<String, String> legacyValues = new HashMap<>();
+        LocalDBStoredQueue.Position position = new LocalDBStoredQueue.Position( "ZZZZZX" );
+        legacyValues.put( "_TAIL_POSITION", position.key() );
+        for ( int i = 0; i < valueCount; i++ )
+        {
+            if ( i > 0 )
+            {
+                position = position.next();
+            }
+            legacyValues.put( position.key(), String.valueOf( i ) );
+        }
+        legacyValues.put( "_HEAD_POSITION", position.key() );
+        legacyValues.put( "_KEY_VERSION", "7a" );
+        localDB.putAll( LocalDB.DB.TEMP, legacyValues );
+
+        final LocalDBStoredQueue migratedQueue = LocalDBStoredQueue.createLocalDBStoredQueue( localDB, LocalDB.DB.TEMP, false );
+        Assert.assertEquals( valueCount, migratedQueue.size() );
+        Assert.assertEquals( String.valueOf( valueCount - 1 ), migratedQueue.getFirst() );
+        Assert.assertEquals( "0", migratedQueue.getLast() );
+        Assert.assertFalse( localDB.contains( LocalDB.DB.TEMP, "ZZZZZX" ) );
+        Assert.assertFalse( localDB.contains( LocalDB.DB.TEMP, position.key() ) );
+
+        final Iterator<String> iter = migratedQueue.descendingIterator();
+        for ( int i = 0; i < valueCount; i++ )
+        {
+            Assert.assertEquals( String.valueOf( i ), iter.next() );
+        }
+        Assert.assertFalse( iter.hasNext() );
+    }
+
+    @Test
+    public void testEndRemovalsDoNotRewriteBlock() throws LocalDBException
+    {
+        addValues( localDBStoredQueue, 10 );
+        final String blockKey = "B" + localDB.get( LocalDB.DB.TEMP, "_HEAD_POSITION" ).orElseThrow();
+        final String storedBlock = localDB.get( LocalDB.DB.TEMP, blockKey ).orElseThrow();
+
+        Assert.assertEquals( "9", localDBStoredQueue.removeFirst() );
+        Assert.assertEquals( "0", localDBStoredQueue.removeLast() );
+        Assert.assertEquals( storedBlock, localDB.get( LocalDB.DB.TEMP, blockKey ).orElseThrow() );
+
+        final LocalDBStoredQueue reopenedQueue = LocalDBStoredQueue.createLocalDBStoredQueue( localDB, LocalDB.DB.TEMP, false );
+        Assert.assertEquals( 8, reopenedQueue.size() );
+        Assert.assertEquals( "8", reopenedQueue.getFirst() );
+        Assert.assertEquals( "1", reopenedQueue.getLast() );
+
+        // adding to either end writes the remaining values of the block
+        reopenedQueue.addFirst( "first" );
+        reopenedQueue.addLast( "last" );
+        final List<String> expectedValues = new ArrayList<>( reopenedQueue );
+        Assert.assertEquals( 10, expectedValues.size() );
+        Assert.assertEquals( expectedValues, new ArrayList<>( LocalDBStoredQueue.createLocalDBStoredQueue( localDB, LocalDB.DB.TEMP, false ) ) );
+    }
+
+    @Test
+    public void testRemovalsAcrossBlocksAreReloaded() throws LocalDBException
+    {
+        final int valueCount = MAX_PROBLEM_SIZE * 3;
+        addValues( localDBStoredQueue, valueCount );
+
+        for ( int i = 0; i < 130; i++ )
+        {
+            localDBStoredQueue.removeFirst();
+            localDBStoredQueue.removeLast();
+        }
+        final List<String> expectedValues = new ArrayList<>( localDBStoredQueue );
+        Assert.assertEquals( valueCount - 260, expectedValues.size() );
+
+        final LocalDBStoredQueue reopenedQueue = LocalDBStoredQueue.createLocalDBStoredQueue( localDB, LocalDB.DB.TEMP, false );
+        Assert.assertEquals( valueCount - 260, reopenedQueue.size() );
+        Assert.assertEquals( expectedValues, new ArrayList<>( reopenedQueue ) );
+    }
+
+    @Test
+    public void testSizeCountedWithoutStoredState() throws LocalDBException
+    {
+        final int valueCount = MAX_PROBLEM_SIZE * 3;
+        addValues( localDBStoredQueue, valueCount );
+        Assert.assertEquals( valueCount + ",", localDB.get( LocalDB.DB.TEMP, "_QUEUE_STATE" ).orElseThrow().substring( 0, 4 ) );
+
+        localDB.remove( LocalDB.DB.TEMP, "_QUEUE_STATE" );
+        final LocalDBStoredQueue reopenedQueue = LocalDBStoredQueue.createLocalDBStoredQueue( localDB, LocalDB.DB.TEMP, false );
+        Assert.assertEquals( valueCount, reopenedQueue.size() );
+        Assert.assertTrue( localDB.contains( LocalDB.DB.TEMP, "_QUEUE_STATE" ) );
+    }
+
+    @Test
+    public void testBlockEncoding()
+    {
+        final List<String> values = List.of( "one", "", "a:b", "12:34" );
+        Assert.assertEquals( "3:one0:3:a:b5:12:34", LocalDBStoredQueue.encodeBlock( values ) );
+        Assert.assertEquals( values, LocalDBStoredQueue.decodeBlock( LocalDBStoredQueue.encodeBlock( values ) ) );
+    }
+
     private static void addValues( final LocalDBStoredQueue localDBStoredQueue, final int count )
     {
         final List<String> addValues = new ArrayList<>();
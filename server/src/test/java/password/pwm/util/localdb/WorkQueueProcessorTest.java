@@ -0,0 +1,206 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package password.pwm.util.localdb;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.util.java.TimeDuration;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WorkQueueProcessorTest
+{
+    private static final int KEY_COUNT = 7;
+    private static final int ITEMS_PER_KEY = 50;
+
+    @Test
+    public void concurrentBatchedProcessingPreservesKeyOrder()
+            throws Exception
+    {
+        final Deque<String> queue = new LinkedBlockingDeque<>();
+        final TestProcessor processor = new TestProcessor();
+
+        final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                .workerThreads( 3 )
+                .batchSize( 5 )
+                .retryInterval( TimeDuration.of( 10, TimeDuration.Unit.MILLISECONDS ) )
+                .build();
+
+        final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>( null, queue, settings, processor, this.getClass() );
+        try
+        {
+            for ( int seq = 0; seq < ITEMS_PER_KEY; seq++ )
+            {
+                for ( int key = 0; key < KEY_COUNT; key++ )
+                {
+                    workQueueProcessor.submit( key + ":" + seq );
+                }
+            }
+
+            TimeDuration.of( 30, TimeDuration.Unit.SECONDS ).pause( TimeDuration.of( 10, TimeDuration.Unit.MILLISECONDS ), queue::isEmpty );
+        }
+        finally
+        {
+            workQueueProcessor.close();
+        }
+
+        Assert.assertTrue( queue.isEmpty() );
+        Assert.assertTrue( processor.retryIssued.get() );
+        Assert.assertTrue( processor.maxBatchSize.get() > 1 );
+        Assert.assertTrue( processor.maxBatchSize.get() <= 5 );
+        Assert.assertEquals( KEY_COUNT, processor.processed.size() );
+        for ( final List<Integer> sequence : processor.processed.values() )
+        {
+            Assert.assertEquals( ITEMS_PER_KEY, sequence.size() );
+            for ( int i = 0; i < ITEMS_PER_KEY; i++ )
+            {
+                Assert.assertEquals( Integer.valueOf( i ), sequence.get( i ) );
+            }
+        }
+    }
+
+    @Test
+    public void outOfOrderCompletionIsBounded()
+            throws Exception
+    {
+        final Deque<String> queue = new LinkedBlockingDeque<>();
+        final HeadRetryProcessor processor = new HeadRetryProcessor();
+
+        final WorkQueueProcessor.Settings settings = WorkQueueProcessor.Settings.builder()
+                .workerThreads( 2 )
+                .retryInterval( TimeDuration.of( 10, TimeDuration.Unit.MILLISECONDS ) )
+                .build();
+
+        final WorkQueueProcessor<String> workQueueProcessor = new WorkQueueProcessor<>( null, queue, settings, processor, this.getClass() );
+        try
+        {
+            for ( int i = 0; i < 100; i++ )
+            {
+                workQueueProcessor.submit( String.valueOf( i ) );
+            }
+
+            // while the head item is retried, only items within the bounded window are processed ahead of it
+            TimeDuration.of( 5, TimeDuration.Unit.SECONDS ).pause( TimeDuration.of( 10, TimeDuration.Unit.MILLISECONDS ), () -> processor.retries.get() > 10 );
+            Assert.assertTrue( processor.processed.size() < 10 );
+            Assert.assertEquals( 100, queue.size() );
+
+            processor.headBlocked.set( false );
+            TimeDuration.of( 30, TimeDuration.Unit.SECONDS ).pause( TimeDuration.of( 10, TimeDuration.Unit.MILLISECONDS ), queue::isEmpty );
+        }
+        finally
+        {
+            workQueueProcessor.close();
+        }
+
+        Assert.assertTrue( queue.isEmpty() );
+        Assert.assertEquals( 100, processor.processed.size() );
+        Assert.assertTrue( processor.processed.values().stream().allMatch( count -> count == 1 ) );
+    }
+
+    private static class HeadRetryProcessor implements WorkQueueProcessor.ItemProcessor<String>
+    {
+        private final Map<String, Integer> processed = new ConcurrentHashMap<>();
+        private final AtomicBoolean headBlocked = new AtomicBoolean( true );
+        private final AtomicInteger retries = new AtomicInteger();
+
+        @Override
+        public WorkQueueProcessor.ProcessResult process( final String workItem )
+        {
+            if ( "0".equals( workItem ) && headBlocked.get() )
+            {
+                retries.incrementAndGet();
+                return WorkQueueProcessor.ProcessResult.RETRY;
+            }
+
+            processed.merge( workItem, 1, Integer::sum );
+            return WorkQueueProcessor.ProcessResult.SUCCESS;
+        }
+
+        @Override
+        public String orderingKey( final String workItem )
+        {
+            return workItem;
+        }
+
+        @Override
+        public String convertToDebugString( final String workItem )
+        {
+            return workItem;
+        }
+    }
+
+    private static class TestProcessor implements WorkQueueProcessor.BatchItemProcessor<String>
+    {
+        private final Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        private final AtomicInteger maxBatchSize = new AtomicInteger();
+        private final AtomicBoolean retryIssued = new AtomicBoolean();
+
+        @Override
+        public List<WorkQueueProcessor.ProcessResult> processBatch( final List<String> workItems )
+        {
+            maxBatchSize.accumulateAndGet( workItems.size(), Math::max );
+            final List<WorkQueueProcessor.ProcessResult> results = new ArrayList<>();
+            for ( final String workItem : workItems )
+            {
+                final WorkQueueProcessor.ProcessResult result = process( workItem );
+                results.add( result );
+                if ( result != WorkQueueProcessor.ProcessResult.SUCCESS )
+                {
+                    break;
+                }
+            }
+            return results;
+        }
+
+        @Override
+        public WorkQueueProcessor.ProcessResult process( final String workItem )
+        {
+            if ( "3:10".equals( workItem ) && retryIssued.compareAndSet( false, true ) )
+            {
+                return WorkQueueProcessor.ProcessResult.RETRY;
+            }
+
+            final String[] parts = workItem.split( ":" );
+            processed.computeIfAbsent( parts[0], k -> new ArrayList<>() ).add( Integer.parseInt( parts[1] ) );
+            return WorkQueueProcessor.ProcessResult.SUCCESS;
+        }
+
+        @Override
+        public String orderingKey( final String workItem )
+        {
+            return workItem.split( ":" )[0];
+        }
+
+        @Override
+        public String convertToDebugString( final String workItem )
+        {
+            return workItem;
+        }
+    }
+}
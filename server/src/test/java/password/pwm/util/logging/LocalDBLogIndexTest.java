@@ -0,0 +1,198 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.logging;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.bean.SessionLabel;
+import password.pwm.util.java.TimeDuration;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class LocalDBLogIndexTest
+{
+    private static final Instant WINDOW_1 = Instant.parse( "2021-01-01T00:00:00Z" );
+    private static final Instant WINDOW_2 = Instant.parse( "2021-01-01T00:10:00Z" );
+
+    private static final LocalDBLoggerSettings SETTINGS = LocalDBLoggerSettings.builder()
+            .indexBucketDuration( TimeDuration.MINUTE )
+            .indexMaxBucketUsernames( 2 )
+            .build();
+
+    @Test
+    public void testSkipNonMatchingBuckets()
+    {
+        final LocalDBLogIndex logIndex = new LocalDBLogIndex( SETTINGS, 0 );
+
+        // seq 1-3
+        logIndex.append( List.of(
+                event( WINDOW_1, PwmLogLevel.TRACE, null ),
+                event( WINDOW_1, PwmLogLevel.INFO, "alice" ),
+                event( WINDOW_1, PwmLogLevel.DEBUG, "alice" ) ) );
+
+        // seq 4-5
+        logIndex.append( List.of(
+                event( WINDOW_2, PwmLogLevel.ERROR, "bob" ),
+                event( WINDOW_2, PwmLogLevel.WARN, null ) ) );
+
+        Assert.assertEquals( 5, logIndex.getHeadSeq() );
+        Assert.assertEquals( 2, logIndex.bucketCount() );
+
+        final LocalDBSearchFilter aliceFilter = filter( LocalDBSearchQuery.builder().username( "alice" ).build() );
+        Assert.assertEquals( 2, logIndex.skippableCount( 5, aliceFilter ) );
+        Assert.assertEquals( 1, logIndex.skippableCount( 4, aliceFilter ) );
+        Assert.assertEquals( 0, logIndex.skippableCount( 3, aliceFilter ) );
+
+        final LocalDBSearchFilter errorFilter = filter( LocalDBSearchQuery.builder().minimumLevel( PwmLogLevel.ERROR ).build() );
+        Assert.assertEquals( 0, logIndex.skippableCount( 5, errorFilter ) );
+        Assert.assertEquals( 3, logIndex.skippableCount( 3, errorFilter ) );
+
+        final LocalDBSearchFilter regexFilter = filter( LocalDBSearchQuery.builder().username( "^b.b$" ).build() );
+        Assert.assertEquals( 0, logIndex.skippableCount( 5, regexFilter ) );
+        Assert.assertEquals( 3, logIndex.skippableCount( 3, regexFilter ) );
+
+        // unindexed sequence numbers are never skipped
+        Assert.assertEquals( 0, logIndex.skippableCount( 0, aliceFilter ) );
+        Assert.assertEquals( 0, logIndex.skippableCount( 6, aliceFilter ) );
+
+        logIndex.trim( 2 );
+        Assert.assertEquals( 1, logIndex.bucketCount() );
+        Assert.assertEquals( 0, logIndex.skippableCount( 3, errorFilter ) );
+    }
+
+    @Test
+    public void testUsernameOverflow()
+    {
+        final LocalDBLogIndex logIndex = new LocalDBLogIndex( SETTINGS, 0 );
+        logIndex.append( List.of(
+                event( WINDOW_1, PwmLogLevel.INFO, "alice" ),
+                event( WINDOW_1, PwmLogLevel.INFO, "bob" ),
+                event( WINDOW_1, PwmLogLevel.INFO, "carol" ) ) );
+
+        final LocalDBSearchFilter filter = filter( LocalDBSearchQuery.builder().username( "dave" ).build() );
+        Assert.assertEquals( 0, logIndex.skippableCount( 3, filter ) );
+    }
+
+    @Test
+    public void testRebuild()
+    {
+        final List<PwmLogEvent> storedEvents = List.of(
+                event( WINDOW_1, PwmLogLevel.INFO, "alice" ),
+                event( WINDOW_2, PwmLogLevel.INFO, "bob" ) );
+
+        final LocalDBLogIndex logIndex = new LocalDBLogIndex( SETTINGS, storedEvents.size() );
+        logIndex.append( Collections.singletonList( event( WINDOW_2, PwmLogLevel.INFO, "carol" ) ) );
+
+        // queue iteration returns the newest (highest sequence) events first
+        final List<String> headFirstValues = new ArrayList<>();
+        headFirstValues.add( "bob" );
+        headFirstValues.add( "alice" );
+        final long indexed = logIndex.rebuild( headFirstValues.iterator(), 2, logIndex.getGeneration(),
+                value -> event( "alice".equals( value ) ? WINDOW_1 : WINDOW_2, PwmLogLevel.INFO, value ) );
+
+        Assert.assertEquals( 2, indexed );
+        Assert.assertEquals( 3, logIndex.bucketCount() );
+
+        final LocalDBSearchFilter filter = filter( LocalDBSearchQuery.builder().username( "alice" ).build() );
+        Assert.assertEquals( 1, logIndex.skippableCount( 3, filter ) );
+        Assert.assertEquals( 1, logIndex.skippableCount( 2, filter ) );
+        Assert.assertEquals( 0, logIndex.skippableCount( 1, filter ) );
+
+        // a reset during rebuild discards the rebuilt buckets
+        final long generation = logIndex.getGeneration();
+        logIndex.reset( 3 );
+        Assert.assertEquals( 0, logIndex.rebuild( headFirstValues.iterator(), 2, generation,
+                value -> event( WINDOW_1, PwmLogLevel.INFO, value ) ) );
+        Assert.assertEquals( 0, logIndex.bucketCount() );
+    }
+
+    @Test
+    public void testExportRestore()
+    {
+        final LocalDBLogIndex logIndex = new LocalDBLogIndex( SETTINGS, 0 );
+        logIndex.append( List.of(
+                event( WINDOW_1, PwmLogLevel.INFO, "alice" ),
+                event( WINDOW_2, PwmLogLevel.ERROR, "bob" ) ) );
+
+        final LocalDBLogIndex.StoredIndex storedIndex = logIndex.export( "stamp" ).orElseThrow();
+
+        // sequence numbers restart from the stored event count on startup
+        final LocalDBLogIndex restoredIndex = new LocalDBLogIndex( SETTINGS, 2 );
+        Assert.assertFalse( restoredIndex.export( "stamp" ).isPresent() );
+        Assert.assertFalse( restoredIndex.restore( storedIndex, "other" ) );
+        Assert.assertTrue( restoredIndex.restore( storedIndex, "stamp" ) );
+        Assert.assertEquals( 2, restoredIndex.bucketCount() );
+
+        final LocalDBSearchFilter aliceFilter = filter( LocalDBSearchQuery.builder().username( "alice" ).build() );
+        Assert.assertEquals( 1, restoredIndex.skippableCount( 2, aliceFilter ) );
+        Assert.assertEquals( 0, restoredIndex.skippableCount( 1, aliceFilter ) );
+
+        // restored buckets are shifted to the current head sequence
+        final LocalDBLogIndex shiftedIndex = new LocalDBLogIndex( SETTINGS, 10 );
+        Assert.assertTrue( shiftedIndex.restore( storedIndex, "stamp" ) );
+        Assert.assertEquals( 1, shiftedIndex.skippableCount( 10, aliceFilter ) );
+        Assert.assertEquals( 0, shiftedIndex.skippableCount( 9, aliceFilter ) );
+
+        // a restore discards a rebuild started before it
+        final long generation = restoredIndex.getGeneration();
+        Assert.assertTrue( restoredIndex.restore( storedIndex, "stamp" ) );
+        Assert.assertEquals( 0, restoredIndex.rebuild( List.of( "carol" ).iterator(), 2, generation,
+                value -> event( WINDOW_1, PwmLogLevel.INFO, value ) ) );
+        Assert.assertEquals( 2, restoredIndex.bucketCount() );
+    }
+
+    @Test
+    public void testRebuildCompletesIndex()
+    {
+        final LocalDBLogIndex logIndex = new LocalDBLogIndex( SETTINGS, 1 );
+        Assert.assertFalse( logIndex.export( "stamp" ).isPresent() );
+
+        Thread.currentThread().interrupt();
+        try
+        {
+            Assert.assertEquals( 0, logIndex.rebuild( List.of( "alice" ).iterator(), 1, logIndex.getGeneration(),
+                    value -> event( WINDOW_1, PwmLogLevel.INFO, value ) ) );
+        }
+        finally
+        {
+            Thread.interrupted();
+        }
+        Assert.assertFalse( logIndex.export( "stamp" ).isPresent() );
+
+        Assert.assertEquals( 1, logIndex.rebuild( List.of( "alice" ).iterator(), 1, logIndex.getGeneration(),
+                value -> event( WINDOW_1, PwmLogLevel.INFO, value ) ) );
+        Assert.assertEquals( 1, logIndex.export( "stamp" ).orElseThrow().getBuckets().size() );
+    }
+
+    private static LocalDBSearchFilter filter( final LocalDBSearchQuery query )
+    {
+        return new LocalDBSearchFilter( query );
+    }
+
+    private static PwmLogEvent event( final Instant timestamp, final PwmLogLevel level, final String username )
+    {
+        final SessionLabel sessionLabel = username == null ? null : SessionLabel.builder().username( username ).build();
+        return PwmLogEvent.createPwmLogEvent( timestamp, "test", "message", sessionLabel, null, level );
+    }
+}
@@ -30,9 +30,15 @@ import password.pwm.config.PwmSetting;
 import password.pwm.error.PwmUnrecoverableException;
 import password.pwm.util.SampleDataGenerator;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 public class MacroTest
 {
@@ -65,6 +71,13 @@ public class MacroTest
             Assert.assertEquals( goal, expanded );
         }
 
+        // multiple macros, expanded more than once from the same template
+        {
+            final String goal = PwmConstants.PWM_APP_NAME + " test " + PwmConstants.PWM_APP_NAME + "@";
+            Assert.assertEquals( goal, macroRequest.expandMacros( "@PwmAppName@ test @PwmAppName@@" ) );
+            Assert.assertEquals( goal, macroRequest.expandMacros( "@PwmAppName@ test @PwmAppName@@" ) );
+        }
+
         // urlEncoding macro
         {
             final String goal = "https%3A%2F%2Fwww.example.com";
@@ -426,4 +439,98 @@ public class MacroTest
             Assert.assertEquals( goal, expanded );
         }
     }
+
+    @Test
+    public void testTemplateMatchOrdering()
+    {
+        final Macro longMacro = new TestMacro( "@Ab[a-z]*@", "long" );
+        final Macro shortMacro = new TestMacro( "@Ab@", "short" );
+        final Macro overlapMacro = new TestMacro( "b@ @A", "overlap" );
+
+        // for matches starting at the same position the macro listed first wins
+        Assert.assertEquals( "x short y", expand( "x @Ab@ y", List.of( shortMacro, longMacro ) ) );
+        Assert.assertEquals( "x long y", expand( "x @Ab@ y", List.of( longMacro, shortMacro ) ) );
+
+        // where matches overlap the one starting first wins, regardless of macro order
+        Assert.assertEquals( "short short", expand( "@Ab@ @Ab@", List.of( overlapMacro, shortMacro ) ) );
+        Assert.assertEquals( "short short", expand( "@Ab@ @Ab@", List.of( shortMacro, overlapMacro ) ) );
+    }
+
+    @Test
+    public void testExpandedValuesNotRescanned()
+    {
+        final Macro valueMacro = new TestMacro( "@Value@", "@Other@" );
+        final Macro otherMacro = new TestMacro( "@Other@", "other" );
+
+        Assert.assertEquals( "@Other@ other", expand( "@Value@ @Other@", List.of( valueMacro, otherMacro ) ) );
+
+        // additional macros, as used for external macros, are matched against the input text only
+        final MacroTemplate template = MacroTemplate.parse( "@Value@ @Other@", List.of( valueMacro ) )
+                .parseLiterals( List.of( otherMacro ) );
+        Assert.assertEquals( "@Other@ other", template.expand( MacroTest::replace ) );
+
+        // post sequence macros wrap the values of other macros
+        final String goal = Base64.getEncoder().encodeToString( PwmConstants.PWM_APP_NAME.getBytes( StandardCharsets.UTF_8 ) );
+        Assert.assertEquals( goal, macroRequest.expandMacros( "@Encode:base64:[[@PwmAppName@]]@" ) );
+    }
+
+    @Test
+    public void testLargeInputNotCached()
+    {
+        final String padding = "x".repeat( MacroMachine.TEMPLATE_CACHE_MAX_INPUT_LENGTH );
+        final String expanded = macroRequest.expandMacros( padding + "@PwmAppName@" + padding );
+        Assert.assertEquals( padding + PwmConstants.PWM_APP_NAME + padding, expanded );
+    }
+
+    private static String expand( final String input, final List<Macro> macros )
+    {
+        return MacroTemplate.parse( input, macros ).expand( MacroTest::replace );
+    }
+
+    private static String replace( final MacroTemplate.Segment segment )
+    {
+        return ( ( TestMacro ) segment.getMacro() ).value;
+    }
+
+    private static class TestMacro implements Macro
+    {
+        private final Pattern pattern;
+        private final String value;
+
+        TestMacro( final String pattern, final String value )
+        {
+            this.pattern = Pattern.compile( pattern );
+            this.value = value;
+        }
+
+        @Override
+        public Pattern getRegExPattern()
+        {
+            return pattern;
+        }
+
+        @Override
+        public String replaceValue( final String matchValue, final MacroRequest macroRequestInfo )
+        {
+            return value;
+        }
+
+        @Override
+        public Set<MacroDefinitionFlag> flags()
+        {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Scope getScope()
+        {
+            return Scope.Static;
+        }
+
+        @Override
+        public Sequence getSequence()
+        {
+            return Sequence.normal;
+        }
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.password;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import password.pwm.config.option.StrengthMeterType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the PWM and ZXCVBN strength meter types, simulating the strength meter being called for each keystroke
+ * of a password being typed.  Unique keystrokes measure the meters themselves, repeated keystrokes measure the
+ * result cache.
+ */
+@State( Scope.Benchmark )
+public class PasswordStrengthBenchmarkExtendedTest
+{
+    private static final String TYPED_PASSWORD = "Correct-Horse-Battery-Staple-1987";
+
+    @Param( { "PWM", "ZXCVBN" } )
+    private StrengthMeterType strengthMeterType;
+
+    private PasswordStrengthEngine engine;
+
+    private final AtomicInteger keystroke = new AtomicInteger();
+
+    @Test
+    public void launchBenchmark()
+            throws Exception
+    {
+        final Options opt = new OptionsBuilder()
+                .include( this.getClass().getName() + ".*" )
+                .mode( Mode.AverageTime )
+                .timeUnit( TimeUnit.MICROSECONDS )
+                .warmupTime( TimeValue.seconds( 5 ) )
+                .measurementIterations( 10 )
+                .threads( 1 )
+                .forks( 1 )
+                .shouldFailOnError( true )
+                .shouldDoGC( true )
+                .build();
+
+        new Runner( opt ).run();
+    }
+
+    @Setup
+    public void setup()
+            throws Exception
+    {
+        engine = PasswordStrengthEngineTest.makeConfig( strengthMeterType ).getPasswordStrengthEngine();
+    }
+
+    @Benchmark
+    public int benchmarkRepeatedKeystroke()
+    {
+        // after the first pass each value is answered by the result cache
+        final int length = 1 + Math.floorMod( keystroke.getAndIncrement(), TYPED_PASSWORD.length() );
+        return engine.judgePasswordStrength( TYPED_PASSWORD.substring( 0, length ) );
+    }
+
+    @Benchmark
+    public int benchmarkUniqueKeystroke()
+    {
+        final int counter = keystroke.getAndIncrement();
+        final int length = 1 + Math.floorMod( counter, TYPED_PASSWORD.length() );
+        return engine.judgePasswordStrength( TYPED_PASSWORD.substring( 0, length ) + counter );
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Password Management Servlets (PWM)
+ * http://www.pwm-project.org
+ *
+ * Copyright (c) 2006-2009 Novell, Inc.
+ * Copyright (c) 2009-2021 The PWM Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package password.pwm.util.password;
+
+import org.junit.Assert;
+import org.junit.Test;
+import password.pwm.bean.DomainID;
+import password.pwm.config.AppConfig;
+import password.pwm.config.DomainConfig;
+import password.pwm.config.PwmSetting;
+import password.pwm.config.option.StrengthMeterType;
+import password.pwm.config.stored.StoredConfigKey;
+import password.pwm.config.stored.StoredConfigurationFactory;
+import password.pwm.config.stored.StoredConfigurationModifier;
+import password.pwm.config.value.StringValue;
+import password.pwm.error.PwmUnrecoverableException;
+import password.pwm.util.secure.PwmHashAlgorithm;
+import password.pwm.util.secure.SecureEngine;
+
+import java.util.List;
+
+public class PasswordStrengthEngineTest
+{
+    static DomainConfig makeConfig( final StrengthMeterType strengthMeterType ) throws PwmUnrecoverableException
+    {
+        final StoredConfigurationModifier modifier = StoredConfigurationModifier.newModifier( StoredConfigurationFactory.newConfig() );
+        final StoredConfigKey key = StoredConfigKey.forSetting( PwmSetting.PASSWORD_STRENGTH_METER_TYPE, null, DomainID.systemId() );
+        modifier.writeSetting( key, new StringValue( strengthMeterType.name() ), null );
+        final AppConfig appConfig = new AppConfig( modifier.newStoredConfiguration() );
+        return appConfig.getDomainConfigs().get( DomainID.DOMAIN_ID_DEFAULT );
+    }
+
+    @Test
+    public void testSharedEngine() throws Exception
+    {
+        final DomainConfig domainConfig = makeConfig( StrengthMeterType.ZXCVBN );
+        Assert.assertSame( domainConfig.getPasswordStrengthEngine(), domainConfig.getPasswordStrengthEngine() );
+    }
+
+    @Test
+    public void testRankedDictionary() throws Exception
+    {
+        final DomainConfig domainConfig = makeConfig( StrengthMeterType.ZXCVBN );
+        final PasswordStrengthEngine engine = domainConfig.getPasswordStrengthEngine();
+
+        final String password = "qorvantelmiz";
+        final int strengthBefore = engine.judgePasswordStrength( password );
+        Assert.assertEquals( strengthBefore, engine.judgePasswordStrength( password ) );
+
+        engine.addRankedDictionary( "test", List.of( "Qorvantelmiz" ) );
+        Assert.assertTrue( engine.getRankedDictionaryNames().contains( "test" ) );
+        Assert.assertTrue( engine.judgePasswordStrength( password ) < strengthBefore );
+    }
+
+    @Test
+    public void testSaltedCacheKey() throws Exception
+    {
+        final DomainConfig domainConfig = makeConfig( StrengthMeterType.ZXCVBN );
+        final PasswordStrengthEngine engine1 = new PasswordStrengthEngine( domainConfig );
+        final PasswordStrengthEngine engine2 = new PasswordStrengthEngine( domainConfig );
+
+        final String password = "password";
+        Assert.assertEquals( engine1.cacheKey( password ), engine1.cacheKey( password ) );
+        Assert.assertNotEquals( engine1.cacheKey( password ), engine2.cacheKey( password ) );
+        Assert.assertNotEquals( SecureEngine.hash( password, PwmHashAlgorithm.SHA256 ), engine1.cacheKey( password ) );
+        Assert.assertEquals( engine1.judgePasswordStrength( password ), engine2.judgePasswordStrength( password ) );
+    }
+}
@@ -278,6 +278,9 @@
                             <td style="font-weight:bold;">
                                 Storage
                             </td>
+                            <td style="font-weight:bold;">
+                                Startup
+                            </td>
                             <td style="font-weight:bold;">
                                 Health
                             </td>
@@ -305,6 +308,9 @@
                                 <br/>
                                 <% } %>
                             </td>
+                            <td>
+                                <%= loopService.getStartupDuration() == null ? "" : loopService.getStartupDuration() %>
+                            </td>
                             <td>
                                 <% if (!CollectionUtil.isEmpty(loopService.getHealth())) { %>
                                 <% for (final HealthRecord loopRecord : loopService.getHealth()) { %>